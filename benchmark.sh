@@ -14,8 +14,30 @@ UPDATE_ADD_COUNT=${UPDATE_ADD_COUNT:-50000}
 QUERY_COUNT=${QUERY_COUNT:-50000}
 DELETE_COUNT=${DELETE_COUNT:-50000}
 PREFIX=${PREFIX:-test8_50000_orders_reversed}
+MONGO_WRITE_STRATEGY=${MONGO_WRITE_STRATEGY:-bulk-ordered}
+POSTGRES_WRITE_STRATEGY=${POSTGRES_WRITE_STRATEGY:-multi-statement}
+POSTGRES_ITEMS_FORMAT=${POSTGRES_ITEMS_FORMAT:-jsonb}
+SEED=${SEED:-42}
+WORKERS=${WORKERS:-1}
+QUERY_BATCH_SIZE=${QUERY_BATCH_SIZE:-1}
+DELETE_MODE=${DELETE_MODE:-by-id}
+DELETE_BATCH_SIZE=${DELETE_BATCH_SIZE:-1}
+POSTGRES_ITEMS_FK=${POSTGRES_ITEMS_FK:-none}
+SECONDARY_QUERY_COUNT=${SECONDARY_QUERY_COUNT:-0}
+ANALYTICS_COUNT=${ANALYTICS_COUNT:-0}
+KEY_TYPE=${KEY_TYPE:-string}
+SERVER_SAMPLE_INTERVAL_MS=${SERVER_SAMPLE_INTERVAL_MS:-0}
+# More than one worker splits each run across local worker processes driven by a coordinator
+if [[ "$WORKERS" -gt 1 ]]; then
+    # Concurrency and pool size apply per worker; keep the total within max_connections=300
+    MODE_ARGS=(--mode coordinator --workers "$WORKERS" --spawn-workers --pool-max-size $((300 / WORKERS)))
+else
+    MODE_ARGS=(--mode measurement)
+fi
 OUTPUT_DIR="$SCRIPT_DIR/benchmark_results"
 mkdir -p "$OUTPUT_DIR"
+# Both databases replay the same pre-generated orders
+WORKLOAD_TAPE="$OUTPUT_DIR/${PREFIX}_${SCENARIO}_workload.tape"
 
 echo "=========================================="
 echo "MongoDB vs PostgreSQL Benchmark"
@@ -26,8 +48,16 @@ echo "Insert Count: $INSERT_COUNT"
 echo "Update Modify Count: $UPDATE_MODIFY_COUNT"
 echo "Update Add Count: $UPDATE_ADD_COUNT"
 echo "Query Count: $QUERY_COUNT"
+echo "Query Batch Size: $QUERY_BATCH_SIZE"
 echo "Delete Count: $DELETE_COUNT"
+echo "Delete Mode: $DELETE_MODE (batch size $DELETE_BATCH_SIZE)"
+echo "Secondary Query Count: $SECONDARY_QUERY_COUNT"
+echo "Analytics Count: $ANALYTICS_COUNT"
+echo "Key Type: $KEY_TYPE"
+echo "Server Sample Interval: ${SERVER_SAMPLE_INTERVAL_MS}ms"
 echo "Prefix: $PREFIX"
+echo "Seed: $SEED"
+echo "Workers: $WORKERS"
 echo "=========================================="
 
 cleanup_containers() {
@@ -45,7 +75,7 @@ run_postgresql_benchmark() {
     
     echo "Running benchmark for PostgreSQL..."
     java -jar "$JAR_FILE" \
-        --mode measurement \
+        "${MODE_ARGS[@]}" \
         --scenario "$SCENARIO" \
         --database postgresql \
         --concurrency "$CONCURRENCY" \
@@ -53,7 +83,19 @@ run_postgresql_benchmark() {
         --update-modify-count "$UPDATE_MODIFY_COUNT" \
         --update-add-count "$UPDATE_ADD_COUNT" \
         --query-count "$QUERY_COUNT" \
+        --query-batch-size "$QUERY_BATCH_SIZE" \
         --delete-count "$DELETE_COUNT" \
+        --delete-mode "$DELETE_MODE" \
+        --delete-batch-size "$DELETE_BATCH_SIZE" \
+        --secondary-query-count "$SECONDARY_QUERY_COUNT" \
+        --analytics-count "$ANALYTICS_COUNT" \
+        --key-type "$KEY_TYPE" \
+        --server-sample-interval-ms "$SERVER_SAMPLE_INTERVAL_MS" \
+        --seed "$SEED" \
+        --workload-tape "$WORKLOAD_TAPE" \
+        --postgres-write-strategy "$POSTGRES_WRITE_STRATEGY" \
+        --postgres-items-format "$POSTGRES_ITEMS_FORMAT" \
+        --postgres-items-fk "$POSTGRES_ITEMS_FK" \
         --connection-string "jdbc:postgresql://localhost:5432/benchmark_db?user=benchmark&password=benchmark_password" \
         --output-file "$OUTPUT_DIR/${PREFIX}_${SCENARIO}_postgres_results.csv"
     
@@ -77,7 +119,7 @@ run_mongodb_benchmark() {
     
     echo "Running benchmark for MongoDB..."
     java -jar "$JAR_FILE" \
-        --mode measurement \
+        "${MODE_ARGS[@]}" \
         --scenario "$SCENARIO" \
         --database mongodb \
         --concurrency "$CONCURRENCY" \
@@ -85,7 +127,17 @@ run_mongodb_benchmark() {
         --update-modify-count "$UPDATE_MODIFY_COUNT" \
         --update-add-count "$UPDATE_ADD_COUNT" \
         --query-count "$QUERY_COUNT" \
+        --query-batch-size "$QUERY_BATCH_SIZE" \
         --delete-count "$DELETE_COUNT" \
+        --delete-mode "$DELETE_MODE" \
+        --delete-batch-size "$DELETE_BATCH_SIZE" \
+        --secondary-query-count "$SECONDARY_QUERY_COUNT" \
+        --analytics-count "$ANALYTICS_COUNT" \
+        --key-type "$KEY_TYPE" \
+        --server-sample-interval-ms "$SERVER_SAMPLE_INTERVAL_MS" \
+        --seed "$SEED" \
+        --workload-tape "$WORKLOAD_TAPE" \
+        --mongo-write-strategy "$MONGO_WRITE_STRATEGY" \
         --connection-string "mongodb://localhost:27017/benchmark_db" \
         --output-file "$OUTPUT_DIR/${PREFIX}_${SCENARIO}_mongodb_results.csv"
     
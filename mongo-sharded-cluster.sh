@@ -0,0 +1,119 @@
+#!/bin/bash
+
+# Local sharded MongoDB cluster on one machine: a single-node config server replica set, SHARDS
+# single-node shard replica sets and one mongos. Every shard is a replica set, so transactions work.
+#
+#   ./mongo-sharded-cluster.sh start [SHARDS]   start a cluster (default: 2 shards)
+#   ./mongo-sharded-cluster.sh stop             stop it and delete its data
+#   ./mongo-sharded-cluster.sh scale            benchmark SHARD_COUNTS x SHARD_KEYS, one fresh cluster per count
+
+set -e
+
+SCRIPT_DIR="$(cd "$(dirname "${BASH_SOURCE[0]}")" && pwd)"
+JAR_FILE="$SCRIPT_DIR/build/libs/postgresql-mongodb-benchmark-1.0.0.jar"
+CLUSTER_DIR=${CLUSTER_DIR:-/tmp/benchmark-sharded-cluster}
+CONFIG_PORT=${CONFIG_PORT:-27100}
+SHARD_BASE_PORT=${SHARD_BASE_PORT:-27101}
+MONGOS_PORT=${MONGOS_PORT:-27200}
+MONGOD_CACHE_GB=${MONGOD_CACHE_GB:-1}
+
+SCENARIO=${SCENARIO:-2}
+CONCURRENCY=${CONCURRENCY:-300}
+OPERATION_COUNT=${OPERATION_COUNT:-20000}
+SHARD_COUNTS=${SHARD_COUNTS:-"1 2 4"}
+SHARD_KEYS=${SHARD_KEYS:-"hashed-id customer-id"}
+CHUNKS_PER_SHARD=${CHUNKS_PER_SHARD:-4}
+SEED=${SEED:-42}
+OUTPUT_DIR="$SCRIPT_DIR/benchmark_results"
+
+wait_for_primary() {
+    local port=$1
+    for _ in $(seq 1 60); do
+        if [[ "$(mongosh --quiet --port "$port" --eval 'db.hello().isWritablePrimary' 2>/dev/null)" == "true" ]]; then
+            return 0
+        fi
+        sleep 1
+    done
+    echo "mongod on port $port did not become primary" >&2
+    return 1
+}
+
+start_replica_set() {
+    local name=$1 port=$2 role=$3
+    mkdir -p "$CLUSTER_DIR/$name"
+    mongod "$role" --replSet "$name" --port "$port" --bind_ip localhost \
+        --dbpath "$CLUSTER_DIR/$name" --logpath "$CLUSTER_DIR/$name.log" --fork \
+        --wiredTigerCacheSizeGB "$MONGOD_CACHE_GB" > /dev/null
+    mongosh --quiet --port "$port" \
+        --eval "rs.initiate({_id: '$name', members: [{_id: 0, host: 'localhost:$port'}]})" > /dev/null
+    wait_for_primary "$port"
+}
+
+start_cluster() {
+    local shards=${1:-2}
+    mkdir -p "$CLUSTER_DIR"
+    echo "Starting config server on port $CONFIG_PORT..."
+    start_replica_set cfg "$CONFIG_PORT" --configsvr
+
+    for i in $(seq 0 $((shards - 1))); do
+        echo "Starting shard$i on port $((SHARD_BASE_PORT + i))..."
+        start_replica_set "shard$i" $((SHARD_BASE_PORT + i)) --shardsvr
+    done
+
+    echo "Starting mongos on port $MONGOS_PORT..."
+    mongos --configdb "cfg/localhost:$CONFIG_PORT" --port "$MONGOS_PORT" --bind_ip localhost \
+        --logpath "$CLUSTER_DIR/mongos.log" --fork > /dev/null
+    for i in $(seq 0 $((shards - 1))); do
+        mongosh --quiet --port "$MONGOS_PORT" \
+            --eval "sh.addShard('shard$i/localhost:$((SHARD_BASE_PORT + i))')" > /dev/null
+    done
+    echo "Cluster ready with $shards shards: mongodb://localhost:$MONGOS_PORT/benchmark_db"
+}
+
+stop_cluster() {
+    echo "Stopping sharded cluster..."
+    pkill -f "mongos .*--port $MONGOS_PORT" 2>/dev/null || true
+    pkill -f "mongod .*--dbpath $CLUSTER_DIR/" 2>/dev/null || true
+    for _ in $(seq 1 30); do
+        pgrep -f "mongo[ds] .*$CLUSTER_DIR" > /dev/null || break
+        sleep 1
+    done
+    rm -rf "$CLUSTER_DIR"
+}
+
+run_scale() {
+    mkdir -p "$OUTPUT_DIR"
+    for shards in $SHARD_COUNTS; do
+        for key in $SHARD_KEYS; do
+            stop_cluster
+            start_cluster "$shards"
+            echo "Running scenario $SCENARIO with $shards shards, shard key $key..."
+            java -jar "$JAR_FILE" \
+                --mode measurement \
+                --scenario "$SCENARIO" \
+                --database mongodb \
+                --concurrency "$CONCURRENCY" \
+                --insert-count "$OPERATION_COUNT" \
+                --update-modify-count "$OPERATION_COUNT" \
+                --update-add-count "$OPERATION_COUNT" \
+                --query-count "$OPERATION_COUNT" \
+                --delete-count "$OPERATION_COUNT" \
+                --seed "$SEED" \
+                --mongo-shard-key "$key" \
+                --mongo-chunks-per-shard "$CHUNKS_PER_SHARD" \
+                --connection-string "mongodb://localhost:$MONGOS_PORT/benchmark_db" \
+                --output-file "$OUTPUT_DIR/sharded_${SCENARIO}_${key}_${shards}shards_results.csv"
+        done
+    done
+    stop_cluster
+}
+
+case "$1" in
+    start) start_cluster "$2" ;;
+    stop) stop_cluster ;;
+    scale) run_scale ;;
+    *)
+        echo "Usage: $0 start [SHARDS] | stop | scale" >&2
+        exit 1
+        ;;
+esac
@@ -0,0 +1,100 @@
+package com.mrscrape.benchmark.jmh;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mrscrape.benchmark.db.codec.ItemsJsonCodec;
+import com.mrscrape.benchmark.model.Item;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the List<Map> + ObjectMapper items mapping previously used by PostgresJsonbOps with ItemsJsonCodec.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class JsonbItemsBenchmark {
+    @Param({"10", "50"})
+    public int itemCount;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ItemsJsonCodec itemsCodec = new ItemsJsonCodec();
+    private List<Item> items;
+    private String json;
+
+    @Setup
+    public void setup() throws Exception {
+        items = new ArrayList<>();
+        for (int i = 1; i <= itemCount; i++) {
+            items.add(new Item("order_42_item_" + i, "order_42", "product_" + i, "Product " + i, 100 + i, 1 + i % 10));
+        }
+        json = itemsCodec.writeItems(items);
+    }
+
+    @Benchmark
+    public String writeMaps() throws Exception {
+        List<Map<String, Object>> itemsList = new ArrayList<>();
+        for (Item item : items) {
+            Map<String, Object> itemMap = new LinkedHashMap<>();
+            itemMap.put("item_id", item.getItemId());
+            itemMap.put("product_id", item.getProductId());
+            itemMap.put("name", item.getName());
+            itemMap.put("price", item.getPrice());
+            itemMap.put("quantity", item.getQuantity());
+            itemsList.add(itemMap);
+        }
+        return objectMapper.writeValueAsString(itemsList);
+    }
+
+    @Benchmark
+    public String writeStreaming() throws Exception {
+        return itemsCodec.writeItems(items);
+    }
+
+    @Benchmark
+    public List<Item> readMaps() throws Exception {
+        List<Map<String, Object>> itemsList = objectMapper.readValue(json,
+                objectMapper.getTypeFactory().constructCollectionType(List.class, Map.class));
+        List<Item> result = new ArrayList<>();
+        for (Map<String, Object> itemMap : itemsList) {
+            result.add(new Item(
+                    (String) itemMap.get("item_id"),
+                    "order_42",
+                    (String) itemMap.get("product_id"),
+                    (String) itemMap.get("name"),
+                    ((Number) itemMap.get("price")).longValue(),
+                    ((Number) itemMap.get("quantity")).longValue()));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<Item> readStreaming() throws Exception {
+        return itemsCodec.readItems(json, "order_42");
+    }
+
+    @Benchmark
+    public long sumMaps() throws Exception {
+        List<Map<String, Object>> itemsList = objectMapper.readValue(json,
+                objectMapper.getTypeFactory().constructCollectionType(List.class, Map.class));
+        return itemsList.stream()
+                .mapToLong(item -> ((Number) item.get("price")).longValue() * ((Number) item.get("quantity")).longValue())
+                .sum();
+    }
+
+    @Benchmark
+    public long sumStreaming() throws Exception {
+        return itemsCodec.sumLineTotals(json);
+    }
+}
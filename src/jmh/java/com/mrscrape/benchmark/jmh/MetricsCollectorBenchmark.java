@@ -0,0 +1,49 @@
+package com.mrscrape.benchmark.jmh;
+
+import com.mrscrape.benchmark.metrics.LatencyHistogram;
+import com.mrscrape.benchmark.metrics.MetricsCollector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency recording under contention, the way a phase does it: every iteration starts from an empty collector
+ * and four threads record 10,000 latencies each, so the score is the cost of recording one 40,000-operation phase.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(4)
+@Warmup(batchSize = 10_000)
+@Measurement(batchSize = 10_000)
+public class MetricsCollectorBenchmark {
+    private MetricsCollector collector;
+    private LatencyHistogram histogram;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        collector = new MetricsCollector();
+        histogram = new LatencyHistogram();
+    }
+
+    @Benchmark
+    public void recordLatency() {
+        collector.recordLatency("insert", ThreadLocalRandom.current().nextDouble(0.5, 20));
+    }
+
+    @Benchmark
+    public void recordHistogram() {
+        histogram.record(ThreadLocalRandom.current().nextLong(500_000, 20_000_000));
+    }
+}
@@ -0,0 +1,130 @@
+package com.mrscrape.benchmark.jmh;
+
+import com.mrscrape.benchmark.db.MongoConnection;
+import com.mrscrape.benchmark.model.Item;
+import com.mrscrape.benchmark.model.Order;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.Document;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.io.BasicOutputBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the Document-based mapping previously used by MongoEmbeddedOps with OrderCodec.
+ * Run with -prof gc to get gc.alloc.rate.norm (bytes allocated per operation).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MongoCodecBenchmark {
+    @Param({"5", "50"})
+    public int itemCount;
+
+    private Codec<Document> documentCodec;
+    private Codec<Order> orderCodec;
+    private Order order;
+    private byte[] encoded;
+
+    @Setup
+    public void setup() {
+        CodecRegistry registry = MongoConnection.createCodecRegistry();
+        documentCodec = registry.get(Document.class);
+        orderCodec = registry.get(Order.class);
+
+        order = new Order("order_42", "customer_42", Instant.parse("2024-01-01T00:00:00Z"), "pending");
+        for (int i = 1; i <= itemCount; i++) {
+            order.addItem(new Item("order_42_item_" + i, "order_42", "product_" + i, "Product " + i, 100 + i, 1 + i % 10));
+        }
+        order.recalculateTotalAmount();
+        encoded = encodeWithCodec();
+    }
+
+    @Benchmark
+    public byte[] encodeDocument() {
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        documentCodec.encode(new BsonBinaryWriter(buffer), toDocument(order), EncoderContext.builder().build());
+        return buffer.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] encodeCodec() {
+        return encodeWithCodec();
+    }
+
+    @Benchmark
+    public Order decodeDocument() {
+        Document document = documentCodec.decode(reader(), DecoderContext.builder().build());
+        return fromDocument(document);
+    }
+
+    @Benchmark
+    public Order decodeCodec() {
+        return orderCodec.decode(reader(), DecoderContext.builder().build());
+    }
+
+    private byte[] encodeWithCodec() {
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        orderCodec.encode(new BsonBinaryWriter(buffer), order, EncoderContext.builder().build());
+        return buffer.toByteArray();
+    }
+
+    private BsonBinaryReader reader() {
+        return new BsonBinaryReader(ByteBuffer.wrap(encoded));
+    }
+
+    private static Document toDocument(Order order) {
+        List<Document> itemDocs = new ArrayList<>();
+        for (Item item : order.getItems()) {
+            itemDocs.add(new Document()
+                    .append("item_id", item.getItemId())
+                    .append("product_id", item.getProductId())
+                    .append("name", item.getName())
+                    .append("price", item.getPrice())
+                    .append("quantity", item.getQuantity()));
+        }
+        return new Document()
+                .append("_id", order.getOrderId())
+                .append("customer_id", order.getCustomerId())
+                .append("order_date", order.getOrderDate())
+                .append("total_amount", order.getTotalAmount())
+                .append("status", order.getStatus())
+                .append("items", itemDocs);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Order fromDocument(Document orderDoc) {
+        Order result = new Order(
+                orderDoc.getString("_id"),
+                orderDoc.getString("customer_id"),
+                orderDoc.getDate("order_date").toInstant(),
+                orderDoc.getString("status"));
+        result.setTotalAmount(((Number) orderDoc.get("total_amount")).longValue());
+        for (Document itemDoc : (List<Document>) orderDoc.get("items")) {
+            result.addItem(new Item(
+                    itemDoc.getString("item_id"),
+                    result.getOrderId(),
+                    itemDoc.getString("product_id"),
+                    itemDoc.getString("name"),
+                    ((Number) itemDoc.get("price")).longValue(),
+                    ((Number) itemDoc.get("quantity")).longValue()));
+        }
+        return result;
+    }
+}
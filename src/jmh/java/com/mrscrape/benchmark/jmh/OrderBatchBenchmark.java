@@ -0,0 +1,59 @@
+package com.mrscrape.benchmark.jmh;
+
+import com.mrscrape.benchmark.model.Order;
+import com.mrscrape.benchmark.workload.OrderBatch;
+import com.mrscrape.benchmark.workload.OrderGenerator;
+import com.mrscrape.benchmark.workload.OrderShape;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares building an insert order as Order/Item objects with appending it to an OrderBatch; run with
+ * -prof gc to see bytes allocated per order. Batches are reused, as the insert pipeline drops them once consumed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class OrderBatchBenchmark {
+    private static final int ORDERS_PER_BATCH = 256;
+
+    @Param({"10", "50"})
+    public int itemCount;
+
+    private OrderGenerator generator;
+    private OrderBatch batch;
+    private OrderShape shape;
+    private int next;
+
+    @Setup
+    public void setup() {
+        shape = OrderShape.of(String.valueOf(itemCount), 0, 0, 0, OrderShape.DEFAULT_ATTRIBUTE_LENGTH,
+                OrderShape.DEFAULT_UPDATE_ADD_ITEMS, OrderShape.DEFAULT_CUSTOMERS, OrderShape.DEFAULT_STATUS_MIX);
+        generator = new OrderGenerator(shape, 42L);
+        batch = new OrderBatch(ORDERS_PER_BATCH, ORDERS_PER_BATCH * itemCount, shape);
+    }
+
+    @Benchmark
+    public long generateOrder() {
+        Order order = generator.generateOrder(next++ & 0xFFFF);
+        return order.calculateTotalAmount();
+    }
+
+    @Benchmark
+    public long appendToBatch() {
+        int position = generator.appendTo(batch, next++ & 0xFFFF);
+        if (position < 0) {
+            batch = new OrderBatch(ORDERS_PER_BATCH, ORDERS_PER_BATCH * itemCount, shape);
+            position = generator.appendTo(batch, next & 0xFFFF);
+        }
+        return batch.totalAmount(position);
+    }
+}
@@ -0,0 +1,48 @@
+package com.mrscrape.benchmark.jmh;
+
+import com.mrscrape.benchmark.db.RetryUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fixed cost RetryUtil adds to every successful database call (call counters, retry budget, lambda wrapping),
+ * single-threaded and with eight threads sharing the static metrics.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RetryUtilBenchmark {
+    private long value = 42;
+
+    private long operation() {
+        return value * 31;
+    }
+
+    @Benchmark
+    public long direct() {
+        return operation();
+    }
+
+    @Benchmark
+    public long executeWithRetry() throws Exception {
+        return RetryUtil.executeWithRetry(this::operation, "benchmark.op");
+    }
+
+    @Benchmark
+    public void executeVoidWithRetry() throws Exception {
+        RetryUtil.executeVoidWithRetry(this::operation, "benchmark.op");
+    }
+
+    @Benchmark
+    @Threads(8)
+    public long executeWithRetryContended() throws Exception {
+        return RetryUtil.executeWithRetry(this::operation, "benchmark.op");
+    }
+}
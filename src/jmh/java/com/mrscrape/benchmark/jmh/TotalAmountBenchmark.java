@@ -0,0 +1,59 @@
+package com.mrscrape.benchmark.jmh;
+
+import com.mrscrape.benchmark.model.Item;
+import com.mrscrape.benchmark.model.Order;
+import com.mrscrape.benchmark.workload.OrderBatch;
+import com.mrscrape.benchmark.workload.OrderGenerator;
+import com.mrscrape.benchmark.workload.OrderShape;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order total computed with the former stream pipeline, the indexed loop in Order.calculateTotalAmount
+ * and OrderBatch.totalAmount over primitive arrays.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TotalAmountBenchmark {
+    @Param({"10", "50"})
+    public int itemCount;
+
+    private Order order;
+    private OrderBatch batch;
+
+    @Setup
+    public void setup() {
+        OrderShape shape = OrderShape.of(String.valueOf(itemCount), 0, 0, 0, OrderShape.DEFAULT_ATTRIBUTE_LENGTH,
+                OrderShape.DEFAULT_UPDATE_ADD_ITEMS, OrderShape.DEFAULT_CUSTOMERS, OrderShape.DEFAULT_STATUS_MIX);
+        OrderGenerator generator = new OrderGenerator(shape, 42L);
+        order = generator.generateOrder(42);
+        batch = new OrderBatch(1, itemCount, shape);
+        generator.appendTo(batch, 42);
+    }
+
+    @Benchmark
+    public long stream() {
+        return order.getItems().stream()
+                .mapToLong(Item::calculateLineTotal)
+                .sum();
+    }
+
+    @Benchmark
+    public long orderLoop() {
+        return order.calculateTotalAmount();
+    }
+
+    @Benchmark
+    public long batchArrays() {
+        return batch.totalAmount(0);
+    }
+}
@@ -2,39 +2,101 @@ package com.mrscrape.benchmark;
 
 import com.mrscrape.benchmark.config.BenchmarkConfig;
 import com.mrscrape.benchmark.concurrency.VirtualThreadExecutor;
+import com.mrscrape.benchmark.db.AnalyticsQuery;
 import com.mrscrape.benchmark.db.DatabaseOperations;
 import com.mrscrape.benchmark.db.MongoConnection;
+import com.mrscrape.benchmark.db.MongoRetryClassifier;
+import com.mrscrape.benchmark.db.MongoServerStats;
+import com.mrscrape.benchmark.db.MongoShardKey;
+import com.mrscrape.benchmark.db.MongoSharding;
 import com.mrscrape.benchmark.db.PostgresConnection;
+import com.mrscrape.benchmark.db.PostgresRetryClassifier;
+import com.mrscrape.benchmark.db.PostgresServerStats;
+import com.mrscrape.benchmark.db.RetryBudget;
+import com.mrscrape.benchmark.db.RetryClassifier;
+import com.mrscrape.benchmark.db.RetryPolicy;
+import com.mrscrape.benchmark.db.RetryUtil;
+import com.mrscrape.benchmark.db.SecondaryQuery;
+import com.mrscrape.benchmark.db.StorageStats;
+import com.mrscrape.benchmark.db.inmemory.InMemoryOps;
+import com.mrscrape.benchmark.distributed.Coordinator;
+import com.mrscrape.benchmark.distributed.PhaseResult;
+import com.mrscrape.benchmark.distributed.WorkerLink;
 import com.mrscrape.benchmark.db.scenario1.MongoEmbeddedOps;
+import com.mrscrape.benchmark.db.scenario1.PostgresItemsFormat;
 import com.mrscrape.benchmark.db.scenario1.PostgresJsonbOps;
 import com.mrscrape.benchmark.db.scenario2.MongoMultiDocOps;
+import com.mrscrape.benchmark.db.scenario2.MongoWriteStrategy;
+import com.mrscrape.benchmark.db.scenario2.PostgresItemsForeignKey;
 import com.mrscrape.benchmark.db.scenario2.PostgresMultiTableOps;
+import com.mrscrape.benchmark.db.scenario2.PostgresWriteStrategy;
+import com.mrscrape.benchmark.metrics.ClientResourceMetrics;
 import com.mrscrape.benchmark.metrics.CsvOutput;
 import com.mrscrape.benchmark.metrics.MetricsCollector;
-import com.mrscrape.benchmark.model.Item;
+import com.mrscrape.benchmark.metrics.PoolMetrics;
+import com.mrscrape.benchmark.metrics.ServerSampler;
 import com.mrscrape.benchmark.model.Order;
+import com.mrscrape.benchmark.workload.KeyType;
+import com.mrscrape.benchmark.workload.OrderBatch;
+import com.mrscrape.benchmark.workload.OrderGenerator;
+import com.mrscrape.benchmark.workload.OrderPipeline;
+import com.mrscrape.benchmark.workload.OrderShape;
+import com.mrscrape.benchmark.workload.WorkloadTape;
+import com.mongodb.ReadConcern;
+import com.mongodb.TransactionOptions;
+import com.mongodb.WriteConcern;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import picocli.CommandLine;
 
 import java.io.BufferedReader;
 import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 public class BenchmarkApp implements Runnable {
     private static final Logger logger = LoggerFactory.getLogger(BenchmarkApp.class);
     
     private BenchmarkConfig config;
+    private MongoConnection mongoConnection;
+    private PostgresConnection postgresConnection;
+    private OrderGenerator orderGenerator;
+    private WorkloadTape workloadTape;
+    // Storage footprint after the previous phase (or setup), for each phase's growth
+    private long lastStorageBytes;
+    private final ClientResourceMetrics clientResources = new ClientResourceMetrics();
+    private String[] commandLineArgs = new String[0];
+    // This process's share of every phase's operations; 0 of 1 unless it runs as a coordinator's worker
+    private int workerIndex = 0;
+    private int workerCount = 1;
+
+    // Called by a phase once it is ready to issue operations, right before its clock starts
+    private interface PhaseStart {
+        void await(String phase) throws Exception;
+    }
+
+    private static final PhaseStart IMMEDIATE_START = phase -> { };
 
     public BenchmarkApp(BenchmarkConfig config) {
         this.config = config;
     }
 
+    public BenchmarkApp(BenchmarkConfig config, String[] commandLineArgs) {
+        this.config = config;
+        this.commandLineArgs = commandLineArgs;
+    }
+
     @Override
     public void run() {
         try {
@@ -42,8 +104,14 @@ public class BenchmarkApp implements Runnable {
             
             if ("measurement".equalsIgnoreCase(config.getMode())) {
                 runMeasurement();
+            } else if ("sweep".equalsIgnoreCase(config.getMode())) {
+                runSweep();
             } else if ("aggregation".equalsIgnoreCase(config.getMode())) {
                 runAggregation();
+            } else if ("coordinator".equalsIgnoreCase(config.getMode())) {
+                runCoordinator();
+            } else if ("worker".equalsIgnoreCase(config.getMode())) {
+                runWorker();
             }
         } catch (Exception e) {
             logger.error("Benchmark failed", e);
@@ -51,105 +119,499 @@ public class BenchmarkApp implements Runnable {
         }
     }
 
+    private static final int SECONDARY_QUERY_PRODUCTS = 5;
+    private static final List<String> PHASES = List.of("insert", "update-modify", "update-add", "query", "delete");
+
+    // The optional read phases see the full data set, so they run before delete shrinks it
+    private List<String> phases() {
+        List<String> phases = new ArrayList<>(PHASES);
+        if (config.getSecondaryQueryCount() > 0) {
+            phases.add(phases.indexOf("delete"), "secondary-query");
+        }
+        if (config.getAnalyticsCount() > 0) {
+            phases.add(phases.indexOf("delete"), "analytics");
+        }
+        return phases;
+    }
+
+    // Secondary indexes cost insert throughput, so they only exist when the phase that needs them runs
+    private void setupSchema(DatabaseOperations operations) throws Exception {
+        operations.setup();
+        if (config.getSecondaryQueryCount() > 0) {
+            operations.createSecondaryIndexes();
+        }
+        StorageStats baseline = operations.storageStats();
+        lastStorageBytes = baseline != null ? baseline.totalBytes() : 0;
+    }
+
+    // Drops what setup and the previous phase's reports left in the per-phase counters
+    private void resetPhaseMetrics(PoolMetrics poolMetrics) {
+        poolMetrics.reset();
+        clientResources.reset();
+        if (mongoConnection != null) {
+            mongoConnection.getCommandStats().reset();
+        }
+    }
+
+    // Footprint after a phase as <phase>_storage_<part>_bytes, with the total, bytes per stored order and the
+    // growth since the previous phase; not timed, and COUNT(*) on PostgreSQL scans the orders table
+    private void recordStorageStats(String phase, DatabaseOperations operations, MetricsCollector collector)
+            throws Exception {
+        StorageStats stats = operations.storageStats();
+        if (stats == null) {
+            return;
+        }
+        stats.bytes().forEach((part, bytes) -> collector.recordMetric(phase + "_storage_" + part + "_bytes", bytes));
+        collector.recordMetric(phase + "_storage_total_bytes", stats.totalBytes());
+        collector.recordMetric(phase + "_storage_growth_bytes", stats.totalBytes() - lastStorageBytes);
+        collector.recordMetric(phase + "_storage_orders", stats.orderCount());
+        if (stats.orderCount() > 0) {
+            collector.recordMetric(phase + "_storage_bytes_per_order", (double) stats.totalBytes() / stats.orderCount());
+        }
+        lastStorageBytes = stats.totalBytes();
+    }
+
+    // Samples over their own connection, so the benchmark pool and its wire-byte counters are unaffected
+    private ServerSampler startServerSampler(MetricsCollector collector) throws Exception {
+        if (config.getServerSampleIntervalMs() == 0) {
+            return null;
+        }
+        ServerSampler.Source source;
+        if ("postgresql".equalsIgnoreCase(config.getDatabase())) {
+            source = new PostgresServerStats(config.getConnectionString());
+        } else if ("mongodb".equalsIgnoreCase(config.getDatabase())) {
+            source = new MongoServerStats(config.getConnectionString());
+        } else {
+            logger.info("No server statistics to sample for {}", config.getDatabase());
+            return null;
+        }
+        ServerSampler sampler = new ServerSampler(source, config.getServerSampleIntervalMs(), collector);
+        try {
+            sampler.start();
+        } catch (Exception e) {
+            sampler.close();
+            throw e;
+        }
+        return sampler;
+    }
+
     private void runMeasurement() throws Exception {
         logger.info("Starting benchmark in MEASUREMENT mode");
         logger.info("Scenario: {}, Database: {}", config.getScenario(), config.getDatabase());
+        logger.info("Order shape: {}", config.getOrderShape());
         
-        DatabaseOperations operations = createDatabaseOperations();
-        VirtualThreadExecutor executor = new VirtualThreadExecutor(config.getConcurrency());
+        configureRetryPolicy();
         MetricsCollector collector = new MetricsCollector();
+        prepareWorkload(collector);
+        PoolMetrics poolMetrics = new PoolMetrics();
+        DatabaseOperations operations = createDatabaseOperations(config.getPoolMaxSize(), poolMetrics);
+        VirtualThreadExecutor executor = new VirtualThreadExecutor(config.getConcurrency());
+        ServerSampler sampler = null;
         
         try {
-            operations.setup();
+            setupSchema(operations);
             logger.info("Database schema setup completed");
+            sampler = startServerSampler(collector);
             
-            runInserts(executor, operations, collector);
-            executor.waitForCompletion();
-            collector.endTime("insert");
-            logger.info("INSERT operations completed");
+            for (String phase : phases()) {
+                resetPhaseMetrics(poolMetrics);
+                if (sampler != null) {
+                    runPhase(phase, executor, operations, collector, sampler::beginPhase);
+                    sampler.endPhase();
+                } else {
+                    runPhase(phase, executor, operations, collector);
+                }
+                poolMetrics.recordTo(collector, phase);
+                clientResources.recordTo(collector, phase, collector.getOperationCount(phase));
+                operations.recordPhaseMetrics(phase, collector);
+                if ("secondary-query".equals(phase)) {
+                    operations.recordIndexSizes(phase, collector);
+                }
+                recordStorageStats(phase, operations, collector);
+            }
             
-            runUpdateModify(executor, operations, collector);
-            executor.waitForCompletion();
-            collector.endTime("update-modify");
-            logger.info("UPDATE-MODIFY operations completed");
+            logger.info("All operations completed");
             
-            runUpdateAdd(executor, operations, collector);
-            executor.waitForCompletion();
-            collector.endTime("update-add");
-            logger.info("UPDATE-ADD operations completed");
+            checkForFailures(executor, collector);
             
-            runQueries(executor, operations, collector);
-            executor.waitForCompletion();
-            collector.endTime("query");
-            logger.info("QUERY operations completed");
+            RetryUtil.getMetrics().recordTo(collector);
+            orderGenerator.recordTo(collector);
+            CsvOutput.writeMeasurementResults(config.getOutputFile(), collector);
+            logger.info("Results written to: {}", config.getOutputFile());
+            if (sampler != null) {
+                CsvOutput.writeTimeSeries(config.getServerSamplesFile(), sampler.getRows());
+                logger.info("Server samples written to: {}", config.getServerSamplesFile());
+            }
             
-            runDeletes(executor, operations, collector);
-            executor.waitForCompletion();
-            collector.endTime("delete");
-            logger.info("DELETE operations completed");
+        } finally {
+            if (sampler != null) {
+                sampler.close();
+            }
+            executor.shutdown();
+            operations.teardown();
+            closeConnections();
+            logger.info("Database cleanup completed");
+        }
+    }
+
+    private void runSweep() throws Exception {
+        String sweepPhase = config.getPoolSweepPhase().toLowerCase();
+        logger.info("Starting benchmark in SWEEP mode");
+        logger.info("Scenario: {}, Database: {}, Phase: {}, Pool sizes: {}", config.getScenario(),
+                config.getDatabase(), sweepPhase, config.getPoolSweepSizes());
+        
+        configureRetryPolicy();
+        MetricsCollector sweepCollector = new MetricsCollector();
+        prepareWorkload(sweepCollector);
+        List<Integer> poolSizes = config.getPoolSweepSizeList();
+        long[] throughputs = new long[poolSizes.size()];
+        
+        for (int i = 0; i < poolSizes.size(); i++) {
+            int poolSize = poolSizes.get(i);
+            logger.info("Sweep run with pool size {}", poolSize);
             
-            logger.info("All operations completed");
+            PoolMetrics poolMetrics = new PoolMetrics();
+            DatabaseOperations operations = createDatabaseOperations(poolSize, poolMetrics);
+            VirtualThreadExecutor executor = new VirtualThreadExecutor(config.getConcurrency());
+            MetricsCollector collector = new MetricsCollector();
             
-            if (executor.getExceptionCount() > 0) {
-                logger.error("Benchmark encountered {} exceptions in virtual threads:", executor.getExceptionCount());
-                for (Exception ex : executor.getExceptions()) {
-                    logger.error("  - {}", ex.getMessage(), ex);
+            try {
+                setupSchema(operations);
+                
+                // Every phase after insert needs the inserted orders to operate on
+                if (!"insert".equals(sweepPhase)) {
+                    MetricsCollector preparationCollector = new MetricsCollector();
+                    runPhase("insert", executor, operations, preparationCollector);
+                    checkForFailures(executor, preparationCollector);
                 }
-                throw new Exception("Benchmark failed due to " + executor.getExceptionCount() + " exceptions in virtual threads");
+                resetPhaseMetrics(poolMetrics);
+                runPhase(sweepPhase, executor, operations, collector);
+                checkForFailures(executor, collector);
+                
+                String prefix = "pool_sweep_" + poolSize;
+                throughputs[i] = collector.getThroughput(sweepPhase);
+                sweepCollector.recordMetric(prefix + "_throughput_ops_per_sec", throughputs[i]);
+                sweepCollector.recordMetric(prefix + "_avg_latency_ms", collector.getAverageDuration(sweepPhase));
+                sweepCollector.recordMetric(prefix + "_p50_latency_ms", collector.getP50(sweepPhase));
+                sweepCollector.recordMetric(prefix + "_p99_latency_ms", collector.getP99(sweepPhase));
+                poolMetrics.recordTo(sweepCollector, prefix);
+                clientResources.recordTo(sweepCollector, prefix, collector.getOperationCount(sweepPhase));
+                operations.recordPhaseMetrics(prefix, sweepCollector);
+            } finally {
+                executor.shutdown();
+                operations.teardown();
+                closeConnections();
+            }
+        }
+        
+        recordSweepKnee(sweepCollector, poolSizes, throughputs);
+        CsvOutput.writeMeasurementResults(config.getOutputFile(), sweepCollector);
+        logger.info("Sweep results written to: {}", config.getOutputFile());
+    }
+
+    // The knee is the smallest pool size that reaches 95% of the best observed throughput;
+    // growing the pool beyond it only adds contention on the database side.
+    private void recordSweepKnee(MetricsCollector sweepCollector, List<Integer> poolSizes, long[] throughputs) {
+        long peakThroughput = 0;
+        int peakSize = 0;
+        for (int i = 0; i < throughputs.length; i++) {
+            if (throughputs[i] > peakThroughput) {
+                peakThroughput = throughputs[i];
+                peakSize = poolSizes.get(i);
             }
+        }
+        
+        int kneeSize = peakSize;
+        for (int i = 0; i < throughputs.length; i++) {
+            if (throughputs[i] >= peakThroughput * 0.95 && poolSizes.get(i) < kneeSize) {
+                kneeSize = poolSizes.get(i);
+            }
+        }
+        
+        sweepCollector.recordMetric("pool_sweep_peak_size", peakSize);
+        sweepCollector.recordMetric("pool_sweep_peak_throughput_ops_per_sec", peakThroughput);
+        sweepCollector.recordMetric("pool_sweep_knee_size", kneeSize);
+        logger.info("Pool sweep peak throughput {} ops/sec at size {}, knee at size {}", peakThroughput, peakSize, kneeSize);
+    }
+
+    private void runCoordinator() throws Exception {
+        logger.info("Starting benchmark in COORDINATOR mode with {} workers", config.getWorkers());
+        logger.info("Scenario: {}, Database: {}", config.getScenario(), config.getDatabase());
+        
+        MetricsCollector collector = new MetricsCollector();
+        // Recorded once here, so that workers only open the tape instead of racing to write it
+        prepareWorkload(collector);
+        List<String> workerArgs = withoutOptions(List.of(commandLineArgs), "--connection-string", "--coordinator-token");
+        if (config.getSeed() == null && workloadTape != null) {
+            workerArgs.add("--seed");
+            workerArgs.add(String.valueOf(workloadTape.getSeed()));
+        }
+        
+        Coordinator coordinator = new Coordinator(config.getCoordinatorPort(), config.getWorkers(), workerArgs,
+                config.getCoordinatorToken(), config.isSpawnWorkers() ? BenchmarkApp.class.getName() : null,
+                List.of("--connection-string", config.getConnectionString()));
+        coordinator.run(phases(), collector);
+        logger.info("All operations completed");
+        
+        checkForOperationFailures(collector);
+        CsvOutput.writeMeasurementResults(config.getOutputFile(), collector);
+        logger.info("Results written to: {}", config.getOutputFile());
+    }
+
+    // Credentials stay on the coordinator's host: workers are started with their own
+    private static List<String> withoutOptions(List<String> args, String... names) {
+        List<String> dropped = List.of(names);
+        List<String> kept = new ArrayList<>(args.size());
+        for (int i = 0; i < args.size(); i++) {
+            String arg = args.get(i);
+            if (dropped.contains(arg)) {
+                i++;
+            } else if (!dropped.contains(arg.split("=", 2)[0])) {
+                kept.add(arg);
+            }
+        }
+        return kept;
+    }
+
+    private void runWorker() throws Exception {
+        logger.info("Starting benchmark in WORKER mode for coordinator {}", config.getCoordinator());
+        try (WorkerLink link = WorkerLink.connect(config.getCoordinator())) {
+            link.send(WorkerLink.HELLO, "", config.getCoordinatorToken().getBytes(StandardCharsets.UTF_8));
+            WorkerLink.Assignment assignment = WorkerLink.Assignment.decode(link.expect(WorkerLink.CONFIG).payload());
+            BenchmarkConfig workerConfig = new BenchmarkConfig();
+            new CommandLine(workerConfig).parseArgs(assignment.args().toArray(new String[0]));
+            workerConfig.setConnectionString(config.getConnectionString());
+            workerConfig.setCoordinatorToken(config.getCoordinatorToken());
+            workerConfig.validate();
             
-            if (collector.getFailureCount() > 0) {
-                logger.error("Benchmark completed with {} operation failures:", collector.getFailureCount());
-                for (String failure : collector.getFailures()) {
-                    logger.error("  - {}", failure);
+            BenchmarkApp worker = new BenchmarkApp(workerConfig);
+            worker.workerIndex = assignment.workerIndex();
+            worker.workerCount = assignment.workerCount();
+            try {
+                worker.serve(link);
+            } catch (Exception e) {
+                link.sendFailure(e);
+                throw e;
+            }
+        }
+    }
+
+    // Runs this worker's share of each phase when the coordinator says so, until it sends FINISH
+    private void serve(WorkerLink link) throws Exception {
+        logger.info("Worker {} of {}: scenario {}, database {}", workerIndex, workerCount, config.getScenario(),
+                config.getDatabase());
+        configureRetryPolicy();
+        prepareWorkload(new MetricsCollector());
+        PoolMetrics poolMetrics = new PoolMetrics();
+        DatabaseOperations operations = createDatabaseOperations(config.getPoolMaxSize(), poolMetrics);
+        VirtualThreadExecutor executor = new VirtualThreadExecutor(config.getConcurrency());
+        // One worker manages the shared schema
+        boolean ownsSchema = workerIndex == 0;
+        
+        try {
+            link.send(WorkerLink.CONNECTED, "");
+            while (true) {
+                WorkerLink.Message message = link.receive();
+                String phase = message.phase();
+                if (WorkerLink.SETUP.equals(message.type())) {
+                    if (ownsSchema) {
+                        setupSchema(operations);
+                    }
+                    link.send(WorkerLink.DONE, "");
+                } else if (WorkerLink.PREPARE.equals(message.type())) {
+                    MetricsCollector collector = new MetricsCollector();
+                    int exceptionsBefore = executor.getExceptionCount();
+                    resetPhaseMetrics(poolMetrics);
+                    runPhase(phase, executor, operations, collector, ready -> {
+                        link.send(WorkerLink.READY, ready);
+                        link.expect(WorkerLink.GO);
+                    });
+                    List<Exception> exceptions = executor.getExceptions();
+                    for (Exception e : exceptions.subList(exceptionsBefore, exceptions.size())) {
+                        collector.recordFailure(phase, e);
+                    }
+                    poolMetrics.recordTo(collector, phase);
+                    clientResources.recordTo(collector, phase, collector.getOperationCount(phase));
+                    operations.recordPhaseMetrics(phase, collector);
+                    if (ownsSchema && "secondary-query".equals(phase)) {
+                        operations.recordIndexSizes(phase, collector);
+                    }
+                    if (ownsSchema) {
+                        recordStorageStats(phase, operations, collector);
+                    }
+                    link.send(WorkerLink.DONE, phase, PhaseResult.of(phase, collector).encode());
+                } else if (WorkerLink.FINISH.equals(message.type())) {
+                    MetricsCollector collector = new MetricsCollector();
+                    RetryUtil.getMetrics().recordTo(collector);
+                    orderGenerator.recordTo(collector);
+                    link.send(WorkerLink.DONE, "", PhaseResult.of("", collector).encode());
+                    return;
+                } else {
+                    throw new IOException("Unexpected message from coordinator: " + message.type());
                 }
-                throw new Exception("Benchmark failed due to " + collector.getFailureCount() + " operation failures");
             }
-            
-            CsvOutput.writeMeasurementResults(config.getOutputFile(), collector);
-            logger.info("Results written to: {}", config.getOutputFile());
-            
         } finally {
             executor.shutdown();
-            operations.teardown();
-            logger.info("Database cleanup completed");
+            if (ownsSchema) {
+                operations.teardown();
+            }
+            closeConnections();
         }
     }
 
-    private void runInserts(VirtualThreadExecutor executor, DatabaseOperations operations, 
+    // Builds the shared OrderGenerator and, with --workload-tape, opens or records the tape it replays
+    private void prepareWorkload(MetricsCollector collector) throws IOException {
+        OrderShape shape = config.getOrderShape();
+        Long seed = config.getSeed();
+        KeyType keyType = KeyType.fromOption(config.getKeyType());
+        workloadTape = null;
+        if (config.getWorkloadTape() == null) {
+            orderGenerator = new OrderGenerator(shape, seed, keyType);
+            return;
+        }
+        
+        Path path = Paths.get(config.getWorkloadTape());
+        if (Files.exists(path)) {
+            WorkloadTape existing = WorkloadTape.open(path);
+            if (existing.matches(seed, shape, config.getInsertCount(), config.getUpdateAddCount())) {
+                workloadTape = existing;
+                logger.info("Replaying workload tape {} (seed {})", path, existing.getSeed());
+            } else {
+                logger.info("Workload tape {} does not match seed, shape or counts; regenerating", path);
+            }
+        }
+        if (workloadTape == null) {
+            if (seed == null) {
+                seed = ThreadLocalRandom.current().nextLong();
+            }
+            long startNs = System.nanoTime();
+            workloadTape = WorkloadTape.create(path, new OrderGenerator(shape, seed, keyType), config.getInsertCount(),
+                    config.getUpdateAddCount());
+            double generationMs = (System.nanoTime() - startNs) / 1_000_000.0;
+            collector.recordMetric("workload_tape_generation_ms", generationMs);
+            logger.info("Recorded workload tape {} (seed {}) in {} ms", path, workloadTape.getSeed(),
+                    Math.round(generationMs));
+        }
+        collector.recordMetric("workload_tape_bytes", workloadTape.getSizeBytes());
+        
+        orderGenerator = new OrderGenerator(shape, workloadTape.getSeed(), keyType);
+        orderGenerator.attachTape(workloadTape);
+    }
+
+    // Contiguous slice [shareStart, shareEnd) of a phase's operations owned by this process
+    private int shareStart(int operations) {
+        return (int) ((long) operations * workerIndex / workerCount);
+    }
+
+    private int shareEnd(int operations) {
+        return (int) ((long) operations * (workerIndex + 1) / workerCount);
+    }
+
+    private void configureRetryPolicy() {
+        RetryClassifier classifier = "mongodb".equalsIgnoreCase(config.getDatabase())
+                ? new MongoRetryClassifier()
+                : new PostgresRetryClassifier();
+        RetryUtil.configure(new RetryPolicy(classifier, config.getRetryMaxAttempts(), config.getRetryBaseDelayMs(),
+                config.getRetryMaxDelayMs(), new RetryBudget(config.getRetryBudgetPercent(), 10, 1000)));
+        RetryUtil.getMetrics().reset();
+    }
+
+    private void runPhase(String phase, VirtualThreadExecutor executor, DatabaseOperations operations,
             MetricsCollector collector) throws Exception {
-        logger.info("Starting INSERT operations: {}", config.getInsertCount());
-        collector.startTime("insert");
+        runPhase(phase, executor, operations, collector, IMMEDIATE_START);
+    }
+
+    private void runPhase(String phase, VirtualThreadExecutor executor, DatabaseOperations operations,
+            MetricsCollector collector, PhaseStart start) throws Exception {
+        switch (phase) {
+            case "insert" -> runInserts(executor, operations, collector, start);
+            case "update-modify" -> runUpdateModify(executor, operations, collector, start);
+            case "update-add" -> runUpdateAdd(executor, operations, collector, start);
+            case "query" -> runQueries(executor, operations, collector, start);
+            case "secondary-query" -> runSecondaryQueries(executor, operations, collector, start);
+            case "analytics" -> runAnalytics(executor, operations, collector, start);
+            case "delete" -> runDeletes(executor, operations, collector, start);
+            default -> throw new IllegalArgumentException("Unknown phase: " + phase);
+        }
+        executor.waitForCompletion();
+        collector.endTime(phase);
+        for (String operation : collector.getOperationNames()) {
+            if (operation.startsWith(phase + "-")) {
+                collector.endTime(operation);
+            }
+        }
+        logger.info("{} operations completed", phase.toUpperCase());
+    }
+
+    private void checkForFailures(VirtualThreadExecutor executor, MetricsCollector collector) throws Exception {
+        if (executor.getExceptionCount() > 0) {
+            logger.error("Benchmark encountered {} exceptions in virtual threads:", executor.getExceptionCount());
+            for (Exception ex : executor.getExceptions()) {
+                logger.error("  - {}", ex.getMessage(), ex);
+            }
+            throw new Exception("Benchmark failed due to " + executor.getExceptionCount() + " exceptions in virtual threads");
+        }
         
-        for (int i = 0; i < config.getInsertCount(); i++) {
-            final int orderId = i;
-            executor.execute(() -> {
-                try {
-                    Order order = generateOrder(String.valueOf(orderId));
-                    long startNs = System.nanoTime();
-                    operations.insert(order);
-                    double latencyMs = (System.nanoTime() - startNs) / 1_000_000.0;
-                    collector.recordLatency("insert", latencyMs);
-                } catch (Exception e) {
-                    logger.error("Insert failed for order {}", orderId, e);
-                    collector.recordFailure("insert", e);
-                }
-            });
+        checkForOperationFailures(collector);
+    }
+
+    private void checkForOperationFailures(MetricsCollector collector) throws Exception {
+        if (collector.getFailureCount() > 0) {
+            logger.error("Benchmark completed with {} operation failures:", collector.getFailureCount());
+            for (String failure : collector.getFailures()) {
+                logger.error("  - {}", failure);
+            }
+            throw new Exception("Benchmark failed due to " + collector.getFailureCount() + " operation failures");
         }
     }
 
+    private void runInserts(VirtualThreadExecutor executor, DatabaseOperations operations, 
+            MetricsCollector collector, PhaseStart start) throws Exception {
+        int first = shareStart(config.getInsertCount());
+        int count = shareEnd(config.getInsertCount()) - first;
+        logger.info("Starting INSERT operations: {}", count);
+        OrderPipeline pipeline = new OrderPipeline(orderGenerator, first, count, config.getGenerationBufferSize());
+        try {
+            pipeline.start();
+            start.await("insert");
+            collector.startTime("insert");
+            
+            for (int i = 0; i < count; i++) {
+                executor.execute(() -> {
+                    String orderId = null;
+                    try {
+                        OrderBatch.Entry entry = pipeline.take();
+                        orderId = entry.orderId();
+                        long startNs = System.nanoTime();
+                        operations.insert(entry.batch(), entry.index());
+                        double latencyMs = (System.nanoTime() - startNs) / 1_000_000.0;
+                        collector.recordLatency("insert", latencyMs);
+                    } catch (Exception e) {
+                        logger.error("Insert failed for order {}", orderId, e);
+                        collector.recordFailure("insert", e);
+                    }
+                });
+            }
+            executor.waitForCompletion();
+        } finally {
+            pipeline.close();
+        }
+        pipeline.recordTo(collector, "insert");
+    }
+
     private void runUpdateModify(VirtualThreadExecutor executor, DatabaseOperations operations, 
-            MetricsCollector collector) throws Exception {
-        logger.info("Starting UPDATE-MODIFY operations: {}", config.getUpdateModifyCount());
+            MetricsCollector collector, PhaseStart start) throws Exception {
+        int updateLimit = Math.min(config.getUpdateModifyCount(), config.getInsertCount());
+        logger.info("Starting UPDATE-MODIFY operations: {}", shareEnd(updateLimit) - shareStart(updateLimit));
+        start.await("update-modify");
         collector.startTime("update-modify");
         
-        int updateLimit = Math.min(config.getUpdateModifyCount(), config.getInsertCount());
-        for (int i = 0; i < updateLimit; i++) {
+        for (int i = shareStart(updateLimit); i < shareEnd(updateLimit); i++) {
             final int orderId = i;
             executor.execute(() -> {
                 try {
                     long startNs = System.nanoTime();
-                    operations.updateModify(String.valueOf(orderId));
+                    operations.updateModify(orderGenerator.orderId(orderId));
                     double latencyMs = (System.nanoTime() - startNs) / 1_000_000.0;
                     collector.recordLatency("update-modify", latencyMs);
                 } catch (Exception e) {
@@ -161,17 +623,18 @@ public class BenchmarkApp implements Runnable {
     }
 
     private void runUpdateAdd(VirtualThreadExecutor executor, DatabaseOperations operations, 
-            MetricsCollector collector) throws Exception {
-        logger.info("Starting UPDATE-ADD operations: {}", config.getUpdateAddCount());
+            MetricsCollector collector, PhaseStart start) throws Exception {
+        int updateLimit = Math.min(config.getUpdateAddCount(), config.getInsertCount());
+        logger.info("Starting UPDATE-ADD operations: {}", shareEnd(updateLimit) - shareStart(updateLimit));
+        start.await("update-add");
         collector.startTime("update-add");
         
-        int updateLimit = Math.min(config.getUpdateAddCount(), config.getInsertCount());
-        for (int i = 0; i < updateLimit; i++) {
+        for (int i = shareStart(updateLimit); i < shareEnd(updateLimit); i++) {
             final int orderId = i;
             executor.execute(() -> {
                 try {
                     long startNs = System.nanoTime();
-                    operations.updateAdd(String.valueOf(orderId));
+                    operations.updateAdd(orderGenerator.orderId(orderId));
                     double latencyMs = (System.nanoTime() - startNs) / 1_000_000.0;
                     collector.recordLatency("update-add", latencyMs);
                 } catch (Exception e) {
@@ -183,17 +646,22 @@ public class BenchmarkApp implements Runnable {
     }
 
     private void runQueries(VirtualThreadExecutor executor, DatabaseOperations operations, 
-            MetricsCollector collector) throws Exception {
-        logger.info("Starting QUERY operations: {}", config.getQueryCount());
+            MetricsCollector collector, PhaseStart start) throws Exception {
+        int queryLimit = Math.min(config.getQueryCount(), config.getInsertCount());
+        logger.info("Starting QUERY operations: {}", shareEnd(queryLimit) - shareStart(queryLimit));
+        if (config.getQueryBatchSize() > 1) {
+            runQueryBatches(executor, operations, collector, start, queryLimit);
+            return;
+        }
+        start.await("query");
         collector.startTime("query");
         
-        int queryLimit = Math.min(config.getQueryCount(), config.getInsertCount());
-        for (int i = 0; i < queryLimit; i++) {
+        for (int i = shareStart(queryLimit); i < shareEnd(queryLimit); i++) {
             final int orderId = i;
             executor.execute(() -> {
                 try {
                     long startNs = System.nanoTime();
-                    operations.query(String.valueOf(orderId));
+                    operations.query(orderGenerator.orderId(orderId));
                     double latencyMs = (System.nanoTime() - startNs) / 1_000_000.0;
                     collector.recordLatency("query", latencyMs);
                 } catch (Exception e) {
@@ -204,18 +672,181 @@ public class BenchmarkApp implements Runnable {
         }
     }
 
+    // Each task fetches one batch of consecutive orders
+    private void runQueryBatches(VirtualThreadExecutor executor, DatabaseOperations operations,
+            MetricsCollector collector, PhaseStart start, int queryLimit) throws Exception {
+        int batchSize = config.getQueryBatchSize();
+        start.await("query");
+        collector.startTime("query");
+        collector.startTime("query-batch");
+        
+        for (int i = shareStart(queryLimit); i < shareEnd(queryLimit); i += batchSize) {
+            final int first = i;
+            final int end = Math.min(i + batchSize, shareEnd(queryLimit));
+            executor.execute(() -> {
+                List<String> orderIds = new ArrayList<>(end - first);
+                for (int orderId = first; orderId < end; orderId++) {
+                    orderIds.add(orderGenerator.orderId(orderId));
+                }
+                try {
+                    long startNs = System.nanoTime();
+                    List<Order> orders = operations.queryBatch(orderIds);
+                    recordBatch(collector, "query", System.nanoTime() - startNs, orders.size());
+                } catch (Exception e) {
+                    logger.error("Query batch failed for orders {}..{}", first, end - 1, e);
+                    collector.recordFailure("query", e);
+                }
+            });
+        }
+    }
+
+    // "<phase>" gets one amortized sample per order (batch latency / orders), so its throughput still counts
+    // orders; "<phase>-batch" gets the round-trips
+    private static void recordBatch(MetricsCollector collector, String phase, long elapsedNs, int orders) {
+        double latencyMs = elapsedNs / 1_000_000.0;
+        collector.recordLatency(phase + "-batch", latencyMs);
+        for (int i = 0; i < orders; i++) {
+            collector.recordLatency(phase, latencyMs / orders);
+        }
+    }
+
+    // Round-robin over the configured queries, each timed on its own as "secondary-query-<query>" as well as in
+    // the phase total. Parameters follow from the operation index, so every run and database asks the same.
+    private void runSecondaryQueries(VirtualThreadExecutor executor, DatabaseOperations operations,
+            MetricsCollector collector, PhaseStart start) throws Exception {
+        int count = config.getSecondaryQueryCount();
+        List<SecondaryQuery> queries = config.getSecondaryQueryList();
+        Map<SecondaryQuery, LongAdder> ordersReturned = new EnumMap<>(SecondaryQuery.class);
+        for (SecondaryQuery query : queries) {
+            ordersReturned.put(query, new LongAdder());
+        }
+        logger.info("Starting SECONDARY-QUERY operations: {}", shareEnd(count) - shareStart(count));
+        start.await("secondary-query");
+        collector.startTime("secondary-query");
+        for (SecondaryQuery query : queries) {
+            collector.startTime("secondary-query-" + query.getOptionValue());
+        }
+        
+        for (int i = shareStart(count); i < shareEnd(count); i++) {
+            final int index = i;
+            final SecondaryQuery query = queries.get(i % queries.size());
+            executor.execute(() -> {
+                try {
+                    long startNs = System.nanoTime();
+                    List<Order> orders = runSecondaryQuery(operations, query, index);
+                    double latencyMs = (System.nanoTime() - startNs) / 1_000_000.0;
+                    collector.recordLatency("secondary-query", latencyMs);
+                    collector.recordLatency("secondary-query-" + query.getOptionValue(), latencyMs);
+                    ordersReturned.get(query).add(orders.size());
+                } catch (Exception e) {
+                    logger.error("Secondary query {} failed", query.getOptionValue(), e);
+                    collector.recordFailure("secondary-query", e);
+                }
+            });
+        }
+        executor.waitForCompletion();
+        for (SecondaryQuery query : queries) {
+            String operation = "secondary-query-" + query.getOptionValue();
+            int executed = collector.getOperationCount(operation);
+            if (executed > 0) {
+                collector.recordMetric(operation + "_orders_per_query",
+                        (double) ordersReturned.get(query).sum() / executed);
+            }
+        }
+    }
+
+    private List<Order> runSecondaryQuery(DatabaseOperations operations, SecondaryQuery query, int i)
+            throws Exception {
+        int limit = config.getSecondaryQueryLimit();
+        int insertCount = Math.max(1, config.getInsertCount());
+        // Scatters consecutive operations over the inserted orders instead of walking them in order
+        int order = (int) ((i * 2_654_435_761L) % insertCount);
+        return switch (query) {
+            case BY_CUSTOMER -> operations.queryByCustomer(orderGenerator.customerId(order), limit);
+            // Every status in turn, so rare ones are measured as often as common ones
+            case BY_STATUS -> operations.queryByStatus(
+                    orderGenerator.getShape().getStatus(i % orderGenerator.getShape().getStatusCount()), limit);
+            // A window of the seeded date span expected to hold about limit orders
+            case BY_DATE_RANGE -> operations.queryByDateRange(
+                    OrderGenerator.seededDateAt((double) order / insertCount),
+                    OrderGenerator.seededDateAt((double) (order + limit) / insertCount), limit);
+            case BY_PRODUCT -> operations.queryByProduct("product_" + (1 + i % SECONDARY_QUERY_PRODUCTS), limit);
+        };
+    }
+
+    // Round-robin over the configured reporting queries, each also timed as "analytics-<query>". Rows per second
+    // relate a query's average latency to the rows it aggregates (items or orders), counted before the phase starts.
+    private void runAnalytics(VirtualThreadExecutor executor, DatabaseOperations operations,
+            MetricsCollector collector, PhaseStart start) throws Exception {
+        int count = config.getAnalyticsCount();
+        List<AnalyticsQuery> queries = config.getAnalyticsQueryList();
+        long orders = 0;
+        long items = 0;
+        for (Map.Entry<Integer, Long> bucket : operations.itemCountHistogram().entrySet()) {
+            orders += bucket.getValue();
+            items += bucket.getKey() * bucket.getValue();
+        }
+        collector.recordMetric("analytics_orders", orders);
+        collector.recordMetric("analytics_items", items);
+        logger.info("Starting ANALYTICS operations: {} over {} orders and {} items",
+                shareEnd(count) - shareStart(count), orders, items);
+        start.await("analytics");
+        collector.startTime("analytics");
+        for (AnalyticsQuery query : queries) {
+            collector.startTime("analytics-" + query.getOptionValue());
+        }
+        
+        for (int i = shareStart(count); i < shareEnd(count); i++) {
+            final AnalyticsQuery query = queries.get(i % queries.size());
+            executor.execute(() -> {
+                try {
+                    long startNs = System.nanoTime();
+                    switch (query) {
+                        case REVENUE_BY_PRODUCT -> operations.revenueByProduct();
+                        case TOP_CUSTOMERS -> operations.topCustomers(config.getAnalyticsTopCustomers());
+                        case ITEM_COUNT_HISTOGRAM -> operations.itemCountHistogram();
+                    }
+                    double latencyMs = (System.nanoTime() - startNs) / 1_000_000.0;
+                    collector.recordLatency("analytics", latencyMs);
+                    collector.recordLatency("analytics-" + query.getOptionValue(), latencyMs);
+                } catch (Exception e) {
+                    logger.error("Analytics query {} failed", query.getOptionValue(), e);
+                    collector.recordFailure("analytics", e);
+                }
+            });
+        }
+        executor.waitForCompletion();
+        for (AnalyticsQuery query : queries) {
+            String operation = "analytics-" + query.getOptionValue();
+            double averageMs = collector.getAverageDuration(operation);
+            if (averageMs > 0) {
+                collector.recordMetric(operation + "_rows_per_sec",
+                        query.rowsScanned(orders, items) * 1000.0 / averageMs);
+            }
+        }
+    }
+
     private void runDeletes(VirtualThreadExecutor executor, DatabaseOperations operations, 
-            MetricsCollector collector) throws Exception {
-        logger.info("Starting DELETE operations: {}", config.getDeleteCount());
+            MetricsCollector collector, PhaseStart start) throws Exception {
+        int deleteLimit = Math.min(config.getDeleteCount(), config.getInsertCount());
+        logger.info("Starting DELETE operations: {}", shareEnd(deleteLimit) - shareStart(deleteLimit));
+        if ("date-range".equalsIgnoreCase(config.getDeleteMode())) {
+            runRangePurge(executor, operations, collector, start, deleteLimit);
+            return;
+        }
+        if (config.getDeleteBatchSize() > 1) {
+            runDeleteBatches(executor, operations, collector, start, deleteLimit);
+            return;
+        }
+        start.await("delete");
         collector.startTime("delete");
         
-        int deleteLimit = Math.min(config.getDeleteCount(), config.getInsertCount());
-        for (int i = 0; i < deleteLimit; i++) {
+        for (int i = shareStart(deleteLimit); i < shareEnd(deleteLimit); i++) {
             final int orderId = i;
             executor.execute(() -> {
                 try {
                     long startNs = System.nanoTime();
-                    operations.delete(String.valueOf(orderId));
+                    operations.delete(orderGenerator.orderId(orderId));
                     double latencyMs = (System.nanoTime() - startNs) / 1_000_000.0;
                     collector.recordLatency("delete", latencyMs);
                 } catch (Exception e) {
@@ -226,57 +857,149 @@ public class BenchmarkApp implements Runnable {
         }
     }
 
-    private Order generateOrder(String orderId) {
-        Order order = new Order(
-                orderId,
-                "customer_" + orderId,
-                Instant.now(),
-                "pending"
-        );
+    private void runDeleteBatches(VirtualThreadExecutor executor, DatabaseOperations operations,
+            MetricsCollector collector, PhaseStart start, int deleteLimit) throws Exception {
+        int batchSize = config.getDeleteBatchSize();
+        start.await("delete");
+        collector.startTime("delete");
+        collector.startTime("delete-batch");
         
-        ThreadLocalRandom rand = ThreadLocalRandom.current();
-        for (int i = 0; i < 10; i++) {
-            Item item = new Item(
-                    orderId + "_item_" + i,
-                    orderId,
-                    "product_" + i,
-                    "Product " + i,
-                    (long)(rand.nextDouble() * 400) + 100,
-                    rand.nextInt(10) + 1
-            );
-            order.addItem(item);
+        for (int i = shareStart(deleteLimit); i < shareEnd(deleteLimit); i += batchSize) {
+            final int first = i;
+            final int end = Math.min(i + batchSize, shareEnd(deleteLimit));
+            executor.execute(() -> {
+                List<String> orderIds = new ArrayList<>(end - first);
+                for (int orderId = first; orderId < end; orderId++) {
+                    orderIds.add(orderGenerator.orderId(orderId));
+                }
+                try {
+                    long startNs = System.nanoTime();
+                    operations.deleteBatch(orderIds);
+                    recordBatch(collector, "delete", System.nanoTime() - startNs, orderIds.size());
+                } catch (Exception e) {
+                    logger.error("Delete batch failed for orders {}..{}", first, end - 1, e);
+                    collector.recordFailure("delete", e);
+                }
+            });
         }
+    }
+
+    // Retention purge of the oldest deleteLimit/insertCount share of the seeded date span, cut into windows
+    // expected to hold delete-batch-size orders each; workers split the windows, not the orders
+    private void runRangePurge(VirtualThreadExecutor executor, DatabaseOperations operations,
+            MetricsCollector collector, PhaseStart start, int deleteLimit) throws Exception {
+        double cutoff = config.getInsertCount() > 0 ? (double) deleteLimit / config.getInsertCount() : 0;
+        int windows = (deleteLimit + config.getDeleteBatchSize() - 1) / config.getDeleteBatchSize();
+        LongAdder purged = new LongAdder();
+        start.await("delete");
+        collector.startTime("delete");
+        collector.startTime("delete-batch");
         
-        return order;
+        for (int w = shareStart(windows); w < shareEnd(windows); w++) {
+            final Instant from = OrderGenerator.seededDateAt(cutoff * w / windows);
+            final Instant to = OrderGenerator.seededDateAt(cutoff * (w + 1) / windows);
+            executor.execute(() -> {
+                try {
+                    long startNs = System.nanoTime();
+                    int deleted = operations.deleteRange(from, to);
+                    recordBatch(collector, "delete", System.nanoTime() - startNs, deleted);
+                    purged.add(deleted);
+                } catch (Exception e) {
+                    logger.error("Range purge failed for [{}, {})", from, to, e);
+                    collector.recordFailure("delete", e);
+                }
+            });
+        }
+        executor.waitForCompletion();
+        collector.recordMetric("delete_purged_orders", purged.sum());
     }
 
-    private DatabaseOperations createDatabaseOperations() throws Exception {
+    private DatabaseOperations createDatabaseOperations(int poolSize, PoolMetrics poolMetrics) throws Exception {
         int scenario = config.getScenario();
         String database = config.getDatabase();
-        
         if ("mongodb".equalsIgnoreCase(database)) {
-            MongoConnection mongoConnection = new MongoConnection(config.getConnectionString());
+            mongoConnection = new MongoConnection(config.getConnectionString(), poolSize,
+                    config.getPoolMinIdle(), config.getPoolTimeoutMs(), poolMetrics);
+            mongoConnection.setKeyType(orderGenerator.getKeyType());
             mongoConnection.connect();
+            MongoSharding sharding = new MongoSharding(mongoConnection,
+                    MongoShardKey.fromOption(config.getMongoShardKey()), config.getMongoChunksPerShard(),
+                    config.getInsertCount(), orderGenerator.getShape());
             
             if (scenario == 1) {
-                return new MongoEmbeddedOps(mongoConnection);
+                return new MongoEmbeddedOps(mongoConnection, orderGenerator, sharding, config.isMongoAllowDiskUse());
             } else if (scenario == 2) {
-                return new MongoMultiDocOps(mongoConnection);
+                return new MongoMultiDocOps(mongoConnection, createTransactionOptions(),
+                        MongoWriteStrategy.fromOption(config.getMongoWriteStrategy()), orderGenerator, sharding,
+                        config.isMongoAllowDiskUse());
             }
         } else if ("postgresql".equalsIgnoreCase(database)) {
-            PostgresConnection postgresConnection = new PostgresConnection(config.getConnectionString());
+            postgresConnection = new PostgresConnection(config.getConnectionString(), poolSize,
+                    config.getPoolMinIdle(), config.getPoolTimeoutMs(), poolMetrics);
+            PostgresItemsFormat itemsFormat = PostgresItemsFormat.fromOption(config.getPostgresItemsFormat());
+            if (scenario == 1 && itemsFormat == PostgresItemsFormat.JSONB_BINARY) {
+                // Send and receive jsonb (OID 3802) in binary, from the first execution of each statement
+                postgresConnection.setDriverProperty("binaryTransferEnable", "3802");
+                postgresConnection.setDriverProperty("prepareThreshold", "-1");
+            }
+            if (config.getPostgresParallelWorkers() != null) {
+                // Session setting sent at connect time, so it covers every pooled connection
+                postgresConnection.setDriverProperty("options",
+                        "-c max_parallel_workers_per_gather=" + config.getPostgresParallelWorkers());
+            }
+            if (config.isPostgresWireBytes()) {
+                postgresConnection.enableWireByteCounting();
+            }
+            if (orderGenerator.getKeyType() != KeyType.STRING) {
+                // Keys are bound with setString; let the server type them as bigint or uuid from the column
+                postgresConnection.setDriverProperty("stringtype", "unspecified");
+            }
             postgresConnection.connect();
             
             if (scenario == 1) {
-                return new PostgresJsonbOps(postgresConnection);
+                return new PostgresJsonbOps(postgresConnection, itemsFormat, orderGenerator);
             } else if (scenario == 2) {
-                return new PostgresMultiTableOps(postgresConnection);
+                return new PostgresMultiTableOps(postgresConnection,
+                        PostgresWriteStrategy.fromOption(config.getPostgresWriteStrategy()),
+                        PostgresItemsForeignKey.fromOption(config.getPostgresItemsFk()), orderGenerator);
             }
+        } else if ("inmemory".equalsIgnoreCase(database)) {
+            // Scenario-independent: the harness is under test, not the data model
+            return new InMemoryOps(orderGenerator, config.getInMemoryLatency());
         }
         
         throw new Exception("Invalid scenario or database: " + scenario + ", " + database);
     }
 
+    private TransactionOptions createTransactionOptions() {
+        ReadConcern readConcern = switch (config.getMongoTxnReadConcern().toLowerCase()) {
+            case "local" -> ReadConcern.LOCAL;
+            case "majority" -> ReadConcern.MAJORITY;
+            default -> ReadConcern.SNAPSHOT;
+        };
+        WriteConcern writeConcern = switch (config.getMongoTxnWriteConcern().toLowerCase()) {
+            case "w1" -> WriteConcern.W1;
+            case "journaled" -> WriteConcern.JOURNALED;
+            default -> WriteConcern.MAJORITY;
+        };
+        return TransactionOptions.builder()
+                .readConcern(readConcern)
+                .writeConcern(writeConcern)
+                .maxCommitTime(config.getMongoTxnMaxCommitMs(), TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    private void closeConnections() {
+        if (mongoConnection != null) {
+            mongoConnection.close();
+            mongoConnection = null;
+        }
+        if (postgresConnection != null) {
+            postgresConnection.close();
+            postgresConnection = null;
+        }
+    }
+
     private void runAggregation() throws Exception {
         logger.info("Starting benchmark in AGGREGATION mode");
         
@@ -320,7 +1043,7 @@ public class BenchmarkApp implements Runnable {
                 System.exit(0);
             }
             
-            BenchmarkApp app = new BenchmarkApp(config);
+            BenchmarkApp app = new BenchmarkApp(config, args);
             app.run();
             System.exit(0);
         } catch (Exception e) {
@@ -0,0 +1,98 @@
+package com.mrscrape.benchmark.concurrency;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lock-free bounded ring buffer for one producer and many consumers. Each slot carries a sequence number:
+ * a slot is free for ticket t when its sequence is t and holds ticket t's element when it is t + 1, so
+ * neither side ever takes a lock. Consumers claim tickets in order, which means a waiting consumer is
+ * always waiting on the next element the producer will publish.
+ */
+public class BoundedRingBuffer<T> {
+    private static final int SPIN_LIMIT = 128;
+    private static final long PARK_NANOS = 10_000;
+
+    private final AtomicReferenceArray<T> slots;
+    private final AtomicLongArray sequences;
+    private final int capacity;
+    private final int mask;
+    private final AtomicLong takeCursor = new AtomicLong();
+    private final LongAdder fullWaits = new LongAdder();
+    private final LongAdder emptyWaits = new LongAdder();
+    private long putCursor;
+    private volatile boolean closed;
+
+    public BoundedRingBuffer(int minCapacity) {
+        this.capacity = Math.max(2, Integer.highestOneBit(Math.max(2, minCapacity) - 1) << 1);
+        this.mask = capacity - 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    // Must only be called from the single producer thread
+    public void put(T element) throws InterruptedException {
+        long ticket = putCursor++;
+        int slot = (int) (ticket & mask);
+        if (sequences.get(slot) != ticket) {
+            fullWaits.increment();
+            await(slot, ticket);
+        }
+        slots.set(slot, element);
+        sequences.set(slot, ticket + 1);
+    }
+
+    public T take() throws InterruptedException {
+        long ticket = takeCursor.getAndIncrement();
+        int slot = (int) (ticket & mask);
+        if (sequences.get(slot) != ticket + 1) {
+            emptyWaits.increment();
+            await(slot, ticket + 1);
+        }
+        T element = slots.getAndSet(slot, null);
+        sequences.set(slot, ticket + capacity);
+        return element;
+    }
+
+    // Wakes all waiters with an exception, e.g. when the producer fails
+    public void close() {
+        closed = true;
+    }
+
+    private void await(int slot, long expected) throws InterruptedException {
+        int spins = 0;
+        while (sequences.get(slot) != expected) {
+            if (closed) {
+                throw new IllegalStateException("Ring buffer closed");
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (++spins < SPIN_LIMIT) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(PARK_NANOS);
+            }
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    // Times the producer found the buffer full, i.e. consumers were the bottleneck
+    public long getFullWaits() {
+        return fullWaits.sum();
+    }
+
+    // Times a consumer found the buffer empty, i.e. the producer was the bottleneck
+    public long getEmptyWaits() {
+        return emptyWaits.sum();
+    }
+}
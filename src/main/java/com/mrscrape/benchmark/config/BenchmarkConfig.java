@@ -1,20 +1,27 @@
 package com.mrscrape.benchmark.config;
 
+import com.mrscrape.benchmark.db.AnalyticsQuery;
+import com.mrscrape.benchmark.db.SecondaryQuery;
+import com.mrscrape.benchmark.db.inmemory.SyntheticLatency;
+import com.mrscrape.benchmark.workload.OrderShape;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
 import picocli.CommandLine.ParameterException;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Command(name = "benchmark", description = "MongoDB vs PostgreSQL Benchmark Tool",
          version = "1.0.0", mixinStandardHelpOptions = true)
 public class BenchmarkConfig implements Runnable {
 
-    @Option(names = {"--mode"}, description = "Mode: measurement or aggregation", required = true)
+    @Option(names = {"--mode"}, description = "Mode: measurement, sweep, aggregation, coordinator or worker", required = true)
     private String mode;
 
     @Option(names = {"--scenario"}, description = "Scenario: 1 or 2 (required for measurement mode)")
     private Integer scenario;
 
-    @Option(names = {"--database"}, description = "Database: mongodb or postgresql (required for measurement mode)")
+    @Option(names = {"--database"}, description = "Database: mongodb, postgresql or inmemory (required for measurement mode)")
     private String database;
 
     @Option(names = {"--concurrency"}, description = "Number of concurrent virtual threads (required for measurement mode)")
@@ -44,28 +51,209 @@ public class BenchmarkConfig implements Runnable {
     @Option(names = {"--input-files"}, description = "Comma-separated CSV files to aggregate (required for aggregation mode)")
     private String inputFiles;
 
+    @Option(names = {"--pool-max-size"}, description = "Maximum connection pool size (default: 300)")
+    private Integer poolMaxSize = 300;
+
+    @Option(names = {"--pool-min-idle"}, description = "Minimum idle connections kept in the pool (default: 20)")
+    private Integer poolMinIdle = 20;
+
+    @Option(names = {"--pool-timeout-ms"}, description = "Connection pool acquire timeout in milliseconds (default: 30000)")
+    private Long poolTimeoutMs = 30000L;
+
+    @Option(names = {"--workers"}, description = "Worker processes a coordinator splits the run across (required for coordinator mode)")
+    private Integer workers;
+
+    @Option(names = {"--coordinator-port"}, description = "Port the coordinator listens on for workers (default: 7400)")
+    private Integer coordinatorPort = 7400;
+
+    @Option(names = {"--spawn-workers"}, description = "Start the workers as local processes on loopback (coordinator mode)")
+    private boolean spawnWorkers;
+
+    @Option(names = {"--coordinator"}, description = "Coordinator host:port to take work from (required for worker mode)")
+    private String coordinator;
+
+    @Option(names = {"--coordinator-token"}, defaultValue = "${env:BENCHMARK_COORDINATOR_TOKEN}", description = "Shared secret workers present to the coordinator (default: the BENCHMARK_COORDINATOR_TOKEN environment variable; generated for --spawn-workers)")
+    private String coordinatorToken;
+
+    @Option(names = {"--pool-sweep-sizes"}, description = "Comma-separated pool sizes to run in sweep mode, e.g. 10,25,50,100,300")
+    private String poolSweepSizes;
+
+    @Option(names = {"--pool-sweep-phase"}, description = "Phase rerun for each pool size in sweep mode: insert, update-modify, update-add, query or delete (default: query)")
+    private String poolSweepPhase = "query";
+
+    @Option(names = {"--retry-max-attempts"}, description = "Maximum attempts for retryable (transient) errors (default: 3)")
+    private Integer retryMaxAttempts = 3;
+
+    @Option(names = {"--retry-base-delay-ms"}, description = "Base delay for decorrelated jitter backoff in milliseconds (default: 100)")
+    private Long retryBaseDelayMs = 100L;
+
+    @Option(names = {"--retry-max-delay-ms"}, description = "Maximum backoff delay in milliseconds (default: 2000)")
+    private Long retryMaxDelayMs = 2000L;
+
+    @Option(names = {"--retry-budget-percent"}, description = "Retries allowed as a percentage of calls (default: 20)")
+    private Double retryBudgetPercent = 20.0;
+
+    @Option(names = {"--mongo-txn-read-concern"}, description = "MongoDB transaction read concern: local, majority or snapshot (default: local)")
+    private String mongoTxnReadConcern = "local";
+
+    @Option(names = {"--mongo-txn-write-concern"}, description = "MongoDB transaction write concern: w1, journaled or majority (default: journaled)")
+    private String mongoTxnWriteConcern = "journaled";
+
+    @Option(names = {"--mongo-txn-max-commit-ms"}, description = "MongoDB transaction maxCommitTimeMS (default: 10000)")
+    private Long mongoTxnMaxCommitMs = 10000L;
+
+    @Option(names = {"--mongo-write-strategy"}, description = "MongoDB scenario 2 item writes: single, bulk-ordered or bulk-unordered (default: bulk-ordered)")
+    private String mongoWriteStrategy = "bulk-ordered";
+
+    @Option(names = {"--mongo-shard-key"}, description = "Shard the MongoDB collections through mongos: none, hashed-id or customer-id (default: none)")
+    private String mongoShardKey = "none";
+
+    @Option(names = {"--mongo-chunks-per-shard"}, description = "Chunks pre-split per shard when sharding (default: 4)")
+    private Integer mongoChunksPerShard = 4;
+
+    @Option(names = {"--postgres-write-strategy"}, description = "PostgreSQL scenario 2 writes: multi-statement or cte (default: multi-statement)")
+    private String postgresWriteStrategy = "multi-statement";
+
+    @Option(names = {"--postgres-items-format"}, description = "PostgreSQL scenario 1 items storage: jsonb, jsonb-binary, json or bytea-gzip (default: jsonb)")
+    private String postgresItemsFormat = "jsonb";
+
+    @Option(names = {"--items-per-order"}, description = "Items per generated order: N, uniform:MIN:MAX or exponential:MEAN:MAX (default: 10)")
+    private String itemsPerOrder = String.valueOf(OrderShape.DEFAULT_ITEMS_PER_ORDER);
+
+    @Option(names = {"--item-name-length"}, description = "Pad item names to this many characters (default: 0, unpadded)")
+    private Integer itemNameLength = 0;
+
+    @Option(names = {"--item-description-length"}, description = "Length of the item description field; 0 omits it (default: 0)")
+    private Integer itemDescriptionLength = 0;
+
+    @Option(names = {"--item-attribute-count"}, description = "Number of nested string attributes per item; 0 omits them (default: 0)")
+    private Integer itemAttributeCount = 0;
+
+    @Option(names = {"--item-attribute-length"}, description = "Length of each nested attribute value (default: 16)")
+    private Integer itemAttributeLength = OrderShape.DEFAULT_ATTRIBUTE_LENGTH;
+
+    @Option(names = {"--update-add-items"}, description = "Items appended by each update-add operation (default: 5)")
+    private Integer updateAddItems = OrderShape.DEFAULT_UPDATE_ADD_ITEMS;
+
+    @Option(names = {"--customers"}, description = "Customers the orders belong to, order n to customer n mod customers; 0 means one per 10 orders (default: 0)")
+    private Integer customers = 0;
+
+    @Option(names = {"--status-mix"}, description = "Order statuses and their weights, STATUS:WEIGHT,... (default: " + OrderShape.DEFAULT_STATUS_MIX + ")")
+    private String statusMix = OrderShape.DEFAULT_STATUS_MIX;
+
+    @Option(names = {"--seed"}, description = "Seed for reproducible order data and update deltas (default: unseeded)")
+    private Long seed;
+
+    @Option(names = {"--key-type"}, description = "Order key: string, bigint, uuidv4, uuidv7 or objectid (default: string)")
+    private String keyType = "string";
+
+    @Option(names = {"--workload-tape"}, description = "Pre-generated workload file; created on first use and replayed when seed, shape, key type and counts match")
+    private String workloadTape;
+
+    @Option(names = {"--generation-buffer-size"}, description = "Orders generated ahead of the insert workers (default: 4096)")
+    private Integer generationBufferSize = 4096;
+
+    @Option(names = {"--inmemory-latency"}, description = "Synthetic latency per in-memory operation in ms: N, uniform:MIN:MAX or exponential:MEAN:MAX (default: 0)")
+    private String inMemoryLatency = "0";
+
+    @Option(names = {"--query-batch-size"}, description = "Orders fetched per query call; above 1 the query phase uses multi-get reads (default: 1)")
+    private Integer queryBatchSize = 1;
+
+    @Option(names = {"--delete-mode"}, description = "Delete phase: by-id (the delete-count orders by id) or date-range (retention purge of the oldest delete-count orders by order_date) (default: by-id)")
+    private String deleteMode = "by-id";
+
+    @Option(names = {"--delete-batch-size"}, description = "Orders per delete call; for date-range, the expected orders per purge window (default: 1)")
+    private Integer deleteBatchSize = 1;
+
+    @Option(names = {"--postgres-items-fk"}, description = "Foreign key from scenario 2 items to orders: none or cascade (ON DELETE CASCADE) (default: none)")
+    private String postgresItemsFk = "none";
+
+    @Option(names = {"--secondary-query-count"}, description = "Secondary-index queries run in a secondary-query phase after the query phase; 0 skips the phase and its indexes (default: 0)")
+    private Integer secondaryQueryCount = 0;
+
+    @Option(names = {"--secondary-queries"}, description = "Comma-separated secondary queries, run round-robin: by-customer, by-status, by-date-range, by-product (default: all)")
+    private String secondaryQueries = "by-customer,by-status,by-date-range,by-product";
+
+    @Option(names = {"--secondary-query-limit"}, description = "Maximum orders returned per secondary query (default: 20)")
+    private Integer secondaryQueryLimit = 20;
+
+    @Option(names = {"--analytics-count"}, description = "Reporting queries over the whole data set, run in an analytics phase before the delete phase; 0 skips the phase (default: 0)")
+    private Integer analyticsCount = 0;
+
+    @Option(names = {"--analytics-queries"}, description = "Comma-separated analytics queries, run round-robin: revenue-by-product, top-customers, item-count-histogram (default: all)")
+    private String analyticsQueries = "revenue-by-product,top-customers,item-count-histogram";
+
+    @Option(names = {"--analytics-top-customers"}, description = "Customers returned by the top-customers query (default: 10)")
+    private Integer analyticsTopCustomers = 10;
+
+    @Option(names = {"--postgres-parallel-workers"}, description = "max_parallel_workers_per_gather for every PostgreSQL session; 0 disables parallel query (default: server setting)")
+    private Integer postgresParallelWorkers;
+
+    @Option(names = {"--postgres-wire-bytes"}, description = "Count PostgreSQL bytes on the wire per phase through a wrapping socket factory (default: false)")
+    private boolean postgresWireBytes;
+
+    @Option(names = {"--mongo-allow-disk-use"}, description = "Let MongoDB analytics pipelines spill $group and $sort stages to disk (default: false)")
+    private boolean mongoAllowDiskUse;
+
+    @Option(names = {"--server-sample-interval-ms"}, description = "Sample server statistics (pg_stat_*, serverStatus) into a time series every N ms in measurement mode; 0 disables (default: 0)")
+    private Integer serverSampleIntervalMs = 0;
+
     public void validate() {
         if (mode == null || mode.isEmpty()) {
             throw new ParameterException(null, "--mode is required");
         }
 
-        if (!mode.equalsIgnoreCase("measurement") && !mode.equalsIgnoreCase("aggregation")) {
-            throw new ParameterException(null, "--mode must be 'measurement' or 'aggregation'");
+        if (!List.of("measurement", "sweep", "aggregation", "coordinator", "worker").contains(mode.toLowerCase())) {
+            throw new ParameterException(null,
+                    "--mode must be 'measurement', 'sweep', 'aggregation', 'coordinator' or 'worker'");
+        }
+
+        // A worker receives the rest of its configuration from the coordinator
+        if (mode.equalsIgnoreCase("worker")) {
+            if (coordinator == null || !coordinator.matches(".+:\\d+")) {
+                throw new ParameterException(null, "--coordinator host:port is required for worker mode");
+            }
+            if (coordinatorToken == null || coordinatorToken.isEmpty()) {
+                throw new ParameterException(null, "--coordinator-token is required for worker mode");
+            }
+            // The coordinator does not send credentials, so each worker brings its own
+            if (connectionString == null || connectionString.isEmpty()) {
+                throw new ParameterException(null, "--connection-string is required for worker mode");
+            }
+            return;
         }
 
         if (outputFile == null || outputFile.isEmpty()) {
             throw new ParameterException(null, "--output-file is required");
         }
 
-        if (mode.equalsIgnoreCase("measurement")) {
+        if (mode.equalsIgnoreCase("coordinator")) {
+            if (workers == null || workers <= 0) {
+                throw new ParameterException(null, "--workers is required for coordinator mode and must be > 0");
+            }
+            if (coordinatorPort == null || coordinatorPort < 0 || coordinatorPort > 65535) {
+                throw new ParameterException(null, "--coordinator-port must be between 0 and 65535");
+            }
+            if (!spawnWorkers && (coordinatorToken == null || coordinatorToken.isEmpty())) {
+                throw new ParameterException(null, "--coordinator-token is required unless --spawn-workers is set");
+            }
+            // Each worker's in-memory store only holds the orders it inserted itself
+            if ("inmemory".equalsIgnoreCase(database)) {
+                throw new ParameterException(null, "--database inmemory cannot be split across workers");
+            }
+        }
+
+        if (mode.equalsIgnoreCase("measurement") || mode.equalsIgnoreCase("sweep")
+                || mode.equalsIgnoreCase("coordinator")) {
             if (scenario == null || (scenario != 1 && scenario != 2)) {
                 throw new ParameterException(null, "--scenario is required for measurement mode and must be 1 or 2");
             }
             if (database == null || database.isEmpty()) {
                 throw new ParameterException(null, "--database is required for measurement mode");
             }
-            if (!database.equalsIgnoreCase("mongodb") && !database.equalsIgnoreCase("postgresql")) {
-                throw new ParameterException(null, "--database must be 'mongodb' or 'postgresql'");
+            if (!database.equalsIgnoreCase("mongodb") && !database.equalsIgnoreCase("postgresql")
+                    && !database.equalsIgnoreCase("inmemory")) {
+                throw new ParameterException(null, "--database must be 'mongodb', 'postgresql' or 'inmemory'");
             }
             if (concurrency == null || concurrency <= 0) {
                 throw new ParameterException(null, "--concurrency is required for measurement mode and must be > 0");
@@ -85,9 +273,139 @@ public class BenchmarkConfig implements Runnable {
             if (deleteCount == null || deleteCount < 0) {
                 throw new ParameterException(null, "--delete-count is required for measurement mode");
             }
-            if (connectionString == null || connectionString.isEmpty()) {
+            if (!database.equalsIgnoreCase("inmemory") && (connectionString == null || connectionString.isEmpty())) {
                 throw new ParameterException(null, "--connection-string is required for measurement mode");
             }
+            if (poolMaxSize == null || poolMaxSize <= 0) {
+                throw new ParameterException(null, "--pool-max-size must be > 0");
+            }
+            if (poolMinIdle == null || poolMinIdle < 0) {
+                throw new ParameterException(null, "--pool-min-idle must be >= 0");
+            }
+            if (poolTimeoutMs == null || poolTimeoutMs < 250) {
+                throw new ParameterException(null, "--pool-timeout-ms must be >= 250");
+            }
+            if (retryMaxAttempts == null || retryMaxAttempts < 1) {
+                throw new ParameterException(null, "--retry-max-attempts must be >= 1");
+            }
+            if (retryBaseDelayMs == null || retryBaseDelayMs < 1) {
+                throw new ParameterException(null, "--retry-base-delay-ms must be >= 1");
+            }
+            if (retryMaxDelayMs == null || retryMaxDelayMs < retryBaseDelayMs) {
+                throw new ParameterException(null, "--retry-max-delay-ms must be >= --retry-base-delay-ms");
+            }
+            if (retryBudgetPercent == null || retryBudgetPercent < 0) {
+                throw new ParameterException(null, "--retry-budget-percent must be >= 0");
+            }
+            if (!List.of("local", "majority", "snapshot").contains(mongoTxnReadConcern.toLowerCase())) {
+                throw new ParameterException(null, "--mongo-txn-read-concern must be 'local', 'majority' or 'snapshot'");
+            }
+            if (!List.of("w1", "journaled", "majority").contains(mongoTxnWriteConcern.toLowerCase())) {
+                throw new ParameterException(null, "--mongo-txn-write-concern must be 'w1', 'journaled' or 'majority'");
+            }
+            if (mongoTxnMaxCommitMs == null || mongoTxnMaxCommitMs <= 0) {
+                throw new ParameterException(null, "--mongo-txn-max-commit-ms must be > 0");
+            }
+            if (generationBufferSize == null || generationBufferSize <= 0) {
+                throw new ParameterException(null, "--generation-buffer-size must be > 0");
+            }
+            if (!List.of("single", "bulk-ordered", "bulk-unordered").contains(mongoWriteStrategy.toLowerCase())) {
+                throw new ParameterException(null, "--mongo-write-strategy must be 'single', 'bulk-ordered' or 'bulk-unordered'");
+            }
+            if (!List.of("none", "hashed-id", "customer-id").contains(mongoShardKey.toLowerCase())) {
+                throw new ParameterException(null, "--mongo-shard-key must be 'none', 'hashed-id' or 'customer-id'");
+            }
+            if (mongoChunksPerShard == null || mongoChunksPerShard <= 0) {
+                throw new ParameterException(null, "--mongo-chunks-per-shard must be > 0");
+            }
+            if (queryBatchSize == null || queryBatchSize <= 0) {
+                throw new ParameterException(null, "--query-batch-size must be > 0");
+            }
+            if (!List.of("by-id", "date-range").contains(deleteMode.toLowerCase())) {
+                throw new ParameterException(null, "--delete-mode must be 'by-id' or 'date-range'");
+            }
+            // Only seeded orders have dates spread over a known span; the tape draws a seed when none is given
+            if (deleteMode.equalsIgnoreCase("date-range") && seed == null && workloadTape == null) {
+                throw new ParameterException(null, "--delete-mode date-range requires --seed or --workload-tape");
+            }
+            if (deleteBatchSize == null || deleteBatchSize <= 0) {
+                throw new ParameterException(null, "--delete-batch-size must be > 0");
+            }
+            if (!List.of("none", "cascade").contains(postgresItemsFk.toLowerCase())) {
+                throw new ParameterException(null, "--postgres-items-fk must be 'none' or 'cascade'");
+            }
+            if (secondaryQueryCount == null || secondaryQueryCount < 0) {
+                throw new ParameterException(null, "--secondary-query-count must be >= 0");
+            }
+            if (secondaryQueryLimit == null || secondaryQueryLimit <= 0) {
+                throw new ParameterException(null, "--secondary-query-limit must be > 0");
+            }
+            if (analyticsCount == null || analyticsCount < 0) {
+                throw new ParameterException(null, "--analytics-count must be >= 0");
+            }
+            if (analyticsTopCustomers == null || analyticsTopCustomers <= 0) {
+                throw new ParameterException(null, "--analytics-top-customers must be > 0");
+            }
+            if (serverSampleIntervalMs == null || serverSampleIntervalMs < 0) {
+                throw new ParameterException(null, "--server-sample-interval-ms must be >= 0");
+            }
+            if (postgresParallelWorkers != null && postgresParallelWorkers < 0) {
+                throw new ParameterException(null, "--postgres-parallel-workers must be >= 0");
+            }
+            if (!List.of("multi-statement", "cte").contains(postgresWriteStrategy.toLowerCase())) {
+                throw new ParameterException(null, "--postgres-write-strategy must be 'multi-statement' or 'cte'");
+            }
+            if (!List.of("string", "bigint", "uuidv4", "uuidv7", "objectid").contains(keyType.toLowerCase())) {
+                throw new ParameterException(null, "--key-type must be 'string', 'bigint', 'uuidv4', 'uuidv7' or 'objectid'");
+            }
+            if (!List.of("jsonb", "jsonb-binary", "json", "bytea-gzip").contains(postgresItemsFormat.toLowerCase())) {
+                throw new ParameterException(null, "--postgres-items-format must be 'jsonb', 'jsonb-binary', 'json' or 'bytea-gzip'");
+            }
+            if (customers == null || customers < 0) {
+                throw new ParameterException(null, "--customers must be >= 0");
+            }
+            try {
+                getOrderShape();
+                getInMemoryLatency();
+                getSecondaryQueryList();
+                getAnalyticsQueryList();
+            } catch (IllegalArgumentException e) {
+                throw new ParameterException(null, e.getMessage());
+            }
+            if (secondaryQueryCount > 0 && getSecondaryQueryList().contains(SecondaryQuery.BY_DATE_RANGE)
+                    && seed == null && workloadTape == null) {
+                throw new ParameterException(null, "--secondary-queries by-date-range requires --seed or --workload-tape");
+            }
+            if (secondaryQueryCount > 0 && getSecondaryQueryList().contains(SecondaryQuery.BY_PRODUCT)
+                    && scenario == 1 && postgresItemsFormat.equalsIgnoreCase("bytea-gzip")
+                    && "postgresql".equalsIgnoreCase(database)) {
+                throw new ParameterException(null, "--secondary-queries by-product cannot search bytea-gzip items");
+            }
+            if (analyticsCount > 0 && scenario == 1 && postgresItemsFormat.equalsIgnoreCase("bytea-gzip")
+                    && "postgresql".equalsIgnoreCase(database)) {
+                throw new ParameterException(null, "--analytics-count cannot aggregate bytea-gzip items");
+            }
+            if (mode.equalsIgnoreCase("sweep")) {
+                if (poolSweepSizes == null || poolSweepSizes.isEmpty()) {
+                    throw new ParameterException(null, "--pool-sweep-sizes is required for sweep mode");
+                }
+                for (int size : getPoolSweepSizeList()) {
+                    if (size <= 0) {
+                        throw new ParameterException(null, "--pool-sweep-sizes must contain only values > 0");
+                    }
+                }
+                if (!List.of("insert", "update-modify", "update-add", "query", "secondary-query", "analytics", "delete")
+                        .contains(poolSweepPhase.toLowerCase())) {
+                    throw new ParameterException(null, "--pool-sweep-phase must be one of insert, update-modify, "
+                            + "update-add, query, secondary-query, analytics, delete");
+                }
+                if (poolSweepPhase.equalsIgnoreCase("secondary-query") && secondaryQueryCount == 0) {
+                    throw new ParameterException(null, "--pool-sweep-phase secondary-query requires --secondary-query-count");
+                }
+                if (poolSweepPhase.equalsIgnoreCase("analytics") && analyticsCount == 0) {
+                    throw new ParameterException(null, "--pool-sweep-phase analytics requires --analytics-count");
+                }
+            }
         } else if (mode.equalsIgnoreCase("aggregation")) {
             if (inputFiles == null || inputFiles.isEmpty()) {
                 throw new ParameterException(null, "--input-files is required for aggregation mode");
@@ -144,6 +462,253 @@ public class BenchmarkConfig implements Runnable {
         return inputFiles;
     }
 
+    public Integer getPoolMaxSize() {
+        return poolMaxSize;
+    }
+
+    public Integer getPoolMinIdle() {
+        return poolMinIdle;
+    }
+
+    public Long getPoolTimeoutMs() {
+        return poolTimeoutMs;
+    }
+
+    public String getPoolSweepSizes() {
+        return poolSweepSizes;
+    }
+
+    public List<SecondaryQuery> getSecondaryQueryList() {
+        List<SecondaryQuery> queries = new ArrayList<>();
+        for (String query : secondaryQueries.split(",")) {
+            if (!query.trim().isEmpty()) {
+                queries.add(SecondaryQuery.fromOption(query.trim()));
+            }
+        }
+        if (queries.isEmpty()) {
+            throw new IllegalArgumentException("--secondary-queries must name at least one query");
+        }
+        return queries;
+    }
+
+    public List<AnalyticsQuery> getAnalyticsQueryList() {
+        List<AnalyticsQuery> queries = new ArrayList<>();
+        for (String query : analyticsQueries.split(",")) {
+            if (!query.trim().isEmpty()) {
+                queries.add(AnalyticsQuery.fromOption(query.trim()));
+            }
+        }
+        if (queries.isEmpty()) {
+            throw new IllegalArgumentException("--analytics-queries must name at least one query");
+        }
+        return queries;
+    }
+
+    public List<Integer> getPoolSweepSizeList() {
+        List<Integer> sizes = new ArrayList<>();
+        try {
+            for (String size : poolSweepSizes.split(",")) {
+                if (!size.trim().isEmpty()) {
+                    sizes.add(Integer.parseInt(size.trim()));
+                }
+            }
+        } catch (NumberFormatException e) {
+            throw new ParameterException(null, "--pool-sweep-sizes must be a comma-separated list of integers");
+        }
+        return sizes;
+    }
+
+    public Integer getWorkers() {
+        return workers;
+    }
+
+    public Integer getCoordinatorPort() {
+        return coordinatorPort;
+    }
+
+    public boolean isSpawnWorkers() {
+        return spawnWorkers;
+    }
+
+    public String getCoordinator() {
+        return coordinator;
+    }
+
+    public String getCoordinatorToken() {
+        return coordinatorToken;
+    }
+
+    public String getPoolSweepPhase() {
+        return poolSweepPhase;
+    }
+
+    public Integer getRetryMaxAttempts() {
+        return retryMaxAttempts;
+    }
+
+    public Long getRetryBaseDelayMs() {
+        return retryBaseDelayMs;
+    }
+
+    public Long getRetryMaxDelayMs() {
+        return retryMaxDelayMs;
+    }
+
+    public Double getRetryBudgetPercent() {
+        return retryBudgetPercent;
+    }
+
+    public String getMongoTxnReadConcern() {
+        return mongoTxnReadConcern;
+    }
+
+    public String getMongoTxnWriteConcern() {
+        return mongoTxnWriteConcern;
+    }
+
+    public Long getMongoTxnMaxCommitMs() {
+        return mongoTxnMaxCommitMs;
+    }
+
+    public String getMongoWriteStrategy() {
+        return mongoWriteStrategy;
+    }
+
+    public String getMongoShardKey() {
+        return mongoShardKey;
+    }
+
+    public Integer getMongoChunksPerShard() {
+        return mongoChunksPerShard;
+    }
+
+    public String getPostgresWriteStrategy() {
+        return postgresWriteStrategy;
+    }
+
+    public String getPostgresItemsFormat() {
+        return postgresItemsFormat;
+    }
+
+    public OrderShape getOrderShape() {
+        return OrderShape.of(itemsPerOrder, itemNameLength, itemDescriptionLength, itemAttributeCount,
+                itemAttributeLength, updateAddItems, getCustomerCount(), statusMix);
+    }
+
+    // The configured customers, or one per DEFAULT_ORDERS_PER_CUSTOMER inserted orders
+    public int getCustomerCount() {
+        if (customers != null && customers > 0) {
+            return customers;
+        }
+        return Math.max(1, (insertCount != null ? insertCount : 0) / OrderShape.DEFAULT_ORDERS_PER_CUSTOMER);
+    }
+
+    public String getItemsPerOrder() {
+        return itemsPerOrder;
+    }
+
+    public Integer getItemNameLength() {
+        return itemNameLength;
+    }
+
+    public Integer getItemDescriptionLength() {
+        return itemDescriptionLength;
+    }
+
+    public Integer getItemAttributeCount() {
+        return itemAttributeCount;
+    }
+
+    public Integer getItemAttributeLength() {
+        return itemAttributeLength;
+    }
+
+    public Integer getUpdateAddItems() {
+        return updateAddItems;
+    }
+
+    public Integer getCustomers() {
+        return customers;
+    }
+
+    public String getStatusMix() {
+        return statusMix;
+    }
+
+    public Long getSeed() {
+        return seed;
+    }
+
+    public String getKeyType() {
+        return keyType;
+    }
+
+    public String getWorkloadTape() {
+        return workloadTape;
+    }
+
+    public Integer getGenerationBufferSize() {
+        return generationBufferSize;
+    }
+
+    public SyntheticLatency getInMemoryLatency() {
+        return SyntheticLatency.of(inMemoryLatency);
+    }
+
+    public Integer getQueryBatchSize() {
+        return queryBatchSize;
+    }
+
+    public String getDeleteMode() {
+        return deleteMode;
+    }
+
+    public Integer getDeleteBatchSize() {
+        return deleteBatchSize;
+    }
+
+    public String getPostgresItemsFk() {
+        return postgresItemsFk;
+    }
+
+    public Integer getSecondaryQueryCount() {
+        return secondaryQueryCount;
+    }
+
+    public Integer getSecondaryQueryLimit() {
+        return secondaryQueryLimit;
+    }
+
+    public Integer getAnalyticsCount() {
+        return analyticsCount;
+    }
+
+    public Integer getAnalyticsTopCustomers() {
+        return analyticsTopCustomers;
+    }
+
+    public Integer getPostgresParallelWorkers() {
+        return postgresParallelWorkers;
+    }
+
+    public boolean isPostgresWireBytes() {
+        return postgresWireBytes;
+    }
+
+    public boolean isMongoAllowDiskUse() {
+        return mongoAllowDiskUse;
+    }
+
+    public Integer getServerSampleIntervalMs() {
+        return serverSampleIntervalMs;
+    }
+
+    // The time series goes next to the results: results.csv -> results_server.csv
+    public String getServerSamplesFile() {
+        String base = outputFile.endsWith(".csv") ? outputFile.substring(0, outputFile.length() - 4) : outputFile;
+        return base + "_server.csv";
+    }
+
     // Setters for testing
     public void setMode(String mode) {
         this.mode = mode;
@@ -193,6 +758,202 @@ public class BenchmarkConfig implements Runnable {
         this.inputFiles = inputFiles;
     }
 
+    public void setPoolMaxSize(Integer poolMaxSize) {
+        this.poolMaxSize = poolMaxSize;
+    }
+
+    public void setPoolMinIdle(Integer poolMinIdle) {
+        this.poolMinIdle = poolMinIdle;
+    }
+
+    public void setPoolTimeoutMs(Long poolTimeoutMs) {
+        this.poolTimeoutMs = poolTimeoutMs;
+    }
+
+    public void setPoolSweepSizes(String poolSweepSizes) {
+        this.poolSweepSizes = poolSweepSizes;
+    }
+
+    public void setPoolSweepPhase(String poolSweepPhase) {
+        this.poolSweepPhase = poolSweepPhase;
+    }
+
+    public void setWorkers(Integer workers) {
+        this.workers = workers;
+    }
+
+    public void setCoordinatorPort(Integer coordinatorPort) {
+        this.coordinatorPort = coordinatorPort;
+    }
+
+    public void setSpawnWorkers(boolean spawnWorkers) {
+        this.spawnWorkers = spawnWorkers;
+    }
+
+    public void setCoordinator(String coordinator) {
+        this.coordinator = coordinator;
+    }
+
+    public void setCoordinatorToken(String coordinatorToken) {
+        this.coordinatorToken = coordinatorToken;
+    }
+
+    public void setRetryMaxAttempts(Integer retryMaxAttempts) {
+        this.retryMaxAttempts = retryMaxAttempts;
+    }
+
+    public void setRetryBaseDelayMs(Long retryBaseDelayMs) {
+        this.retryBaseDelayMs = retryBaseDelayMs;
+    }
+
+    public void setRetryMaxDelayMs(Long retryMaxDelayMs) {
+        this.retryMaxDelayMs = retryMaxDelayMs;
+    }
+
+    public void setRetryBudgetPercent(Double retryBudgetPercent) {
+        this.retryBudgetPercent = retryBudgetPercent;
+    }
+
+    public void setMongoTxnReadConcern(String mongoTxnReadConcern) {
+        this.mongoTxnReadConcern = mongoTxnReadConcern;
+    }
+
+    public void setMongoTxnWriteConcern(String mongoTxnWriteConcern) {
+        this.mongoTxnWriteConcern = mongoTxnWriteConcern;
+    }
+
+    public void setMongoTxnMaxCommitMs(Long mongoTxnMaxCommitMs) {
+        this.mongoTxnMaxCommitMs = mongoTxnMaxCommitMs;
+    }
+
+    public void setMongoWriteStrategy(String mongoWriteStrategy) {
+        this.mongoWriteStrategy = mongoWriteStrategy;
+    }
+
+    public void setMongoShardKey(String mongoShardKey) {
+        this.mongoShardKey = mongoShardKey;
+    }
+
+    public void setMongoChunksPerShard(Integer mongoChunksPerShard) {
+        this.mongoChunksPerShard = mongoChunksPerShard;
+    }
+
+    public void setPostgresWriteStrategy(String postgresWriteStrategy) {
+        this.postgresWriteStrategy = postgresWriteStrategy;
+    }
+
+    public void setPostgresItemsFormat(String postgresItemsFormat) {
+        this.postgresItemsFormat = postgresItemsFormat;
+    }
+
+    public void setItemsPerOrder(String itemsPerOrder) {
+        this.itemsPerOrder = itemsPerOrder;
+    }
+
+    public void setItemNameLength(Integer itemNameLength) {
+        this.itemNameLength = itemNameLength;
+    }
+
+    public void setItemDescriptionLength(Integer itemDescriptionLength) {
+        this.itemDescriptionLength = itemDescriptionLength;
+    }
+
+    public void setItemAttributeCount(Integer itemAttributeCount) {
+        this.itemAttributeCount = itemAttributeCount;
+    }
+
+    public void setItemAttributeLength(Integer itemAttributeLength) {
+        this.itemAttributeLength = itemAttributeLength;
+    }
+
+    public void setUpdateAddItems(Integer updateAddItems) {
+        this.updateAddItems = updateAddItems;
+    }
+
+    public void setCustomers(Integer customers) {
+        this.customers = customers;
+    }
+
+    public void setStatusMix(String statusMix) {
+        this.statusMix = statusMix;
+    }
+
+    public void setSeed(Long seed) {
+        this.seed = seed;
+    }
+
+    public void setKeyType(String keyType) {
+        this.keyType = keyType;
+    }
+
+    public void setWorkloadTape(String workloadTape) {
+        this.workloadTape = workloadTape;
+    }
+
+    public void setGenerationBufferSize(Integer generationBufferSize) {
+        this.generationBufferSize = generationBufferSize;
+    }
+
+    public void setInMemoryLatency(String inMemoryLatency) {
+        this.inMemoryLatency = inMemoryLatency;
+    }
+
+    public void setQueryBatchSize(Integer queryBatchSize) {
+        this.queryBatchSize = queryBatchSize;
+    }
+
+    public void setDeleteMode(String deleteMode) {
+        this.deleteMode = deleteMode;
+    }
+
+    public void setDeleteBatchSize(Integer deleteBatchSize) {
+        this.deleteBatchSize = deleteBatchSize;
+    }
+
+    public void setPostgresItemsFk(String postgresItemsFk) {
+        this.postgresItemsFk = postgresItemsFk;
+    }
+
+    public void setSecondaryQueryCount(Integer secondaryQueryCount) {
+        this.secondaryQueryCount = secondaryQueryCount;
+    }
+
+    public void setSecondaryQueries(String secondaryQueries) {
+        this.secondaryQueries = secondaryQueries;
+    }
+
+    public void setSecondaryQueryLimit(Integer secondaryQueryLimit) {
+        this.secondaryQueryLimit = secondaryQueryLimit;
+    }
+
+    public void setAnalyticsCount(Integer analyticsCount) {
+        this.analyticsCount = analyticsCount;
+    }
+
+    public void setAnalyticsQueries(String analyticsQueries) {
+        this.analyticsQueries = analyticsQueries;
+    }
+
+    public void setAnalyticsTopCustomers(Integer analyticsTopCustomers) {
+        this.analyticsTopCustomers = analyticsTopCustomers;
+    }
+
+    public void setPostgresParallelWorkers(Integer postgresParallelWorkers) {
+        this.postgresParallelWorkers = postgresParallelWorkers;
+    }
+
+    public void setPostgresWireBytes(boolean postgresWireBytes) {
+        this.postgresWireBytes = postgresWireBytes;
+    }
+
+    public void setMongoAllowDiskUse(boolean mongoAllowDiskUse) {
+        this.mongoAllowDiskUse = mongoAllowDiskUse;
+    }
+
+    public void setServerSampleIntervalMs(Integer serverSampleIntervalMs) {
+        this.serverSampleIntervalMs = serverSampleIntervalMs;
+    }
+
     @Override
     public void run() {
     }
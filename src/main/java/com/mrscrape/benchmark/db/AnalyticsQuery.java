@@ -0,0 +1,36 @@
+package com.mrscrape.benchmark.db;
+
+public enum AnalyticsQuery {
+    // Sum of price * quantity per product, over every item
+    REVENUE_BY_PRODUCT("revenue-by-product", true),
+    // Customers with the highest summed total_amount, over every order
+    TOP_CUSTOMERS("top-customers", false),
+    // Number of orders per item count, which needs every order's items
+    ITEM_COUNT_HISTOGRAM("item-count-histogram", true);
+
+    private final String optionValue;
+    private final boolean itemLevel;
+
+    AnalyticsQuery(String optionValue, boolean itemLevel) {
+        this.optionValue = optionValue;
+        this.itemLevel = itemLevel;
+    }
+
+    // Rows one execution aggregates, whatever the schema stores them as: items or orders
+    public long rowsScanned(long orders, long items) {
+        return itemLevel ? items : orders;
+    }
+
+    public String getOptionValue() {
+        return optionValue;
+    }
+
+    public static AnalyticsQuery fromOption(String value) {
+        for (AnalyticsQuery query : values()) {
+            if (query.optionValue.equalsIgnoreCase(value)) {
+                return query;
+            }
+        }
+        throw new IllegalArgumentException("Unknown analytics query: " + value);
+    }
+}
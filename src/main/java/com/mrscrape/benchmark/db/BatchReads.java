@@ -0,0 +1,58 @@
+package com.mrscrape.benchmark.db;
+
+import com.mrscrape.benchmark.model.Order;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shared tail of every multi-order read: queryBatch puts the fetched orders back in request order and fails on
+ * missing ones, and every read checks the total_amount invariant on the documents already in hand. The
+ * single-order query path re-reads the order to validate it; a multi-get doing the same would undo the
+ * round-trips it saves.
+ */
+public final class BatchReads {
+    private BatchReads() {
+    }
+
+    public static List<Order> inRequestOrder(List<String> orderIds, Iterable<Order> found) throws Exception {
+        Map<String, Order> byId = new HashMap<>(orderIds.size() * 2);
+        for (Order order : found) {
+            byId.put(order.getOrderId(), order);
+        }
+
+        List<Order> result = new ArrayList<>(orderIds.size());
+        List<String> missing = new ArrayList<>();
+        for (String orderId : orderIds) {
+            Order order = byId.get(orderId);
+            if (order == null) {
+                missing.add(orderId);
+                continue;
+            }
+            checkTotal(order);
+            result.add(order);
+        }
+        if (!missing.isEmpty()) {
+            throw new Exception("Orders not found: " + missing);
+        }
+        return result;
+    }
+
+    public static List<Order> checkTotals(List<Order> orders) throws Exception {
+        for (Order order : orders) {
+            checkTotal(order);
+        }
+        return orders;
+    }
+
+    private static void checkTotal(Order order) throws Exception {
+        long calculatedTotal = order.calculateTotalAmount();
+        long storedTotal = order.getTotalAmount();
+        if (calculatedTotal != storedTotal) {
+            throw new Exception("Total amount mismatch for order " + order.getOrderId() +
+                    ": calculated=" + calculatedTotal + ", stored=" + storedTotal);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.mrscrape.benchmark.db;
+
+import javax.net.SocketFactory;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Socket factory handed to pgjdbc through the socketFactory property; counts bytes on the wire.
+ * The driver instantiates it by class name, so the counters are process-wide.
+ */
+public class CountingSocketFactory extends SocketFactory {
+    private static final LongAdder bytesSent = new LongAdder();
+    private static final LongAdder bytesReceived = new LongAdder();
+
+    public static long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    public static long getBytesReceived() {
+        return bytesReceived.sum();
+    }
+
+    @Override
+    public Socket createSocket() {
+        return new CountingSocket();
+    }
+
+    @Override
+    public Socket createSocket(String host, int port) throws IOException {
+        Socket socket = new CountingSocket();
+        socket.connect(new InetSocketAddress(host, port));
+        return socket;
+    }
+
+    @Override
+    public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+        Socket socket = new CountingSocket();
+        socket.bind(new InetSocketAddress(localHost, localPort));
+        socket.connect(new InetSocketAddress(host, port));
+        return socket;
+    }
+
+    @Override
+    public Socket createSocket(InetAddress host, int port) throws IOException {
+        Socket socket = new CountingSocket();
+        socket.connect(new InetSocketAddress(host, port));
+        return socket;
+    }
+
+    @Override
+    public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort)
+            throws IOException {
+        Socket socket = new CountingSocket();
+        socket.bind(new InetSocketAddress(localAddress, localPort));
+        socket.connect(new InetSocketAddress(address, port));
+        return socket;
+    }
+
+    private static class CountingSocket extends Socket {
+        private InputStream inputStream;
+        private OutputStream outputStream;
+
+        @Override
+        public synchronized InputStream getInputStream() throws IOException {
+            if (inputStream == null) {
+                inputStream = new FilterInputStream(super.getInputStream()) {
+                    @Override
+                    public int read() throws IOException {
+                        int b = super.read();
+                        if (b >= 0) {
+                            bytesReceived.increment();
+                        }
+                        return b;
+                    }
+
+                    @Override
+                    public int read(byte[] b, int off, int len) throws IOException {
+                        int n = in.read(b, off, len);
+                        if (n > 0) {
+                            bytesReceived.add(n);
+                        }
+                        return n;
+                    }
+                };
+            }
+            return inputStream;
+        }
+
+        @Override
+        public synchronized OutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                outputStream = new FilterOutputStream(super.getOutputStream()) {
+                    @Override
+                    public void write(int b) throws IOException {
+                        out.write(b);
+                        bytesSent.increment();
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        out.write(b, off, len);
+                        bytesSent.add(len);
+                    }
+                };
+            }
+            return outputStream;
+        }
+    }
+}
@@ -1,6 +1,12 @@
 package com.mrscrape.benchmark.db;
 
+import com.mrscrape.benchmark.metrics.MetricsCollector;
 import com.mrscrape.benchmark.model.Order;
+import com.mrscrape.benchmark.workload.OrderBatch;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
 
 public interface DatabaseOperations {
     void setup() throws Exception;
@@ -9,13 +15,58 @@ public interface DatabaseOperations {
     
     void insert(Order order) throws Exception;
     
+    // Inserts one order of a batch, encoding straight from its arrays
+    void insert(OrderBatch batch, int index) throws Exception;
+    
     void updateModify(String orderId) throws Exception;
     
     void updateAdd(String orderId) throws Exception;
     
     Order query(String orderId) throws Exception;
     
+    // Fetches several orders in one round-trip, in the order requested; fails if any of them is missing
+    List<Order> queryBatch(List<String> orderIds) throws Exception;
+    
     void delete(String orderId) throws Exception;
     
+    // Deletes several orders and their items in one round-trip or transaction
+    void deleteBatch(List<String> orderIds) throws Exception;
+    
+    // Retention purge: deletes every order dated in [from, to) with its items and returns how many orders went
+    int deleteRange(Instant from, Instant to) throws Exception;
+    
     void validateTotalAmount(String orderId) throws Exception;
+    
+    // Indexes behind the secondary queries below; only created when that phase runs, as they slow down writes
+    void createSecondaryIndexes() throws Exception;
+    
+    List<Order> queryByCustomer(String customerId, int limit) throws Exception;
+    
+    List<Order> queryByStatus(String status, int limit) throws Exception;
+    
+    List<Order> queryByDateRange(Instant from, Instant to, int limit) throws Exception;
+    
+    List<Order> queryByProduct(String productId, int limit) throws Exception;
+    
+    // Reporting queries: each aggregates the whole data set instead of looking anything up
+    Map<String, Long> revenueByProduct() throws Exception;
+    
+    // Customers by summed total_amount, highest first
+    Map<String, Long> topCustomers(int limit) throws Exception;
+    
+    // Orders per item count
+    Map<Integer, Long> itemCountHistogram() throws Exception;
+    
+    // Reports the on-disk size of every index as <phase>_index_<name>_bytes
+    default void recordIndexSizes(String phase, MetricsCollector collector) throws Exception {
+    }
+    
+    // Current on-disk footprint of the scenario's data, or null when nothing is stored on disk
+    default StorageStats storageStats() throws Exception {
+        return null;
+    }
+    
+    // Called after each phase; implementations report and reset their own counters
+    default void recordPhaseMetrics(String phase, MetricsCollector collector) {
+    }
 }
@@ -0,0 +1,112 @@
+package com.mrscrape.benchmark.db;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import com.mrscrape.benchmark.metrics.LatencyHistogram;
+import com.mrscrape.benchmark.metrics.MetricsCollector;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonDocument;
+import org.bson.BsonReader;
+import org.bson.BsonValue;
+import org.bson.RawBsonDocument;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-command-type round trips as the driver sees them: duration from send to reply, request and reply BSON sizes and
+ * failures, by command name (insert, update, find, getMore, aggregate, commitTransaction, ...). Only sizes are read
+ * from the events; the command and reply documents are not kept.
+ */
+public class MongoCommandStats implements CommandListener {
+    private static class CommandMetrics {
+        final LatencyHistogram durations = new LatencyHistogram();
+        final LatencyHistogram requestBytes = new LatencyHistogram();
+        final LatencyHistogram replyBytes = new LatencyHistogram();
+        final LongAdder failures = new LongAdder();
+    }
+
+    private final Map<String, CommandMetrics> commands = new ConcurrentHashMap<>();
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        metrics(event.getCommandName()).requestBytes.record(bsonSize(event.getCommand()));
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        CommandMetrics metrics = metrics(event.getCommandName());
+        metrics.durations.record(event.getElapsedTime(TimeUnit.NANOSECONDS));
+        metrics.replyBytes.record(bsonSize(event.getResponse()));
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        metrics(event.getCommandName()).failures.increment();
+    }
+
+    private CommandMetrics metrics(String commandName) {
+        return commands.computeIfAbsent(commandName, k -> new CommandMetrics());
+    }
+
+    // Wire-backed documents (replies, most commands) carry their length in the first four bytes. Commands with
+    // document sequences (insert documents, update statements) arrive as a plain document holding the wire-backed
+    // sequence entries; those are counted, the command's own few fields are not
+    static long bsonSize(BsonDocument document) {
+        if (document instanceof RawBsonDocument raw) {
+            return raw.getByteBuffer().remaining();
+        }
+        try (BsonReader reader = document.asBsonReader()) {
+            if (reader instanceof BsonBinaryReader binaryReader) {
+                return binaryReader.getBsonInput().readInt32();
+            }
+        }
+        long size = 0;
+        for (BsonValue value : document.values()) {
+            if (value.isArray()) {
+                for (BsonValue element : value.asArray()) {
+                    if (element.isDocument()) {
+                        size += bsonSize(element.asDocument());
+                    }
+                }
+            }
+        }
+        return size;
+    }
+
+    // Commands issued between phases (setup, storage and index size reports) are dropped here
+    public void reset() {
+        commands.clear();
+    }
+
+    public void recordTo(MetricsCollector collector, String prefix) {
+        int ops = collector.getOperationCount(prefix);
+        for (Map.Entry<String, CommandMetrics> entry : new TreeMap<>(commands).entrySet()) {
+            String name = prefix + "_mongo_" + entry.getKey();
+            CommandMetrics metrics = entry.getValue();
+            LatencyHistogram durations = metrics.durations;
+            collector.recordMetric(name + "_count", metrics.requestBytes.getCount());
+            collector.recordMetric(name + "_failed", metrics.failures.sum());
+            if (ops > 0) {
+                collector.recordMetric(name + "_per_op", (double) metrics.requestBytes.getCount() / ops);
+            }
+            if (durations.getCount() > 0) {
+                collector.recordMetric(name + "_total_ms", durations.getSum() / 1_000_000.0);
+                collector.recordMetric(name + "_avg_ms", durations.getMeanMillis());
+                collector.recordMetric(name + "_p50_ms", durations.getPercentileMillis(50));
+                collector.recordMetric(name + "_p99_ms", durations.getPercentileMillis(99));
+                collector.recordMetric(name + "_max_ms", durations.getMax() / 1_000_000.0);
+                collector.recordMetric(name + "_reply_bytes_avg", metrics.replyBytes.getMean());
+                collector.recordMetric(name + "_reply_bytes_max", metrics.replyBytes.getMax());
+            }
+            collector.recordMetric(name + "_request_bytes_avg", metrics.requestBytes.getMean());
+            collector.recordMetric(name + "_request_bytes_max", metrics.requestBytes.getMax());
+        }
+        reset();
+    }
+}
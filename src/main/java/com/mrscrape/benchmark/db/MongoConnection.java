@@ -1,21 +1,66 @@
 package com.mrscrape.benchmark.db;
 
 import com.mongodb.ConnectionString;
+import com.mrscrape.benchmark.db.codec.OrderCodecProvider;
+import com.mrscrape.benchmark.metrics.PoolMetrics;
+import com.mrscrape.benchmark.workload.KeyType;
 import com.mongodb.MongoClientSettings;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import com.mongodb.event.ConnectionCheckOutFailedEvent;
+import com.mongodb.event.ConnectionCheckedInEvent;
+import com.mongodb.event.ConnectionCheckedOutEvent;
+import com.mongodb.event.ConnectionClosedEvent;
+import com.mongodb.event.ConnectionCreatedEvent;
+import com.mongodb.event.ConnectionPoolListener;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 
 public class MongoConnection {
     private static final int MAX_RETRIES = 3;
     private static final long INITIAL_BACKOFF_MS = 1000;
+    public static final int DEFAULT_MAX_POOL_SIZE = 300;
+    public static final int DEFAULT_MIN_POOL_SIZE = 20;
+    public static final long DEFAULT_MAX_WAIT_TIME_MS = 30000;
 
     private final String connectionString;
+    private final int maxPoolSize;
+    private final int minPoolSize;
+    private final long maxWaitTimeMs;
+    private final PoolMetrics poolMetrics;
+    private final List<CommandListener> commandListeners = new CopyOnWriteArrayList<>();
+    private final MongoCommandStats commandStats = new MongoCommandStats();
     private MongoClient mongoClient;
     private MongoDatabase database;
+    private KeyType keyType = KeyType.STRING;
 
     public MongoConnection(String connectionString) {
+        this(connectionString, DEFAULT_MAX_POOL_SIZE, DEFAULT_MIN_POOL_SIZE, DEFAULT_MAX_WAIT_TIME_MS, null);
+    }
+
+    public MongoConnection(String connectionString, int maxPoolSize, int minPoolSize, long maxWaitTimeMs,
+            PoolMetrics poolMetrics) {
         this.connectionString = connectionString;
+        this.maxPoolSize = maxPoolSize;
+        this.minPoolSize = Math.min(minPoolSize, maxPoolSize);
+        this.maxWaitTimeMs = maxWaitTimeMs;
+        this.poolMetrics = poolMetrics;
+        commandListeners.add(commandStats);
     }
 
     public void connect() throws Exception {
@@ -24,19 +69,25 @@ public class MongoConnection {
                 // Configure MongoDB connection pool for high concurrency
                 MongoClientSettings settings = MongoClientSettings.builder()
                     .applyConnectionString(new ConnectionString(connectionString))
-                    .applyToConnectionPoolSettings(builder ->
-                        builder.maxSize(300)           // Match PostgreSQL max_connections=300 for fair comparison
-                            .minSize(20)                // Keep more connections ready
-                            .maxWaitTime(30, java.util.concurrent.TimeUnit.SECONDS)  // 30 seconds timeout
-                            .maxConnectionIdleTime(60, java.util.concurrent.TimeUnit.SECONDS)  // 1 minute
-                            .maxConnectionLifeTime(5, java.util.concurrent.TimeUnit.MINUTES)   // 5 minutes
-                    )
+                    .applyToConnectionPoolSettings(builder -> {
+                        builder.maxSize(maxPoolSize)    // Defaults match PostgreSQL max_connections=300 for fair comparison
+                            .minSize(minPoolSize)
+                            .maxWaitTime(maxWaitTimeMs, TimeUnit.MILLISECONDS)
+                            .maxConnectionIdleTime(60, TimeUnit.SECONDS)  // 1 minute
+                            .maxConnectionLifeTime(5, TimeUnit.MINUTES);  // 5 minutes
+                        if (poolMetrics != null) {
+                            builder.addConnectionPoolListener(createPoolListener());
+                        }
+                    })
+                    .addCommandListener(createDispatchingCommandListener())
+                    .codecRegistry(createCodecRegistry(keyType))
                     .build();
 
                 mongoClient = MongoClients.create(settings);
                 mongoClient.getDatabase("admin").runCommand(new org.bson.Document("ping", 1));
                 database = mongoClient.getDatabase("benchmark_db");
-                System.out.println("Connected to MongoDB with configured connection pool successfully");
+                System.out.println("Connected to MongoDB with configured connection pool successfully (max size "
+                        + maxPoolSize + ")");
                 return;
             } catch (Exception e) {
                 if (attempt < MAX_RETRIES - 1) {
@@ -50,6 +101,86 @@ public class MongoConnection {
         }
     }
 
+    // Order/Item codecs take precedence; everything else falls back to the driver defaults
+    public static CodecRegistry createCodecRegistry() {
+        return createCodecRegistry(KeyType.STRING);
+    }
+
+    public static CodecRegistry createCodecRegistry(KeyType keyType) {
+        return CodecRegistries.fromRegistries(
+                CodecRegistries.fromProviders(new OrderCodecProvider(keyType)),
+                MongoClientSettings.getDefaultCodecRegistry());
+    }
+
+    // Client settings are immutable once connected, so listeners registered later are reached through this dispatcher
+    private CommandListener createDispatchingCommandListener() {
+        return new CommandListener() {
+            @Override
+            public void commandStarted(CommandStartedEvent event) {
+                for (CommandListener listener : commandListeners) {
+                    listener.commandStarted(event);
+                }
+            }
+
+            @Override
+            public void commandSucceeded(CommandSucceededEvent event) {
+                for (CommandListener listener : commandListeners) {
+                    listener.commandSucceeded(event);
+                }
+            }
+
+            @Override
+            public void commandFailed(CommandFailedEvent event) {
+                for (CommandListener listener : commandListeners) {
+                    listener.commandFailed(event);
+                }
+            }
+        };
+    }
+
+    public void addCommandListener(CommandListener listener) {
+        commandListeners.add(listener);
+    }
+
+    public void removeCommandListener(CommandListener listener) {
+        commandListeners.remove(listener);
+    }
+
+    public MongoCommandStats getCommandStats() {
+        return commandStats;
+    }
+
+    private ConnectionPoolListener createPoolListener() {
+        return new ConnectionPoolListener() {
+            @Override
+            public void connectionCheckedOut(ConnectionCheckedOutEvent event) {
+                poolMetrics.recordAcquire(event.getElapsedTime(TimeUnit.NANOSECONDS));
+            }
+
+            @Override
+            public void connectionCheckOutFailed(ConnectionCheckOutFailedEvent event) {
+                if (event.getReason() == ConnectionCheckOutFailedEvent.Reason.TIMEOUT) {
+                    poolMetrics.recordAcquireTimeout();
+                }
+            }
+
+            @Override
+            public void connectionCheckedIn(ConnectionCheckedInEvent event) {
+                poolMetrics.connectionCheckedIn();
+            }
+
+            @Override
+            public void connectionCreated(ConnectionCreatedEvent event) {
+                poolMetrics.connectionCreated();
+            }
+
+            @Override
+            public void connectionClosed(ConnectionClosedEvent event) {
+                poolMetrics.connectionClosed();
+            }
+        };
+    }
+
     public MongoDatabase getDatabase() {
         return database;
     }
@@ -58,6 +189,15 @@ public class MongoConnection {
         return mongoClient;
     }
 
+    public KeyType getKeyType() {
+        return keyType;
+    }
+
+    // BSON type of order _ids; the codec registry is built with it, so set it before connect()
+    public void setKeyType(KeyType keyType) {
+        this.keyType = keyType;
+    }
+
     public void close() {
         if (mongoClient != null) {
             mongoClient.close();
@@ -65,6 +205,70 @@ public class MongoConnection {
         }
     }
 
+    // Index sizes in bytes keyed collection_index, summed over shards ($collStats returns one document per shard)
+    public Map<String, Long> indexSizes(String... collections) {
+        Map<String, Long> sizes = new LinkedHashMap<>();
+        for (String collection : collections) {
+            List<Document> stats = database.getCollection(collection)
+                    .aggregate(List.of(new Document("$collStats", new Document("storageStats", new Document()))))
+                    .into(new ArrayList<>());
+            for (Document stat : stats) {
+                Document storage = stat.get("storageStats", Document.class);
+                Document indexSizes = storage != null ? storage.get("indexSizes", Document.class) : null;
+                if (indexSizes == null) {
+                    continue;
+                }
+                for (Map.Entry<String, Object> index : indexSizes.entrySet()) {
+                    sizes.merge(collection + "_" + index.getKey(), ((Number) index.getValue()).longValue(), Long::sum);
+                }
+            }
+        }
+        return sizes;
+    }
+
+    // Compressed data and index bytes per collection from $collStats, summed over shards; the first collection
+    // is the one orders are counted in. size is the uncompressed BSON, reported as <collection>_bson
+    public StorageStats storageStats(String... collections) {
+        Map<String, Long> bytes = new LinkedHashMap<>();
+        long total = 0;
+        long orderCount = 0;
+        for (String collection : collections) {
+            long data = 0;
+            long indexes = 0;
+            long bson = 0;
+            for (Document stat : database.getCollection(collection)
+                    .aggregate(List.of(new Document("$collStats", new Document("storageStats", new Document()))))) {
+                Document storage = stat.get("storageStats", Document.class);
+                if (storage == null) {
+                    continue;
+                }
+                data += storage.get("storageSize", Number.class).longValue();
+                indexes += storage.get("totalIndexSize", Number.class).longValue();
+                bson += storage.get("size", Number.class).longValue();
+                if (collection.equals(collections[0])) {
+                    orderCount += storage.get("count", Number.class).longValue();
+                }
+            }
+            bytes.put(collection + "_data", data);
+            bytes.put(collection + "_indexes", indexes);
+            bytes.put(collection + "_bson", bson);
+            total += data + indexes;
+        }
+        return new StorageStats(bytes, total, orderCount);
+    }
+
+    // Analytics pipelines ending in documents {_id: key, sum: n}, in the order they are returned
+    public Map<String, Long> sumsByKey(String collection, List<Bson> pipeline, boolean allowDiskUse,
+            String operationName) throws Exception {
+        return RetryUtil.executeWithRetry(() -> {
+            Map<String, Long> sums = new LinkedHashMap<>();
+            for (Document group : database.getCollection(collection).aggregate(pipeline).allowDiskUse(allowDiskUse)) {
+                sums.put(String.valueOf(group.get("_id")), group.get("sum", Number.class).longValue());
+            }
+            return sums;
+        }, operationName);
+    }
+
     public void dropDatabase() {
         if (database != null) {
             database.drop();
@@ -0,0 +1,12 @@
+package com.mrscrape.benchmark.db;
+
+import com.mongodb.MongoException;
+
+public class MongoRetryClassifier implements RetryClassifier {
+    @Override
+    public boolean isRetryable(Throwable throwable) {
+        return RetryClassifier.anyCause(throwable, t -> t instanceof MongoException mongoException
+                && (mongoException.hasErrorLabel(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL)
+                || mongoException.hasErrorLabel(MongoException.UNKNOWN_TRANSACTION_COMMIT_RESULT_LABEL)));
+    }
+}
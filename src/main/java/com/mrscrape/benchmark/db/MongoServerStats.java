@@ -0,0 +1,130 @@
+package com.mrscrape.benchmark.db;
+
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoDatabase;
+import com.mrscrape.benchmark.metrics.ServerSampler;
+import org.bson.Document;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Server statistics for the ServerSampler from serverStatus, over a dedicated one-connection client outside the
+ * benchmark pool: opcounters, the WiredTiger cache and checkpoints, transactions, lock waits and the global lock
+ * queue. Sections a server does not report (mongos has no WiredTiger) are skipped.
+ */
+public class MongoServerStats implements ServerSampler.Source {
+    private static final List<String> OPCOUNTERS = List.of("insert", "query", "update", "delete", "getmore", "command");
+
+    private record CacheField(String field, String name) {
+    }
+
+    private static final List<CacheField> CACHE_COUNTERS = List.of(
+            new CacheField("bytes read into cache", "cache_bytes_read"),
+            new CacheField("bytes written from cache", "cache_bytes_written"),
+            new CacheField("pages evicted by application threads", "cache_pages_evicted_by_app_threads"),
+            new CacheField("modified pages evicted", "cache_modified_pages_evicted"),
+            new CacheField("unmodified pages evicted", "cache_unmodified_pages_evicted"));
+    private static final List<CacheField> CACHE_GAUGES = List.of(
+            new CacheField("bytes currently in the cache", "cache_bytes"),
+            new CacheField("tracked dirty bytes in the cache", "cache_dirty_bytes"),
+            new CacheField("maximum bytes configured", "cache_max_bytes"));
+    private static final List<String> LOCK_RESOURCES = List.of("Global", "Database", "Collection");
+
+    private final MongoClient client;
+    private final MongoDatabase admin;
+
+    public MongoServerStats(String connectionString) {
+        this.client = MongoClients.create(MongoClientSettings.builder()
+                .applyConnectionString(new ConnectionString(connectionString))
+                .applyToConnectionPoolSettings(builder -> builder.maxSize(1))
+                .build());
+        this.admin = client.getDatabase("admin");
+    }
+
+    @Override
+    public ServerSampler.Sample sample() {
+        Document status = admin.runCommand(new Document("serverStatus", 1));
+        Map<String, Double> counters = new LinkedHashMap<>();
+        Map<String, Double> gauges = new LinkedHashMap<>();
+
+        Document opcounters = status.get("opcounters", Document.class);
+        if (opcounters != null) {
+            for (String op : OPCOUNTERS) {
+                put(counters, "opcounters_" + op, opcounters.get(op));
+            }
+        }
+
+        Document wiredTiger = status.get("wiredTiger", Document.class);
+        if (wiredTiger != null) {
+            Document cache = wiredTiger.get("cache", Document.class);
+            if (cache != null) {
+                for (CacheField counter : CACHE_COUNTERS) {
+                    put(counters, counter.name(), cache.get(counter.field()));
+                }
+                for (CacheField gauge : CACHE_GAUGES) {
+                    put(gauges, gauge.name(), cache.get(gauge.field()));
+                }
+            }
+            Document transaction = wiredTiger.get("transaction", Document.class);
+            if (transaction != null) {
+                put(counters, "checkpoints", transaction.get("transaction checkpoints"));
+                put(counters, "checkpoint_time_ms", transaction.get("transaction checkpoint total time (msecs)"));
+                put(gauges, "checkpoint_running", transaction.get("transaction checkpoint currently running"));
+            }
+        }
+
+        Document transactions = status.get("transactions", Document.class);
+        if (transactions != null) {
+            put(counters, "transactions_started", transactions.get("totalStarted"));
+            put(counters, "transactions_committed", transactions.get("totalCommitted"));
+            put(counters, "transactions_aborted", transactions.get("totalAborted"));
+            put(gauges, "transactions_active", transactions.get("currentActive"));
+        }
+
+        // Waits are kept per lock mode (r, w, R, W); they are summed per resource
+        Document locks = status.get("locks", Document.class);
+        if (locks != null) {
+            for (String resource : LOCK_RESOURCES) {
+                Document lock = locks.get(resource, Document.class);
+                if (lock != null) {
+                    put(counters, "locks_" + resource + "_waits", sum(lock.get("acquireWaitCount", Document.class)));
+                    put(counters, "locks_" + resource + "_wait_micros",
+                            sum(lock.get("timeAcquiringMicros", Document.class)));
+                }
+            }
+        }
+
+        Document globalLock = status.get("globalLock", Document.class);
+        Document queue = globalLock != null ? globalLock.get("currentQueue", Document.class) : null;
+        if (queue != null) {
+            put(gauges, "lock_queue", queue.get("total"));
+        }
+        return new ServerSampler.Sample(counters, gauges);
+    }
+
+    private static void put(Map<String, Double> values, String name, Object value) {
+        if (value instanceof Number number) {
+            values.put(name, number.doubleValue());
+        }
+    }
+
+    private static long sum(Document perMode) {
+        long total = 0;
+        if (perMode != null) {
+            for (Object value : perMode.values()) {
+                total += ((Number) value).longValue();
+            }
+        }
+        return total;
+    }
+
+    @Override
+    public void close() {
+        client.close();
+    }
+}
@@ -0,0 +1,85 @@
+package com.mrscrape.benchmark.db;
+
+import com.mongodb.client.model.Filters;
+import com.mrscrape.benchmark.db.codec.MongoKeys;
+import com.mrscrape.benchmark.workload.KeyType;
+import com.mrscrape.benchmark.workload.OrderGenerator;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+public enum MongoShardKey {
+    NONE("none"),
+    HASHED_ID("hashed-id"),
+    CUSTOMER_ID("customer-id");
+
+    private final String optionValue;
+
+    MongoShardKey(String optionValue) {
+        this.optionValue = optionValue;
+    }
+
+    public boolean isSharded() {
+        return this != NONE;
+    }
+
+    public Document orderKey() {
+        return switch (this) {
+            case HASHED_ID -> new Document("_id", "hashed");
+            case CUSTOMER_ID -> new Document("customer_id", 1);
+            case NONE -> null;
+        };
+    }
+
+    // Items follow their order's hash: on the order's shard under hashed-id, usually on another one under customer-id
+    public Document itemKey() {
+        return this == NONE ? null : new Document("order_id", "hashed");
+    }
+
+    // Filter on a single order that carries the shard key, so mongos targets one shard instead of broadcasting
+    public Bson orderFilter(OrderGenerator generator, String orderId) {
+        Bson byId = Filters.eq("_id", MongoKeys.toBson(generator.getKeyType(), orderId));
+        if (this == CUSTOMER_ID) {
+            return Filters.and(Filters.eq("customer_id", generator.customerId(orderId)), byId);
+        }
+        return byId;
+    }
+
+    // Multi-get counterpart of orderFilter: the customer ids limit the $in to the shards owning those customers
+    public Bson ordersFilter(OrderGenerator generator, List<String> orderIds) {
+        Bson byIds = Filters.in("_id", MongoKeys.toBson(generator.getKeyType(), orderIds));
+        if (this == CUSTOMER_ID) {
+            Set<String> customerIds = new LinkedHashSet<>();
+            for (String orderId : orderIds) {
+                customerIds.add(generator.customerId(orderId));
+            }
+            return Filters.and(Filters.in("customer_id", customerIds), byIds);
+        }
+        return byIds;
+    }
+
+    // Items are sharded on order_id, so a single-item write names its order to stay on one shard
+    public Bson itemFilter(KeyType keyType, String orderId, int lineNo) {
+        Bson byId = Filters.eq("_id", MongoKeys.itemId(keyType, orderId, lineNo));
+        if (this == NONE) {
+            return byId;
+        }
+        return Filters.and(Filters.eq("order_id", MongoKeys.toBson(keyType, orderId)), byId);
+    }
+
+    public String getOptionValue() {
+        return optionValue;
+    }
+
+    public static MongoShardKey fromOption(String value) {
+        for (MongoShardKey key : values()) {
+            if (key.optionValue.equalsIgnoreCase(value)) {
+                return key;
+            }
+        }
+        throw new IllegalArgumentException("Unknown MongoDB shard key: " + value);
+    }
+}
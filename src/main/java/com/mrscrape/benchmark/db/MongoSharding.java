@@ -0,0 +1,221 @@
+package com.mrscrape.benchmark.db;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Sorts;
+import com.mrscrape.benchmark.metrics.MetricsCollector;
+import com.mrscrape.benchmark.workload.OrderShape;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.MinKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Shards the benchmark collections through mongos and pre-splits them, so a run starts with chunks
+ * spread evenly instead of waiting for the balancer. Hashed keys are split at equal steps of the hash
+ * range; customer_id is split at quantiles of the customer ids the insert phase will write. Chunk
+ * ranges are assigned to shards round-robin, the same way for every collection, which keeps items
+ * keyed by the hash of order_id on the shard of their order under the hashed-id key.
+ *
+ * Per-shard operation counts come from $collStats latencyStats, which mongos reports per shard.
+ */
+public class MongoSharding {
+    private static final Logger logger = LoggerFactory.getLogger(MongoSharding.class);
+
+    private final MongoConnection mongoConnection;
+    private final MongoShardKey shardKey;
+    private final int chunksPerShard;
+    private final int orderCount;
+    private final OrderShape shape;
+    private final Set<String> collections = new LinkedHashSet<>();
+    private final Map<String, Long> lastCounters = new HashMap<>();
+
+    public MongoSharding(MongoConnection mongoConnection, MongoShardKey shardKey, int chunksPerShard, int orderCount,
+            OrderShape shape) {
+        this.mongoConnection = mongoConnection;
+        this.shardKey = shardKey;
+        this.chunksPerShard = chunksPerShard;
+        this.orderCount = orderCount;
+        this.shape = shape;
+    }
+
+    public static MongoSharding disabled(MongoConnection mongoConnection) {
+        return new MongoSharding(mongoConnection, MongoShardKey.NONE, 1, 0, OrderShape.defaultShape());
+    }
+
+    public MongoShardKey getShardKey() {
+        return shardKey;
+    }
+
+    // Must run on an empty collection; a no-op without a shard key
+    public void shardCollection(String collection, Document key) throws Exception {
+        if (!shardKey.isSharded()) {
+            return;
+        }
+        MongoDatabase admin = mongoConnection.getClient().getDatabase("admin");
+        String databaseName = mongoConnection.getDatabase().getName();
+        String namespace = databaseName + "." + collection;
+        List<String> shards = listShards(admin);
+
+        admin.runCommand(new Document("enableSharding", databaseName));
+        admin.runCommand(new Document("shardCollection", namespace).append("key", key));
+
+        String field = key.keySet().iterator().next();
+        List<Object> splitPoints = "hashed".equals(key.get(field))
+                ? hashedSplitPoints(shards.size() * chunksPerShard)
+                : customerIdSplitPoints(shards.size() * chunksPerShard);
+
+        Set<Object> boundaries = new HashSet<>();
+        for (Document chunk : chunks(namespace)) {
+            boundaries.add(chunk.get("min", Document.class).get(field));
+        }
+        for (Object point : splitPoints) {
+            if (!boundaries.contains(point)) {
+                admin.runCommand(new Document("split", namespace).append("middle", new Document(field, point)));
+            }
+        }
+
+        int moved = 0;
+        List<Document> chunks = chunks(namespace);
+        for (Document chunk : chunks) {
+            int range = rangeOf(chunk.get("min", Document.class).get(field), splitPoints);
+            String target = shards.get(range % shards.size());
+            if (!target.equals(chunk.getString("shard"))) {
+                admin.runCommand(new Document("moveChunk", namespace)
+                        .append("bounds", Arrays.asList(chunk.get("min"), chunk.get("max")))
+                        .append("to", target));
+                moved++;
+            }
+        }
+        collections.add(collection);
+        logger.info("Sharded {} on {} across {} shards: {} chunks, {} moved", namespace, key.toJson(), shards.size(),
+                chunks.size(), moved);
+    }
+
+    private List<String> listShards(MongoDatabase admin) throws Exception {
+        Document result;
+        try {
+            result = admin.runCommand(new Document("listShards", 1));
+        } catch (MongoCommandException e) {
+            throw new Exception("--mongo-shard-key " + shardKey.getOptionValue()
+                    + " needs a connection string pointing at mongos: " + e.getErrorMessage(), e);
+        }
+        List<String> shards = new ArrayList<>();
+        for (Document shard : result.getList("shards", Document.class)) {
+            shards.add(shard.getString("_id"));
+        }
+        if (shards.isEmpty()) {
+            throw new Exception("The cluster has no shards");
+        }
+        return shards;
+    }
+
+    // config.chunks is keyed by collection uuid since MongoDB 5.0 and by namespace before
+    private List<Document> chunks(String namespace) {
+        MongoDatabase config = mongoConnection.getClient().getDatabase("config");
+        Document collection = config.getCollection("collections").find(Filters.eq("_id", namespace)).first();
+        Bson filter = collection != null && collection.get("uuid") != null
+                ? Filters.eq("uuid", collection.get("uuid"))
+                : Filters.eq("ns", namespace);
+        return config.getCollection("chunks").find(filter).sort(Sorts.ascending("min")).into(new ArrayList<>());
+    }
+
+    // Hashed shard key values are signed 64-bit; split the whole range into equal steps
+    private static List<Object> hashedSplitPoints(int chunks) {
+        List<Object> points = new ArrayList<>();
+        long step = Long.divideUnsigned(-1L, chunks);
+        for (int i = 1; i < chunks; i++) {
+            points.add(Long.MIN_VALUE + i * step);
+        }
+        return points;
+    }
+
+    private List<Object> customerIdSplitPoints(int chunks) {
+        // Orders are spread evenly over the customers, so quantiles of the distinct customers will do
+        String[] customerIds = new String[Math.min(orderCount, shape.getCustomers())];
+        for (int i = 0; i < customerIds.length; i++) {
+            customerIds[i] = shape.customerId(i);
+        }
+        Arrays.sort(customerIds);
+        Set<Object> points = new LinkedHashSet<>();
+        for (int i = 1; i < chunks && customerIds.length > 0; i++) {
+            points.add(customerIds[(int) ((long) i * customerIds.length / chunks)]);
+        }
+        return new ArrayList<>(points);
+    }
+
+    // Index of the split range a chunk's lower bound falls into
+    @SuppressWarnings("unchecked")
+    private static int rangeOf(Object min, List<Object> splitPoints) {
+        if (min instanceof MinKey) {
+            return 0;
+        }
+        int range = 0;
+        while (range < splitPoints.size() && ((Comparable<Object>) splitPoints.get(range)).compareTo(min) <= 0) {
+            range++;
+        }
+        return range;
+    }
+
+    /**
+     * Records per-shard operations since the previous call (reads, writes and commands summed over the
+     * sharded collections), their rate over the phase, the transactional share and the documents held.
+     */
+    public void recordTo(MetricsCollector collector, String prefix) {
+        if (collections.isEmpty()) {
+            return;
+        }
+        double elapsedSeconds = collector.getElapsedSeconds(prefix);
+        Map<String, long[]> perShard = new TreeMap<>();
+        for (String collection : collections) {
+            List<Document> stats = mongoConnection.getDatabase().getCollection(collection)
+                    .aggregate(List.of(new Document("$collStats", new Document("latencyStats", new Document())
+                            .append("count", new Document()))))
+                    .into(new ArrayList<>());
+            for (Document stat : stats) {
+                String shard = stat.getString("shard");
+                Document latency = stat.get("latencyStats", Document.class);
+                long ops = delta(shard + "/" + collection + "/ops", opsOf(latency, "reads")
+                        + opsOf(latency, "writes") + opsOf(latency, "commands"));
+                long transactions = delta(shard + "/" + collection + "/transactions", opsOf(latency, "transactions"));
+                long[] totals = perShard.computeIfAbsent(shard, s -> new long[2]);
+                totals[0] += ops;
+                totals[1] += transactions;
+                Number count = stat.get("count", Number.class);
+                collector.recordMetric(prefix + "_shard_" + shard + "_" + collection + "_docs",
+                        count != null ? count.longValue() : 0);
+            }
+        }
+        for (Map.Entry<String, long[]> shard : perShard.entrySet()) {
+            String name = prefix + "_shard_" + shard.getKey();
+            collector.recordMetric(name + "_ops", shard.getValue()[0]);
+            collector.recordMetric(name + "_txn_ops", shard.getValue()[1]);
+            if (elapsedSeconds > 0) {
+                collector.recordMetric(name + "_ops_per_sec", shard.getValue()[0] / elapsedSeconds);
+            }
+        }
+    }
+
+    private long delta(String counter, long value) {
+        Long previous = lastCounters.put(counter, value);
+        return previous != null ? value - previous : value;
+    }
+
+    private static long opsOf(Document latencyStats, String kind) {
+        Document stats = latencyStats != null ? latencyStats.get(kind, Document.class) : null;
+        Number ops = stats != null ? stats.get("ops", Number.class) : null;
+        return ops != null ? ops.longValue() : 0;
+    }
+}
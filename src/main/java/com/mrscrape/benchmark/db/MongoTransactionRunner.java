@@ -0,0 +1,134 @@
+package com.mrscrape.benchmark.db;
+
+import com.mongodb.TransactionOptions;
+import com.mongodb.client.ClientSession;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mrscrape.benchmark.metrics.MetricsCollector;
+
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs transactions through {@link ClientSession#withTransaction}, which retries the body on
+ * TransientTransactionError and the commit on UnknownTransactionCommitResult and nothing else.
+ * Sessions are pooled and reused by whichever worker runs next; a session is only ever used by
+ * one worker at a time.
+ */
+public class MongoTransactionRunner {
+    public interface TransactionWork<T> {
+        T execute(ClientSession session) throws Exception;
+    }
+
+    private static class TransactionBodyException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        TransactionBodyException(Exception cause) {
+            super(cause);
+        }
+    }
+
+    private final MongoConnection mongoConnection;
+    private final TransactionOptions transactionOptions;
+    private final ConcurrentLinkedDeque<ClientSession> idleSessions = new ConcurrentLinkedDeque<>();
+    private final CommandListener commandCounter;
+
+    private final LongAdder transactions = new LongAdder();
+    private final LongAdder committed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder bodyAttempts = new LongAdder();
+    private final LongAdder bodiesCompleted = new LongAdder();
+    private final LongAdder commitCommands = new LongAdder();
+    private final LongAdder abortCommands = new LongAdder();
+    private final LongAdder sessionsCreated = new LongAdder();
+
+    public MongoTransactionRunner(MongoConnection mongoConnection, TransactionOptions transactionOptions) {
+        this.mongoConnection = mongoConnection;
+        this.transactionOptions = transactionOptions;
+        this.commandCounter = new CommandListener() {
+            @Override
+            public void commandStarted(CommandStartedEvent event) {
+                String commandName = event.getCommandName();
+                if ("commitTransaction".equals(commandName)) {
+                    commitCommands.increment();
+                } else if ("abortTransaction".equals(commandName)) {
+                    abortCommands.increment();
+                }
+            }
+        };
+        mongoConnection.addCommandListener(commandCounter);
+    }
+
+    public <T> T run(TransactionWork<T> work) throws Exception {
+        transactions.increment();
+        ClientSession session = borrowSession();
+        boolean reusable = false;
+        try {
+            T result = session.withTransaction(() -> {
+                bodyAttempts.increment();
+                try {
+                    T value = work.execute(session);
+                    bodiesCompleted.increment();
+                    return value;
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new TransactionBodyException(e);
+                }
+            }, transactionOptions);
+            committed.increment();
+            reusable = true;
+            return result;
+        } catch (TransactionBodyException e) {
+            failed.increment();
+            reusable = !session.hasActiveTransaction();
+            throw (Exception) e.getCause();
+        } catch (RuntimeException e) {
+            failed.increment();
+            reusable = !session.hasActiveTransaction();
+            throw e;
+        } finally {
+            releaseSession(session, reusable);
+        }
+    }
+
+    private ClientSession borrowSession() {
+        ClientSession session = idleSessions.pollFirst();
+        if (session == null) {
+            session = mongoConnection.getClient().startSession();
+            sessionsCreated.increment();
+        }
+        return session;
+    }
+
+    private void releaseSession(ClientSession session, boolean reusable) {
+        if (reusable) {
+            idleSessions.offerFirst(session);
+        } else {
+            session.close();
+        }
+    }
+
+    public void recordTo(MetricsCollector collector, String prefix) {
+        long attempts = bodyAttempts.sumThenReset();
+        long completed = bodiesCompleted.sumThenReset();
+        long commits = commitCommands.sumThenReset();
+        long txns = transactions.sumThenReset();
+        collector.recordMetric(prefix + "_txn_count", txns);
+        collector.recordMetric(prefix + "_txn_committed", committed.sumThenReset());
+        collector.recordMetric(prefix + "_txn_failed", failed.sumThenReset());
+        collector.recordMetric(prefix + "_txn_transient_retries", Math.max(0, attempts - txns));
+        // Every completed body is followed by one commit; extra commit commands are UnknownTransactionCommitResult retries
+        collector.recordMetric(prefix + "_txn_commit_retries", Math.max(0, commits - completed));
+        collector.recordMetric(prefix + "_txn_aborts", abortCommands.sumThenReset());
+        collector.recordMetric(prefix + "_txn_sessions_created", sessionsCreated.sumThenReset());
+    }
+
+    public void close() {
+        mongoConnection.removeCommandListener(commandCounter);
+        ClientSession session;
+        while ((session = idleSessions.pollFirst()) != null) {
+            session.close();
+        }
+    }
+}
@@ -1,20 +1,57 @@
 package com.mrscrape.benchmark.db;
 
+import com.mrscrape.benchmark.metrics.PoolMetrics;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class PostgresConnection {
     private static final int MAX_RETRIES = 3;
     private static final long INITIAL_BACKOFF_MS = 1000;
+    public static final int DEFAULT_MAX_POOL_SIZE = 300;
+    public static final int DEFAULT_MIN_IDLE = 20;
+    public static final long DEFAULT_CONNECTION_TIMEOUT_MS = 30000;
 
     private final String connectionString;
+    private final int maxPoolSize;
+    private final int minIdle;
+    private final long connectionTimeoutMs;
+    private final PoolMetrics poolMetrics;
+    private final Map<String, String> driverProperties = new LinkedHashMap<>();
     private HikariDataSource dataSource;
 
     public PostgresConnection(String connectionString) {
+        this(connectionString, DEFAULT_MAX_POOL_SIZE, DEFAULT_MIN_IDLE, DEFAULT_CONNECTION_TIMEOUT_MS, null);
+    }
+
+    public PostgresConnection(String connectionString, int maxPoolSize, int minIdle, long connectionTimeoutMs,
+            PoolMetrics poolMetrics) {
         this.connectionString = connectionString;
+        this.maxPoolSize = maxPoolSize;
+        this.minIdle = Math.min(minIdle, maxPoolSize);
+        this.connectionTimeoutMs = connectionTimeoutMs;
+        this.poolMetrics = poolMetrics;
+    }
+
+    // pgjdbc connection properties; must be set before connect()
+    public void setDriverProperty(String name, String value) {
+        driverProperties.put(name, value);
+    }
+
+    // Counts bytes on the wire for the per-phase PostgresPhaseStats; wraps every socket, so it is opt-in
+    public void enableWireByteCounting() {
+        driverProperties.put("socketFactory", CountingSocketFactory.class.getName());
+    }
+
+    public boolean isWireByteCounting() {
+        return CountingSocketFactory.class.getName().equals(driverProperties.get("socketFactory"));
     }
 
     public void connect() throws Exception {
@@ -25,18 +62,40 @@ public class PostgresConnection {
                 config.setJdbcUrl(connectionString);
                 config.setDriverClassName("org.postgresql.Driver");
 
-                // Match MongoDB's default connection pool settings but scale for high concurrency
-                config.setMaximumPoolSize(300);        // Match PostgreSQL max_connections=300
-                config.setMinimumIdle(20);             // Keep more idle connections ready
+                // Pool sizing is configurable; defaults match PostgreSQL max_connections=300
+                config.setMaximumPoolSize(maxPoolSize);
+                config.setMinimumIdle(minIdle);
                 config.setMaxLifetime(300000);         // 5 minutes (MongoDB default is unlimited)
                 config.setIdleTimeout(60000);          // 1 minute (MongoDB default is unlimited)
-                config.setConnectionTimeout(30000);    // 30 seconds (reduced from 2 minutes for faster failure)
+                config.setConnectionTimeout(connectionTimeoutMs);
 
                 // Additional HikariCP optimizations
                 config.setPoolName("BenchmarkPool");
                 config.setConnectionTestQuery("SELECT 1");
                 config.setValidationTimeout(5000);     // 5 seconds
                 config.setLeakDetectionThreshold(60000); // 1 minute
+                driverProperties.forEach(config::addDataSourceProperty);
+                if (poolMetrics != null) {
+                    config.setMetricsTrackerFactory((poolName, poolStats) -> {
+                        poolMetrics.setTotalConnectionsSource(poolStats::getTotalConnections);
+                        return new IMetricsTracker() {
+                            @Override
+                            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                                poolMetrics.recordAcquire(elapsedAcquiredNanos);
+                            }
+
+                            @Override
+                            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                                poolMetrics.connectionCheckedIn();
+                            }
+
+                            @Override
+                            public void recordConnectionTimeout() {
+                                poolMetrics.recordAcquireTimeout();
+                            }
+                        };
+                    });
+                }
 
                 dataSource = new HikariDataSource(config);
 
@@ -46,7 +105,8 @@ public class PostgresConnection {
                     stmt.execute("SELECT 1");
                 }
 
-                System.out.println("Connected to PostgreSQL with HikariCP connection pool successfully");
+                System.out.println("Connected to PostgreSQL with HikariCP connection pool successfully (max size "
+                        + maxPoolSize + ")");
                 return;
             } catch (Exception e) {
                 if (attempt < MAX_RETRIES - 1) {
@@ -67,6 +127,70 @@ public class PostgresConnection {
         return dataSource.getConnection();
     }
 
+    // Index sizes in bytes keyed by index name
+    public Map<String, Long> indexSizes(String... tables) throws Exception {
+        Map<String, Long> sizes = new LinkedHashMap<>();
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(
+                     "SELECT indexrelname, pg_relation_size(indexrelid) FROM pg_stat_user_indexes " +
+                     "WHERE relname = ANY(?) ORDER BY relname, indexrelname")) {
+            pstmt.setArray(1, conn.createArrayOf("varchar", tables));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    sizes.put(rs.getString(1), rs.getLong(2));
+                }
+            }
+        }
+        return sizes;
+    }
+
+    // Heap, TOAST (with its index) and index bytes per table; the first table is the one orders are counted in
+    public StorageStats storageStats(String... tables) throws Exception {
+        Map<String, Long> bytes = new LinkedHashMap<>();
+        long total = 0;
+        long orderCount;
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(
+                     "SELECT c.relname, pg_relation_size(c.oid), " +
+                     "COALESCE(pg_total_relation_size(NULLIF(c.reltoastrelid, 0)), 0), pg_indexes_size(c.oid), " +
+                     "pg_total_relation_size(c.oid) " +
+                     "FROM pg_class c WHERE c.oid = ANY(?::regclass[]) ORDER BY c.relname")) {
+            pstmt.setArray(1, conn.createArrayOf("varchar", tables));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    String table = rs.getString(1);
+                    bytes.put(table + "_heap", rs.getLong(2));
+                    bytes.put(table + "_toast", rs.getLong(3));
+                    bytes.put(table + "_indexes", rs.getLong(4));
+                    total += rs.getLong(5);
+                }
+            }
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + tables[0])) {
+                rs.next();
+                orderCount = rs.getLong(1);
+            }
+        }
+        return new StorageStats(bytes, total, orderCount);
+    }
+
+    // Two-column analytics results (key, sum), in the order the query returns them
+    public Map<String, Long> sumsByKey(String sql, StatementBinder binder, String operationName) throws Exception {
+        return RetryUtil.executeWithRetry(() -> {
+            try (Connection conn = getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                binder.bind(pstmt);
+                Map<String, Long> sums = new LinkedHashMap<>();
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        sums.put(rs.getString(1), rs.getLong(2));
+                    }
+                }
+                return sums;
+            }
+        }, operationName);
+    }
+
     public void close() {
         if (dataSource != null) {
             dataSource.close();
@@ -0,0 +1,114 @@
+package com.mrscrape.benchmark.db;
+
+import com.mrscrape.benchmark.metrics.MetricsCollector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Per-phase PostgreSQL cost: bytes on the wire (CountingSocketFactory, with --postgres-wire-bytes),
+ * WAL bytes generated (the write amplification of the phase's changes) and server execution time
+ * from pg_stat_statements, used as the server CPU proxy when the extension is installed. Each call
+ * reports the delta since the previous one.
+ */
+public class PostgresPhaseStats {
+    private static final Logger logger = LoggerFactory.getLogger(PostgresPhaseStats.class);
+    private static final String SERVER_TIME_SQL =
+            "SELECT COALESCE(SUM(total_exec_time), 0) FROM pg_stat_statements " +
+            "WHERE dbid = (SELECT oid FROM pg_database WHERE datname = current_database())";
+    // Cluster-wide, so background activity such as autovacuum is included
+    private static final String WAL_POSITION_SQL = "SELECT pg_current_wal_lsn() - '0/0'::pg_lsn";
+
+    private final PostgresConnection postgresConnection;
+    private long lastBytesSent;
+    private long lastBytesReceived;
+    private double lastServerTimeMs = Double.NaN;
+    private long lastWalBytes = -1;
+    private boolean serverTimeAvailable = true;
+
+    public PostgresPhaseStats(PostgresConnection postgresConnection) {
+        this.postgresConnection = postgresConnection;
+    }
+
+    // Establishes the baseline; call once after setup
+    public void start() {
+        createExtension();
+        lastBytesSent = CountingSocketFactory.getBytesSent();
+        lastBytesReceived = CountingSocketFactory.getBytesReceived();
+        lastServerTimeMs = readServerTimeMs();
+        lastWalBytes = readWalBytes();
+    }
+
+    public void recordTo(MetricsCollector collector, String phase) {
+        long sent = CountingSocketFactory.getBytesSent();
+        long received = CountingSocketFactory.getBytesReceived();
+        double serverTimeMs = readServerTimeMs();
+        long walBytes = readWalBytes();
+        int ops = collector.getOperationCount(phase);
+
+        if (postgresConnection.isWireByteCounting()) {
+            collector.recordMetric(phase + "_pg_bytes_sent", sent - lastBytesSent);
+            collector.recordMetric(phase + "_pg_bytes_received", received - lastBytesReceived);
+            if (ops > 0) {
+                collector.recordMetric(phase + "_pg_bytes_per_op",
+                        (double) (sent - lastBytesSent + received - lastBytesReceived) / ops);
+            }
+        }
+        if (walBytes >= 0 && lastWalBytes >= 0) {
+            collector.recordMetric(phase + "_pg_wal_bytes", walBytes - lastWalBytes);
+            if (ops > 0) {
+                collector.recordMetric(phase + "_pg_wal_bytes_per_op", (double) (walBytes - lastWalBytes) / ops);
+            }
+        }
+        if (!Double.isNaN(serverTimeMs) && !Double.isNaN(lastServerTimeMs)) {
+            collector.recordMetric(phase + "_pg_server_exec_ms", serverTimeMs - lastServerTimeMs);
+            if (ops > 0) {
+                collector.recordMetric(phase + "_pg_server_exec_ms_per_op", (serverTimeMs - lastServerTimeMs) / ops);
+            }
+        }
+
+        lastBytesSent = sent;
+        lastBytesReceived = received;
+        lastServerTimeMs = serverTimeMs;
+        lastWalBytes = walBytes;
+    }
+
+    // Needs shared_preload_libraries=pg_stat_statements (see docker-compose.yml); failures are reported by readServerTimeMs
+    private void createExtension() {
+        try (Connection conn = postgresConnection.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE EXTENSION IF NOT EXISTS pg_stat_statements");
+        } catch (Exception e) {
+            logger.debug("Could not create pg_stat_statements: {}", e.getMessage());
+        }
+    }
+
+    private double readServerTimeMs() {
+        if (!serverTimeAvailable) {
+            return Double.NaN;
+        }
+        try (Connection conn = postgresConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(SERVER_TIME_SQL)) {
+            return rs.next() ? rs.getDouble(1) : Double.NaN;
+        } catch (Exception e) {
+            serverTimeAvailable = false;
+            logger.info("pg_stat_statements is not available, server execution time is not reported: {}", e.getMessage());
+            return Double.NaN;
+        }
+    }
+
+    private long readWalBytes() {
+        try (Connection conn = postgresConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(WAL_POSITION_SQL)) {
+            return rs.next() ? rs.getLong(1) : -1;
+        } catch (Exception e) {
+            logger.debug("Could not read the WAL position: {}", e.getMessage());
+            return -1;
+        }
+    }
+}
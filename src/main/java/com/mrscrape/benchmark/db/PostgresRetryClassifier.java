@@ -0,0 +1,25 @@
+package com.mrscrape.benchmark.db;
+
+import java.sql.SQLException;
+import java.util.Set;
+
+public class PostgresRetryClassifier implements RetryClassifier {
+    // serialization_failure and deadlock_detected
+    private static final Set<String> RETRYABLE_SQL_STATES = Set.of("40001", "40P01");
+
+    @Override
+    public boolean isRetryable(Throwable throwable) {
+        return RetryClassifier.anyCause(throwable, t -> {
+            if (!(t instanceof SQLException sqlException)) {
+                return false;
+            }
+            // Batch failures carry the server error as the next exception
+            for (SQLException e = sqlException; e != null; e = e.getNextException()) {
+                if (e.getSQLState() != null && RETRYABLE_SQL_STATES.contains(e.getSQLState())) {
+                    return true;
+                }
+            }
+            return false;
+        });
+    }
+}
@@ -0,0 +1,114 @@
+package com.mrscrape.benchmark.db;
+
+import com.mrscrape.benchmark.metrics.ServerSampler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Server statistics for the ServerSampler, read over a dedicated connection outside the benchmark pool (and outside
+ * the wire-byte counters): pg_stat_database for this database, pg_stat_wal, pg_stat_io, pg_stat_statements totals
+ * and the wait events of active backends in pg_stat_activity. Views that are missing or not readable are skipped.
+ */
+public class PostgresServerStats implements ServerSampler.Source {
+    private static final Logger logger = LoggerFactory.getLogger(PostgresServerStats.class);
+
+    private record CounterQuery(String view, String sql) {
+    }
+
+    // Every column becomes a counter named after its alias
+    private static final List<CounterQuery> COUNTER_QUERIES = List.of(
+            new CounterQuery("pg_stat_database",
+            "SELECT xact_commit AS db_xact_commit, xact_rollback AS db_xact_rollback, blks_read AS db_blks_read, " +
+            "blks_hit AS db_blks_hit, tup_returned AS db_tup_returned, tup_fetched AS db_tup_fetched, " +
+            "tup_inserted AS db_tup_inserted, tup_updated AS db_tup_updated, tup_deleted AS db_tup_deleted, " +
+            "temp_bytes AS db_temp_bytes, deadlocks AS db_deadlocks, blk_read_time AS db_blk_read_time_ms, " +
+            "blk_write_time AS db_blk_write_time_ms " +
+            "FROM pg_stat_database WHERE datname = current_database()"),
+            // PostgreSQL 18 moved the write and sync counters from pg_stat_wal to pg_stat_io
+            new CounterQuery("pg_stat_wal",
+            "SELECT wal_records, wal_fpi, wal_bytes, wal_buffers_full FROM pg_stat_wal"),
+            // Relation I/O since PostgreSQL 16, WAL I/O (object 'wal') since 18. They are summed apart, so the
+            // relation totals mean the same on every version; times need track_io_timing
+            new CounterQuery("pg_stat_io",
+            "SELECT COALESCE(SUM(writes) FILTER (WHERE object <> 'wal'), 0) AS io_relation_writes, " +
+            "COALESCE(SUM(write_time) FILTER (WHERE object <> 'wal'), 0) AS io_relation_write_time_ms, " +
+            "COALESCE(SUM(fsyncs) FILTER (WHERE object <> 'wal'), 0) AS io_relation_fsyncs, " +
+            "COALESCE(SUM(fsync_time) FILTER (WHERE object <> 'wal'), 0) AS io_relation_fsync_time_ms, " +
+            "COALESCE(SUM(writes) FILTER (WHERE object = 'wal'), 0) AS io_wal_writes, " +
+            "COALESCE(SUM(write_time) FILTER (WHERE object = 'wal'), 0) AS io_wal_write_time_ms, " +
+            "COALESCE(SUM(fsyncs) FILTER (WHERE object = 'wal'), 0) AS io_wal_fsyncs, " +
+            "COALESCE(SUM(fsync_time) FILTER (WHERE object = 'wal'), 0) AS io_wal_fsync_time_ms FROM pg_stat_io"),
+            new CounterQuery("pg_stat_statements",
+            "SELECT COALESCE(SUM(calls), 0) AS statements_calls, " +
+            "COALESCE(SUM(total_exec_time), 0) AS statements_exec_time_ms, " +
+            "COALESCE(SUM(rows), 0) AS statements_rows, " +
+            "COALESCE(SUM(shared_blks_dirtied), 0) AS statements_shared_blks_dirtied " +
+            "FROM pg_stat_statements WHERE dbid = (SELECT oid FROM pg_database WHERE datname = current_database())"));
+
+    // What active backends of this database are doing right now; CPU means running, not waiting
+    private static final String WAIT_EVENTS_SQL =
+            "SELECT COALESCE(wait_event_type || ':' || wait_event, 'CPU'), COUNT(*) FROM pg_stat_activity " +
+            "WHERE datname = current_database() AND state = 'active' AND pid <> pg_backend_pid() GROUP BY 1";
+
+    private final Connection connection;
+    private final Set<String> unavailable = new HashSet<>();
+
+    public PostgresServerStats(String connectionString) throws SQLException {
+        this.connection = DriverManager.getConnection(connectionString);
+    }
+
+    @Override
+    public ServerSampler.Sample sample() throws SQLException {
+        Map<String, Double> counters = new LinkedHashMap<>();
+        try (Statement stmt = connection.createStatement()) {
+            for (CounterQuery query : COUNTER_QUERIES) {
+                if (unavailable.contains(query.view())) {
+                    continue;
+                }
+                try (ResultSet rs = stmt.executeQuery(query.sql())) {
+                    ResultSetMetaData columns = rs.getMetaData();
+                    if (rs.next()) {
+                        for (int i = 1; i <= columns.getColumnCount(); i++) {
+                            counters.put(columns.getColumnLabel(i), rs.getDouble(i));
+                        }
+                    }
+                } catch (SQLException e) {
+                    unavailable.add(query.view());
+                    logger.info("{} is not sampled: {}", query.view(), e.getMessage());
+                }
+            }
+
+            Map<String, Double> gauges = new LinkedHashMap<>();
+            double active = 0;
+            try (ResultSet rs = stmt.executeQuery(WAIT_EVENTS_SQL)) {
+                while (rs.next()) {
+                    gauges.put("active_" + rs.getString(1), rs.getDouble(2));
+                    active += rs.getDouble(2);
+                }
+            }
+            gauges.put("active_backends", active);
+            return new ServerSampler.Sample(counters, gauges);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            logger.debug("Could not close the sampling connection: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.mrscrape.benchmark.db;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket limiting retries to a fraction of calls, so a contention storm
+ * cannot multiply the offered load. Balances are kept in thousandths of a retry.
+ */
+public class RetryBudget {
+    private static final long TOKENS_PER_RETRY = 1000;
+
+    private final long depositPerCall;
+    private final long maxBalance;
+    private final AtomicLong balance;
+
+    public RetryBudget(double retryPercent, int minRetries, int maxRetries) {
+        this.depositPerCall = (long) (retryPercent * TOKENS_PER_RETRY / 100.0);
+        this.maxBalance = Math.max(minRetries, maxRetries) * TOKENS_PER_RETRY;
+        this.balance = new AtomicLong(minRetries * TOKENS_PER_RETRY);
+    }
+
+    public static RetryBudget unlimited() {
+        return new RetryBudget(0, 0, 0) {
+            @Override
+            public boolean tryAcquireRetry() {
+                return true;
+            }
+        };
+    }
+
+    public void recordCall() {
+        if (depositPerCall > 0 && balance.get() < maxBalance) {
+            balance.accumulateAndGet(depositPerCall, (current, deposit) -> Math.min(maxBalance, current + deposit));
+        }
+    }
+
+    public boolean tryAcquireRetry() {
+        long current;
+        do {
+            current = balance.get();
+            if (current < TOKENS_PER_RETRY) {
+                return false;
+            }
+        } while (!balance.compareAndSet(current, current - TOKENS_PER_RETRY));
+        return true;
+    }
+}
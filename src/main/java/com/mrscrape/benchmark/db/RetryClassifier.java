@@ -0,0 +1,25 @@
+package com.mrscrape.benchmark.db;
+
+@FunctionalInterface
+public interface RetryClassifier {
+    RetryClassifier NEVER = t -> false;
+
+    boolean isRetryable(Throwable throwable);
+
+    default RetryClassifier or(RetryClassifier other) {
+        return t -> isRetryable(t) || other.isRetryable(t);
+    }
+
+    // Drivers and executors wrap exceptions, so the transient cause may sit deeper in the chain
+    static boolean anyCause(Throwable throwable, RetryClassifier classifier) {
+        Throwable current = throwable;
+        int depth = 0;
+        while (current != null && depth++ < 16) {
+            if (classifier.isRetryable(current)) {
+                return true;
+            }
+            current = current.getCause();
+        }
+        return false;
+    }
+}
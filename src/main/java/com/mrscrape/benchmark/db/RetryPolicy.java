@@ -0,0 +1,57 @@
+package com.mrscrape.benchmark.db;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+public class RetryPolicy {
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+    public static final long DEFAULT_BASE_DELAY_MS = 100;
+    public static final long DEFAULT_MAX_DELAY_MS = 2000;
+    public static final double DEFAULT_BUDGET_PERCENT = 20;
+
+    private final RetryClassifier classifier;
+    private final int maxAttempts;
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+    private final RetryBudget budget;
+
+    public RetryPolicy(RetryClassifier classifier, int maxAttempts, long baseDelayMs, long maxDelayMs,
+            RetryBudget budget) {
+        this.classifier = classifier;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelayMs = Math.max(1, baseDelayMs);
+        this.maxDelayMs = Math.max(this.baseDelayMs, maxDelayMs);
+        this.budget = budget;
+    }
+
+    public static RetryPolicy defaultPolicy() {
+        return new RetryPolicy(new MongoRetryClassifier().or(new PostgresRetryClassifier()),
+                DEFAULT_MAX_ATTEMPTS, DEFAULT_BASE_DELAY_MS, DEFAULT_MAX_DELAY_MS,
+                new RetryBudget(DEFAULT_BUDGET_PERCENT, 10, 1000));
+    }
+
+    public RetryPolicy withAttemptsAndBaseDelay(int maxAttempts, long baseDelayMs) {
+        return new RetryPolicy(classifier, maxAttempts, baseDelayMs, Math.max(maxDelayMs, baseDelayMs), budget);
+    }
+
+    // Decorrelated jitter: sleep = min(cap, random(base, previousSleep * 3))
+    public long nextDelayMs(long previousDelayMs) {
+        long upper = Math.max(baseDelayMs + 1, Math.min(maxDelayMs, previousDelayMs * 3) + 1);
+        return Math.min(maxDelayMs, ThreadLocalRandom.current().nextLong(baseDelayMs, upper));
+    }
+
+    public RetryClassifier getClassifier() {
+        return classifier;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public long getBaseDelayMs() {
+        return baseDelayMs;
+    }
+
+    public RetryBudget getBudget() {
+        return budget;
+    }
+}
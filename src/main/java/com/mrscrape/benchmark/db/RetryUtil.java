@@ -1,12 +1,16 @@
 package com.mrscrape.benchmark.db;
 
+import com.mrscrape.benchmark.metrics.RetryMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class RetryUtil {
     private static final Logger logger = LoggerFactory.getLogger(RetryUtil.class);
-    private static final int DEFAULT_MAX_RETRIES = 3;
-    private static final long DEFAULT_INITIAL_BACKOFF_MS = 100;
+    private static final RetryMetrics metrics = new RetryMetrics();
+    private static volatile RetryPolicy policy = RetryPolicy.defaultPolicy();
+    // Set while an operation runs under a retry loop; nested wrappers (e.g. query -> validateTotalAmount) then run
+    // once and leave retrying to the outermost one, so attempts do not multiply
+    private static final ThreadLocal<Boolean> retrying = ThreadLocal.withInitial(() -> false);
 
     public interface RetryableOperation<T> {
         T execute() throws Exception;
@@ -16,62 +20,92 @@ public class RetryUtil {
         void execute() throws Exception;
     }
 
-    public static <T> T executeWithRetry(RetryableOperation<T> operation, String operationName) throws Exception {
-        return executeWithRetry(operation, operationName, DEFAULT_MAX_RETRIES, DEFAULT_INITIAL_BACKOFF_MS);
+    public static void configure(RetryPolicy retryPolicy) {
+        policy = retryPolicy;
     }
 
-    public static <T> T executeWithRetry(RetryableOperation<T> operation, String operationName, 
-            int maxRetries, long initialBackoffMs) throws Exception {
-        Exception lastException = null;
+    public static RetryPolicy getPolicy() {
+        return policy;
+    }
 
-        for (int attempt = 0; attempt < maxRetries; attempt++) {
-            try {
-                return operation.execute();
-            } catch (Exception e) {
-                lastException = e;
-                if (attempt < maxRetries - 1) {
-                    long backoffMs = initialBackoffMs * (long) Math.pow(2, attempt);
-                    long jitterMs = (long) (Math.random() * backoffMs);
-                    long totalWaitMs = backoffMs + jitterMs;
-                    logger.warn("{} failed, retrying in {}ms (attempt {}/{})", 
-                        operationName, totalWaitMs, attempt + 1, maxRetries, e);
-                    Thread.sleep(totalWaitMs);
-                } else {
-                    logger.error("{} failed after {} retries: {}", operationName, maxRetries, e.getMessage(), e);
-                }
-            }
-        }
+    public static RetryMetrics getMetrics() {
+        return metrics;
+    }
 
-        throw new Exception("Operation failed after " + maxRetries + " retries: " + operationName, lastException);
+    public static <T> T executeWithRetry(RetryableOperation<T> operation, String operationName) throws Exception {
+        return execute(operation, operationName, policy);
+    }
+
+    public static <T> T executeWithRetry(RetryableOperation<T> operation, String operationName,
+            int maxRetries, long initialBackoffMs) throws Exception {
+        return execute(operation, operationName, policy.withAttemptsAndBaseDelay(maxRetries, initialBackoffMs));
     }
 
     public static void executeVoidWithRetry(RetryableVoidOperation operation, String operationName) throws Exception {
-        executeVoidWithRetry(operation, operationName, DEFAULT_MAX_RETRIES, DEFAULT_INITIAL_BACKOFF_MS);
+        execute(toOperation(operation), operationName, policy);
     }
 
-    public static void executeVoidWithRetry(RetryableVoidOperation operation, String operationName, 
+    public static void executeVoidWithRetry(RetryableVoidOperation operation, String operationName,
             int maxRetries, long initialBackoffMs) throws Exception {
-        Exception lastException = null;
+        execute(toOperation(operation), operationName, policy.withAttemptsAndBaseDelay(maxRetries, initialBackoffMs));
+    }
+
+    private static RetryableOperation<Void> toOperation(RetryableVoidOperation operation) {
+        return () -> {
+            operation.execute();
+            return null;
+        };
+    }
+
+    private static <T> T execute(RetryableOperation<T> operation, String operationName, RetryPolicy retryPolicy)
+            throws Exception {
+        if (retrying.get()) {
+            return operation.execute();
+        }
+        retrying.set(true);
+        try {
+            return executeOutermost(operation, operationName, retryPolicy);
+        } finally {
+            retrying.set(false);
+        }
+    }
 
-        for (int attempt = 0; attempt < maxRetries; attempt++) {
+    private static <T> T executeOutermost(RetryableOperation<T> operation, String operationName,
+            RetryPolicy retryPolicy) throws Exception {
+        metrics.recordCall(operationName);
+        retryPolicy.getBudget().recordCall();
+        long delayMs = retryPolicy.getBaseDelayMs();
+
+        for (int attempt = 1; ; attempt++) {
+            metrics.recordAttempt(operationName);
             try {
-                operation.execute();
-                return;
+                return operation.execute();
             } catch (Exception e) {
-                lastException = e;
-                if (attempt < maxRetries - 1) {
-                    long backoffMs = initialBackoffMs * (long) Math.pow(2, attempt);
-                    long jitterMs = (long) (Math.random() * backoffMs);
-                    long totalWaitMs = backoffMs + jitterMs;
-                    logger.warn("{} failed, retrying in {}ms (attempt {}/{})", 
-                        operationName, totalWaitMs, attempt + 1, maxRetries, e);
-                    Thread.sleep(totalWaitMs);
-                } else {
-                    logger.error("{} failed after {} retries: {}", operationName, maxRetries, e.getMessage(), e);
+                if (!retryPolicy.getClassifier().isRetryable(e)) {
+                    // Logic errors and permanent failures fail fast; the caller reports them
+                    metrics.recordNonRetryable(operationName);
+                    throw e;
+                }
+                if (attempt >= retryPolicy.getMaxAttempts()) {
+                    metrics.recordExhausted(operationName);
+                    logger.warn("{} failed after {} attempts: {}", operationName, attempt, e.getMessage());
+                    throw new Exception("Operation failed after " + attempt + " attempts: " + operationName, e);
+                }
+                if (!retryPolicy.getBudget().tryAcquireRetry()) {
+                    metrics.recordBudgetRejected(operationName);
+                    logger.warn("{} failed and retry budget is exhausted: {}", operationName, e.getMessage());
+                    throw new Exception("Operation failed after " + attempt + " attempts, retry budget exhausted: "
+                            + operationName, e);
                 }
+
+                delayMs = retryPolicy.nextDelayMs(delayMs);
+                metrics.recordRetry(operationName, delayMs);
+                if (logger.isDebugEnabled()) {
+                    logger.debug("{} failed with retryable error, retrying in {}ms (attempt {}/{}): {}",
+                            operationName, delayMs, attempt, retryPolicy.getMaxAttempts(), e.getMessage());
+                }
+                Thread.sleep(delayMs);
             }
         }
-
-        throw new Exception("Operation failed after " + maxRetries + " retries: " + operationName, lastException);
     }
 }
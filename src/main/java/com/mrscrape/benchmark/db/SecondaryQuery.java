@@ -0,0 +1,31 @@
+package com.mrscrape.benchmark.db;
+
+public enum SecondaryQuery {
+    // Orders of one customer, most recent first
+    BY_CUSTOMER("by-customer"),
+    // Most recent orders in one status
+    BY_STATUS("by-status"),
+    // Orders in an order_date window, oldest first
+    BY_DATE_RANGE("by-date-range"),
+    // Orders containing an item of one product
+    BY_PRODUCT("by-product");
+
+    private final String optionValue;
+
+    SecondaryQuery(String optionValue) {
+        this.optionValue = optionValue;
+    }
+
+    public String getOptionValue() {
+        return optionValue;
+    }
+
+    public static SecondaryQuery fromOption(String value) {
+        for (SecondaryQuery query : values()) {
+            if (query.optionValue.equalsIgnoreCase(value)) {
+                return query;
+            }
+        }
+        throw new IllegalArgumentException("Unknown secondary query: " + value);
+    }
+}
@@ -0,0 +1,11 @@
+package com.mrscrape.benchmark.db;
+
+import java.sql.PreparedStatement;
+
+// Binds a caller's parameters from index 1 and returns the next index, for what a shared helper appends (a LIMIT)
+@FunctionalInterface
+public interface StatementBinder {
+    StatementBinder NONE = pstmt -> 1;
+
+    int bind(PreparedStatement pstmt) throws Exception;
+}
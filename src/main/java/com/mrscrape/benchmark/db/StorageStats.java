@@ -0,0 +1,13 @@
+package com.mrscrape.benchmark.db;
+
+import java.util.Map;
+
+/**
+ * Storage footprint of a scenario's tables or collections at one point in time.
+ *
+ * @param bytes      on-disk bytes by part, e.g. orders_heap, orders_toast, orders_indexes or items_data
+ * @param totalBytes everything the scenario's orders and items occupy: data, TOAST and indexes
+ * @param orderCount orders stored, for bytes per order
+ */
+public record StorageStats(Map<String, Long> bytes, long totalBytes, long orderCount) {
+}
@@ -0,0 +1,85 @@
+package com.mrscrape.benchmark.db.codec;
+
+import com.mrscrape.benchmark.model.Item;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Embedded item layout used by scenario 1; the owning order id is implied by the parent document
+public class ItemCodec implements Codec<Item> {
+    @Override
+    public void encode(BsonWriter writer, Item item, EncoderContext encoderContext) {
+        writer.writeStartDocument();
+        writer.writeString("item_id", item.getItemId());
+        writer.writeString("product_id", item.getProductId());
+        writer.writeString("name", item.getName());
+        writer.writeInt64("price", item.getPrice());
+        writer.writeInt64("quantity", item.getQuantity());
+        if (item.getDescription() != null) {
+            writer.writeString("description", item.getDescription());
+        }
+        if (item.getAttributes() != null) {
+            writer.writeStartDocument("attributes");
+            for (Map.Entry<String, String> attribute : item.getAttributes().entrySet()) {
+                writer.writeString(attribute.getKey(), attribute.getValue());
+            }
+            writer.writeEndDocument();
+        }
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public Item decode(BsonReader reader, DecoderContext decoderContext) {
+        Item item = new Item();
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            switch (reader.readName()) {
+                case "item_id" -> item.setItemId(reader.readString());
+                case "product_id" -> item.setProductId(reader.readString());
+                case "name" -> item.setName(reader.readString());
+                case "price" -> item.setPrice(readLong(reader));
+                case "quantity" -> item.setQuantity(readLong(reader));
+                case "description" -> item.setDescription(reader.readString());
+                case "attributes" -> item.setAttributes(readAttributes(reader));
+                default -> reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+        return item;
+    }
+
+    @Override
+    public Class<Item> getEncoderClass() {
+        return Item.class;
+    }
+
+    private static Map<String, String> readAttributes(BsonReader reader) {
+        Map<String, String> attributes = new LinkedHashMap<>();
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            String name = reader.readName();
+            if (reader.getCurrentBsonType() == BsonType.STRING) {
+                attributes.put(name, reader.readString());
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+        return attributes;
+    }
+
+    static long readLong(BsonReader reader) {
+        return switch (reader.getCurrentBsonType()) {
+            case INT32 -> reader.readInt32();
+            case INT64 -> reader.readInt64();
+            case DOUBLE -> (long) reader.readDouble();
+            default -> throw new IllegalStateException("Expected a numeric value but found " + reader.getCurrentBsonType());
+        };
+    }
+}
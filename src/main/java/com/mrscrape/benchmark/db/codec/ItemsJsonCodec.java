@@ -0,0 +1,244 @@
+package com.mrscrape.benchmark.db.codec;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.JsonRecyclerPools;
+import com.mrscrape.benchmark.model.Item;
+import com.mrscrape.benchmark.workload.OrderBatch;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams the JSONB items array of scenario 1 with JsonGenerator/JsonParser instead of
+ * going through List<Map> and boxed numbers. Jackson's internal buffers come from a
+ * shared deque pool, since thread-local recycling does not help virtual threads.
+ */
+public class ItemsJsonCodec {
+    // Rough serialized size of one item, used to presize the output
+    private static final int ITEM_SIZE_HINT = 112;
+
+    private final JsonFactory jsonFactory = JsonFactory.builder()
+            .recyclerPool(JsonRecyclerPools.newConcurrentDequePool())
+            .build();
+
+    public String writeItems(List<Item> items) throws IOException {
+        StringWriter writer = new StringWriter(estimateSize(items));
+        try (JsonGenerator generator = jsonFactory.createGenerator(writer)) {
+            writeItems(generator, items);
+        }
+        return writer.toString();
+    }
+
+    // Writes UTF-8 JSON into the stream, e.g. after a jsonb version byte or through a GZIPOutputStream
+    public void writeItems(List<Item> items, OutputStream out) throws IOException {
+        try (JsonGenerator generator = jsonFactory.createGenerator(out)) {
+            writeItems(generator, items);
+        }
+    }
+
+    public int estimateSize(List<Item> items) {
+        return items.size() * ITEM_SIZE_HINT + 2;
+    }
+
+    private void writeItems(JsonGenerator generator, List<Item> items) throws IOException {
+        generator.writeStartArray();
+        for (Item item : items) {
+            generator.writeStartObject();
+            generator.writeStringField("item_id", item.getItemId());
+            generator.writeStringField("product_id", item.getProductId());
+            generator.writeStringField("name", item.getName());
+            generator.writeNumberField("price", item.getPrice());
+            generator.writeNumberField("quantity", item.getQuantity());
+            if (item.getDescription() != null) {
+                generator.writeStringField("description", item.getDescription());
+            }
+            if (item.getAttributes() != null) {
+                generator.writeFieldName("attributes");
+                writeAttributes(generator, item.getAttributes());
+            }
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+    }
+
+    public String writeItems(OrderBatch batch, int order) throws IOException {
+        StringWriter writer = new StringWriter(estimateSize(batch, order));
+        try (JsonGenerator generator = jsonFactory.createGenerator(writer)) {
+            writeItems(generator, batch, order);
+        }
+        return writer.toString();
+    }
+
+    public void writeItems(OrderBatch batch, int order, OutputStream out) throws IOException {
+        try (JsonGenerator generator = jsonFactory.createGenerator(out)) {
+            writeItems(generator, batch, order);
+        }
+    }
+
+    public int estimateSize(OrderBatch batch, int order) {
+        return batch.itemCount(order) * ITEM_SIZE_HINT + 2;
+    }
+
+    // Same document as the List<Item> form, read from the batch arrays
+    private void writeItems(JsonGenerator generator, OrderBatch batch, int order) throws IOException {
+        generator.writeStartArray();
+        for (int item = batch.firstItem(order); item < batch.endItem(order); item++) {
+            generator.writeStartObject();
+            generator.writeStringField("item_id", batch.itemId(order, item));
+            generator.writeStringField("product_id", batch.productId(item));
+            generator.writeStringField("name", batch.name(item));
+            generator.writeNumberField("price", batch.price(item));
+            generator.writeNumberField("quantity", batch.quantity(item));
+            String description = batch.description(item);
+            if (description != null) {
+                generator.writeStringField("description", description);
+            }
+            Map<String, String> attributes = batch.attributes(item);
+            if (attributes != null) {
+                generator.writeFieldName("attributes");
+                writeAttributes(generator, attributes);
+            }
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+    }
+
+    // Standalone attributes object, for the scenario 2 items.attributes JSONB column
+    public String writeAttributes(Map<String, String> attributes) throws IOException {
+        StringWriter writer = new StringWriter(attributes.size() * 32 + 2);
+        try (JsonGenerator generator = jsonFactory.createGenerator(writer)) {
+            writeAttributes(generator, attributes);
+        }
+        return writer.toString();
+    }
+
+    private void writeAttributes(JsonGenerator generator, Map<String, String> attributes) throws IOException {
+        generator.writeStartObject();
+        for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+            generator.writeStringField(attribute.getKey(), attribute.getValue());
+        }
+        generator.writeEndObject();
+    }
+
+    public Map<String, String> readAttributes(String json) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(json)) {
+            parser.nextToken();
+            return readAttributes(parser);
+        }
+    }
+
+    // Expects the parser on START_OBJECT
+    private Map<String, String> readAttributes(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        Map<String, String> attributes = new LinkedHashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+            attributes.put(name, parser.getValueAsString());
+            parser.skipChildren();
+        }
+        return attributes;
+    }
+
+    public List<Item> readItems(String json, String orderId) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(json)) {
+            return readItems(parser, orderId);
+        }
+    }
+
+    public List<Item> readItems(byte[] data, int offset, int length, String orderId) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(data, offset, length)) {
+            return readItems(parser, orderId);
+        }
+    }
+
+    public List<Item> readItems(InputStream in, String orderId) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(in)) {
+            return readItems(parser, orderId);
+        }
+    }
+
+    private List<Item> readItems(JsonParser parser, String orderId) throws IOException {
+        List<Item> items = new ArrayList<>();
+        expectArray(parser);
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            Item item = new Item();
+            item.setOrderId(orderId);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "item_id" -> item.setItemId(parser.getText());
+                    case "product_id" -> item.setProductId(parser.getText());
+                    case "name" -> item.setName(parser.getText());
+                    case "price" -> item.setPrice(parser.getValueAsLong());
+                    case "quantity" -> item.setQuantity(parser.getValueAsLong());
+                    case "description" -> item.setDescription(parser.getText());
+                    case "attributes" -> item.setAttributes(readAttributes(parser));
+                    default -> parser.skipChildren();
+                }
+            }
+            items.add(item);
+        }
+        return items;
+    }
+
+    // Sum of price * quantity over the array, without materializing Item objects or field strings
+    public long sumLineTotals(String json) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(json)) {
+            return sumLineTotals(parser);
+        }
+    }
+
+    public long sumLineTotals(byte[] data, int offset, int length) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(data, offset, length)) {
+            return sumLineTotals(parser);
+        }
+    }
+
+    public long sumLineTotals(InputStream in) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(in)) {
+            return sumLineTotals(parser);
+        }
+    }
+
+    private long sumLineTotals(JsonParser parser) throws IOException {
+        long total = 0;
+        expectArray(parser);
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            long price = 0;
+            long quantity = 0;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (value.isNumeric() && "price".equals(field)) {
+                    price = parser.getValueAsLong();
+                } else if (value.isNumeric() && "quantity".equals(field)) {
+                    quantity = parser.getValueAsLong();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            total += price * quantity;
+        }
+        return total;
+    }
+
+    private static void expectArray(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_ARRAY) {
+            throw new IOException("Expected items JSON array but found " + parser.currentToken());
+        }
+    }
+}
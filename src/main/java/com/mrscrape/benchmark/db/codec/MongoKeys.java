@@ -0,0 +1,77 @@
+package com.mrscrape.benchmark.db.codec;
+
+import com.mrscrape.benchmark.workload.KeyType;
+import org.bson.BsonBinary;
+import org.bson.BsonBinarySubType;
+import org.bson.BsonReader;
+import org.bson.BsonWriter;
+import org.bson.Document;
+import org.bson.UuidRepresentation;
+import org.bson.types.Binary;
+import org.bson.types.ObjectId;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Converts order keys between the string form the workload passes around and their BSON type: string, Int64,
+ * binary subtype 4 UUID or ObjectId. Scenario 2 item _ids are {order_id, line} documents holding the same key.
+ */
+public final class MongoKeys {
+
+    private MongoKeys() {
+    }
+
+    public static Object toBson(KeyType keyType, String orderId) {
+        return switch (keyType) {
+            case STRING -> orderId;
+            case BIGINT -> Long.parseLong(orderId);
+            case UUIDV4, UUIDV7 -> new BsonBinary(UUID.fromString(orderId), UuidRepresentation.STANDARD);
+            case OBJECTID -> new ObjectId(orderId);
+        };
+    }
+
+    public static List<Object> toBson(KeyType keyType, List<String> orderIds) {
+        List<Object> keys = new ArrayList<>(orderIds.size());
+        for (String orderId : orderIds) {
+            keys.add(toBson(keyType, orderId));
+        }
+        return keys;
+    }
+
+    // Field order is fixed, since an _id lookup compares the whole embedded document
+    public static Document itemId(KeyType keyType, String orderId, int lineNo) {
+        return new Document("order_id", toBson(keyType, orderId)).append("line", lineNo);
+    }
+
+    // Inverse of toBson for values read through a Document; UUIDs may come back as UUID or as Binary
+    public static String fromBson(Object key) {
+        if (key instanceof Binary binary && binary.getType() == BsonBinarySubType.UUID_STANDARD.getValue()) {
+            return new BsonBinary(binary.getType(), binary.getData()).asUuid().toString();
+        }
+        return String.valueOf(key);
+    }
+
+    public static void write(BsonWriter writer, String name, KeyType keyType, String orderId) {
+        writer.writeName(name);
+        switch (keyType) {
+            case STRING -> writer.writeString(orderId);
+            case BIGINT -> writer.writeInt64(Long.parseLong(orderId));
+            case UUIDV4, UUIDV7 -> writer.writeBinaryData(
+                    new BsonBinary(UUID.fromString(orderId), UuidRepresentation.STANDARD));
+            case OBJECTID -> writer.writeObjectId(new ObjectId(orderId));
+        }
+    }
+
+    // Reads whichever key type the document was written with
+    public static String read(BsonReader reader) {
+        return switch (reader.getCurrentBsonType()) {
+            case INT64 -> Long.toString(reader.readInt64());
+            case INT32 -> Integer.toString(reader.readInt32());
+            case OBJECT_ID -> reader.readObjectId().toHexString();
+            case BINARY -> reader.readBinaryData().asUuid().toString();
+            default -> reader.readString();
+        };
+    }
+}
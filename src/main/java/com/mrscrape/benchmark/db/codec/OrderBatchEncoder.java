@@ -0,0 +1,65 @@
+package com.mrscrape.benchmark.db.codec;
+
+import com.mrscrape.benchmark.workload.OrderBatch;
+import org.bson.BsonBinaryWriter;
+import org.bson.BsonWriter;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Encoder;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+
+import java.util.Map;
+
+// Writes one order of an OrderBatch as the same embedded document OrderCodec produces; reads go through OrderCodec.
+// Encode-only, so it is not registered with the driver; callers insert entries as a RawBsonDocument
+public class OrderBatchEncoder implements Encoder<OrderBatch.Entry> {
+
+    public RawBsonDocument toRawDocument(OrderBatch.Entry entry) {
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        try (BsonBinaryWriter writer = new BsonBinaryWriter(buffer)) {
+            encode(writer, entry, EncoderContext.builder().build());
+        }
+        return new RawBsonDocument(buffer.getInternalBuffer(), 0, buffer.getPosition());
+    }
+
+    @Override
+    public void encode(BsonWriter writer, OrderBatch.Entry entry, EncoderContext encoderContext) {
+        OrderBatch batch = entry.batch();
+        int order = entry.index();
+        writer.writeStartDocument();
+        MongoKeys.write(writer, "_id", batch.getKeyType(), batch.orderId(order));
+        writer.writeString("customer_id", batch.customerId(order));
+        writer.writeDateTime("order_date", batch.orderDateMillis(order));
+        writer.writeInt64("total_amount", batch.totalAmount(order));
+        writer.writeString("status", batch.status(order));
+        writer.writeStartArray("items");
+        for (int item = batch.firstItem(order); item < batch.endItem(order); item++) {
+            writer.writeStartDocument();
+            writer.writeString("item_id", batch.itemId(order, item));
+            writer.writeString("product_id", batch.productId(item));
+            writer.writeString("name", batch.name(item));
+            writer.writeInt64("price", batch.price(item));
+            writer.writeInt64("quantity", batch.quantity(item));
+            String description = batch.description(item);
+            if (description != null) {
+                writer.writeString("description", description);
+            }
+            Map<String, String> attributes = batch.attributes(item);
+            if (attributes != null) {
+                writer.writeStartDocument("attributes");
+                for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+                    writer.writeString(attribute.getKey(), attribute.getValue());
+                }
+                writer.writeEndDocument();
+            }
+            writer.writeEndDocument();
+        }
+        writer.writeEndArray();
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public Class<OrderBatch.Entry> getEncoderClass() {
+        return OrderBatch.Entry.class;
+    }
+}
@@ -0,0 +1,78 @@
+package com.mrscrape.benchmark.db.codec;
+
+import com.mrscrape.benchmark.model.Item;
+import com.mrscrape.benchmark.model.Order;
+import com.mrscrape.benchmark.workload.KeyType;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+
+import java.time.Instant;
+
+// Encodes and decodes the embedded order document straight from/to the BSON stream, without a Document tree
+public class OrderCodec implements Codec<Order> {
+    private final ItemCodec itemCodec;
+    private final KeyType keyType;
+
+    public OrderCodec(ItemCodec itemCodec) {
+        this(itemCodec, KeyType.STRING);
+    }
+
+    public OrderCodec(ItemCodec itemCodec, KeyType keyType) {
+        this.itemCodec = itemCodec;
+        this.keyType = keyType;
+    }
+
+    @Override
+    public void encode(BsonWriter writer, Order order, EncoderContext encoderContext) {
+        writer.writeStartDocument();
+        MongoKeys.write(writer, "_id", keyType, order.getOrderId());
+        writer.writeString("customer_id", order.getCustomerId());
+        writer.writeDateTime("order_date", order.getOrderDate().toEpochMilli());
+        writer.writeInt64("total_amount", order.getTotalAmount());
+        writer.writeString("status", order.getStatus());
+        writer.writeStartArray("items");
+        for (Item item : order.getItems()) {
+            encoderContext.encodeWithChildContext(itemCodec, writer, item);
+        }
+        writer.writeEndArray();
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public Order decode(BsonReader reader, DecoderContext decoderContext) {
+        Order order = new Order();
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            switch (reader.readName()) {
+                case "_id" -> order.setOrderId(MongoKeys.read(reader));
+                case "customer_id" -> order.setCustomerId(reader.readString());
+                case "order_date" -> order.setOrderDate(Instant.ofEpochMilli(reader.readDateTime()));
+                case "total_amount" -> order.setTotalAmount(ItemCodec.readLong(reader));
+                case "status" -> order.setStatus(reader.readString());
+                case "items" -> {
+                    reader.readStartArray();
+                    while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                        order.getItems().add(decoderContext.decodeWithChildContext(itemCodec, reader));
+                    }
+                    reader.readEndArray();
+                }
+                default -> reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+        // Items may precede _id in documents written by other tools
+        for (Item item : order.getItems()) {
+            item.setOrderId(order.getOrderId());
+        }
+        return order;
+    }
+
+    @Override
+    public Class<Order> getEncoderClass() {
+        return Order.class;
+    }
+}
@@ -0,0 +1,33 @@
+package com.mrscrape.benchmark.db.codec;
+
+import com.mrscrape.benchmark.model.Item;
+import com.mrscrape.benchmark.model.Order;
+import com.mrscrape.benchmark.workload.KeyType;
+import org.bson.codecs.Codec;
+import org.bson.codecs.configuration.CodecProvider;
+import org.bson.codecs.configuration.CodecRegistry;
+
+public class OrderCodecProvider implements CodecProvider {
+    private final ItemCodec itemCodec = new ItemCodec();
+    private final OrderCodec orderCodec;
+
+    public OrderCodecProvider() {
+        this(KeyType.STRING);
+    }
+
+    public OrderCodecProvider(KeyType keyType) {
+        this.orderCodec = new OrderCodec(itemCodec, keyType);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> Codec<T> get(Class<T> clazz, CodecRegistry registry) {
+        if (clazz == Order.class) {
+            return (Codec<T>) orderCodec;
+        }
+        if (clazz == Item.class) {
+            return (Codec<T>) itemCodec;
+        }
+        return null;
+    }
+}
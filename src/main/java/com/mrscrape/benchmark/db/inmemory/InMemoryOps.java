@@ -0,0 +1,313 @@
+package com.mrscrape.benchmark.db.inmemory;
+
+import com.mrscrape.benchmark.db.BatchReads;
+import com.mrscrape.benchmark.db.DatabaseOperations;
+import com.mrscrape.benchmark.db.RetryUtil;
+import com.mrscrape.benchmark.metrics.MetricsCollector;
+import com.mrscrape.benchmark.model.Item;
+import com.mrscrape.benchmark.model.Order;
+import com.mrscrape.benchmark.workload.OrderBatch;
+import com.mrscrape.benchmark.workload.OrderGenerator;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.random.RandomGenerator;
+
+/**
+ * Stand-in backend that keeps orders in a ConcurrentHashMap, for measuring the harness itself (executor,
+ * generation, metrics, retry wrapping) without a database. Operations follow the same rules as the real
+ * backends, including the total_amount invariant, and can be slowed down by a SyntheticLatency.
+ */
+public class InMemoryOps implements DatabaseOperations {
+    private final Map<String, Order> orders = new ConcurrentHashMap<>();
+    private final OrderGenerator orderGenerator;
+    private final SyntheticLatency latency;
+
+    public InMemoryOps(OrderGenerator orderGenerator, SyntheticLatency latency) {
+        this.orderGenerator = orderGenerator;
+        this.latency = latency;
+    }
+
+    @Override
+    public void setup() throws Exception {
+        orders.clear();
+    }
+
+    @Override
+    public void recordPhaseMetrics(String phase, MetricsCollector collector) {
+        collector.recordMetric(phase + "_inmemory_orders_stored", orders.size());
+    }
+
+    @Override
+    public void teardown() throws Exception {
+        orders.clear();
+    }
+
+    @Override
+    public void insert(Order order) throws Exception {
+        RetryUtil.executeVoidWithRetry(() -> {
+            latency.await();
+            order.recalculateTotalAmount();
+            // Duplicate inserts are ignored, as with the duplicate-key handling of the real backends
+            orders.putIfAbsent(order.getOrderId(), copy(order));
+        }, "InMemoryOps.insert");
+    }
+
+    @Override
+    public void insert(OrderBatch batch, int index) throws Exception {
+        RetryUtil.executeVoidWithRetry(() -> {
+            latency.await();
+            orders.putIfAbsent(batch.orderId(index), batch.toOrder(index));
+        }, "InMemoryOps.insert");
+    }
+
+    @Override
+    public void updateModify(String orderId) throws Exception {
+        RetryUtil.executeVoidWithRetry(() -> {
+            latency.await();
+            Order updated = orders.computeIfPresent(orderId, (id, order) -> {
+                RandomGenerator rand = orderGenerator.modifyRandom(orderId);
+                for (Item item : order.getItems()) {
+                    item.setPrice(item.getPrice() + (rand.nextInt(100) + 1));
+                    item.setQuantity(Math.max(1, item.getQuantity() + (rand.nextInt(5) - 2)));
+                }
+                order.recalculateTotalAmount();
+                return order;
+            });
+            if (updated == null) {
+                throw new Exception("Order not found: " + orderId);
+            }
+        }, "InMemoryOps.updateModify");
+    }
+
+    @Override
+    public void updateAdd(String orderId) throws Exception {
+        RetryUtil.executeVoidWithRetry(() -> {
+            latency.await();
+            Order updated = orders.computeIfPresent(orderId, (id, order) -> {
+                List<Item> newItems = orderGenerator.generateAddedItems(orderId, order.getItems().size());
+                for (Item item : newItems) {
+                    order.addItem(item);
+                }
+                order.recalculateTotalAmount();
+                return order;
+            });
+            if (updated == null) {
+                throw new Exception("Order not found: " + orderId);
+            }
+        }, "InMemoryOps.updateAdd");
+    }
+
+    @Override
+    public Order query(String orderId) throws Exception {
+        return RetryUtil.executeWithRetry(() -> {
+            latency.await();
+            Order order = snapshot(orderId);
+            if (order == null) {
+                throw new Exception("Order not found: " + orderId);
+            }
+
+            validateTotalAmount(orderId);
+            return order;
+        }, "InMemoryOps.query");
+    }
+
+    // One synthetic round-trip for the whole batch, as a multi-get against a real backend would cost
+    @Override
+    public List<Order> queryBatch(List<String> orderIds) throws Exception {
+        return RetryUtil.executeWithRetry(() -> {
+            latency.await();
+            List<Order> found = new ArrayList<>(orderIds.size());
+            for (String orderId : orderIds) {
+                Order order = snapshot(orderId);
+                if (order != null) {
+                    found.add(order);
+                }
+            }
+            return BatchReads.inRequestOrder(orderIds, found);
+        }, "InMemoryOps.queryBatch");
+    }
+
+    @Override
+    public void delete(String orderId) throws Exception {
+        RetryUtil.executeVoidWithRetry(() -> {
+            latency.await();
+            orders.remove(orderId);
+        }, "InMemoryOps.delete");
+    }
+
+    @Override
+    public void deleteBatch(List<String> orderIds) throws Exception {
+        RetryUtil.executeVoidWithRetry(() -> {
+            latency.await();
+            for (String orderId : orderIds) {
+                orders.remove(orderId);
+            }
+        }, "InMemoryOps.deleteBatch");
+    }
+
+    // A scan, as against a backend without an order_date index
+    @Override
+    public int deleteRange(Instant from, Instant to) throws Exception {
+        return RetryUtil.executeWithRetry(() -> {
+            latency.await();
+            int[] deleted = new int[1];
+            orders.values().removeIf(order -> {
+                boolean inRange = !order.getOrderDate().isBefore(from) && order.getOrderDate().isBefore(to);
+                if (inRange) {
+                    deleted[0]++;
+                }
+                return inRange;
+            });
+            return deleted[0];
+        }, "InMemoryOps.deleteRange");
+    }
+
+    @Override
+    public void validateTotalAmount(String orderId) throws Exception {
+        RetryUtil.executeVoidWithRetry(() -> {
+            Order order = snapshot(orderId);
+            if (order == null) {
+                throw new Exception("Order not found for validation: " + orderId);
+            }
+
+            long calculatedTotal = order.calculateTotalAmount();
+            long storedTotal = order.getTotalAmount();
+            if (calculatedTotal != storedTotal) {
+                throw new Exception("Total amount mismatch for order " + orderId +
+                        ": calculated=" + calculatedTotal + ", stored=" + storedTotal);
+            }
+        }, "InMemoryOps.validateTotalAmount");
+    }
+
+    // Secondary queries scan the map, like a backend without the indexes
+    @Override
+    public void createSecondaryIndexes() throws Exception {
+    }
+
+    @Override
+    public List<Order> queryByCustomer(String customerId, int limit) throws Exception {
+        return scan(order -> order.getCustomerId().equals(customerId),
+                Comparator.comparing(Order::getOrderDate).reversed(), limit, "InMemoryOps.queryByCustomer");
+    }
+
+    @Override
+    public List<Order> queryByStatus(String status, int limit) throws Exception {
+        return scan(order -> order.getStatus().equals(status),
+                Comparator.comparing(Order::getOrderDate).reversed(), limit, "InMemoryOps.queryByStatus");
+    }
+
+    @Override
+    public List<Order> queryByDateRange(Instant from, Instant to, int limit) throws Exception {
+        return scan(order -> !order.getOrderDate().isBefore(from) && order.getOrderDate().isBefore(to),
+                Comparator.comparing(Order::getOrderDate), limit, "InMemoryOps.queryByDateRange");
+    }
+
+    @Override
+    public List<Order> queryByProduct(String productId, int limit) throws Exception {
+        return scan(order -> order.getItems().stream().anyMatch(item -> productId.equals(item.getProductId())),
+                null, limit, "InMemoryOps.queryByProduct");
+    }
+
+    // Analytics read the stored orders in place, as no write phase runs alongside
+    @Override
+    public Map<String, Long> revenueByProduct() throws Exception {
+        return RetryUtil.executeWithRetry(() -> {
+            latency.await();
+            Map<String, Long> revenue = new HashMap<>();
+            for (Order order : orders.values()) {
+                for (Item item : order.getItems()) {
+                    revenue.merge(item.getProductId(), item.getPrice() * item.getQuantity(), Long::sum);
+                }
+            }
+            return revenue;
+        }, "InMemoryOps.revenueByProduct");
+    }
+
+    @Override
+    public Map<String, Long> topCustomers(int limit) throws Exception {
+        return RetryUtil.executeWithRetry(() -> {
+            latency.await();
+            Map<String, Long> totals = new HashMap<>();
+            for (Order order : orders.values()) {
+                totals.merge(order.getCustomerId(), order.getTotalAmount(), Long::sum);
+            }
+            Map<String, Long> top = new LinkedHashMap<>();
+            totals.entrySet().stream()
+                    .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                    .limit(limit)
+                    .forEach(entry -> top.put(entry.getKey(), entry.getValue()));
+            return top;
+        }, "InMemoryOps.topCustomers");
+    }
+
+    @Override
+    public Map<Integer, Long> itemCountHistogram() throws Exception {
+        return RetryUtil.executeWithRetry(() -> {
+            latency.await();
+            Map<Integer, Long> histogram = new TreeMap<>();
+            for (Order order : orders.values()) {
+                histogram.merge(order.getItems().size(), 1L, Long::sum);
+            }
+            return histogram;
+        }, "InMemoryOps.itemCountHistogram");
+    }
+
+    private List<Order> scan(Predicate<Order> filter, Comparator<Order> sort, int limit, String operationName)
+            throws Exception {
+        return RetryUtil.executeWithRetry(() -> {
+            latency.await();
+            // Filters the stored orders in place, which is safe as no write phase runs alongside, and copies matches
+            List<Order> found = new ArrayList<>();
+            for (Order stored : orders.values()) {
+                if (!filter.test(stored)) {
+                    continue;
+                }
+                Order order = snapshot(stored.getOrderId());
+                if (order != null) {
+                    found.add(order);
+                    if (sort == null && found.size() == limit) {
+                        break;
+                    }
+                }
+            }
+            if (sort != null) {
+                found.sort(sort);
+            }
+            return BatchReads.checkTotals(found.subList(0, Math.min(limit, found.size())));
+        }, operationName);
+    }
+
+    // Copied under the map's bin lock, so a concurrent update is never seen half-applied
+    private Order snapshot(String orderId) {
+        Order[] result = new Order[1];
+        orders.computeIfPresent(orderId, (id, order) -> {
+            result[0] = copy(order);
+            return order;
+        });
+        return result[0];
+    }
+
+    // Stored orders are private to the map, like rows in a database
+    private static Order copy(Order order) {
+        Order copy = new Order(order.getOrderId(), order.getCustomerId(), order.getOrderDate(), order.getStatus());
+        for (Item item : order.getItems()) {
+            Item itemCopy = new Item(item.getItemId(), order.getOrderId(), item.getProductId(), item.getName(),
+                    item.getPrice(), item.getQuantity());
+            itemCopy.setLineNo(item.getLineNo());
+            itemCopy.setDescription(item.getDescription());
+            itemCopy.setAttributes(item.getAttributes());
+            copy.getItems().add(itemCopy);
+        }
+        copy.setTotalAmount(order.getTotalAmount());
+        return copy;
+    }
+}
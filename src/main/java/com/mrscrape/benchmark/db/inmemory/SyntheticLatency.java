@@ -0,0 +1,102 @@
+package com.mrscrape.benchmark.db.inmemory;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Artificial per-operation delay for the in-memory backend, in milliseconds: "0" (none), "N" or "fixed:N",
+ * "uniform:MIN:MAX" or "exponential:MEAN:MAX" (long tail, capped at MAX).
+ */
+public class SyntheticLatency {
+    public enum Distribution { NONE, FIXED, UNIFORM, EXPONENTIAL }
+
+    private final Distribution distribution;
+    // FIXED: a; UNIFORM: a..b; EXPONENTIAL: mean a, capped at b (all in nanoseconds)
+    private final long a;
+    private final long b;
+    private final String spec;
+
+    private SyntheticLatency(Distribution distribution, double aMs, double bMs, String spec) {
+        this.distribution = distribution;
+        this.a = (long) (aMs * 1_000_000);
+        this.b = (long) (bMs * 1_000_000);
+        this.spec = spec;
+    }
+
+    public static SyntheticLatency none() {
+        return new SyntheticLatency(Distribution.NONE, 0, 0, "0");
+    }
+
+    public static SyntheticLatency of(String spec) {
+        String[] parts = spec.trim().toLowerCase().split(":");
+        try {
+            return switch (parts[0]) {
+                case "fixed" -> {
+                    requireParts(parts, 2, spec);
+                    yield fixed(Double.parseDouble(parts[1]), spec);
+                }
+                case "uniform" -> {
+                    requireParts(parts, 3, spec);
+                    yield checked(new SyntheticLatency(Distribution.UNIFORM, Double.parseDouble(parts[1]),
+                            Double.parseDouble(parts[2]), spec));
+                }
+                case "exponential" -> {
+                    requireParts(parts, 3, spec);
+                    yield checked(new SyntheticLatency(Distribution.EXPONENTIAL, Double.parseDouble(parts[1]),
+                            Double.parseDouble(parts[2]), spec));
+                }
+                default -> {
+                    requireParts(parts, 1, spec);
+                    yield fixed(Double.parseDouble(parts[0]), spec);
+                }
+            };
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid synthetic latency: " + spec);
+        }
+    }
+
+    private static SyntheticLatency fixed(double ms, String spec) {
+        return ms == 0 ? none() : checked(new SyntheticLatency(Distribution.FIXED, ms, ms, spec));
+    }
+
+    private static SyntheticLatency checked(SyntheticLatency latency) {
+        boolean valid = switch (latency.distribution) {
+            case NONE -> true;
+            case FIXED -> latency.a > 0;
+            case UNIFORM -> latency.a >= 0 && latency.b >= latency.a;
+            case EXPONENTIAL -> latency.a > 0 && latency.b >= latency.a;
+        };
+        if (!valid) {
+            throw new IllegalArgumentException("Invalid synthetic latency: " + latency.spec);
+        }
+        return latency;
+    }
+
+    private static void requireParts(String[] parts, int expected, String spec) {
+        if (parts.length != expected) {
+            throw new IllegalArgumentException("Invalid synthetic latency: " + spec);
+        }
+    }
+
+    public long nextNanos() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return switch (distribution) {
+            case NONE -> 0;
+            case FIXED -> a;
+            case UNIFORM -> a == b ? a : random.nextLong(a, b + 1);
+            case EXPONENTIAL -> Math.min(b, (long) (-a * Math.log(1 - random.nextDouble())));
+        };
+    }
+
+    // Parks the calling (virtual) thread, so a delay occupies a worker the way a database round-trip does
+    public void await() throws InterruptedException {
+        long nanos = nextNanos();
+        if (nanos > 0) {
+            Thread.sleep(nanos / 1_000_000, (int) (nanos % 1_000_000));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return spec;
+    }
+}
@@ -0,0 +1,47 @@
+package com.mrscrape.benchmark.db.scenario1;
+
+import org.postgresql.util.PGBinaryObject;
+import org.postgresql.util.PGobject;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+
+/**
+ * jsonb parameter in the binary wire format: a version byte followed by UTF-8 JSON.
+ * pgjdbc sends it in binary when jsonb is listed in binaryTransferEnable, otherwise as text.
+ */
+class JsonbBinaryValue extends PGobject implements PGBinaryObject {
+    private static final long serialVersionUID = 1L;
+    static final byte JSONB_VERSION = 1;
+
+    private byte[] data;
+    private int length;
+
+    JsonbBinaryValue(byte[] data, int length) {
+        setType("jsonb");
+        this.data = data;
+        this.length = length;
+    }
+
+    @Override
+    public void setByteValue(byte[] value, int offset) throws SQLException {
+        data = new byte[value.length - offset];
+        System.arraycopy(value, offset, data, 0, data.length);
+        length = data.length;
+    }
+
+    @Override
+    public int lengthInBytes() {
+        return length;
+    }
+
+    @Override
+    public void toBytes(byte[] bytes, int offset) {
+        System.arraycopy(data, 0, bytes, offset, length);
+    }
+
+    @Override
+    public String getValue() {
+        return new String(data, 1, length - 1, StandardCharsets.UTF_8);
+    }
+}
@@ -1,24 +1,61 @@
 package com.mrscrape.benchmark.db.scenario1;
 
+import com.mrscrape.benchmark.db.BatchReads;
 import com.mrscrape.benchmark.db.DatabaseOperations;
 import com.mrscrape.benchmark.db.MongoConnection;
+import com.mrscrape.benchmark.db.MongoSharding;
 import com.mrscrape.benchmark.db.RetryUtil;
+import com.mrscrape.benchmark.db.StorageStats;
+import com.mrscrape.benchmark.db.codec.OrderBatchEncoder;
+import com.mrscrape.benchmark.metrics.MetricsCollector;
 import com.mrscrape.benchmark.model.Item;
 import com.mrscrape.benchmark.model.Order;
+import com.mrscrape.benchmark.workload.KeyType;
+import com.mrscrape.benchmark.workload.OrderBatch;
+import com.mrscrape.benchmark.workload.OrderGenerator;
+import com.mrscrape.benchmark.workload.OrderShape;
 import com.mongodb.WriteConcern;
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.Updates;
 import org.bson.Document;
+import org.bson.RawBsonDocument;
 
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.random.RandomGenerator;
 
 public class MongoEmbeddedOps implements DatabaseOperations {
     private final MongoConnection mongoConnection;
+    private final OrderGenerator orderGenerator;
+    private final MongoSharding sharding;
+    private final boolean allowDiskUse;
+    private final KeyType keyType;
     private static final String COLLECTION_NAME = "orders";
+    private static final OrderBatchEncoder ORDER_BATCH_ENCODER = new OrderBatchEncoder();
 
     public MongoEmbeddedOps(MongoConnection mongoConnection) {
+        this(mongoConnection, new OrderGenerator(OrderShape.defaultShape()), MongoSharding.disabled(mongoConnection));
+    }
+
+    public MongoEmbeddedOps(MongoConnection mongoConnection, OrderGenerator orderGenerator, MongoSharding sharding) {
+        this(mongoConnection, orderGenerator, sharding, false);
+    }
+
+    public MongoEmbeddedOps(MongoConnection mongoConnection, OrderGenerator orderGenerator, MongoSharding sharding,
+            boolean allowDiskUse) {
         this.mongoConnection = mongoConnection;
+        this.orderGenerator = orderGenerator;
+        this.keyType = orderGenerator.getKeyType();
+        this.sharding = sharding;
+        this.allowDiskUse = allowDiskUse;
     }
 
     @Override
@@ -27,9 +64,16 @@ public class MongoEmbeddedOps implements DatabaseOperations {
             MongoCollection<Document> collection = mongoConnection.getDatabase().getCollection(COLLECTION_NAME);
             collection.drop();
             mongoConnection.getDatabase().createCollection(COLLECTION_NAME);
+            sharding.shardCollection(COLLECTION_NAME, sharding.getShardKey().orderKey());
         }, "MongoEmbeddedOps.setup");
     }
 
+    @Override
+    public void recordPhaseMetrics(String phase, MetricsCollector collector) {
+        mongoConnection.getCommandStats().recordTo(collector, phase);
+        sharding.recordTo(collector, phase);
+    }
+
     @Override
     public void teardown() throws Exception {
         RetryUtil.executeVoidWithRetry(() -> {
@@ -41,32 +85,29 @@ public class MongoEmbeddedOps implements DatabaseOperations {
     @Override
     public void insert(Order order) throws Exception {
         RetryUtil.executeVoidWithRetry(() -> {
-            MongoCollection<Document> collection = mongoConnection.getDatabase().getCollection(COLLECTION_NAME)
-                    .withWriteConcern(WriteConcern.JOURNALED);
+            MongoCollection<Order> collection = orders().withWriteConcern(WriteConcern.JOURNALED);
             
             try {
-                List<Document> itemDocs = new ArrayList<>();
-                for (Item item : order.getItems()) {
-                    Document itemDoc = new Document()
-                            .append("item_id", item.getItemId())
-                            .append("product_id", item.getProductId())
-                            .append("name", item.getName())
-                            .append("price", item.getPrice())
-                            .append("quantity", item.getQuantity());
-                    itemDocs.add(itemDoc);
-                }
-                
                 order.recalculateTotalAmount();
-                
-                Document orderDoc = new Document()
-                        .append("_id", order.getOrderId())
-                        .append("customer_id", order.getCustomerId())
-                        .append("order_date", order.getOrderDate())
-                        .append("total_amount", order.getTotalAmount())
-                        .append("status", order.getStatus())
-                        .append("items", itemDocs);
-                
-                collection.insertOne(orderDoc);
+                collection.insertOne(order);
+            } catch (Exception e) {
+                if (isDuplicateKeyException(e)) {
+                    return;
+                }
+                throw e;
+            }
+        }, "MongoEmbeddedOps.insert");
+    }
+
+    @Override
+    public void insert(OrderBatch batch, int order) throws Exception {
+        RetryUtil.executeVoidWithRetry(() -> {
+            MongoCollection<RawBsonDocument> collection = mongoConnection.getDatabase()
+                    .getCollection(COLLECTION_NAME, RawBsonDocument.class)
+                    .withWriteConcern(WriteConcern.JOURNALED);
+            
+            try {
+                collection.insertOne(ORDER_BATCH_ENCODER.toRawDocument(batch.entry(order)));
             } catch (Exception e) {
                 if (isDuplicateKeyException(e)) {
                     return;
@@ -76,6 +117,11 @@ public class MongoEmbeddedOps implements DatabaseOperations {
         }, "MongoEmbeddedOps.insert");
     }
 
+    // Typed handle: orders are written and read through OrderCodec without an intermediate Document tree
+    private MongoCollection<Order> orders() {
+        return mongoConnection.getDatabase().getCollection(COLLECTION_NAME, Order.class);
+    }
+
     private boolean isDuplicateKeyException(Exception e) {
         if (e.getClass().getName().contains("DuplicateKeyException")) {
             return true;
@@ -92,142 +138,199 @@ public class MongoEmbeddedOps implements DatabaseOperations {
     @Override
     public void updateModify(String orderId) throws Exception {
         RetryUtil.executeVoidWithRetry(() -> {
-            MongoCollection<Document> collection = mongoConnection.getDatabase().getCollection(COLLECTION_NAME)
-                    .withWriteConcern(WriteConcern.JOURNALED);
+            MongoCollection<Order> collection = orders().withWriteConcern(WriteConcern.JOURNALED);
             
-            Document orderDoc = collection.find(new Document("_id", orderId)).first();
-            if (orderDoc == null) {
+            Order order = collection.find(sharding.getShardKey().orderFilter(orderGenerator, orderId)).first();
+            if (order == null) {
                 throw new Exception("Order not found: " + orderId);
             }
             
-            List<Document> items = (List<Document>) orderDoc.get("items");
-            if (items != null && !items.isEmpty()) {
-                ThreadLocalRandom rand = ThreadLocalRandom.current();
-                for (Document item : items) {
-                    long newPrice = ((Number) item.get("price")).longValue() + (rand.nextInt(100) + 1);
-                    long newQuantity = Math.max(1, ((Number) item.get("quantity")).longValue() + (rand.nextInt(5) - 2));
-                    item.put("price", newPrice);
-                    item.put("quantity", newQuantity);
-                }
+            RandomGenerator rand = orderGenerator.modifyRandom(orderId);
+            for (Item item : order.getItems()) {
+                item.setPrice(item.getPrice() + (rand.nextInt(100) + 1));
+                item.setQuantity(Math.max(1, item.getQuantity() + (rand.nextInt(5) - 2)));
             }
             
-            long newTotal = items.stream()
-                    .mapToLong(item -> ((Number) item.get("price")).longValue() * ((Number) item.get("quantity")).longValue())
-                    .sum();
-            
-            collection.updateOne(
-                    new Document("_id", orderId),
-                    new Document("$set", new Document()
-                            .append("items", items)
-                            .append("total_amount", newTotal))
-            );
+            saveItems(collection, order);
         }, "MongoEmbeddedOps.updateModify");
     }
 
     @Override
     public void updateAdd(String orderId) throws Exception {
         RetryUtil.executeVoidWithRetry(() -> {
-            MongoCollection<Document> collection = mongoConnection.getDatabase().getCollection(COLLECTION_NAME)
-                    .withWriteConcern(WriteConcern.JOURNALED);
+            MongoCollection<Order> collection = orders().withWriteConcern(WriteConcern.JOURNALED);
             
-            Document orderDoc = collection.find(new Document("_id", orderId)).first();
-            if (orderDoc == null) {
+            Order order = collection.find(sharding.getShardKey().orderFilter(orderGenerator, orderId)).first();
+            if (order == null) {
                 throw new Exception("Order not found: " + orderId);
             }
             
-            List<Document> items = (List<Document>) orderDoc.get("items");
-            if (items == null) {
-                items = new ArrayList<>();
-            }
-            
-            int currentSize = items.size();
-            ThreadLocalRandom rand = ThreadLocalRandom.current();
-            for (int i = 0; i < 5; i++) {
-                Document newItem = new Document()
-                        .append("item_id", orderId + "_item_" + (currentSize + i + 1))
-                        .append("product_id", "product_" + (currentSize + i + 1))
-                        .append("name", "New Product " + (currentSize + i + 1))
-                        .append("price", (long)(rand.nextDouble() * 900) + 100)
-                        .append("quantity", rand.nextInt(10) + 1);
-                items.add(newItem);
+            for (Item item : orderGenerator.generateAddedItems(orderId, order.getItems().size())) {
+                order.addItem(item);
             }
             
-            long newTotal = items.stream()
-                    .mapToLong(item -> ((Number) item.get("price")).longValue() * ((Number) item.get("quantity")).longValue())
-                    .sum();
-            
-            collection.updateOne(
-                    new Document("_id", orderId),
-                    new Document("$set", new Document()
-                            .append("items", items)
-                            .append("total_amount", newTotal))
-            );
+            saveItems(collection, order);
         }, "MongoEmbeddedOps.updateAdd");
     }
 
+    // The items list is encoded with ItemCodec through the collection's codec registry
+    private void saveItems(MongoCollection<Order> collection, Order order) {
+        order.recalculateTotalAmount();
+        collection.updateOne(
+                sharding.getShardKey().orderFilter(orderGenerator, order.getOrderId()),
+                Updates.combine(
+                        Updates.set("items", order.getItems()),
+                        Updates.set("total_amount", order.getTotalAmount())));
+    }
+
     @Override
     public Order query(String orderId) throws Exception {
         return RetryUtil.executeWithRetry(() -> {
-            MongoCollection<Document> collection = mongoConnection.getDatabase().getCollection(COLLECTION_NAME);
-            
-            Document orderDoc = collection.find(new Document("_id", orderId)).first();
-            if (orderDoc == null) {
+            Order order = orders().find(sharding.getShardKey().orderFilter(orderGenerator, orderId)).first();
+            if (order == null) {
                 throw new Exception("Order not found: " + orderId);
             }
             
-            Order order = new Order(
-                    orderDoc.getString("_id"),
-                    orderDoc.getString("customer_id"),
-                    orderDoc.getDate("order_date").toInstant(),
-                    orderDoc.getString("status")
-            );
-            order.setTotalAmount(((Number) orderDoc.get("total_amount")).longValue());
-            
-            List<Document> itemDocs = (List<Document>) orderDoc.get("items");
-            if (itemDocs != null) {
-                for (Document itemDoc : itemDocs) {
-                    Item item = new Item(
-                            itemDoc.getString("item_id"),
-                            orderId,
-                            itemDoc.getString("product_id"),
-                            itemDoc.getString("name"),
-                            ((Number) itemDoc.get("price")).longValue(),
-                            ((Number) itemDoc.get("quantity")).longValue()
-                    );
-                    order.addItem(item);
-                }
-            }
-            
             validateTotalAmount(orderId);
             return order;
         }, "MongoEmbeddedOps.query");
     }
 
+    @Override
+    public List<Order> queryBatch(List<String> orderIds) throws Exception {
+        return RetryUtil.executeWithRetry(() -> BatchReads.inRequestOrder(orderIds,
+                orders().find(sharding.getShardKey().ordersFilter(orderGenerator, orderIds))
+                        .batchSize(orderIds.size())
+                        .into(new ArrayList<>(orderIds.size()))),
+                "MongoEmbeddedOps.queryBatch");
+    }
+
     @Override
     public void delete(String orderId) throws Exception {
         RetryUtil.executeVoidWithRetry(() -> {
             MongoCollection<Document> collection = mongoConnection.getDatabase().getCollection(COLLECTION_NAME)
                     .withWriteConcern(WriteConcern.JOURNALED);
-            collection.deleteOne(new Document("_id", orderId));
+            collection.deleteOne(sharding.getShardKey().orderFilter(orderGenerator, orderId));
         }, "MongoEmbeddedOps.delete");
     }
 
     @Override
-    public void validateTotalAmount(String orderId) throws Exception {
+    public void deleteBatch(List<String> orderIds) throws Exception {
+        RetryUtil.executeVoidWithRetry(() -> {
+            MongoCollection<Document> collection = mongoConnection.getDatabase().getCollection(COLLECTION_NAME)
+                    .withWriteConcern(WriteConcern.JOURNALED);
+            collection.deleteMany(sharding.getShardKey().ordersFilter(orderGenerator, orderIds));
+        }, "MongoEmbeddedOps.deleteBatch");
+    }
+
+    @Override
+    public int deleteRange(Instant from, Instant to) throws Exception {
+        return RetryUtil.executeWithRetry(() -> {
+            MongoCollection<Document> collection = mongoConnection.getDatabase().getCollection(COLLECTION_NAME)
+                    .withWriteConcern(WriteConcern.JOURNALED);
+            return (int) collection.deleteMany(Filters.and(
+                    Filters.gte("order_date", Date.from(from)), Filters.lt("order_date", Date.from(to))))
+                    .getDeletedCount();
+        }, "MongoEmbeddedOps.deleteRange");
+    }
+
+    @Override
+    public void createSecondaryIndexes() throws Exception {
         RetryUtil.executeVoidWithRetry(() -> {
             MongoCollection<Document> collection = mongoConnection.getDatabase().getCollection(COLLECTION_NAME);
-            
-            Document orderDoc = collection.find(new Document("_id", orderId)).first();
-            if (orderDoc == null) {
+            collection.createIndex(new Document("customer_id", 1).append("order_date", -1));
+            collection.createIndex(new Document("status", 1).append("order_date", -1));
+            collection.createIndex(new Document("order_date", 1));
+            // Multikey: one entry per embedded item
+            collection.createIndex(new Document("items.product_id", 1));
+        }, "MongoEmbeddedOps.createSecondaryIndexes");
+    }
+
+    @Override
+    public List<Order> queryByCustomer(String customerId, int limit) throws Exception {
+        return RetryUtil.executeWithRetry(() -> BatchReads.checkTotals(orders()
+                .find(Filters.eq("customer_id", customerId))
+                .sort(Sorts.descending("order_date"))
+                .limit(limit)
+                .into(new ArrayList<>())), "MongoEmbeddedOps.queryByCustomer");
+    }
+
+    @Override
+    public List<Order> queryByStatus(String status, int limit) throws Exception {
+        return RetryUtil.executeWithRetry(() -> BatchReads.checkTotals(orders()
+                .find(Filters.eq("status", status))
+                .sort(Sorts.descending("order_date"))
+                .limit(limit)
+                .into(new ArrayList<>())), "MongoEmbeddedOps.queryByStatus");
+    }
+
+    @Override
+    public List<Order> queryByDateRange(Instant from, Instant to, int limit) throws Exception {
+        return RetryUtil.executeWithRetry(() -> BatchReads.checkTotals(orders()
+                .find(Filters.and(Filters.gte("order_date", Date.from(from)), Filters.lt("order_date", Date.from(to))))
+                .sort(Sorts.ascending("order_date"))
+                .limit(limit)
+                .into(new ArrayList<>())), "MongoEmbeddedOps.queryByDateRange");
+    }
+
+    @Override
+    public List<Order> queryByProduct(String productId, int limit) throws Exception {
+        return RetryUtil.executeWithRetry(() -> BatchReads.checkTotals(orders()
+                .find(Filters.eq("items.product_id", productId))
+                .limit(limit)
+                .into(new ArrayList<>())), "MongoEmbeddedOps.queryByProduct");
+    }
+
+    // $unwind turns every embedded item into a document of its own before $group can see it
+    @Override
+    public Map<String, Long> revenueByProduct() throws Exception {
+        return mongoConnection.sumsByKey(COLLECTION_NAME, List.of(
+                Aggregates.unwind("$items"),
+                Aggregates.group("$items.product_id", Accumulators.sum("sum",
+                        new Document("$multiply", List.of("$items.price", "$items.quantity"))))),
+                allowDiskUse, "MongoEmbeddedOps.revenueByProduct");
+    }
+
+    @Override
+    public Map<String, Long> topCustomers(int limit) throws Exception {
+        return mongoConnection.sumsByKey(COLLECTION_NAME, List.of(
+                Aggregates.group("$customer_id", Accumulators.sum("sum", "$total_amount")),
+                Aggregates.sort(Sorts.descending("sum")),
+                Aggregates.limit(limit)),
+                allowDiskUse, "MongoEmbeddedOps.topCustomers");
+    }
+
+    @Override
+    public Map<Integer, Long> itemCountHistogram() throws Exception {
+        Map<Integer, Long> histogram = new TreeMap<>();
+        mongoConnection.sumsByKey(COLLECTION_NAME,
+                List.of(Aggregates.group(new Document("$size", "$items"), Accumulators.sum("sum", 1))),
+                allowDiskUse, "MongoEmbeddedOps.itemCountHistogram")
+                .forEach((items, orders) -> histogram.put(Integer.parseInt(items), orders));
+        return histogram;
+    }
+
+    @Override
+    public void recordIndexSizes(String phase, MetricsCollector collector) {
+        mongoConnection.indexSizes(COLLECTION_NAME).forEach((index, bytes) ->
+                collector.recordMetric(phase + "_index_" + index + "_bytes", bytes));
+    }
+
+    @Override
+    public StorageStats storageStats() {
+        return mongoConnection.storageStats(COLLECTION_NAME);
+    }
+
+    @Override
+    public void validateTotalAmount(String orderId) throws Exception {
+        RetryUtil.executeVoidWithRetry(() -> {
+            Order order = orders().find(sharding.getShardKey().orderFilter(orderGenerator, orderId)).first();
+            if (order == null) {
                 throw new Exception("Order not found for validation: " + orderId);
             }
             
-            List<Document> items = (List<Document>) orderDoc.get("items");
-            long calculatedTotal = items.stream()
-                    .mapToLong(item -> ((Number) item.get("price")).longValue() * ((Number) item.get("quantity")).longValue())
-                    .sum();
-            
-            long storedTotal = ((Number) orderDoc.get("total_amount")).longValue();
+            long calculatedTotal = order.calculateTotalAmount();
+            long storedTotal = order.getTotalAmount();
             if (calculatedTotal != storedTotal) {
                 throw new Exception("Total amount mismatch for order " + orderId + 
                         ": calculated=" + calculatedTotal + ", stored=" + storedTotal);
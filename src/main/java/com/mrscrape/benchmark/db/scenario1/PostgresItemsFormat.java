@@ -0,0 +1,37 @@
+package com.mrscrape.benchmark.db.scenario1;
+
+public enum PostgresItemsFormat {
+    // Text JSON parsed into jsonb by the server
+    JSONB("jsonb", "JSONB"),
+    // jsonb binary wire format (version byte + JSON), sent and received without text conversion
+    JSONB_BINARY("jsonb-binary", "JSONB"),
+    // Stored as text JSON, validated but not decomposed by the server
+    JSON("json", "JSON"),
+    // Gzip-compressed JSON, opaque to the server
+    BYTEA_GZIP("bytea-gzip", "BYTEA");
+
+    private final String optionValue;
+    private final String columnType;
+
+    PostgresItemsFormat(String optionValue, String columnType) {
+        this.optionValue = optionValue;
+        this.columnType = columnType;
+    }
+
+    public String getOptionValue() {
+        return optionValue;
+    }
+
+    public String getColumnType() {
+        return columnType;
+    }
+
+    public static PostgresItemsFormat fromOption(String value) {
+        for (PostgresItemsFormat format : values()) {
+            if (format.optionValue.equalsIgnoreCase(value)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unknown PostgreSQL items format: " + value);
+    }
+}
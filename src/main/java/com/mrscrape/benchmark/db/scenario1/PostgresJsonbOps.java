@@ -1,12 +1,24 @@
 package com.mrscrape.benchmark.db.scenario1;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mrscrape.benchmark.db.BatchReads;
 import com.mrscrape.benchmark.db.DatabaseOperations;
 import com.mrscrape.benchmark.db.PostgresConnection;
+import com.mrscrape.benchmark.db.PostgresPhaseStats;
 import com.mrscrape.benchmark.db.RetryUtil;
+import com.mrscrape.benchmark.db.StatementBinder;
+import com.mrscrape.benchmark.db.StorageStats;
+import com.mrscrape.benchmark.db.codec.ItemsJsonCodec;
+import com.mrscrape.benchmark.metrics.MetricsCollector;
 import com.mrscrape.benchmark.model.Item;
 import com.mrscrape.benchmark.model.Order;
+import com.mrscrape.benchmark.workload.OrderBatch;
+import com.mrscrape.benchmark.workload.OrderGenerator;
+import com.mrscrape.benchmark.workload.OrderShape;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -15,17 +27,34 @@ import java.sql.Timestamp;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.random.RandomGenerator;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 public class PostgresJsonbOps implements DatabaseOperations {
     private final PostgresConnection postgresConnection;
-    private final ObjectMapper objectMapper;
+    private final ItemsJsonCodec itemsCodec;
+    private final PostgresItemsFormat itemsFormat;
+    private final PostgresPhaseStats phaseStats;
+    private final OrderGenerator orderGenerator;
+    private final LongAdder itemsBytesWritten = new LongAdder();
+    private final LongAdder itemsBytesRead = new LongAdder();
     private static final String TABLE_NAME = "orders";
 
     public PostgresJsonbOps(PostgresConnection postgresConnection) {
+        this(postgresConnection, PostgresItemsFormat.JSONB, new OrderGenerator(OrderShape.defaultShape()));
+    }
+
+    public PostgresJsonbOps(PostgresConnection postgresConnection, PostgresItemsFormat itemsFormat,
+            OrderGenerator orderGenerator) {
         this.postgresConnection = postgresConnection;
-        this.objectMapper = new ObjectMapper();
-        this.objectMapper.findAndRegisterModules();
+        this.orderGenerator = orderGenerator;
+        this.itemsCodec = new ItemsJsonCodec();
+        this.itemsFormat = itemsFormat;
+        this.phaseStats = new PostgresPhaseStats(postgresConnection);
     }
 
     @Override
@@ -35,14 +64,24 @@ public class PostgresJsonbOps implements DatabaseOperations {
                  Statement stmt = conn.createStatement()) {
                 stmt.execute("DROP TABLE IF EXISTS " + TABLE_NAME);
                 stmt.execute("CREATE TABLE " + TABLE_NAME + " (" +
-                        "order_id VARCHAR PRIMARY KEY, " +
+                        "order_id " + orderGenerator.getKeyType().getPostgresType() + " PRIMARY KEY, " +
                         "customer_id VARCHAR, " +
                         "order_date TIMESTAMP, " +
                         "total_amount BIGINT, " +
                         "status VARCHAR, " +
-                        "items JSONB)");
+                        "items " + itemsFormat.getColumnType() + ")");
             }
         }, "PostgresJsonbOps.setup");
+        phaseStats.start();
+    }
+
+    @Override
+    public void recordPhaseMetrics(String phase, MetricsCollector collector) {
+        phaseStats.recordTo(collector, phase);
+        long written = itemsBytesWritten.sumThenReset();
+        long read = itemsBytesRead.sumThenReset();
+        collector.recordMetric(phase + "_items_payload_bytes_written", written);
+        collector.recordMetric(phase + "_items_payload_bytes_read", read);
     }
 
     @Override
@@ -57,34 +96,33 @@ public class PostgresJsonbOps implements DatabaseOperations {
 
     @Override
     public void insert(Order order) throws Exception {
+        order.recalculateTotalAmount();
+        insertRow(order.getOrderId(), order.getCustomerId(), Timestamp.from(order.getOrderDate()),
+                order.getTotalAmount(), order.getStatus(), (pstmt, index) -> bindItems(pstmt, index, order.getItems()));
+    }
+
+    @Override
+    public void insert(OrderBatch batch, int order) throws Exception {
+        insertRow(batch.orderId(order), batch.customerId(order), new Timestamp(batch.orderDateMillis(order)),
+                batch.totalAmount(order), batch.status(order), (pstmt, index) -> bindItems(pstmt, index, batch, order));
+    }
+
+    private void insertRow(String orderId, String customerId, Timestamp orderDate, long totalAmount, String status,
+            ItemsBinder items) throws Exception {
         RetryUtil.executeVoidWithRetry(() -> {
             try (Connection conn = postgresConnection.getConnection()) {
                 
                 try {
-                    List<java.util.Map<String, Object>> itemsList = new ArrayList<>();
-                    for (Item item : order.getItems()) {
-                        java.util.Map<String, Object> itemMap = new java.util.LinkedHashMap<>();
-                        itemMap.put("item_id", item.getItemId());
-                        itemMap.put("product_id", item.getProductId());
-                        itemMap.put("name", item.getName());
-                        itemMap.put("price", item.getPrice());
-                        itemMap.put("quantity", item.getQuantity());
-                        itemsList.add(itemMap);
-                    }
-                    
-                    order.recalculateTotalAmount();
-                    String itemsJson = objectMapper.writeValueAsString(itemsList);
-                    
                     String sql = "INSERT INTO " + TABLE_NAME + " (order_id, customer_id, order_date, total_amount, status, items) " +
-                            "VALUES (?, ?, ?, ?, ?, ?::jsonb)";
+                            "VALUES (?, ?, ?, ?, ?, " + itemsParameter() + ")";
                     
                     try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-                        pstmt.setString(1, order.getOrderId());
-                        pstmt.setString(2, order.getCustomerId());
-                        pstmt.setTimestamp(3, Timestamp.from(order.getOrderDate()));
-                        pstmt.setLong(4, order.getTotalAmount());
-                        pstmt.setString(5, order.getStatus());
-                        pstmt.setString(6, itemsJson);
+                        pstmt.setString(1, orderId);
+                        pstmt.setString(2, customerId);
+                        pstmt.setTimestamp(3, orderDate);
+                        pstmt.setLong(4, totalAmount);
+                        pstmt.setString(5, status);
+                        items.bind(pstmt, 6);
                         pstmt.executeUpdate();
                     }
                 } catch (Exception e) {
@@ -116,31 +154,19 @@ public class PostgresJsonbOps implements DatabaseOperations {
                 
                 Order order = query(orderId);
                 List<Item> items = order.getItems();
-                ThreadLocalRandom rand = ThreadLocalRandom.current();
+                RandomGenerator rand = orderGenerator.modifyRandom(orderId);
                 
                 for (Item item : items) {
                     item.setPrice(item.getPrice() + (rand.nextInt(100) + 1));
                     item.setQuantity(Math.max(1, item.getQuantity() + (rand.nextInt(5) - 2)));
                 }
                 
-                List<java.util.Map<String, Object>> itemsList = new ArrayList<>();
-                for (Item item : items) {
-                    java.util.Map<String, Object> itemMap = new java.util.LinkedHashMap<>();
-                    itemMap.put("item_id", item.getItemId());
-                    itemMap.put("product_id", item.getProductId());
-                    itemMap.put("name", item.getName());
-                    itemMap.put("price", item.getPrice());
-                    itemMap.put("quantity", item.getQuantity());
-                    itemsList.add(itemMap);
-                }
-                
                 order.recalculateTotalAmount();
-                String itemsJson = objectMapper.writeValueAsString(itemsList);
                 
-                String sql = "UPDATE " + TABLE_NAME + " SET total_amount = ?, items = ?::jsonb WHERE order_id = ?";
+                String sql = "UPDATE " + TABLE_NAME + " SET total_amount = ?, items = " + itemsParameter() + " WHERE order_id = ?";
                 try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
                     pstmt.setLong(1, order.getTotalAmount());
-                    pstmt.setString(2, itemsJson);
+                    bindItems(pstmt, 2, items);
                     pstmt.setString(3, orderId);
                     pstmt.executeUpdate();
                 }
@@ -156,38 +182,14 @@ public class PostgresJsonbOps implements DatabaseOperations {
                 Order order = query(orderId);
                 List<Item> items = order.getItems();
                 
-                int currentSize = items.size();
-                ThreadLocalRandom rand = ThreadLocalRandom.current();
-                for (int i = 0; i < 5; i++) {
-                    Item newItem = new Item(
-                            orderId + "_item_" + (currentSize + i + 1),
-                            orderId,
-                            "product_" + (currentSize + i + 1),
-                            "New Product " + (currentSize + i + 1),
-                            (long)(rand.nextDouble() * 900) + 100,
-                            rand.nextInt(10) + 1
-                    );
-                    items.add(newItem);
-                }
-                
-                List<java.util.Map<String, Object>> itemsList = new ArrayList<>();
-                for (Item item : items) {
-                    java.util.Map<String, Object> itemMap = new java.util.LinkedHashMap<>();
-                    itemMap.put("item_id", item.getItemId());
-                    itemMap.put("product_id", item.getProductId());
-                    itemMap.put("name", item.getName());
-                    itemMap.put("price", item.getPrice());
-                    itemMap.put("quantity", item.getQuantity());
-                    itemsList.add(itemMap);
-                }
+                items.addAll(orderGenerator.generateAddedItems(orderId, items.size()));
                 
                 order.recalculateTotalAmount();
-                String itemsJson = objectMapper.writeValueAsString(itemsList);
                 
-                String sql = "UPDATE " + TABLE_NAME + " SET total_amount = ?, items = ?::jsonb WHERE order_id = ?";
+                String sql = "UPDATE " + TABLE_NAME + " SET total_amount = ?, items = " + itemsParameter() + " WHERE order_id = ?";
                 try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
                     pstmt.setLong(1, order.getTotalAmount());
-                    pstmt.setString(2, itemsJson);
+                    bindItems(pstmt, 2, items);
                     pstmt.setString(3, orderId);
                     pstmt.executeUpdate();
                 }
@@ -205,35 +207,7 @@ public class PostgresJsonbOps implements DatabaseOperations {
                     pstmt.setString(1, orderId);
                     try (ResultSet rs = pstmt.executeQuery()) {
                         if (rs.next()) {
-                            Order order = new Order(
-                                    rs.getString("order_id"),
-                                    rs.getString("customer_id"),
-                                    rs.getTimestamp("order_date").toInstant(),
-                                    rs.getString("status")
-                            );
-                            order.setTotalAmount(rs.getLong("total_amount"));
-                            
-                            String itemsJson = rs.getString("items");
-                            if (itemsJson != null && !itemsJson.isEmpty()) {
-                                List<java.util.Map<String, Object>> itemsList = objectMapper.readValue(
-                                        itemsJson,
-                                        objectMapper.getTypeFactory().constructCollectionType(List.class, java.util.Map.class)
-                                );
-                                
-                                for (java.util.Map<String, Object> itemMap : itemsList) {
-                                    Item item = new Item(
-                                            (String) itemMap.get("item_id"),
-                                            orderId,
-                                            (String) itemMap.get("product_id"),
-                                            (String) itemMap.get("name"),
-                                            ((Number) itemMap.get("price")).longValue(),
-                                            ((Number) itemMap.get("quantity")).longValue()
-                                    );
-                                    order.addItem(item);
-                                }
-                            }
-                            
-                            return order;
+                            return readOrder(rs);
                         }
                     }
                 }
@@ -243,6 +217,168 @@ public class PostgresJsonbOps implements DatabaseOperations {
         }, "PostgresJsonbOps.query");
     }
 
+    @Override
+    public List<Order> queryBatch(List<String> orderIds) throws Exception {
+        return RetryUtil.executeWithRetry(() -> {
+            try (Connection conn = postgresConnection.getConnection()) {
+                
+                // One array parameter, so the statement text and plan are the same for every batch size
+                String sql = "SELECT * FROM " + TABLE_NAME + " WHERE order_id = ANY(?)";
+                List<Order> found = new ArrayList<>(orderIds.size());
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setArray(1, conn.createArrayOf(keyArrayType(), orderIds.toArray()));
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            found.add(readOrder(rs));
+                        }
+                    }
+                }
+                
+                return BatchReads.inRequestOrder(orderIds, found);
+            }
+        }, "PostgresJsonbOps.queryBatch");
+    }
+
+    @Override
+    public void createSecondaryIndexes() throws Exception {
+        RetryUtil.executeVoidWithRetry(() -> {
+            try (Connection conn = postgresConnection.getConnection();
+                 Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE INDEX idx_orders_customer_date ON " + TABLE_NAME + " (customer_id, order_date DESC)");
+                stmt.execute("CREATE INDEX idx_orders_status_date ON " + TABLE_NAME + " (status, order_date DESC)");
+                stmt.execute("CREATE INDEX idx_orders_order_date ON " + TABLE_NAME + " (order_date)");
+                // jsonb_path_ops only supports @>, and is smaller and faster for it than the default jsonb_ops.
+                // A json column would need a cast per row and gzip is opaque, so those formats go unindexed.
+                if (itemsFormat.getColumnType().equals("JSONB")) {
+                    stmt.execute("CREATE INDEX idx_orders_items ON " + TABLE_NAME + " USING GIN (items jsonb_path_ops)");
+                }
+            }
+        }, "PostgresJsonbOps.createSecondaryIndexes");
+    }
+
+    @Override
+    public List<Order> queryByCustomer(String customerId, int limit) throws Exception {
+        return selectOrders("customer_id = ? ORDER BY order_date DESC", pstmt -> {
+            pstmt.setString(1, customerId);
+            return 2;
+        }, limit, "PostgresJsonbOps.queryByCustomer");
+    }
+
+    @Override
+    public List<Order> queryByStatus(String status, int limit) throws Exception {
+        return selectOrders("status = ? ORDER BY order_date DESC", pstmt -> {
+            pstmt.setString(1, status);
+            return 2;
+        }, limit, "PostgresJsonbOps.queryByStatus");
+    }
+
+    @Override
+    public List<Order> queryByDateRange(Instant from, Instant to, int limit) throws Exception {
+        return selectOrders("order_date >= ? AND order_date < ? ORDER BY order_date", pstmt -> {
+            pstmt.setTimestamp(1, Timestamp.from(from));
+            pstmt.setTimestamp(2, Timestamp.from(to));
+            return 3;
+        }, limit, "PostgresJsonbOps.queryByDateRange");
+    }
+
+    @Override
+    public List<Order> queryByProduct(String productId, int limit) throws Exception {
+        if (itemsFormat == PostgresItemsFormat.BYTEA_GZIP) {
+            throw new UnsupportedOperationException("Items stored as " + itemsFormat.getOptionValue()
+                    + " cannot be searched by product");
+        }
+        String items = itemsFormat == PostgresItemsFormat.JSON ? "items::jsonb" : "items";
+        String containment = "[{\"product_id\": \"" + productId + "\"}]";
+        return selectOrders(items + " @> ?::jsonb", pstmt -> {
+            pstmt.setString(1, containment);
+            return 2;
+        }, limit, "PostgresJsonbOps.queryByProduct");
+    }
+
+    // Unnests every items array; the planner can parallelize the scan but not the per-row JSON decomposition
+    @Override
+    public Map<String, Long> revenueByProduct() throws Exception {
+        String elements = itemsFunction("array_elements");
+        return postgresConnection.sumsByKey("SELECT item->>'product_id', "
+                + "SUM((item->>'price')::bigint * (item->>'quantity')::bigint) FROM " + TABLE_NAME
+                + " CROSS JOIN LATERAL " + elements + "(items) AS item GROUP BY 1",
+                StatementBinder.NONE, "PostgresJsonbOps.revenueByProduct");
+    }
+
+    @Override
+    public Map<String, Long> topCustomers(int limit) throws Exception {
+        return postgresConnection.sumsByKey("SELECT customer_id, SUM(total_amount) FROM " + TABLE_NAME
+                + " GROUP BY customer_id ORDER BY 2 DESC LIMIT ?", pstmt -> {
+            pstmt.setInt(1, limit);
+            return 2;
+        }, "PostgresJsonbOps.topCustomers");
+    }
+
+    @Override
+    public Map<Integer, Long> itemCountHistogram() throws Exception {
+        String length = itemsFunction("array_length");
+        Map<Integer, Long> histogram = new TreeMap<>();
+        postgresConnection.sumsByKey("SELECT " + length + "(items), COUNT(*) FROM " + TABLE_NAME + " GROUP BY 1",
+                StatementBinder.NONE, "PostgresJsonbOps.itemCountHistogram")
+                .forEach((items, orders) -> histogram.put(Integer.parseInt(items), orders));
+        return histogram;
+    }
+
+    // The jsonb_ or json_ variant of a JSON function, matching the column type
+    private String itemsFunction(String name) {
+        if (itemsFormat == PostgresItemsFormat.BYTEA_GZIP) {
+            throw new UnsupportedOperationException("Items stored as " + itemsFormat.getOptionValue()
+                    + " cannot be aggregated by the server");
+        }
+        return (itemsFormat == PostgresItemsFormat.JSON ? "json_" : "jsonb_") + name;
+    }
+
+    @Override
+    public void recordIndexSizes(String phase, MetricsCollector collector) throws Exception {
+        postgresConnection.indexSizes(TABLE_NAME).forEach((index, bytes) ->
+                collector.recordMetric(phase + "_index_" + index + "_bytes", bytes));
+    }
+
+    @Override
+    public StorageStats storageStats() throws Exception {
+        return postgresConnection.storageStats(TABLE_NAME);
+    }
+
+    // The condition's parameters come first, the LIMIT is bound after them
+    private List<Order> selectOrders(String conditionAndOrder, StatementBinder binder, int limit,
+            String operationName) throws Exception {
+        return RetryUtil.executeWithRetry(() -> {
+            try (Connection conn = postgresConnection.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(
+                         "SELECT * FROM " + TABLE_NAME + " WHERE " + conditionAndOrder + " LIMIT ?")) {
+                pstmt.setInt(binder.bind(pstmt), limit);
+                List<Order> found = new ArrayList<>(limit);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        found.add(readOrder(rs));
+                    }
+                }
+                return BatchReads.checkTotals(found);
+            }
+        }, operationName);
+    }
+
+    private Order readOrder(ResultSet rs) throws Exception {
+        String orderId = rs.getString("order_id");
+        Order order = new Order(
+                orderId,
+                rs.getString("customer_id"),
+                rs.getTimestamp("order_date").toInstant(),
+                rs.getString("status")
+        );
+        order.setTotalAmount(rs.getLong("total_amount"));
+        
+        for (Item item : readItems(rs, orderId)) {
+            order.addItem(item);
+        }
+        return order;
+    }
+
     @Override
     public void delete(String orderId) throws Exception {
         RetryUtil.executeVoidWithRetry(() -> {
@@ -257,6 +393,35 @@ public class PostgresJsonbOps implements DatabaseOperations {
         }, "PostgresJsonbOps.delete");
     }
 
+    @Override
+    public void deleteBatch(List<String> orderIds) throws Exception {
+        RetryUtil.executeVoidWithRetry(() -> {
+            try (Connection conn = postgresConnection.getConnection()) {
+                
+                String sql = "DELETE FROM " + TABLE_NAME + " WHERE order_id = ANY(?)";
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setArray(1, conn.createArrayOf(keyArrayType(), orderIds.toArray()));
+                    pstmt.executeUpdate();
+                }
+            }
+        }, "PostgresJsonbOps.deleteBatch");
+    }
+
+    @Override
+    public int deleteRange(Instant from, Instant to) throws Exception {
+        return RetryUtil.executeWithRetry(() -> {
+            try (Connection conn = postgresConnection.getConnection()) {
+                
+                String sql = "DELETE FROM " + TABLE_NAME + " WHERE order_date >= ? AND order_date < ?";
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setTimestamp(1, Timestamp.from(from));
+                    pstmt.setTimestamp(2, Timestamp.from(to));
+                    return pstmt.executeUpdate();
+                }
+            }
+        }, "PostgresJsonbOps.deleteRange");
+    }
+
     @Override
     public void validateTotalAmount(String orderId) throws Exception {
         RetryUtil.executeVoidWithRetry(() -> {
@@ -268,17 +433,7 @@ public class PostgresJsonbOps implements DatabaseOperations {
                     try (ResultSet rs = pstmt.executeQuery()) {
                         if (rs.next()) {
                             long storedTotal = rs.getLong("total_amount");
-                            String itemsJson = rs.getString("items");
-                            
-                            List<java.util.Map<String, Object>> itemsList = objectMapper.readValue(
-                                    itemsJson,
-                                    objectMapper.getTypeFactory().constructCollectionType(List.class, java.util.Map.class)
-                            );
-                            
-                            long calculatedTotal = itemsList.stream()
-                                    .mapToLong(item -> ((Number) item.get("price")).longValue() * 
-                                            ((Number) item.get("quantity")).longValue())
-                                    .sum();
+                            long calculatedTotal = sumLineTotals(rs);
                             
                             if (calculatedTotal != storedTotal) {
                                 throw new Exception("Total amount mismatch for order " + orderId + 
@@ -293,4 +448,146 @@ public class PostgresJsonbOps implements DatabaseOperations {
             }
         }, "PostgresJsonbOps.validateTotalAmount");
     }
+
+    // Element type of order id arrays bound to order_id = ANY(?)
+    private String keyArrayType() {
+        return orderGenerator.getKeyType().getPostgresArrayType();
+    }
+
+    private String itemsParameter() {
+        return switch (itemsFormat) {
+            case JSONB -> "?::jsonb";
+            case JSON -> "?::json";
+            case JSONB_BINARY, BYTEA_GZIP -> "?";
+        };
+    }
+
+    private void bindItems(PreparedStatement pstmt, int index, List<Item> items) throws Exception {
+        bindItems(pstmt, index, itemsCodec.estimateSize(items), () -> itemsCodec.writeItems(items),
+                out -> itemsCodec.writeItems(items, out));
+    }
+
+    private void bindItems(PreparedStatement pstmt, int index, OrderBatch batch, int order) throws Exception {
+        bindItems(pstmt, index, itemsCodec.estimateSize(batch, order), () -> itemsCodec.writeItems(batch, order),
+                out -> itemsCodec.writeItems(batch, order, out));
+    }
+
+    private void bindItems(PreparedStatement pstmt, int index, int estimatedSize, JsonText text, JsonStream stream)
+            throws Exception {
+        switch (itemsFormat) {
+            case JSONB, JSON -> {
+                String itemsJson = text.write();
+                itemsBytesWritten.add(utf8Length(itemsJson));
+                pstmt.setString(index, itemsJson);
+            }
+            case JSONB_BINARY -> {
+                PayloadBuffer buffer = new PayloadBuffer(estimatedSize + 1);
+                buffer.write(JsonbBinaryValue.JSONB_VERSION);
+                stream.write(buffer);
+                itemsBytesWritten.add(buffer.size());
+                pstmt.setObject(index, new JsonbBinaryValue(buffer.buffer(), buffer.size()));
+            }
+            case BYTEA_GZIP -> {
+                PayloadBuffer buffer = new PayloadBuffer(estimatedSize / 4);
+                try (GZIPOutputStream gzip = new GZIPOutputStream(buffer)) {
+                    stream.write(gzip);
+                }
+                itemsBytesWritten.add(buffer.size());
+                pstmt.setBytes(index, buffer.toByteArray());
+            }
+        }
+    }
+
+    private List<Item> readItems(ResultSet rs, String orderId) throws Exception {
+        if (itemsFormat == PostgresItemsFormat.JSONB || itemsFormat == PostgresItemsFormat.JSON) {
+            String itemsJson = rs.getString("items");
+            if (itemsJson == null || itemsJson.isEmpty()) {
+                return List.of();
+            }
+            itemsBytesRead.add(utf8Length(itemsJson));
+            return itemsCodec.readItems(itemsJson, orderId);
+        }
+        byte[] data = rs.getBytes("items");
+        if (data == null) {
+            return List.of();
+        }
+        itemsBytesRead.add(data.length);
+        if (itemsFormat == PostgresItemsFormat.BYTEA_GZIP) {
+            try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(data))) {
+                return itemsCodec.readItems(gzip, orderId);
+            }
+        }
+        int offset = jsonbOffset(data);
+        return itemsCodec.readItems(data, offset, data.length - offset, orderId);
+    }
+
+    private long sumLineTotals(ResultSet rs) throws Exception {
+        if (itemsFormat == PostgresItemsFormat.JSONB || itemsFormat == PostgresItemsFormat.JSON) {
+            String itemsJson = rs.getString("items");
+            if (itemsJson == null || itemsJson.isEmpty()) {
+                return 0;
+            }
+            itemsBytesRead.add(utf8Length(itemsJson));
+            return itemsCodec.sumLineTotals(itemsJson);
+        }
+        byte[] data = rs.getBytes("items");
+        if (data == null) {
+            return 0;
+        }
+        itemsBytesRead.add(data.length);
+        if (itemsFormat == PostgresItemsFormat.BYTEA_GZIP) {
+            try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(data))) {
+                return itemsCodec.sumLineTotals(gzip);
+            }
+        }
+        int offset = jsonbOffset(data);
+        return itemsCodec.sumLineTotals(data, offset, data.length - offset);
+    }
+
+    // Payload sizes are UTF-8 bytes, as sent, not the UTF-16 length of the String
+    private static long utf8Length(String text) {
+        long bytes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    // Binary-format results carry the jsonb version byte; text-format results (before the driver switches to binary) do not
+    private static int jsonbOffset(byte[] data) {
+        return data.length > 0 && data[0] == JsonbBinaryValue.JSONB_VERSION ? 1 : 0;
+    }
+
+    private interface ItemsBinder {
+        void bind(PreparedStatement pstmt, int index) throws Exception;
+    }
+
+    private interface JsonText {
+        String write() throws IOException;
+    }
+
+    private interface JsonStream {
+        void write(OutputStream out) throws IOException;
+    }
+
+    private static class PayloadBuffer extends ByteArrayOutputStream {
+        PayloadBuffer(int size) {
+            super(Math.max(32, size));
+        }
+
+        byte[] buffer() {
+            return buf;
+        }
+    }
 }
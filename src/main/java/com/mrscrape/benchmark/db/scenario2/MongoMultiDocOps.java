@@ -1,28 +1,81 @@
 package com.mrscrape.benchmark.db.scenario2;
 
+import com.mrscrape.benchmark.db.BatchReads;
 import com.mrscrape.benchmark.db.DatabaseOperations;
 import com.mrscrape.benchmark.db.MongoConnection;
+import com.mrscrape.benchmark.db.MongoSharding;
+import com.mrscrape.benchmark.db.MongoTransactionRunner;
 import com.mrscrape.benchmark.db.RetryUtil;
+import com.mrscrape.benchmark.db.StorageStats;
+import com.mrscrape.benchmark.db.codec.MongoKeys;
+import com.mrscrape.benchmark.metrics.MetricsCollector;
 import com.mrscrape.benchmark.model.Item;
 import com.mrscrape.benchmark.model.Order;
+import com.mrscrape.benchmark.workload.KeyType;
+import com.mrscrape.benchmark.workload.OrderBatch;
+import com.mrscrape.benchmark.workload.OrderGenerator;
+import com.mrscrape.benchmark.workload.OrderShape;
+import com.mongodb.ReadConcern;
+import com.mongodb.TransactionOptions;
 import com.mongodb.WriteConcern;
 import com.mongodb.client.AggregateIterable;
 import com.mongodb.client.ClientSession;
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.BulkWriteOptions;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
 import org.bson.Document;
+import org.bson.conversions.Bson;
 
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.random.RandomGenerator;
 
 public class MongoMultiDocOps implements DatabaseOperations {
     private final MongoConnection mongoConnection;
     private static final String ORDERS_COLLECTION = "orders";
     private static final String ITEMS_COLLECTION = "items";
+    private final MongoTransactionRunner transactionRunner;
+    private final MongoWriteStrategy writeStrategy;
+    private final OrderGenerator orderGenerator;
+    private final MongoSharding sharding;
+    private final boolean allowDiskUse;
+    private final KeyType keyType;
 
     public MongoMultiDocOps(MongoConnection mongoConnection) {
+        this(mongoConnection, TransactionOptions.builder()
+                .readConcern(ReadConcern.SNAPSHOT)
+                .writeConcern(WriteConcern.MAJORITY)
+                .maxCommitTime(10_000L, TimeUnit.MILLISECONDS)
+                .build(), MongoWriteStrategy.BULK_ORDERED, new OrderGenerator(OrderShape.defaultShape()),
+                MongoSharding.disabled(mongoConnection));
+    }
+
+    public MongoMultiDocOps(MongoConnection mongoConnection, TransactionOptions transactionOptions,
+            MongoWriteStrategy writeStrategy, OrderGenerator orderGenerator, MongoSharding sharding) {
+        this(mongoConnection, transactionOptions, writeStrategy, orderGenerator, sharding, false);
+    }
+
+    public MongoMultiDocOps(MongoConnection mongoConnection, TransactionOptions transactionOptions,
+            MongoWriteStrategy writeStrategy, OrderGenerator orderGenerator, MongoSharding sharding,
+            boolean allowDiskUse) {
         this.mongoConnection = mongoConnection;
+        this.orderGenerator = orderGenerator;
+        this.keyType = orderGenerator.getKeyType();
+        this.sharding = sharding;
+        this.transactionRunner = new MongoTransactionRunner(mongoConnection, transactionOptions);
+        this.writeStrategy = writeStrategy;
+        this.allowDiskUse = allowDiskUse;
     }
 
     @Override
@@ -38,6 +91,8 @@ public class MongoMultiDocOps implements DatabaseOperations {
             mongoConnection.getDatabase().createCollection(ITEMS_COLLECTION);
             
             itemsCollection.createIndex(new Document("order_id", 1));
+            sharding.shardCollection(ORDERS_COLLECTION, sharding.getShardKey().orderKey());
+            sharding.shardCollection(ITEMS_COLLECTION, sharding.getShardKey().itemKey());
         }, "MongoMultiDocOps.setup");
     }
 
@@ -50,54 +105,119 @@ public class MongoMultiDocOps implements DatabaseOperations {
             ordersCollection.drop();
             itemsCollection.drop();
         }, "MongoMultiDocOps.teardown");
+        transactionRunner.close();
+    }
+
+    @Override
+    public void recordPhaseMetrics(String phase, MetricsCollector collector) {
+        transactionRunner.recordTo(collector, phase);
+        mongoConnection.getCommandStats().recordTo(collector, phase);
+        sharding.recordTo(collector, phase);
     }
 
     @Override
     public void insert(Order order) throws Exception {
-        RetryUtil.executeVoidWithRetry(() -> {
-            MongoCollection<Document> ordersCollection = mongoConnection.getDatabase().getCollection(ORDERS_COLLECTION)
-                    .withWriteConcern(WriteConcern.JOURNALED);
-            MongoCollection<Document> itemsCollection = mongoConnection.getDatabase().getCollection(ITEMS_COLLECTION)
-                    .withWriteConcern(WriteConcern.JOURNALED);
-            
-            try (ClientSession session = mongoConnection.getClient().startSession()) {
-                session.startTransaction();
-                
-                try {
-                    order.recalculateTotalAmount();
-                    
-                    Document orderDoc = new Document()
-                            .append("_id", order.getOrderId())
-                            .append("customer_id", order.getCustomerId())
-                            .append("order_date", order.getOrderDate())
-                            .append("total_amount", order.getTotalAmount())
-                            .append("status", order.getStatus());
-                    
-                    ordersCollection.insertOne(session, orderDoc);
-                    
-                    for (Item item : order.getItems()) {
-                        Document itemDoc = new Document()
-                                .append("_id", item.getItemId())
-                                .append("order_id", item.getOrderId())
-                                .append("product_id", item.getProductId())
-                                .append("name", item.getName())
-                                .append("price", item.getPrice())
-                                .append("quantity", item.getQuantity());
-                        
-                        itemsCollection.insertOne(session, itemDoc);
-                    }
-                    
-                    session.commitTransaction();
-                } catch (Exception e) {
-                    if (isDuplicateKeyException(e)) {
-                        session.commitTransaction();
-                        return;
-                    }
-                    session.abortTransaction();
-                    throw e;
-                }
+        order.recalculateTotalAmount();
+        Document orderDoc = new Document()
+                .append("_id", MongoKeys.toBson(keyType, order.getOrderId()))
+                .append("customer_id", order.getCustomerId())
+                .append("order_date", order.getOrderDate())
+                .append("total_amount", order.getTotalAmount())
+                .append("status", order.getStatus());
+        List<Document> itemDocs = new ArrayList<>(order.getItems().size());
+        for (Item item : order.getItems()) {
+            itemDocs.add(toItemDocument(item));
+        }
+        insertDocuments(orderDoc, itemDocs);
+    }
+
+    @Override
+    public void insert(OrderBatch batch, int order) throws Exception {
+        String orderId = batch.orderId(order);
+        Document orderDoc = new Document()
+                .append("_id", MongoKeys.toBson(keyType, orderId))
+                .append("customer_id", batch.customerId(order))
+                .append("order_date", new Date(batch.orderDateMillis(order)))
+                .append("total_amount", batch.totalAmount(order))
+                .append("status", batch.status(order));
+        List<Document> itemDocs = new ArrayList<>(batch.itemCount(order));
+        for (int item = batch.firstItem(order); item < batch.endItem(order); item++) {
+            Document itemDoc = new Document()
+                    .append("_id", MongoKeys.itemId(keyType, orderId, batch.lineNo(item)))
+                    .append("order_id", MongoKeys.toBson(keyType, orderId))
+                    .append("product_id", batch.productId(item))
+                    .append("name", batch.name(item))
+                    .append("price", batch.price(item))
+                    .append("quantity", batch.quantity(item));
+            if (batch.description(item) != null) {
+                itemDoc.append("description", batch.description(item));
+            }
+            if (batch.attributes(item) != null) {
+                itemDoc.append("attributes", new Document(batch.attributes(item)));
+            }
+            itemDocs.add(itemDoc);
+        }
+        insertDocuments(orderDoc, itemDocs);
+    }
+
+    private void insertDocuments(Document orderDoc, List<Document> itemDocs) throws Exception {
+        MongoCollection<Document> ordersCollection = mongoConnection.getDatabase().getCollection(ORDERS_COLLECTION);
+        MongoCollection<Document> itemsCollection = mongoConnection.getDatabase().getCollection(ITEMS_COLLECTION);
+        
+        try {
+            transactionRunner.run(session -> {
+                ordersCollection.insertOne(session, orderDoc);
+                insertItems(session, itemsCollection, itemDocs);
+                return null;
+            });
+        } catch (Exception e) {
+            // A duplicate key aborts the transaction server-side; the order already exists, so treat it as done
+            if (!isDuplicateKeyException(e)) {
+                throw e;
+            }
+        }
+    }
+
+    private Document toItemDocument(Item item) {
+        Document itemDoc = new Document()
+                .append("_id", MongoKeys.itemId(keyType, item.getOrderId(), item.getLineNo()))
+                .append("order_id", MongoKeys.toBson(keyType, item.getOrderId()))
+                .append("product_id", item.getProductId())
+                .append("name", item.getName())
+                .append("price", item.getPrice())
+                .append("quantity", item.getQuantity());
+        if (item.getDescription() != null) {
+            itemDoc.append("description", item.getDescription());
+        }
+        if (item.getAttributes() != null) {
+            itemDoc.append("attributes", new Document(item.getAttributes()));
+        }
+        return itemDoc;
+    }
+
+    private void insertItems(ClientSession session, MongoCollection<Document> itemsCollection,
+            List<Document> itemDocs) {
+        if (itemDocs.isEmpty()) {
+            return;
+        }
+        if (writeStrategy.isBulk()) {
+            itemsCollection.insertMany(session, itemDocs, new InsertManyOptions().ordered(writeStrategy.isOrdered()));
+        } else {
+            for (Document itemDoc : itemDocs) {
+                itemsCollection.insertOne(session, itemDoc);
+            }
+        }
+    }
+
+    private void updateItems(ClientSession session, MongoCollection<Document> itemsCollection,
+            List<UpdateOneModel<Document>> itemUpdates) {
+        if (writeStrategy.isBulk()) {
+            itemsCollection.bulkWrite(session, itemUpdates, new BulkWriteOptions().ordered(writeStrategy.isOrdered()));
+        } else {
+            for (UpdateOneModel<Document> update : itemUpdates) {
+                itemsCollection.updateOne(session, update.getFilter(), update.getUpdate());
             }
-        }, "MongoMultiDocOps.insert");
+        }
     }
 
     private boolean isDuplicateKeyException(Exception e) {
@@ -115,112 +235,80 @@ public class MongoMultiDocOps implements DatabaseOperations {
 
     @Override
     public void updateModify(String orderId) throws Exception {
-        RetryUtil.executeVoidWithRetry(() -> {
-            MongoCollection<Document> ordersCollection = mongoConnection.getDatabase().getCollection(ORDERS_COLLECTION)
-                    .withWriteConcern(WriteConcern.JOURNALED);
-            MongoCollection<Document> itemsCollection = mongoConnection.getDatabase().getCollection(ITEMS_COLLECTION)
-                    .withWriteConcern(WriteConcern.JOURNALED);
+        MongoCollection<Document> ordersCollection = mongoConnection.getDatabase().getCollection(ORDERS_COLLECTION);
+        MongoCollection<Document> itemsCollection = mongoConnection.getDatabase().getCollection(ITEMS_COLLECTION);
+        
+        transactionRunner.run(session -> {
+            List<Document> items = itemsCollection.find(session, Filters.eq("order_id", MongoKeys.toBson(keyType, orderId)))
+                    .sort(Sorts.ascending("_id"))
+                    .into(new ArrayList<>());
+            
+            if (items.isEmpty()) {
+                throw new Exception("No items found for order: " + orderId);
+            }
             
-            try (ClientSession session = mongoConnection.getClient().startSession()) {
-                session.startTransaction();
+            long newTotal = 0;
+            RandomGenerator rand = orderGenerator.modifyRandom(orderId);
+            List<UpdateOneModel<Document>> itemUpdates = new ArrayList<>(items.size());
+            for (Document item : items) {
+                long newPrice = item.getLong("price") + (rand.nextInt(100) + 1);
+                long newQuantity = Math.max(1, item.getLong("quantity") + (rand.nextInt(5) - 2));
+                
+                itemUpdates.add(new UpdateOneModel<>(
+                        sharding.getShardKey().itemFilter(keyType, orderId,
+                                item.get("_id", Document.class).getInteger("line")),
+                        new Document("$set", new Document()
+                                .append("price", newPrice)
+                                .append("quantity", newQuantity))
+                ));
                 
-                try {
-                    List<Document> items = itemsCollection.find(session, Filters.eq("order_id", orderId))
-                            .into(new ArrayList<>());
-                    
-                    if (items.isEmpty()) {
-                        throw new Exception("No items found for order: " + orderId);
-                    }
-                    
-                    long newTotal = 0;
-                    ThreadLocalRandom rand = ThreadLocalRandom.current();
-                    for (Document item : items) {
-                        long newPrice = item.getLong("price") + (rand.nextInt(100) + 1);
-                        long newQuantity = Math.max(1, item.getLong("quantity") + (rand.nextInt(5) - 2));
-                        
-                        itemsCollection.updateOne(session,
-                                Filters.eq("_id", item.getString("_id")),
-                                new Document("$set", new Document()
-                                        .append("price", newPrice)
-                                        .append("quantity", newQuantity))
-                        );
-                        
-                        newTotal += newPrice * newQuantity;
-                    }
-                    
-                    ordersCollection.updateOne(session,
-                            Filters.eq("_id", orderId),
-                            new Document("$set", new Document("total_amount", newTotal))
-                    );
-                    
-                    session.commitTransaction();
-                } catch (Exception e) {
-                    session.abortTransaction();
-                    throw e;
-                }
+                newTotal += newPrice * newQuantity;
             }
-        }, "MongoMultiDocOps.updateModify");
+            updateItems(session, itemsCollection, itemUpdates);
+            
+            ordersCollection.updateOne(session,
+                    sharding.getShardKey().orderFilter(orderGenerator, orderId),
+                    new Document("$set", new Document("total_amount", newTotal))
+            );
+            return null;
+        });
     }
 
     @Override
     public void updateAdd(String orderId) throws Exception {
-        RetryUtil.executeVoidWithRetry(() -> {
-            MongoCollection<Document> ordersCollection = mongoConnection.getDatabase().getCollection(ORDERS_COLLECTION)
-                    .withWriteConcern(WriteConcern.JOURNALED);
-            MongoCollection<Document> itemsCollection = mongoConnection.getDatabase().getCollection(ITEMS_COLLECTION)
-                    .withWriteConcern(WriteConcern.JOURNALED);
+        MongoCollection<Document> ordersCollection = mongoConnection.getDatabase().getCollection(ORDERS_COLLECTION);
+        MongoCollection<Document> itemsCollection = mongoConnection.getDatabase().getCollection(ITEMS_COLLECTION);
+        
+        transactionRunner.run(session -> {
+            List<Document> items = itemsCollection.find(session, Filters.eq("order_id", MongoKeys.toBson(keyType, orderId)))
+                    .into(new ArrayList<>());
             
-            try (ClientSession session = mongoConnection.getClient().startSession()) {
-                session.startTransaction();
-                
-                try {
-                    List<Document> items = itemsCollection.find(session, Filters.eq("order_id", orderId))
-                            .into(new ArrayList<>());
-                    
-                    Document orderDoc = ordersCollection.find(session, Filters.eq("_id", orderId))
-                            .first();
-                    
-                    if (orderDoc == null) {
-                        throw new Exception("Order not found: " + orderId);
-                    }
-                    
-                    int currentSize = items.size();
-                    long newTotal = 0;
-                    ThreadLocalRandom rand = ThreadLocalRandom.current();
-                    
-                    for (Document item : items) {
-                        newTotal += item.getLong("price") * item.getLong("quantity");
-                    }
-                    
-                    for (int i = 0; i < 5; i++) {
-                        String itemId = orderId + "_item_" + (currentSize + i + 1);
-                        long price = (long)(rand.nextDouble() * 900) + 100;
-                        long quantity = rand.nextInt(10) + 1;
-                        
-                        Document newItem = new Document()
-                                .append("_id", itemId)
-                                .append("order_id", orderId)
-                                .append("product_id", "product_" + (currentSize + i + 1))
-                                .append("name", "New Product " + (currentSize + i + 1))
-                                .append("price", price)
-                                .append("quantity", quantity);
-                        
-                        itemsCollection.insertOne(session, newItem);
-                        newTotal += price * quantity;
-                    }
-                    
-                    ordersCollection.updateOne(session,
-                            Filters.eq("_id", orderId),
-                            new Document("$set", new Document("total_amount", newTotal))
-                    );
-                    
-                    session.commitTransaction();
-                } catch (Exception e) {
-                    session.abortTransaction();
-                    throw e;
-                }
+            Document orderDoc = ordersCollection.find(session, sharding.getShardKey().orderFilter(orderGenerator, orderId))
+                    .first();
+            
+            if (orderDoc == null) {
+                throw new Exception("Order not found: " + orderId);
             }
-        }, "MongoMultiDocOps.updateAdd");
+            
+            long newTotal = 0;
+            for (Document item : items) {
+                newTotal += item.getLong("price") * item.getLong("quantity");
+            }
+            
+            List<Item> addedItems = orderGenerator.generateAddedItems(orderId, items.size());
+            List<Document> newItems = new ArrayList<>(addedItems.size());
+            for (Item item : addedItems) {
+                newItems.add(toItemDocument(item));
+                newTotal += item.calculateLineTotal();
+            }
+            insertItems(session, itemsCollection, newItems);
+            
+            ordersCollection.updateOne(session,
+                    sharding.getShardKey().orderFilter(orderGenerator, orderId),
+                    new Document("$set", new Document("total_amount", newTotal))
+            );
+            return null;
+        });
     }
 
     @Override
@@ -229,14 +317,9 @@ public class MongoMultiDocOps implements DatabaseOperations {
             MongoCollection<Document> ordersCollection = mongoConnection.getDatabase().getCollection(ORDERS_COLLECTION);
             
             // Use aggregation pipeline with $lookup to join orders and items
-            List<Document> pipeline = List.of(
-                new Document("$match", new Document("_id", orderId)),
-                new Document("$lookup", new Document()
-                    .append("from", ITEMS_COLLECTION)
-                    .append("localField", "_id")
-                    .append("foreignField", "order_id")
-                    .append("as", "items")
-                )
+            List<Bson> pipeline = List.of(
+                Aggregates.match(sharding.getShardKey().orderFilter(orderGenerator, orderId)),
+                lookupItems()
             );
             
             AggregateIterable<Document> result = ordersCollection.aggregate(pipeline);
@@ -246,56 +329,228 @@ public class MongoMultiDocOps implements DatabaseOperations {
                 throw new Exception("Order not found: " + orderId);
             }
             
-            Order order = new Order(
-                    joinedDoc.getString("_id"),
-                    joinedDoc.getString("customer_id"),
-                    joinedDoc.getDate("order_date").toInstant(),
-                    joinedDoc.getString("status")
-            );
-            order.setTotalAmount(joinedDoc.getLong("total_amount"));
-            
-            @SuppressWarnings("unchecked")
-            List<Document> itemDocs = (List<Document>) joinedDoc.get("items");
-            
-            for (Document itemDoc : itemDocs) {
-                Item item = new Item(
-                        itemDoc.getString("_id"),
-                        orderId,
-                        itemDoc.getString("product_id"),
-                        itemDoc.getString("name"),
-                        itemDoc.getLong("price"),
-                        itemDoc.getLong("quantity")
-                );
-                order.addItem(item);
-            }
+            Order order = toOrder(joinedDoc);
             
             validateTotalAmount(orderId);
             return order;
         }, "MongoMultiDocOps.query");
     }
 
+    // One aggregation for the whole batch: $match with $in, then the same $lookup as the single-order query
     @Override
-    public void delete(String orderId) throws Exception {
-        RetryUtil.executeVoidWithRetry(() -> {
-            MongoCollection<Document> ordersCollection = mongoConnection.getDatabase().getCollection(ORDERS_COLLECTION)
-                    .withWriteConcern(WriteConcern.JOURNALED);
-            MongoCollection<Document> itemsCollection = mongoConnection.getDatabase().getCollection(ITEMS_COLLECTION)
-                    .withWriteConcern(WriteConcern.JOURNALED);
+    public List<Order> queryBatch(List<String> orderIds) throws Exception {
+        return RetryUtil.executeWithRetry(() -> {
+            MongoCollection<Document> ordersCollection = mongoConnection.getDatabase().getCollection(ORDERS_COLLECTION);
+            List<Bson> pipeline = List.of(
+                Aggregates.match(sharding.getShardKey().ordersFilter(orderGenerator, orderIds)),
+                lookupItems()
+            );
             
-            try (ClientSession session = mongoConnection.getClient().startSession()) {
-                session.startTransaction();
-                
-                try {
-                    itemsCollection.deleteMany(session, Filters.eq("order_id", orderId));
-                    ordersCollection.deleteOne(session, Filters.eq("_id", orderId));
-                    
-                    session.commitTransaction();
-                } catch (Exception e) {
-                    session.abortTransaction();
-                    throw e;
-                }
+            List<Order> found = new ArrayList<>(orderIds.size());
+            for (Document joinedDoc : ordersCollection.aggregate(pipeline).batchSize(orderIds.size())) {
+                found.add(toOrder(joinedDoc));
+            }
+            return BatchReads.inRequestOrder(orderIds, found);
+        }, "MongoMultiDocOps.queryBatch");
+    }
+
+    @Override
+    public void createSecondaryIndexes() throws Exception {
+        RetryUtil.executeVoidWithRetry(() -> {
+            MongoCollection<Document> ordersCollection = mongoConnection.getDatabase().getCollection(ORDERS_COLLECTION);
+            MongoCollection<Document> itemsCollection = mongoConnection.getDatabase().getCollection(ITEMS_COLLECTION);
+            ordersCollection.createIndex(new Document("customer_id", 1).append("order_date", -1));
+            ordersCollection.createIndex(new Document("status", 1).append("order_date", -1));
+            ordersCollection.createIndex(new Document("order_date", 1));
+            itemsCollection.createIndex(new Document("product_id", 1));
+        }, "MongoMultiDocOps.createSecondaryIndexes");
+    }
+
+    @Override
+    public List<Order> queryByCustomer(String customerId, int limit) throws Exception {
+        return RetryUtil.executeWithRetry(() -> aggregateOrders(Filters.eq("customer_id", customerId),
+                Sorts.descending("order_date"), limit), "MongoMultiDocOps.queryByCustomer");
+    }
+
+    @Override
+    public List<Order> queryByStatus(String status, int limit) throws Exception {
+        return RetryUtil.executeWithRetry(() -> aggregateOrders(Filters.eq("status", status),
+                Sorts.descending("order_date"), limit), "MongoMultiDocOps.queryByStatus");
+    }
+
+    @Override
+    public List<Order> queryByDateRange(Instant from, Instant to, int limit) throws Exception {
+        return RetryUtil.executeWithRetry(() -> aggregateOrders(
+                Filters.and(Filters.gte("order_date", Date.from(from)), Filters.lt("order_date", Date.from(to))),
+                Sorts.ascending("order_date"), limit), "MongoMultiDocOps.queryByDateRange");
+    }
+
+    // Two round-trips: the product is only known to the items collection, so its order ids are read first
+    @Override
+    public List<Order> queryByProduct(String productId, int limit) throws Exception {
+        return RetryUtil.executeWithRetry(() -> {
+            MongoCollection<Document> itemsCollection = mongoConnection.getDatabase().getCollection(ITEMS_COLLECTION);
+            List<String> orderIds = new ArrayList<>(limit);
+            for (Document item : itemsCollection.find(Filters.eq("product_id", productId))
+                    .projection(new Document("order_id", 1).append("_id", 0))
+                    .limit(limit)) {
+                orderIds.add(MongoKeys.fromBson(item.get("order_id")));
+            }
+            if (orderIds.isEmpty()) {
+                return new ArrayList<Order>();
+            }
+            return aggregateOrders(sharding.getShardKey().ordersFilter(orderGenerator, orderIds), null, limit);
+        }, "MongoMultiDocOps.queryByProduct");
+    }
+
+    // $match, $sort and $limit on orders first, so $lookup only runs for the orders returned
+    private List<Order> aggregateOrders(Bson filter, Bson sort, int limit) throws Exception {
+        MongoCollection<Document> ordersCollection = mongoConnection.getDatabase().getCollection(ORDERS_COLLECTION);
+        List<Bson> pipeline = new ArrayList<>();
+        pipeline.add(Aggregates.match(filter));
+        if (sort != null) {
+            pipeline.add(Aggregates.sort(sort));
+        }
+        pipeline.add(Aggregates.limit(limit));
+        pipeline.add(lookupItems());
+        
+        List<Order> found = new ArrayList<>(limit);
+        for (Document joinedDoc : ordersCollection.aggregate(pipeline)) {
+            found.add(toOrder(joinedDoc));
+        }
+        return BatchReads.checkTotals(found);
+    }
+
+    // Items are documents already, so revenue is a plain $group over the items collection
+    @Override
+    public Map<String, Long> revenueByProduct() throws Exception {
+        return mongoConnection.sumsByKey(ITEMS_COLLECTION, List.of(
+                Aggregates.group("$product_id", Accumulators.sum("sum",
+                        new Document("$multiply", List.of("$price", "$quantity"))))),
+                allowDiskUse, "MongoMultiDocOps.revenueByProduct");
+    }
+
+    @Override
+    public Map<String, Long> topCustomers(int limit) throws Exception {
+        return mongoConnection.sumsByKey(ORDERS_COLLECTION, List.of(
+                Aggregates.group("$customer_id", Accumulators.sum("sum", "$total_amount")),
+                Aggregates.sort(Sorts.descending("sum")),
+                Aggregates.limit(limit)),
+                allowDiskUse, "MongoMultiDocOps.topCustomers");
+    }
+
+    // Item counts need every order joined with its items: one $lookup (an items index probe) per order
+    @Override
+    public Map<Integer, Long> itemCountHistogram() throws Exception {
+        Map<Integer, Long> histogram = new TreeMap<>();
+        mongoConnection.sumsByKey(ORDERS_COLLECTION, List.of(
+                lookupItems(),
+                Aggregates.group(new Document("$size", "$items"), Accumulators.sum("sum", 1))),
+                allowDiskUse, "MongoMultiDocOps.itemCountHistogram")
+                .forEach((items, orders) -> histogram.put(Integer.parseInt(items), orders));
+        return histogram;
+    }
+
+    @Override
+    public void recordIndexSizes(String phase, MetricsCollector collector) {
+        mongoConnection.indexSizes(ORDERS_COLLECTION, ITEMS_COLLECTION).forEach((index, bytes) ->
+                collector.recordMetric(phase + "_index_" + index + "_bytes", bytes));
+    }
+
+    @Override
+    public StorageStats storageStats() {
+        return mongoConnection.storageStats(ORDERS_COLLECTION, ITEMS_COLLECTION);
+    }
+
+    private static Document lookupItems() {
+        return new Document("$lookup", new Document()
+            .append("from", ITEMS_COLLECTION)
+            .append("localField", "_id")
+            .append("foreignField", "order_id")
+            .append("as", "items")
+        );
+    }
+
+    private static Order toOrder(Document joinedDoc) {
+        String orderId = MongoKeys.fromBson(joinedDoc.get("_id"));
+        Order order = new Order(
+                orderId,
+                joinedDoc.getString("customer_id"),
+                joinedDoc.getDate("order_date").toInstant(),
+                joinedDoc.getString("status")
+        );
+        order.setTotalAmount(joinedDoc.getLong("total_amount"));
+        
+        @SuppressWarnings("unchecked")
+        List<Document> itemDocs = (List<Document>) joinedDoc.get("items");
+        
+        for (Document itemDoc : itemDocs) {
+            int lineNo = itemDoc.get("_id", Document.class).getInteger("line");
+            Item item = new Item(
+                    OrderGenerator.itemId(orderId, lineNo),
+                    orderId,
+                    itemDoc.getString("product_id"),
+                    itemDoc.getString("name"),
+                    itemDoc.getLong("price"),
+                    itemDoc.getLong("quantity")
+            );
+            item.setLineNo(lineNo);
+            item.setDescription(itemDoc.getString("description"));
+            Document attributes = itemDoc.get("attributes", Document.class);
+            if (attributes != null) {
+                Map<String, String> attributeMap = new LinkedHashMap<>();
+                attributes.forEach((name, value) -> attributeMap.put(name, String.valueOf(value)));
+                item.setAttributes(attributeMap);
+            }
+            order.addItem(item);
+        }
+        return order;
+    }
+
+    @Override
+    public void delete(String orderId) throws Exception {
+        MongoCollection<Document> ordersCollection = mongoConnection.getDatabase().getCollection(ORDERS_COLLECTION);
+        MongoCollection<Document> itemsCollection = mongoConnection.getDatabase().getCollection(ITEMS_COLLECTION);
+        
+        transactionRunner.run(session -> {
+            itemsCollection.deleteMany(session, Filters.eq("order_id", MongoKeys.toBson(keyType, orderId)));
+            ordersCollection.deleteOne(session, sharding.getShardKey().orderFilter(orderGenerator, orderId));
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteBatch(List<String> orderIds) throws Exception {
+        MongoCollection<Document> ordersCollection = mongoConnection.getDatabase().getCollection(ORDERS_COLLECTION);
+        MongoCollection<Document> itemsCollection = mongoConnection.getDatabase().getCollection(ITEMS_COLLECTION);
+        
+        transactionRunner.run(session -> {
+            itemsCollection.deleteMany(session, Filters.in("order_id", MongoKeys.toBson(keyType, orderIds)));
+            ordersCollection.deleteMany(session, sharding.getShardKey().ordersFilter(orderGenerator, orderIds));
+            return null;
+        });
+    }
+
+    // Items carry no order_date, so the window's order ids are read first, inside the same transaction
+    @Override
+    public int deleteRange(Instant from, Instant to) throws Exception {
+        MongoCollection<Document> ordersCollection = mongoConnection.getDatabase().getCollection(ORDERS_COLLECTION);
+        MongoCollection<Document> itemsCollection = mongoConnection.getDatabase().getCollection(ITEMS_COLLECTION);
+        
+        return transactionRunner.run(session -> {
+            List<String> orderIds = new ArrayList<>();
+            for (Document order : ordersCollection.find(session, Filters.and(
+                    Filters.gte("order_date", Date.from(from)), Filters.lt("order_date", Date.from(to))))
+                    .projection(new Document("_id", 1))) {
+                orderIds.add(MongoKeys.fromBson(order.get("_id")));
+            }
+            if (orderIds.isEmpty()) {
+                return 0;
             }
-        }, "MongoMultiDocOps.delete");
+            itemsCollection.deleteMany(session, Filters.in("order_id", MongoKeys.toBson(keyType, orderIds)));
+            ordersCollection.deleteMany(session, sharding.getShardKey().ordersFilter(orderGenerator, orderIds));
+            return orderIds.size();
+        });
     }
 
     @Override
@@ -304,12 +559,12 @@ public class MongoMultiDocOps implements DatabaseOperations {
             MongoCollection<Document> ordersCollection = mongoConnection.getDatabase().getCollection(ORDERS_COLLECTION);
             MongoCollection<Document> itemsCollection = mongoConnection.getDatabase().getCollection(ITEMS_COLLECTION);
             
-            Document orderDoc = ordersCollection.find(Filters.eq("_id", orderId)).first();
+            Document orderDoc = ordersCollection.find(sharding.getShardKey().orderFilter(orderGenerator, orderId)).first();
             if (orderDoc == null) {
                 throw new Exception("Order not found for validation: " + orderId);
             }
             
-            List<Document> items = itemsCollection.find(Filters.eq("order_id", orderId))
+            List<Document> items = itemsCollection.find(Filters.eq("order_id", MongoKeys.toBson(keyType, orderId)))
                     .into(new ArrayList<>());
             
             long calculatedTotal = items.stream()
@@ -0,0 +1,34 @@
+package com.mrscrape.benchmark.db.scenario2;
+
+public enum MongoWriteStrategy {
+    SINGLE("single"),
+    BULK_ORDERED("bulk-ordered"),
+    BULK_UNORDERED("bulk-unordered");
+
+    private final String optionValue;
+
+    MongoWriteStrategy(String optionValue) {
+        this.optionValue = optionValue;
+    }
+
+    public boolean isBulk() {
+        return this != SINGLE;
+    }
+
+    public boolean isOrdered() {
+        return this != BULK_UNORDERED;
+    }
+
+    public String getOptionValue() {
+        return optionValue;
+    }
+
+    public static MongoWriteStrategy fromOption(String value) {
+        for (MongoWriteStrategy strategy : values()) {
+            if (strategy.optionValue.equalsIgnoreCase(value)) {
+                return strategy;
+            }
+        }
+        throw new IllegalArgumentException("Unknown MongoDB write strategy: " + value);
+    }
+}
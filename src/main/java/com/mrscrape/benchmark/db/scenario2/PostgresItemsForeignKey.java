@@ -0,0 +1,25 @@
+package com.mrscrape.benchmark.db.scenario2;
+
+public enum PostgresItemsForeignKey {
+    NONE("none"),
+    CASCADE("cascade");
+
+    private final String optionValue;
+
+    PostgresItemsForeignKey(String optionValue) {
+        this.optionValue = optionValue;
+    }
+
+    public String getOptionValue() {
+        return optionValue;
+    }
+
+    public static PostgresItemsForeignKey fromOption(String value) {
+        for (PostgresItemsForeignKey foreignKey : values()) {
+            if (foreignKey.optionValue.equalsIgnoreCase(value)) {
+                return foreignKey;
+            }
+        }
+        throw new IllegalArgumentException("Unknown PostgreSQL items foreign key: " + value);
+    }
+}
@@ -1,27 +1,123 @@
 package com.mrscrape.benchmark.db.scenario2;
 
+import com.mrscrape.benchmark.db.BatchReads;
 import com.mrscrape.benchmark.db.DatabaseOperations;
 import com.mrscrape.benchmark.db.PostgresConnection;
+import com.mrscrape.benchmark.db.PostgresPhaseStats;
 import com.mrscrape.benchmark.db.RetryUtil;
+import com.mrscrape.benchmark.db.StatementBinder;
+import com.mrscrape.benchmark.db.StorageStats;
+import com.mrscrape.benchmark.db.codec.ItemsJsonCodec;
+import com.mrscrape.benchmark.metrics.MetricsCollector;
 import com.mrscrape.benchmark.model.Item;
 import com.mrscrape.benchmark.model.Order;
+import com.mrscrape.benchmark.workload.KeyType;
+import com.mrscrape.benchmark.workload.OrderBatch;
+import com.mrscrape.benchmark.workload.OrderGenerator;
+import com.mrscrape.benchmark.workload.OrderShape;
 
+import java.sql.Array;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.Statement;
 import java.sql.Timestamp;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.random.RandomGenerator;
 
 public class PostgresMultiTableOps implements DatabaseOperations {
     private final PostgresConnection postgresConnection;
     private static final String ORDERS_TABLE = "orders";
     private static final String ITEMS_TABLE = "items";
+    private final PostgresWriteStrategy writeStrategy;
+    private final PostgresItemsForeignKey itemsForeignKey;
+    private final PostgresPhaseStats phaseStats;
+    private final OrderGenerator orderGenerator;
+    private final ItemsJsonCodec jsonCodec = new ItemsJsonCodec();
+    private final KeyType keyType;
+    private final String insertCteSql;
+    private final String updateAddCteSql;
+
+    // Data-modifying CTEs: each logical operation is a single statement and a single round-trip.
+    // Select-list parameters get no type from the target column, so the order key is cast to its column type
+    private static String insertCteSql(String keyType) {
+        return "WITH new_order AS (" +
+            "INSERT INTO " + ORDERS_TABLE + " (order_id, customer_id, order_date, total_amount, status) " +
+            "VALUES (?, ?, ?, ?, ?)) " +
+            "INSERT INTO " + ITEMS_TABLE + " (order_id, line_no, product_id, name, price, quantity, description, attributes) " +
+            "SELECT ?::" + keyType + ", t.line_no, t.product_id, t.name, t.price, t.quantity, t.description, " +
+            "t.attributes::jsonb " +
+            "FROM unnest(?::int[], ?::varchar[], ?::varchar[], ?::bigint[], ?::bigint[], ?::text[], ?::text[]) " +
+            "AS t(line_no, product_id, name, price, quantity, description, attributes)";
+    }
+
+    private static final String UPDATE_MODIFY_CTE_SQL =
+            "WITH upd AS (" +
+            "UPDATE " + ITEMS_TABLE + " SET " +
+            "price = price + (floor(random() * 100) + 1)::bigint, " +
+            "quantity = GREATEST(1, quantity + (floor(random() * 5) - 2)::bigint) " +
+            "WHERE order_id = ? RETURNING price * quantity AS line_total) " +
+            "UPDATE " + ORDERS_TABLE + " SET total_amount = (SELECT SUM(line_total) FROM upd) " +
+            "WHERE order_id = ? AND EXISTS (SELECT 1 FROM upd)";
+
+    // The outer statement sees the snapshot taken before the CTE ran, so the SUM covers only the existing items
+    private static String updateAddCteSql(String keyType) {
+        return "WITH cnt AS (SELECT COUNT(*) AS c FROM " + ITEMS_TABLE + " WHERE order_id = ?), " +
+            "ins AS (" +
+            "INSERT INTO " + ITEMS_TABLE + " (order_id, line_no, product_id, name, price, quantity, description, attributes) " +
+            "SELECT ?::" + keyType + ", cnt.c + t.n, 'product_' || (cnt.c + t.n), " +
+            "t.name, t.price, t.quantity, t.description, t.attributes::jsonb " +
+            "FROM cnt, unnest(?::varchar[], ?::bigint[], ?::bigint[], ?::text[], ?::text[]) WITH ORDINALITY " +
+            "AS t(name, price, quantity, description, attributes, n) " +
+            "RETURNING price * quantity AS line_total) " +
+            "UPDATE " + ORDERS_TABLE + " SET total_amount = " +
+            "(SELECT COALESCE(SUM(price * quantity), 0) FROM " + ITEMS_TABLE + " WHERE order_id = ?) + " +
+            "(SELECT COALESCE(SUM(line_total), 0) FROM ins) " +
+            "WHERE order_id = ?";
+    }
+
+    private static final String INSERT_ITEM_SQL =
+            "INSERT INTO " + ITEMS_TABLE +
+            " (order_id, line_no, product_id, name, price, quantity, description, attributes) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?::jsonb)";
+
+    private static final String DELETE_CTE_SQL =
+            "WITH deleted_items AS (DELETE FROM " + ITEMS_TABLE + " WHERE order_id = ?) " +
+            "DELETE FROM " + ORDERS_TABLE + " WHERE order_id = ?";
+
+    private static final String DELETE_BATCH_CTE_SQL =
+            "WITH deleted_items AS (DELETE FROM " + ITEMS_TABLE + " WHERE order_id = ANY(?)) " +
+            "DELETE FROM " + ORDERS_TABLE + " WHERE order_id = ANY(?)";
+
+    private static final String DELETE_RANGE_CTE_SQL =
+            "WITH deleted_orders AS (DELETE FROM " + ORDERS_TABLE + " WHERE order_date >= ? AND order_date < ? " +
+            "RETURNING order_id), " +
+            "deleted_items AS (DELETE FROM " + ITEMS_TABLE + " WHERE order_id IN (SELECT order_id FROM deleted_orders)) " +
+            "SELECT COUNT(*) FROM deleted_orders";
 
     public PostgresMultiTableOps(PostgresConnection postgresConnection) {
+        this(postgresConnection, PostgresWriteStrategy.MULTI_STATEMENT, new OrderGenerator(OrderShape.defaultShape()));
+    }
+
+    public PostgresMultiTableOps(PostgresConnection postgresConnection, PostgresWriteStrategy writeStrategy,
+            OrderGenerator orderGenerator) {
+        this(postgresConnection, writeStrategy, PostgresItemsForeignKey.NONE, orderGenerator);
+    }
+
+    public PostgresMultiTableOps(PostgresConnection postgresConnection, PostgresWriteStrategy writeStrategy,
+            PostgresItemsForeignKey itemsForeignKey, OrderGenerator orderGenerator) {
         this.postgresConnection = postgresConnection;
+        this.orderGenerator = orderGenerator;
+        this.keyType = orderGenerator.getKeyType();
+        this.insertCteSql = insertCteSql(keyType.getPostgresType());
+        this.updateAddCteSql = updateAddCteSql(keyType.getPostgresType());
+        this.writeStrategy = writeStrategy;
+        this.itemsForeignKey = itemsForeignKey;
+        this.phaseStats = new PostgresPhaseStats(postgresConnection);
     }
 
     @Override
@@ -33,23 +129,36 @@ public class PostgresMultiTableOps implements DatabaseOperations {
                 stmt.execute("DROP TABLE IF EXISTS " + ORDERS_TABLE);
                 
                 stmt.execute("CREATE TABLE " + ORDERS_TABLE + " (" +
-                        "order_id VARCHAR PRIMARY KEY, " +
+                        "order_id " + keyType.getPostgresType() + " PRIMARY KEY, " +
                         "customer_id VARCHAR, " +
                         "order_date TIMESTAMP, " +
                         "total_amount BIGINT, " +
                         "status VARCHAR)");
                 
+                // With cascade, deleting an order removes its items server-side in the same statement
+                String orderIdColumn = itemsForeignKey == PostgresItemsForeignKey.CASCADE
+                        ? "order_id " + keyType.getPostgresType() + " REFERENCES " + ORDERS_TABLE
+                                + "(order_id) ON DELETE CASCADE, "
+                        : "order_id " + keyType.getPostgresType() + ", ";
+                // Items are keyed by (order_id, line_no), so the primary key also serves lookups by order
                 stmt.execute("CREATE TABLE " + ITEMS_TABLE + " (" +
-                        "item_id VARCHAR PRIMARY KEY, " +
-                        "order_id VARCHAR, " +
+                        orderIdColumn +
+                        "line_no INT, " +
                         "product_id VARCHAR, " +
                         "name VARCHAR, " +
                         "price BIGINT, " +
-                        "quantity BIGINT)");
-                
-                stmt.execute("CREATE INDEX idx_items_order_id ON " + ITEMS_TABLE + "(order_id)");
+                        "quantity BIGINT, " +
+                        "description TEXT, " +
+                        "attributes JSONB, " +
+                        "PRIMARY KEY (order_id, line_no))");
             }
         }, "PostgresMultiTableOps.setup");
+        phaseStats.start();
+    }
+
+    @Override
+    public void recordPhaseMetrics(String phase, MetricsCollector collector) {
+        phaseStats.recordTo(collector, phase);
     }
 
     @Override
@@ -65,6 +174,37 @@ public class PostgresMultiTableOps implements DatabaseOperations {
 
     @Override
     public void insert(Order order) throws Exception {
+        order.recalculateTotalAmount();
+        List<Item> items = order.getItems();
+        ItemColumns columns = new ItemColumns(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            Item item = items.get(i);
+            columns.set(i, item.getLineNo(), item.getProductId(), item.getName(), item.getPrice(), item.getQuantity(),
+                    item.getDescription(), attributesJson(item.getAttributes()));
+        }
+        insertOrder(order.getOrderId(), order.getCustomerId(), Timestamp.from(order.getOrderDate()),
+                order.getTotalAmount(), order.getStatus(), columns);
+    }
+
+    @Override
+    public void insert(OrderBatch batch, int order) throws Exception {
+        int first = batch.firstItem(order);
+        ItemColumns columns = new ItemColumns(batch.itemCount(order));
+        for (int item = first; item < batch.endItem(order); item++) {
+            columns.set(item - first, batch.lineNo(item), batch.productId(item), batch.name(item),
+                    batch.price(item), batch.quantity(item), batch.description(item),
+                    attributesJson(batch.attributes(item)));
+        }
+        insertOrder(batch.orderId(order), batch.customerId(order), new Timestamp(batch.orderDateMillis(order)),
+                batch.totalAmount(order), batch.status(order), columns);
+    }
+
+    private void insertOrder(String orderId, String customerId, Timestamp orderDate, long totalAmount, String status,
+            ItemColumns items) throws Exception {
+        if (writeStrategy == PostgresWriteStrategy.CTE) {
+            insertCte(orderId, customerId, orderDate, totalAmount, status, items);
+            return;
+        }
         RetryUtil.executeVoidWithRetry(() -> {
             try (Connection conn = postgresConnection.getConnection()) {
                 boolean autoCommit = conn.getAutoCommit();
@@ -72,33 +212,29 @@ public class PostgresMultiTableOps implements DatabaseOperations {
                 try {
                     conn.setAutoCommit(false);
                     
-                    order.recalculateTotalAmount();
-                    
                     String orderSql = "INSERT INTO " + ORDERS_TABLE + 
                             " (order_id, customer_id, order_date, total_amount, status) " +
                             "VALUES (?, ?, ?, ?, ?)";
                     
                     try (PreparedStatement pstmt = conn.prepareStatement(orderSql)) {
-                        pstmt.setString(1, order.getOrderId());
-                        pstmt.setString(2, order.getCustomerId());
-                        pstmt.setTimestamp(3, Timestamp.from(order.getOrderDate()));
-                        pstmt.setLong(4, order.getTotalAmount());
-                        pstmt.setString(5, order.getStatus());
+                        pstmt.setString(1, orderId);
+                        pstmt.setString(2, customerId);
+                        pstmt.setTimestamp(3, orderDate);
+                        pstmt.setLong(4, totalAmount);
+                        pstmt.setString(5, status);
                         pstmt.executeUpdate();
                     }
                     
-                    String itemSql = "INSERT INTO " + ITEMS_TABLE + 
-                            " (item_id, order_id, product_id, name, price, quantity) " +
-                            "VALUES (?, ?, ?, ?, ?, ?)";
-                    
-                    try (PreparedStatement pstmt = conn.prepareStatement(itemSql)) {
-                        for (Item item : order.getItems()) {
-                            pstmt.setString(1, item.getItemId());
-                            pstmt.setString(2, order.getOrderId());
-                            pstmt.setString(3, item.getProductId());
-                            pstmt.setString(4, item.getName());
-                            pstmt.setLong(5, item.getPrice());
-                            pstmt.setLong(6, item.getQuantity());
+                    try (PreparedStatement pstmt = conn.prepareStatement(INSERT_ITEM_SQL)) {
+                        for (int i = 0; i < items.size(); i++) {
+                            pstmt.setString(1, orderId);
+                            pstmt.setInt(2, items.lineNos[i]);
+                            pstmt.setString(3, items.productIds[i]);
+                            pstmt.setString(4, items.names[i]);
+                            pstmt.setLong(5, items.prices[i]);
+                            pstmt.setLong(6, items.quantities[i]);
+                            pstmt.setString(7, items.descriptions[i]);
+                            pstmt.setString(8, items.attributes[i]);
                             pstmt.addBatch();
                         }
                         pstmt.executeBatch();
@@ -119,6 +255,160 @@ public class PostgresMultiTableOps implements DatabaseOperations {
         }, "PostgresMultiTableOps.insert");
     }
 
+    private void insertCte(String orderId, String customerId, Timestamp orderDate, long totalAmount, String status,
+            ItemColumns items) throws Exception {
+        RetryUtil.executeVoidWithRetry(() -> {
+            try (Connection conn = postgresConnection.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(insertCteSql)) {
+                pstmt.setString(1, orderId);
+                pstmt.setString(2, customerId);
+                pstmt.setTimestamp(3, orderDate);
+                pstmt.setLong(4, totalAmount);
+                pstmt.setString(5, status);
+                pstmt.setString(6, orderId);
+                pstmt.setArray(7, conn.createArrayOf("int4", boxed(items.lineNos)));
+                pstmt.setArray(8, conn.createArrayOf("varchar", items.productIds));
+                pstmt.setArray(9, conn.createArrayOf("varchar", items.names));
+                pstmt.setArray(10, conn.createArrayOf("bigint", boxed(items.prices)));
+                pstmt.setArray(11, conn.createArrayOf("bigint", boxed(items.quantities)));
+                pstmt.setArray(12, conn.createArrayOf("text", items.descriptions));
+                pstmt.setArray(13, conn.createArrayOf("text", items.attributes));
+                pstmt.executeUpdate();
+            } catch (Exception e) {
+                // Single statement in autocommit: the failed statement is already rolled back
+                if (!isDuplicateKeyException(e)) {
+                    throw e;
+                }
+            }
+        }, "PostgresMultiTableOps.insertCte");
+    }
+
+    private void updateModifyCte(String orderId) throws Exception {
+        RetryUtil.executeVoidWithRetry(() -> {
+            try (Connection conn = postgresConnection.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(UPDATE_MODIFY_CTE_SQL)) {
+                pstmt.setString(1, orderId);
+                pstmt.setString(2, orderId);
+                if (pstmt.executeUpdate() == 0) {
+                    throw new Exception("No items found for order: " + orderId);
+                }
+            }
+        }, "PostgresMultiTableOps.updateModifyCte");
+    }
+
+    private void updateAddCte(String orderId) throws Exception {
+        RetryUtil.executeVoidWithRetry(() -> {
+            try (Connection conn = postgresConnection.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(updateAddCteSql)) {
+                // Lines are numbered server-side from the current item count; the generated numbers are not used
+                List<Item> newItems = orderGenerator.generateAddedItems(orderId, 0);
+                int size = newItems.size();
+                String[] names = new String[size];
+                Long[] prices = new Long[size];
+                Long[] quantities = new Long[size];
+                String[] descriptions = new String[size];
+                String[] attributes = new String[size];
+                for (int i = 0; i < size; i++) {
+                    Item item = newItems.get(i);
+                    names[i] = item.getName();
+                    prices[i] = item.getPrice();
+                    quantities[i] = item.getQuantity();
+                    descriptions[i] = item.getDescription();
+                    attributes[i] = attributesJson(item.getAttributes());
+                }
+                
+                pstmt.setString(1, orderId);
+                pstmt.setString(2, orderId);
+                pstmt.setArray(3, conn.createArrayOf("varchar", names));
+                pstmt.setArray(4, conn.createArrayOf("bigint", prices));
+                pstmt.setArray(5, conn.createArrayOf("bigint", quantities));
+                pstmt.setArray(6, conn.createArrayOf("text", descriptions));
+                pstmt.setArray(7, conn.createArrayOf("text", attributes));
+                pstmt.setString(8, orderId);
+                pstmt.setString(9, orderId);
+                pstmt.executeUpdate();
+            }
+        }, "PostgresMultiTableOps.updateAddCte");
+    }
+
+    private void deleteCte(String orderId) throws Exception {
+        RetryUtil.executeVoidWithRetry(() -> {
+            try (Connection conn = postgresConnection.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(DELETE_CTE_SQL)) {
+                pstmt.setString(1, orderId);
+                pstmt.setString(2, orderId);
+                pstmt.executeUpdate();
+            }
+        }, "PostgresMultiTableOps.deleteCte");
+    }
+
+    private void bindItem(PreparedStatement pstmt, String orderId, Item item) throws Exception {
+        pstmt.setString(1, orderId);
+        pstmt.setInt(2, item.getLineNo());
+        pstmt.setString(3, item.getProductId());
+        pstmt.setString(4, item.getName());
+        pstmt.setLong(5, item.getPrice());
+        pstmt.setLong(6, item.getQuantity());
+        pstmt.setString(7, item.getDescription());
+        pstmt.setString(8, attributesJson(item.getAttributes()));
+    }
+
+    private String attributesJson(Map<String, String> attributes) throws Exception {
+        return attributes != null ? jsonCodec.writeAttributes(attributes) : null;
+    }
+
+    private static Integer[] boxed(int[] values) {
+        Integer[] boxed = new Integer[values.length];
+        for (int i = 0; i < values.length; i++) {
+            boxed[i] = values[i];
+        }
+        return boxed;
+    }
+
+    private static Long[] boxed(long[] values) {
+        Long[] boxed = new Long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            boxed[i] = values[i];
+        }
+        return boxed;
+    }
+
+    // Column-wise item values of one insert, filled from either an Order or an OrderBatch
+    private static class ItemColumns {
+        final int[] lineNos;
+        final String[] productIds;
+        final String[] names;
+        final long[] prices;
+        final long[] quantities;
+        final String[] descriptions;
+        final String[] attributes;
+
+        ItemColumns(int size) {
+            lineNos = new int[size];
+            productIds = new String[size];
+            names = new String[size];
+            prices = new long[size];
+            quantities = new long[size];
+            descriptions = new String[size];
+            attributes = new String[size];
+        }
+
+        int size() {
+            return lineNos.length;
+        }
+
+        void set(int i, int lineNo, String productId, String name, long price, long quantity, String description,
+                String attributesJson) {
+            lineNos[i] = lineNo;
+            productIds[i] = productId;
+            names[i] = name;
+            prices[i] = price;
+            quantities[i] = quantity;
+            descriptions[i] = description;
+            attributes[i] = attributesJson;
+        }
+    }
+
     private boolean isDuplicateKeyException(Exception e) {
         if (e.getClass().getName().contains("DuplicateKeyException")) {
             return true;
@@ -133,6 +423,10 @@ public class PostgresMultiTableOps implements DatabaseOperations {
 
     @Override
     public void updateModify(String orderId) throws Exception {
+        if (writeStrategy == PostgresWriteStrategy.CTE) {
+            updateModifyCte(orderId);
+            return;
+        }
         RetryUtil.executeVoidWithRetry(() -> {
             try (Connection conn = postgresConnection.getConnection()) {
                 boolean autoCommit = conn.getAutoCommit();
@@ -141,7 +435,7 @@ public class PostgresMultiTableOps implements DatabaseOperations {
                     conn.setAutoCommit(false);
                     
                     // Get current items directly (no JOIN needed for update)
-                    String selectItemsSql = "SELECT item_id, price, quantity FROM " + ITEMS_TABLE + " WHERE order_id = ?";
+                    String selectItemsSql = "SELECT line_no, price, quantity FROM " + ITEMS_TABLE + " WHERE order_id = ? ORDER BY line_no";
                     List<Item> items = new ArrayList<>();
                     
                     try (PreparedStatement pstmt = conn.prepareStatement(selectItemsSql)) {
@@ -149,7 +443,7 @@ public class PostgresMultiTableOps implements DatabaseOperations {
                         try (ResultSet rs = pstmt.executeQuery()) {
                             while (rs.next()) {
                                 Item item = new Item();
-                                item.setItemId(rs.getString("item_id"));
+                                item.setLineNo(rs.getInt("line_no"));
                                 item.setOrderId(orderId);
                                 item.setPrice(rs.getLong("price"));
                                 item.setQuantity(rs.getLong("quantity"));
@@ -163,9 +457,9 @@ public class PostgresMultiTableOps implements DatabaseOperations {
                     }
                     
                     // Update items with new random values
-                    ThreadLocalRandom rand = ThreadLocalRandom.current();
+                    RandomGenerator rand = orderGenerator.modifyRandom(orderId);
                     String updateItemSql = "UPDATE " + ITEMS_TABLE + 
-                            " SET price = ?, quantity = ? WHERE item_id = ?";
+                            " SET price = ?, quantity = ? WHERE order_id = ? AND line_no = ?";
                     
                     long newTotal = 0;
                     try (PreparedStatement pstmt = conn.prepareStatement(updateItemSql)) {
@@ -179,7 +473,8 @@ public class PostgresMultiTableOps implements DatabaseOperations {
                             
                             pstmt.setLong(1, newPrice);
                             pstmt.setLong(2, newQuantity);
-                            pstmt.setString(3, item.getItemId());
+                            pstmt.setString(3, orderId);
+                            pstmt.setInt(4, item.getLineNo());
                             pstmt.addBatch();
                         }
                         pstmt.executeBatch();
@@ -206,6 +501,10 @@ public class PostgresMultiTableOps implements DatabaseOperations {
 
     @Override
     public void updateAdd(String orderId) throws Exception {
+        if (writeStrategy == PostgresWriteStrategy.CTE) {
+            updateAddCte(orderId);
+            return;
+        }
         RetryUtil.executeVoidWithRetry(() -> {
             try (Connection conn = postgresConnection.getConnection()) {
                 boolean autoCommit = conn.getAutoCommit();
@@ -238,28 +537,13 @@ public class PostgresMultiTableOps implements DatabaseOperations {
                         }
                     }
                     
-                    // Add 5 new items
-                    ThreadLocalRandom rand = ThreadLocalRandom.current();
-                    String itemSql = "INSERT INTO " + ITEMS_TABLE + 
-                            " (item_id, order_id, product_id, name, price, quantity) " +
-                            "VALUES (?, ?, ?, ?, ?, ?)";
-                    
+                    // Add the configured number of new items
                     long newItemsTotal = 0;
-                    try (PreparedStatement pstmt = conn.prepareStatement(itemSql)) {
-                        for (int i = 0; i < 5; i++) {
-                            String itemId = orderId + "_item_" + (currentSize + i + 1);
-                            long price = (long)(rand.nextDouble() * 900) + 100;
-                            long quantity = rand.nextInt(10) + 1;
-                            
-                            pstmt.setString(1, itemId);
-                            pstmt.setString(2, orderId);
-                            pstmt.setString(3, "product_" + (currentSize + i + 1));
-                            pstmt.setString(4, "New Product " + (currentSize + i + 1));
-                            pstmt.setLong(5, price);
-                            pstmt.setLong(6, quantity);
+                    try (PreparedStatement pstmt = conn.prepareStatement(INSERT_ITEM_SQL)) {
+                        for (Item item : orderGenerator.generateAddedItems(orderId, currentSize)) {
+                            bindItem(pstmt, orderId, item);
                             pstmt.addBatch();
-                            
-                            newItemsTotal += price * quantity;
+                            newItemsTotal += item.calculateLineTotal();
                         }
                         pstmt.executeBatch();
                     }
@@ -292,11 +576,11 @@ public class PostgresMultiTableOps implements DatabaseOperations {
                 
                 // Use SQL JOIN to combine order and items in a single query
                 String joinSql = "SELECT o.order_id, o.customer_id, o.order_date, o.total_amount, o.status, " +
-                               "i.item_id, i.product_id, i.name, i.price, i.quantity " +
+                               "i.line_no, i.product_id, i.name, i.price, i.quantity, i.description, i.attributes " +
                                "FROM " + ORDERS_TABLE + " o " +
                                "LEFT JOIN " + ITEMS_TABLE + " i ON o.order_id = i.order_id " +
                                "WHERE o.order_id = ? " +
-                               "ORDER BY i.item_id";
+                               "ORDER BY i.line_no";
                 
                 Order order = null;
                 
@@ -318,16 +602,22 @@ public class PostgresMultiTableOps implements DatabaseOperations {
                             }
                             
                             // Add item if it exists (LEFT JOIN may return NULL for items)
-                            String itemId = rs.getString("item_id");
-                            if (itemId != null) {
+                            int lineNo = rs.getInt("line_no");
+                            if (!rs.wasNull()) {
                                 Item item = new Item(
-                                        itemId,
+                                        OrderGenerator.itemId(orderId, lineNo),
                                         orderId,
                                         rs.getString("product_id"),
                                         rs.getString("name"),
                                         rs.getLong("price"),
                                         rs.getLong("quantity")
                                 );
+                                item.setLineNo(lineNo);
+                                item.setDescription(rs.getString("description"));
+                                String attributes = rs.getString("attributes");
+                                if (attributes != null) {
+                                    item.setAttributes(jsonCodec.readAttributes(attributes));
+                                }
                                 order.addItem(item);
                             }
                         }
@@ -343,8 +633,203 @@ public class PostgresMultiTableOps implements DatabaseOperations {
         }, "PostgresMultiTableOps.query");
     }
 
+    @Override
+    public List<Order> queryBatch(List<String> orderIds) throws Exception {
+        return RetryUtil.executeWithRetry(() -> {
+            try (Connection conn = postgresConnection.getConnection()) {
+                
+                // Same JOIN as query, sorted by order so the rows of one order arrive together. The planner does
+                // not carry "= ANY" across the join condition, so items get the array too and stay on their index.
+                String joinSql = "SELECT o.order_id, o.customer_id, o.order_date, o.total_amount, o.status, " +
+                               "i.line_no, i.product_id, i.name, i.price, i.quantity, i.description, i.attributes " +
+                               "FROM " + ORDERS_TABLE + " o " +
+                               "LEFT JOIN " + ITEMS_TABLE + " i ON o.order_id = i.order_id AND i.order_id = ANY(?) " +
+                               "WHERE o.order_id = ANY(?) " +
+                               "ORDER BY o.order_id, i.line_no";
+                
+                List<Order> found = new ArrayList<>(orderIds.size());
+                
+                try (PreparedStatement pstmt = conn.prepareStatement(joinSql)) {
+                    Array ids = conn.createArrayOf(keyType.getPostgresArrayType(), orderIds.toArray());
+                    pstmt.setArray(1, ids);
+                    pstmt.setArray(2, ids);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        readJoinedOrders(rs, found);
+                    }
+                }
+                
+                return BatchReads.inRequestOrder(orderIds, found);
+            }
+        }, "PostgresMultiTableOps.queryBatch");
+    }
+
+    // Single pass over JOIN rows sorted so that each order's rows are adjacent: a new order starts whenever
+    // order_id changes
+    private void readJoinedOrders(ResultSet rs, List<Order> found) throws Exception {
+        Order order = null;
+        while (rs.next()) {
+            String orderId = rs.getString("order_id");
+            if (order == null || !order.getOrderId().equals(orderId)) {
+                order = new Order(
+                        orderId,
+                        rs.getString("customer_id"),
+                        rs.getTimestamp("order_date").toInstant(),
+                        rs.getString("status")
+                );
+                order.setTotalAmount(rs.getLong("total_amount"));
+                found.add(order);
+            }
+            
+            int lineNo = rs.getInt("line_no");
+            if (!rs.wasNull()) {
+                Item item = new Item(
+                        OrderGenerator.itemId(orderId, lineNo),
+                        orderId,
+                        rs.getString("product_id"),
+                        rs.getString("name"),
+                        rs.getLong("price"),
+                        rs.getLong("quantity")
+                );
+                item.setLineNo(lineNo);
+                item.setDescription(rs.getString("description"));
+                String attributes = rs.getString("attributes");
+                if (attributes != null) {
+                    item.setAttributes(jsonCodec.readAttributes(attributes));
+                }
+                order.addItem(item);
+            }
+        }
+    }
+
+    @Override
+    public void createSecondaryIndexes() throws Exception {
+        RetryUtil.executeVoidWithRetry(() -> {
+            try (Connection conn = postgresConnection.getConnection();
+                 Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE INDEX idx_orders_customer_date ON " + ORDERS_TABLE + " (customer_id, order_date DESC)");
+                stmt.execute("CREATE INDEX idx_orders_status_date ON " + ORDERS_TABLE + " (status, order_date DESC)");
+                stmt.execute("CREATE INDEX idx_orders_order_date ON " + ORDERS_TABLE + " (order_date)");
+                stmt.execute("CREATE INDEX idx_items_product_id ON " + ITEMS_TABLE + " (product_id)");
+            }
+        }, "PostgresMultiTableOps.createSecondaryIndexes");
+    }
+
+    @Override
+    public List<Order> queryByCustomer(String customerId, int limit) throws Exception {
+        return selectJoined("SELECT order_id FROM " + ORDERS_TABLE +
+                " WHERE customer_id = ? ORDER BY order_date DESC LIMIT ?", "o.order_date DESC, ", pstmt -> {
+            pstmt.setString(1, customerId);
+            pstmt.setInt(2, limit);
+            return 3;
+        }, "PostgresMultiTableOps.queryByCustomer");
+    }
+
+    @Override
+    public List<Order> queryByStatus(String status, int limit) throws Exception {
+        return selectJoined("SELECT order_id FROM " + ORDERS_TABLE +
+                " WHERE status = ? ORDER BY order_date DESC LIMIT ?", "o.order_date DESC, ", pstmt -> {
+            pstmt.setString(1, status);
+            pstmt.setInt(2, limit);
+            return 3;
+        }, "PostgresMultiTableOps.queryByStatus");
+    }
+
+    @Override
+    public List<Order> queryByDateRange(Instant from, Instant to, int limit) throws Exception {
+        return selectJoined("SELECT order_id FROM " + ORDERS_TABLE +
+                " WHERE order_date >= ? AND order_date < ? ORDER BY order_date LIMIT ?", "o.order_date, ", pstmt -> {
+            pstmt.setTimestamp(1, Timestamp.from(from));
+            pstmt.setTimestamp(2, Timestamp.from(to));
+            pstmt.setInt(3, limit);
+            return 4;
+        }, "PostgresMultiTableOps.queryByDateRange");
+    }
+
+    @Override
+    public List<Order> queryByProduct(String productId, int limit) throws Exception {
+        return selectJoined("SELECT DISTINCT order_id FROM " + ITEMS_TABLE + " WHERE product_id = ? LIMIT ?", "",
+                pstmt -> {
+            pstmt.setString(1, productId);
+            pstmt.setInt(2, limit);
+            return 3;
+        }, "PostgresMultiTableOps.queryByProduct");
+    }
+
+    // Items are rows already, so revenue is a plain GROUP BY over the items table
+    @Override
+    public Map<String, Long> revenueByProduct() throws Exception {
+        return postgresConnection.sumsByKey("SELECT product_id, SUM(price * quantity) FROM " + ITEMS_TABLE
+                + " GROUP BY product_id", StatementBinder.NONE, "PostgresMultiTableOps.revenueByProduct");
+    }
+
+    @Override
+    public Map<String, Long> topCustomers(int limit) throws Exception {
+        return postgresConnection.sumsByKey("SELECT customer_id, SUM(total_amount) FROM " + ORDERS_TABLE
+                + " GROUP BY customer_id ORDER BY 2 DESC LIMIT ?", pstmt -> {
+            pstmt.setInt(1, limit);
+            return 2;
+        }, "PostgresMultiTableOps.topCustomers");
+    }
+
+    // Item counts need the join back to orders, so that orders without items still count
+    @Override
+    public Map<Integer, Long> itemCountHistogram() throws Exception {
+        Map<Integer, Long> histogram = new TreeMap<>();
+        postgresConnection.sumsByKey("SELECT item_count, COUNT(*) FROM (SELECT COUNT(i.line_no) AS item_count FROM "
+                + ORDERS_TABLE + " o LEFT JOIN " + ITEMS_TABLE + " i ON o.order_id = i.order_id GROUP BY o.order_id) per_order "
+                + "GROUP BY item_count", StatementBinder.NONE, "PostgresMultiTableOps.itemCountHistogram")
+                .forEach((items, orders) -> histogram.put(Integer.parseInt(items), orders));
+        return histogram;
+    }
+
+    @Override
+    public void recordIndexSizes(String phase, MetricsCollector collector) throws Exception {
+        postgresConnection.indexSizes(ORDERS_TABLE, ITEMS_TABLE).forEach((index, bytes) ->
+                collector.recordMetric(phase + "_index_" + index + "_bytes", bytes));
+    }
+
+    @Override
+    public StorageStats storageStats() throws Exception {
+        return postgresConnection.storageStats(ORDERS_TABLE, ITEMS_TABLE);
+    }
+
+    // The matching order ids are picked (and limited) on their own, then joined with their items in the same
+    // statement; materializing them keeps the planner from folding the LIMIT into the join
+    private List<Order> selectJoined(String orderIdsSql, String orderBy, StatementBinder binder, String operationName)
+            throws Exception {
+        return RetryUtil.executeWithRetry(() -> {
+            String joinSql = "WITH ids AS MATERIALIZED (" + orderIdsSql + ") " +
+                           "SELECT o.order_id, o.customer_id, o.order_date, o.total_amount, o.status, " +
+                           "i.line_no, i.product_id, i.name, i.price, i.quantity, i.description, i.attributes " +
+                           "FROM " + ORDERS_TABLE + " o " +
+                           "LEFT JOIN " + ITEMS_TABLE + " i ON o.order_id = i.order_id " +
+                           "WHERE o.order_id IN (SELECT order_id FROM ids) " +
+                           "ORDER BY " + orderBy + "o.order_id, i.line_no";
+            try (Connection conn = postgresConnection.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(joinSql)) {
+                binder.bind(pstmt);
+                List<Order> found = new ArrayList<>();
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    readJoinedOrders(rs, found);
+                }
+                return BatchReads.checkTotals(found);
+            }
+        }, operationName);
+    }
+
     @Override
     public void delete(String orderId) throws Exception {
+        if (itemsForeignKey == PostgresItemsForeignKey.CASCADE) {
+            deleteCascade("order_id = ?", pstmt -> {
+                pstmt.setString(1, orderId);
+                return 2;
+            }, "PostgresMultiTableOps.delete");
+            return;
+        }
+        if (writeStrategy == PostgresWriteStrategy.CTE) {
+            deleteCte(orderId);
+            return;
+        }
         RetryUtil.executeVoidWithRetry(() -> {
             try (Connection conn = postgresConnection.getConnection()) {
                 boolean autoCommit = conn.getAutoCommit();
@@ -375,6 +860,133 @@ public class PostgresMultiTableOps implements DatabaseOperations {
         }, "PostgresMultiTableOps.delete");
     }
 
+    @Override
+    public void deleteBatch(List<String> orderIds) throws Exception {
+        if (itemsForeignKey == PostgresItemsForeignKey.CASCADE) {
+            deleteCascade("order_id = ANY(?)", pstmt -> {
+                pstmt.setArray(1, pstmt.getConnection().createArrayOf(keyType.getPostgresArrayType(), orderIds.toArray()));
+                return 2;
+            }, "PostgresMultiTableOps.deleteBatch");
+            return;
+        }
+        if (writeStrategy == PostgresWriteStrategy.CTE) {
+            RetryUtil.executeVoidWithRetry(() -> {
+                try (Connection conn = postgresConnection.getConnection();
+                     PreparedStatement pstmt = conn.prepareStatement(DELETE_BATCH_CTE_SQL)) {
+                    Array ids = conn.createArrayOf(keyType.getPostgresArrayType(), orderIds.toArray());
+                    pstmt.setArray(1, ids);
+                    pstmt.setArray(2, ids);
+                    pstmt.executeUpdate();
+                }
+            }, "PostgresMultiTableOps.deleteBatchCte");
+            return;
+        }
+        RetryUtil.executeVoidWithRetry(() -> {
+            try (Connection conn = postgresConnection.getConnection()) {
+                boolean autoCommit = conn.getAutoCommit();
+                
+                try {
+                    conn.setAutoCommit(false);
+                    Array ids = conn.createArrayOf(keyType.getPostgresArrayType(), orderIds.toArray());
+                    
+                    String deleteItemsSql = "DELETE FROM " + ITEMS_TABLE + " WHERE order_id = ANY(?)";
+                    try (PreparedStatement pstmt = conn.prepareStatement(deleteItemsSql)) {
+                        pstmt.setArray(1, ids);
+                        pstmt.executeUpdate();
+                    }
+                    
+                    String deleteOrdersSql = "DELETE FROM " + ORDERS_TABLE + " WHERE order_id = ANY(?)";
+                    try (PreparedStatement pstmt = conn.prepareStatement(deleteOrdersSql)) {
+                        pstmt.setArray(1, ids);
+                        pstmt.executeUpdate();
+                    }
+                    
+                    conn.commit();
+                } catch (Exception e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(autoCommit);
+                }
+            }
+        }, "PostgresMultiTableOps.deleteBatch");
+    }
+
+    @Override
+    public int deleteRange(Instant from, Instant to) throws Exception {
+        if (itemsForeignKey == PostgresItemsForeignKey.CASCADE) {
+            return deleteCascade("order_date >= ? AND order_date < ?", pstmt -> {
+                pstmt.setTimestamp(1, Timestamp.from(from));
+                pstmt.setTimestamp(2, Timestamp.from(to));
+                return 3;
+            }, "PostgresMultiTableOps.deleteRange");
+        }
+        if (writeStrategy == PostgresWriteStrategy.CTE) {
+            return RetryUtil.executeWithRetry(() -> {
+                try (Connection conn = postgresConnection.getConnection();
+                     PreparedStatement pstmt = conn.prepareStatement(DELETE_RANGE_CTE_SQL)) {
+                    pstmt.setTimestamp(1, Timestamp.from(from));
+                    pstmt.setTimestamp(2, Timestamp.from(to));
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        rs.next();
+                        return rs.getInt(1);
+                    }
+                }
+            }, "PostgresMultiTableOps.deleteRangeCte");
+        }
+        return RetryUtil.executeWithRetry(() -> {
+            try (Connection conn = postgresConnection.getConnection()) {
+                boolean autoCommit = conn.getAutoCommit();
+                
+                try {
+                    conn.setAutoCommit(false);
+                    
+                    // Orders first, so the items to delete are exactly those of the orders that matched
+                    List<String> orderIds = new ArrayList<>();
+                    String deleteOrdersSql = "DELETE FROM " + ORDERS_TABLE +
+                            " WHERE order_date >= ? AND order_date < ? RETURNING order_id";
+                    try (PreparedStatement pstmt = conn.prepareStatement(deleteOrdersSql)) {
+                        pstmt.setTimestamp(1, Timestamp.from(from));
+                        pstmt.setTimestamp(2, Timestamp.from(to));
+                        try (ResultSet rs = pstmt.executeQuery()) {
+                            while (rs.next()) {
+                                orderIds.add(rs.getString(1));
+                            }
+                        }
+                    }
+                    
+                    if (!orderIds.isEmpty()) {
+                        String deleteItemsSql = "DELETE FROM " + ITEMS_TABLE + " WHERE order_id = ANY(?)";
+                        try (PreparedStatement pstmt = conn.prepareStatement(deleteItemsSql)) {
+                            pstmt.setArray(1, conn.createArrayOf(keyType.getPostgresArrayType(), orderIds.toArray()));
+                            pstmt.executeUpdate();
+                        }
+                    }
+                    
+                    conn.commit();
+                    return orderIds.size();
+                } catch (Exception e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(autoCommit);
+                }
+            }
+        }, "PostgresMultiTableOps.deleteRange");
+    }
+
+    // One autocommit DELETE on orders; the foreign key removes the items
+    private int deleteCascade(String condition, StatementBinder binder, String operationName) throws Exception {
+        return RetryUtil.executeWithRetry(() -> {
+            try (Connection conn = postgresConnection.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(
+                         "DELETE FROM " + ORDERS_TABLE + " WHERE " + condition)) {
+                binder.bind(pstmt);
+                return pstmt.executeUpdate();
+            }
+        }, operationName);
+    }
+
     @Override
     public void validateTotalAmount(String orderId) throws Exception {
         RetryUtil.executeVoidWithRetry(() -> {
@@ -0,0 +1,25 @@
+package com.mrscrape.benchmark.db.scenario2;
+
+public enum PostgresWriteStrategy {
+    MULTI_STATEMENT("multi-statement"),
+    CTE("cte");
+
+    private final String optionValue;
+
+    PostgresWriteStrategy(String optionValue) {
+        this.optionValue = optionValue;
+    }
+
+    public String getOptionValue() {
+        return optionValue;
+    }
+
+    public static PostgresWriteStrategy fromOption(String value) {
+        for (PostgresWriteStrategy strategy : values()) {
+            if (strategy.optionValue.equalsIgnoreCase(value)) {
+                return strategy;
+            }
+        }
+        throw new IllegalArgumentException("Unknown PostgreSQL write strategy: " + value);
+    }
+}
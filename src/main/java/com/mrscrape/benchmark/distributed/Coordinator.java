@@ -0,0 +1,227 @@
+package com.mrscrape.benchmark.distributed;
+
+import com.mrscrape.benchmark.metrics.LatencyHistogram;
+import com.mrscrape.benchmark.metrics.MetricsCollector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.HexFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives N worker processes through the benchmark phases in lock-step. Each phase is prepared on every
+ * worker first (insert orders pre-generated, for instance), then started on all of them at once, and
+ * the next phase only begins when every worker has finished. Worker histograms are merged into one
+ * phase result whose throughput is the total operation count over the slowest worker's phase time.
+ */
+public class Coordinator {
+    private static final Logger logger = LoggerFactory.getLogger(Coordinator.class);
+    private static final int ACCEPT_TIMEOUT_MS = 120_000;
+    private static final int HELLO_TIMEOUT_MS = 10_000;
+    private static final long WORKER_EXIT_TIMEOUT_SECONDS = 30;
+    private static final String TOKEN_ENV = "BENCHMARK_COORDINATOR_TOKEN";
+
+    private final int port;
+    private final int workerCount;
+    private final List<String> workerArgs;
+    private final byte[] token;
+    private final String localWorkerMainClass;
+    private final List<String> localWorkerArgs;
+    private final List<WorkerLink> links = new ArrayList<>();
+    private final List<Process> processes = new ArrayList<>();
+
+    /**
+     * @param workerArgs           command line sent to every worker; must not carry credentials
+     * @param token                secret a worker has to present before it gets an assignment; generated
+     *                             when null, which only local workers can then know
+     * @param localWorkerMainClass main class to launch workerCount local worker JVMs with, or null to
+     *                             wait for workers started separately, e.g. on other hosts
+     * @param localWorkerArgs      extra arguments for local workers only, e.g. their connection string
+     */
+    public Coordinator(int port, int workerCount, List<String> workerArgs, String token,
+                       String localWorkerMainClass, List<String> localWorkerArgs) {
+        this.port = port;
+        this.workerCount = workerCount;
+        this.workerArgs = workerArgs;
+        this.token = (token != null ? token : HexFormat.of().formatHex(randomBytes()))
+                .getBytes(StandardCharsets.UTF_8);
+        this.localWorkerMainClass = localWorkerMainClass;
+        this.localWorkerArgs = localWorkerArgs;
+    }
+
+    private static byte[] randomBytes() {
+        byte[] bytes = new byte[32];
+        new SecureRandom().nextBytes(bytes);
+        return bytes;
+    }
+
+    public void run(List<String> phases, MetricsCollector collector) throws Exception {
+        boolean completed = false;
+        try (ServerSocket server = new ServerSocket()) {
+            server.setReuseAddress(true);
+            // Local workers connect over loopback, so nothing else needs to reach the port
+            server.bind(localWorkerMainClass != null
+                    ? new InetSocketAddress(InetAddress.getLoopbackAddress(), port) : new InetSocketAddress(port));
+            server.setSoTimeout(ACCEPT_TIMEOUT_MS);
+            logger.info("Coordinator listening on port {} for {} workers", server.getLocalPort(), workerCount);
+            if (localWorkerMainClass != null) {
+                spawnLocalWorkers(server.getLocalPort());
+            }
+            acceptWorkers(server);
+
+            for (int i = 0; i < workerCount; i++) {
+                links.get(i).send(WorkerLink.CONFIG, "",
+                        new WorkerLink.Assignment(i, workerCount, workerArgs).encode());
+            }
+            awaitAll(WorkerLink.CONNECTED);
+            broadcast(WorkerLink.SETUP, "");
+            awaitAll(WorkerLink.DONE);
+
+            for (String phase : phases) {
+                runPhase(phase, collector);
+            }
+
+            broadcast(WorkerLink.FINISH, "");
+            List<WorkerLink.Message> finished = awaitAll(WorkerLink.DONE);
+            for (int i = 0; i < workerCount; i++) {
+                recordWorkerMetrics(collector, i, PhaseResult.decode(finished.get(i).payload()));
+            }
+            completed = true;
+        } finally {
+            for (WorkerLink link : links) {
+                link.close();
+            }
+            stopLocalWorkers(completed);
+        }
+    }
+
+    private void runPhase(String phase, MetricsCollector collector) throws Exception {
+        broadcast(WorkerLink.PREPARE, phase);
+        awaitAll(WorkerLink.READY);
+
+        long startNs = System.nanoTime();
+        broadcast(WorkerLink.GO, phase);
+        List<WorkerLink.Message> done = awaitAll(WorkerLink.DONE);
+
+        LatencyHistogram merged = new LatencyHistogram();
+        Map<String, LatencyHistogram> mergedSubOperations = new TreeMap<>();
+        long slowestNs = 0;
+        for (int i = 0; i < workerCount; i++) {
+            PhaseResult result = PhaseResult.decode(done.get(i).payload());
+            merged.merge(result.latencies());
+            for (Map.Entry<String, LatencyHistogram> operation : result.subLatencies().entrySet()) {
+                mergedSubOperations.computeIfAbsent(operation.getKey(), k -> new LatencyHistogram())
+                        .merge(operation.getValue());
+            }
+            slowestNs = Math.max(slowestNs, result.elapsedNs());
+            if (result.elapsedNs() > 0) {
+                collector.recordMetric("worker" + i + "_" + phase + "_throughput_ops_per_sec",
+                        result.latencies().getCount() * 1_000_000_000.0 / result.elapsedNs());
+            }
+            recordWorkerMetrics(collector, i, result);
+            for (String failure : result.failures()) {
+                collector.recordFailure(phase, new Exception("worker" + i + ": " + failure));
+            }
+            if (result.failureCount() > result.failures().size()) {
+                collector.recordFailure(phase, new Exception("worker" + i + ": "
+                        + (result.failureCount() - result.failures().size()) + " more failures"));
+            }
+        }
+        collector.recordPhase(phase, merged, startNs, startNs + slowestNs);
+        for (Map.Entry<String, LatencyHistogram> operation : mergedSubOperations.entrySet()) {
+            collector.recordPhase(operation.getKey(), operation.getValue(), startNs, startNs + slowestNs);
+        }
+        logger.info("{} completed on {} workers: {} operations, {} ops/sec", phase.toUpperCase(), workerCount,
+                merged.getCount(), collector.getThroughput(phase));
+    }
+
+    private static void recordWorkerMetrics(MetricsCollector collector, int worker, PhaseResult result) {
+        for (Map.Entry<String, Double> metric : result.metrics().entrySet()) {
+            collector.recordMetric("worker" + worker + "_" + metric.getKey(), metric.getValue());
+        }
+    }
+
+    private void acceptWorkers(ServerSocket server) throws IOException {
+        while (links.size() < workerCount) {
+            WorkerLink link;
+            try {
+                link = new WorkerLink(server.accept());
+            } catch (SocketTimeoutException e) {
+                throw new IOException("Only " + links.size() + " of " + workerCount + " workers connected within "
+                        + ACCEPT_TIMEOUT_MS / 1000 + "s", e);
+            }
+            // A peer that does not present the token is dropped before it learns anything about the run
+            try {
+                link.setReadTimeout(HELLO_TIMEOUT_MS);
+                if (!MessageDigest.isEqual(token, link.expect(WorkerLink.HELLO).payload())) {
+                    throw new IOException("wrong coordinator token");
+                }
+                link.setReadTimeout(0);
+            } catch (IOException e) {
+                logger.warn("Rejected connection from {}: {}", link.getRemoteAddress(), e.getMessage());
+                link.close();
+                continue;
+            }
+            links.add(link);
+            logger.info("Worker {} connected from {}", links.size() - 1, link.getRemoteAddress());
+        }
+    }
+
+    private void broadcast(String type, String phase) throws IOException {
+        for (WorkerLink link : links) {
+            link.send(type, phase);
+        }
+    }
+
+    private List<WorkerLink.Message> awaitAll(String type) throws IOException {
+        List<WorkerLink.Message> messages = new ArrayList<>(workerCount);
+        for (WorkerLink link : links) {
+            messages.add(link.expect(type));
+        }
+        return messages;
+    }
+
+    // Same JVM, flags and classpath as the coordinator, connecting back over loopback
+    private void spawnLocalWorkers(int listenPort) throws IOException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        for (int i = 0; i < workerCount; i++) {
+            List<String> command = new ArrayList<>();
+            command.add(java);
+            command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(localWorkerMainClass);
+            command.add("--mode");
+            command.add("worker");
+            command.add("--coordinator");
+            command.add(InetAddress.getLoopbackAddress().getHostAddress() + ":" + listenPort);
+            command.addAll(localWorkerArgs);
+            ProcessBuilder processBuilder = new ProcessBuilder(command).inheritIO();
+            processBuilder.environment().put(TOKEN_ENV, new String(token, StandardCharsets.UTF_8));
+            processes.add(processBuilder.start());
+        }
+        logger.info("Started {} local worker processes", workerCount);
+    }
+
+    private void stopLocalWorkers(boolean completed) throws InterruptedException {
+        for (Process process : processes) {
+            if (!completed || !process.waitFor(WORKER_EXIT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.mrscrape.benchmark.distributed;
+
+import com.mrscrape.benchmark.metrics.LatencyHistogram;
+import com.mrscrape.benchmark.metrics.MetricsCollector;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * What a worker reports for one phase: its latency histogram, the histograms of the phase's sub-operations
+ * (named "<phase>-...", such as per-round-trip batch latencies), how long its share took, its failures (capped)
+ * and every other metric it recorded. The coordinator merges the histograms and keeps the
+ * other metrics per worker, since pool sizes, percentiles and the like do not add up.
+ */
+public record PhaseResult(LatencyHistogram latencies, Map<String, LatencyHistogram> subLatencies, long elapsedNs,
+        int failureCount, List<String> failures, Map<String, Double> metrics) {
+    private static final int MAX_REPORTED_FAILURES = 100;
+
+    public static PhaseResult of(String phase, MetricsCollector collector) {
+        List<String> failures = collector.getFailures();
+        Map<String, LatencyHistogram> subLatencies = new TreeMap<>();
+        for (String operation : collector.getOperationNames()) {
+            if (operation.startsWith(phase + "-")) {
+                subLatencies.put(operation, collector.getLatencies(operation));
+            }
+        }
+        return new PhaseResult(collector.getLatencies(phase), subLatencies,
+                (long) (collector.getElapsedSeconds(phase) * 1_000_000_000L), failures.size(),
+                failures.subList(0, Math.min(failures.size(), MAX_REPORTED_FAILURES)),
+                collector.getAdditionalMetrics());
+    }
+
+    public byte[] encode() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            latencies.writeTo(out);
+            out.writeInt(subLatencies.size());
+            for (Map.Entry<String, LatencyHistogram> operation : subLatencies.entrySet()) {
+                out.writeUTF(operation.getKey());
+                operation.getValue().writeTo(out);
+            }
+            out.writeLong(elapsedNs);
+            out.writeInt(failureCount);
+            out.writeInt(failures.size());
+            for (String failure : failures) {
+                out.writeUTF(failure.length() > 1000 ? failure.substring(0, 1000) : failure);
+            }
+            out.writeInt(metrics.size());
+            for (Map.Entry<String, Double> metric : metrics.entrySet()) {
+                out.writeUTF(metric.getKey());
+                out.writeDouble(metric.getValue());
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    public static PhaseResult decode(byte[] payload) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            LatencyHistogram latencies = LatencyHistogram.readFrom(in);
+            int subOperations = in.readInt();
+            Map<String, LatencyHistogram> subLatencies = new TreeMap<>();
+            for (int i = 0; i < subOperations; i++) {
+                subLatencies.put(in.readUTF(), LatencyHistogram.readFrom(in));
+            }
+            long elapsedNs = in.readLong();
+            int failureCount = in.readInt();
+            int reported = in.readInt();
+            List<String> failures = new ArrayList<>(reported);
+            for (int i = 0; i < reported; i++) {
+                failures.add(in.readUTF());
+            }
+            int metricCount = in.readInt();
+            Map<String, Double> metrics = new LinkedHashMap<>();
+            for (int i = 0; i < metricCount; i++) {
+                metrics.put(in.readUTF(), in.readDouble());
+            }
+            return new PhaseResult(latencies, subLatencies, elapsedNs, failureCount, failures, metrics);
+        }
+    }
+}
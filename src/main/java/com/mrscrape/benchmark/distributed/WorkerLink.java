@@ -0,0 +1,153 @@
+package com.mrscrape.benchmark.distributed;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One coordinator-worker connection over plain TCP. A message is a type, a phase name (possibly empty)
+ * and an opaque payload. The coordinator drives the conversation and a worker only answers, so neither
+ * side needs more than one reading thread.
+ */
+public class WorkerLink implements Closeable {
+    public static final String HELLO = "hello";
+    public static final String CONFIG = "config";
+    public static final String CONNECTED = "connected";
+    public static final String SETUP = "setup";
+    public static final String PREPARE = "prepare";
+    public static final String READY = "ready";
+    public static final String GO = "go";
+    public static final String DONE = "done";
+    public static final String FINISH = "finish";
+    public static final String FAILED = "failed";
+
+    private static final int CONNECT_ATTEMPTS = 60;
+    private static final long CONNECT_RETRY_MS = 1000;
+    private static final int MAX_PAYLOAD_BYTES = 64 << 20;
+
+    public record Message(String type, String phase, byte[] payload) {
+    }
+
+    // What the coordinator hands each worker: its share of the key space and the run's command line
+    public record Assignment(int workerIndex, int workerCount, List<String> args) {
+        public byte[] encode() throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeInt(workerIndex);
+                out.writeInt(workerCount);
+                out.writeInt(args.size());
+                for (String arg : args) {
+                    out.writeUTF(arg);
+                }
+            }
+            return bytes.toByteArray();
+        }
+
+        public static Assignment decode(byte[] payload) throws IOException {
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+                int workerIndex = in.readInt();
+                int workerCount = in.readInt();
+                int argCount = in.readInt();
+                List<String> args = new ArrayList<>(argCount);
+                for (int i = 0; i < argCount; i++) {
+                    args.add(in.readUTF());
+                }
+                return new Assignment(workerIndex, workerCount, args);
+            }
+        }
+    }
+
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+
+    public WorkerLink(Socket socket) throws IOException {
+        this.socket = socket;
+        socket.setTcpNoDelay(true);
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    }
+
+    // Workers may be started before the coordinator listens, so refused connections are retried
+    public static WorkerLink connect(String address) throws IOException, InterruptedException {
+        int separator = address.lastIndexOf(':');
+        String host = address.substring(0, separator);
+        int port = Integer.parseInt(address.substring(separator + 1));
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return new WorkerLink(new Socket(host, port));
+            } catch (ConnectException e) {
+                if (attempt == CONNECT_ATTEMPTS) {
+                    throw e;
+                }
+                Thread.sleep(CONNECT_RETRY_MS);
+            }
+        }
+    }
+
+    public synchronized void send(String type, String phase, byte[] payload) throws IOException {
+        out.writeUTF(type);
+        out.writeUTF(phase);
+        out.writeInt(payload.length);
+        out.write(payload);
+        out.flush();
+    }
+
+    public void send(String type, String phase) throws IOException {
+        send(type, phase, new byte[0]);
+    }
+
+    public void sendFailure(Exception e) throws IOException {
+        send(FAILED, "", String.valueOf(e.getMessage()).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public Message receive() throws IOException {
+        String type = in.readUTF();
+        String phase = in.readUTF();
+        int length = in.readInt();
+        if (length < 0 || length > MAX_PAYLOAD_BYTES) {
+            throw new IOException("Message of " + length + " bytes from " + getRemoteAddress());
+        }
+        byte[] payload = new byte[length];
+        in.readFully(payload);
+        return new Message(type, phase, payload);
+    }
+
+    // Reads the next message and fails if the peer reported an error or sent something else
+    public Message expect(String type) throws IOException {
+        Message message = receive();
+        if (FAILED.equals(message.type())) {
+            throw new IOException(getRemoteAddress() + " failed: "
+                    + new String(message.payload(), StandardCharsets.UTF_8));
+        }
+        if (!type.equals(message.type())) {
+            throw new IOException("Expected '" + type + "' from " + getRemoteAddress() + " but got '"
+                    + message.type() + "'");
+        }
+        return message;
+    }
+
+    // 0 waits indefinitely, as phases can run for a long time
+    public void setReadTimeout(int timeoutMs) throws IOException {
+        socket.setSoTimeout(timeoutMs);
+    }
+
+    public String getRemoteAddress() {
+        return String.valueOf(socket.getRemoteSocketAddress());
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
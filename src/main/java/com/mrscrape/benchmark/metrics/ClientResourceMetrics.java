@@ -0,0 +1,123 @@
+package com.mrscrape.benchmark.metrics;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.List;
+
+/**
+ * What a phase costs the benchmark process itself: CPU time, heap allocation, GC and the heap high-water mark.
+ * Figures are process-wide, so the order generator, driver threads and samplers are included alongside the
+ * workers; allocation covers all threads, including the carriers of the virtual-thread workers.
+ */
+public class ClientResourceMetrics {
+    private final com.sun.management.OperatingSystemMXBean os = osBean();
+    private final com.sun.management.ThreadMXBean threads = threadBean();
+    private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+    private final List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+            .filter(pool -> pool.getType() == MemoryType.HEAP)
+            .toList();
+    private long startNs;
+    private long startCpuNs;
+    private long startAllocatedBytes;
+    private long startGcPauses;
+    private long startGcPauseMs;
+    private long startGcConcurrentMs;
+
+    private static com.sun.management.OperatingSystemMXBean osBean() {
+        return ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean bean
+                ? bean : null;
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                && bean.isThreadAllocatedMemorySupported()) {
+            bean.setThreadAllocatedMemoryEnabled(true);
+            return bean;
+        }
+        return null;
+    }
+
+    public void reset() {
+        startNs = System.nanoTime();
+        startCpuNs = cpuNs();
+        startAllocatedBytes = allocatedBytes();
+        startGcPauses = gcCount(false);
+        startGcPauseMs = gcTimeMs(false);
+        startGcConcurrentMs = gcTimeMs(true);
+        for (MemoryPoolMXBean pool : heapPools) {
+            pool.resetPeakUsage();
+        }
+    }
+
+    public void recordTo(MetricsCollector collector, String prefix, long operations) {
+        double elapsedMs = (System.nanoTime() - startNs) / 1_000_000.0;
+        long cpuNs = cpuNs();
+        long allocatedBytes = allocatedBytes();
+
+        if (cpuNs >= 0 && startCpuNs >= 0) {
+            double cpuMs = (cpuNs - startCpuNs) / 1_000_000.0;
+            collector.recordMetric(prefix + "_client_cpu_ms", cpuMs);
+            // Average cores kept busy over the phase
+            collector.recordMetric(prefix + "_client_cpu_cores", elapsedMs > 0 ? cpuMs / elapsedMs : 0);
+            if (operations > 0) {
+                collector.recordMetric(prefix + "_client_cpu_us_per_op", cpuMs * 1000 / operations);
+            }
+        }
+        if (allocatedBytes >= 0 && startAllocatedBytes >= 0) {
+            collector.recordMetric(prefix + "_client_alloc_bytes", allocatedBytes - startAllocatedBytes);
+            if (operations > 0) {
+                collector.recordMetric(prefix + "_client_alloc_bytes_per_op",
+                        (double) (allocatedBytes - startAllocatedBytes) / operations);
+            }
+        }
+        long gcPauseMs = gcTimeMs(false) - startGcPauseMs;
+        collector.recordMetric(prefix + "_client_gc_pauses", gcCount(false) - startGcPauses);
+        collector.recordMetric(prefix + "_client_gc_pause_ms", gcPauseMs);
+        collector.recordMetric(prefix + "_client_gc_concurrent_ms", gcTimeMs(true) - startGcConcurrentMs);
+        if (operations > 0) {
+            collector.recordMetric(prefix + "_client_gc_pause_us_per_op", gcPauseMs * 1000.0 / operations);
+        }
+
+        // Pools peak at different moments, so the sum is an upper bound on the heap actually in use at once
+        long heapPeakBytes = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            heapPeakBytes += pool.getPeakUsage().getUsed();
+        }
+        collector.recordMetric(prefix + "_client_heap_peak_bytes", heapPeakBytes);
+    }
+
+    private long cpuNs() {
+        return os != null ? os.getProcessCpuTime() : -1;
+    }
+
+    private long allocatedBytes() {
+        return threads != null ? threads.getTotalThreadAllocatedBytes() : -1;
+    }
+
+    // G1's "Concurrent GC", ZGC's and Shenandoah's "Cycles" beans time concurrent work; the others time pauses
+    private static boolean isConcurrent(GarbageCollectorMXBean collector) {
+        return collector.getName().contains("Concurrent") || collector.getName().contains("Cycles");
+    }
+
+    private long gcCount(boolean concurrent) {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : collectors) {
+            if (isConcurrent(collector) == concurrent) {
+                count += Math.max(0, collector.getCollectionCount());
+            }
+        }
+        return count;
+    }
+
+    private long gcTimeMs(boolean concurrent) {
+        long time = 0;
+        for (GarbageCollectorMXBean collector : collectors) {
+            if (isConcurrent(collector) == concurrent) {
+                time += Math.max(0, collector.getCollectionTime());
+            }
+        }
+        return time;
+    }
+}
@@ -20,6 +20,28 @@ public class CsvOutput {
                 writeMetric(writer, operationName + "_p99_latency_ms", 
                         String.valueOf(collector.getP99(operationName)));
             }
+            for (Map.Entry<String, Double> metric : collector.getAdditionalMetrics().entrySet()) {
+                writeMetric(writer, metric.getKey(), String.valueOf(metric.getValue()));
+            }
+        }
+    }
+
+    // One line per row under a header of every column any row has; cells a row lacks are left empty
+    public static void writeTimeSeries(String outputFile, List<Map<String, Object>> rows) throws IOException {
+        Set<String> columns = new LinkedHashSet<>();
+        for (Map<String, Object> row : rows) {
+            columns.addAll(row.keySet());
+        }
+        try (PrintWriter writer = new PrintWriter(new FileWriter(outputFile))) {
+            writer.println(String.join(DELIMITER, columns));
+            for (Map<String, Object> row : rows) {
+                StringJoiner line = new StringJoiner(DELIMITER);
+                for (String column : columns) {
+                    Object value = row.get(column);
+                    line.add(value != null ? String.valueOf(value) : "");
+                }
+                writer.println(line);
+            }
         }
     }
 
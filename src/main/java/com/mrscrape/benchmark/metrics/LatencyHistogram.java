@@ -0,0 +1,156 @@
+package com.mrscrape.benchmark.metrics;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free log-linear histogram of nanosecond values.
+ * Values below 128 are recorded exactly, larger values land in buckets of
+ * 64 sub-buckets per power of two, so reported percentiles are within ~1.6%.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_LIMIT = SUB_BUCKET_COUNT * 2;
+    private static final int BUCKET_COUNT = (63 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT + SUB_BUCKET_COUNT * 2;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder totalSum = new LongAdder();
+    private final AtomicLong maxValue = new AtomicLong();
+
+    public void record(long valueNanos) {
+        long value = Math.max(0, valueNanos);
+        counts.incrementAndGet(indexFor(value));
+        totalCount.increment();
+        totalSum.add(value);
+        long currentMax = maxValue.get();
+        while (value > currentMax && !maxValue.compareAndSet(currentMax, value)) {
+            currentMax = maxValue.get();
+        }
+    }
+
+    public long getCount() {
+        return totalCount.sum();
+    }
+
+    public long getSum() {
+        return totalSum.sum();
+    }
+
+    public long getMax() {
+        return maxValue.get();
+    }
+
+    public double getMean() {
+        long count = totalCount.sum();
+        return count == 0 ? 0 : (double) totalSum.sum() / count;
+    }
+
+    public long getValueAtPercentile(double percentile) {
+        long count = totalCount.sum();
+        if (count == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil((percentile / 100.0) * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(highestEquivalentValue(i), maxValue.get());
+            }
+        }
+        return maxValue.get();
+    }
+
+    public double getMeanMillis() {
+        return getMean() / 1_000_000.0;
+    }
+
+    public double getPercentileMillis(double percentile) {
+        return getValueAtPercentile(percentile) / 1_000_000.0;
+    }
+
+    public void merge(LatencyHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long c = other.counts.get(i);
+            if (c != 0) {
+                counts.addAndGet(i, c);
+            }
+        }
+        totalCount.add(other.totalCount.sum());
+        totalSum.add(other.totalSum.sum());
+        long otherMax = other.maxValue.get();
+        long currentMax = maxValue.get();
+        while (otherMax > currentMax && !maxValue.compareAndSet(currentMax, otherMax)) {
+            currentMax = maxValue.get();
+        }
+    }
+
+    // Sparse form: only non-empty buckets are written, so an idle histogram costs a few bytes
+    public void writeTo(DataOutput out) throws IOException {
+        int used = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            if (counts.get(i) != 0) {
+                used++;
+            }
+        }
+        out.writeInt(used);
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long c = counts.get(i);
+            if (c != 0) {
+                out.writeInt(i);
+                out.writeLong(c);
+            }
+        }
+        out.writeLong(totalSum.sum());
+        out.writeLong(maxValue.get());
+    }
+
+    public static LatencyHistogram readFrom(DataInput in) throws IOException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        int used = in.readInt();
+        for (int n = 0; n < used; n++) {
+            int index = in.readInt();
+            long c = in.readLong();
+            histogram.counts.set(index, c);
+            histogram.totalCount.add(c);
+        }
+        histogram.totalSum.add(in.readLong());
+        histogram.maxValue.set(in.readLong());
+        return histogram;
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        totalCount.reset();
+        totalSum.reset();
+        maxValue.set(0);
+    }
+
+    static int indexFor(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift);
+        return (exponent - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    static long highestEquivalentValue(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+        int shift = exponent - SUB_BUCKET_BITS;
+        long subBucket = index % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
@@ -14,18 +14,20 @@ public class MetricsCollector {
         String operationName;
         long startTimeNs;
         long endTimeNs;
-        List<Double> latenciesMs;
+        // Fixed-size and lock-free, and mergeable across worker processes
+        LatencyHistogram latencies;
 
         OperationMetrics(String operationName) {
             this.operationName = operationName;
             this.startTimeNs = 0;
             this.endTimeNs = 0;
-            this.latenciesMs = new CopyOnWriteArrayList<>();
+            this.latencies = new LatencyHistogram();
         }
     }
 
     private final Map<String, OperationMetrics> metrics = new ConcurrentHashMap<>();
     private final List<String> failedOperations = new CopyOnWriteArrayList<>();
+    private final Map<String, Double> additionalMetrics = Collections.synchronizedMap(new LinkedHashMap<>());
 
     public void startTime(String operationName) {
         metrics.computeIfAbsent(operationName, k -> new OperationMetrics(operationName));
@@ -42,39 +44,54 @@ public class MetricsCollector {
 
     public void recordLatency(String operationName, double latencyMs) {
         OperationMetrics om = metrics.computeIfAbsent(operationName, k -> new OperationMetrics(operationName));
-        om.latenciesMs.add(latencyMs);
+        om.latencies.record((long) (latencyMs * 1_000_000));
+    }
+
+    // Adds a phase measured elsewhere, e.g. merged from worker processes, with its own start and end time
+    public void recordPhase(String operationName, LatencyHistogram latencies, long startTimeNs, long endTimeNs) {
+        OperationMetrics om = metrics.computeIfAbsent(operationName, k -> new OperationMetrics(operationName));
+        om.latencies.merge(latencies);
+        om.startTimeNs = startTimeNs;
+        om.endTimeNs = endTimeNs;
+    }
+
+    public LatencyHistogram getLatencies(String operationName) {
+        OperationMetrics om = metrics.get(operationName);
+        return om != null ? om.latencies : new LatencyHistogram();
     }
 
     public long getThroughput(String operationName) {
         OperationMetrics om = metrics.get(operationName);
-        if (om == null || om.latenciesMs.isEmpty() || om.startTimeNs == 0 || om.endTimeNs == 0) {
+        if (om == null || om.latencies.getCount() == 0 || om.startTimeNs == 0 || om.endTimeNs == 0) {
             return 0;
         }
         double elapsedSeconds = (om.endTimeNs - om.startTimeNs) / 1_000_000_000.0;
-        return elapsedSeconds > 0 ? (long) (om.latenciesMs.size() / elapsedSeconds) : 0;
+        return elapsedSeconds > 0 ? (long) (om.latencies.getCount() / elapsedSeconds) : 0;
+    }
+
+    // Wall time between startTime and endTime, or 0 if the operation was not timed
+    public double getElapsedSeconds(String operationName) {
+        OperationMetrics om = metrics.get(operationName);
+        if (om == null || om.startTimeNs == 0 || om.endTimeNs == 0) {
+            return 0;
+        }
+        return (om.endTimeNs - om.startTimeNs) / 1_000_000_000.0;
     }
 
     public double getAverageDuration(String operationName) {
         OperationMetrics om = metrics.get(operationName);
-        if (om == null || om.latenciesMs.isEmpty()) {
+        if (om == null || om.latencies.getCount() == 0) {
             return 0;
         }
-        return om.latenciesMs.stream()
-                .mapToDouble(Double::doubleValue)
-                .average()
-                .orElse(0.0);
+        return om.latencies.getMeanMillis();
     }
 
     public double getPercentileDuration(String operationName, double percentile) {
         OperationMetrics om = metrics.get(operationName);
-        if (om == null || om.latenciesMs.isEmpty()) {
+        if (om == null || om.latencies.getCount() == 0) {
             return 0;
         }
-        List<Double> sorted = new ArrayList<>(om.latenciesMs);
-        Collections.sort(sorted);
-        int index = (int) Math.ceil((percentile / 100.0) * sorted.size()) - 1;
-        index = Math.max(0, Math.min(index, sorted.size() - 1));
-        return sorted.get(index);
+        return om.latencies.getPercentileMillis(percentile);
     }
 
     public double getP50(String operationName) {
@@ -91,7 +108,7 @@ public class MetricsCollector {
 
     public int getOperationCount(String operationName) {
         OperationMetrics om = metrics.get(operationName);
-        return om != null ? om.latenciesMs.size() : 0;
+        return om != null ? (int) om.latencies.getCount() : 0;
     }
 
     public Set<String> getOperationNames() {
@@ -100,6 +117,17 @@ public class MetricsCollector {
 
     public void reset() {
         metrics.clear();
+        additionalMetrics.clear();
+    }
+
+    public void recordMetric(String metricName, double value) {
+        additionalMetrics.put(metricName, value);
+    }
+
+    public Map<String, Double> getAdditionalMetrics() {
+        synchronized (additionalMetrics) {
+            return new LinkedHashMap<>(additionalMetrics);
+        }
     }
 
     public Map<String, Object> getMetricsForOperation(String operationName) {
@@ -0,0 +1,74 @@
+package com.mrscrape.benchmark.metrics;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+
+public class PoolMetrics {
+    private final LatencyHistogram acquireNanos = new LatencyHistogram();
+    private final AtomicLong acquireTimeouts = new AtomicLong();
+    private final AtomicInteger activeConnections = new AtomicInteger();
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final AtomicInteger peakActiveConnections = new AtomicInteger();
+    private volatile IntSupplier totalConnectionsSource = totalConnections::get;
+
+    public void recordAcquire(long elapsedNanos) {
+        acquireNanos.record(elapsedNanos);
+        connectionCheckedOut();
+    }
+
+    public void recordAcquireTimeout() {
+        acquireTimeouts.incrementAndGet();
+    }
+
+    public void connectionCheckedOut() {
+        int active = activeConnections.incrementAndGet();
+        peakActiveConnections.accumulateAndGet(active, Math::max);
+    }
+
+    public void connectionCheckedIn() {
+        activeConnections.decrementAndGet();
+    }
+
+    public void connectionCreated() {
+        totalConnections.incrementAndGet();
+    }
+
+    public void connectionClosed() {
+        totalConnections.decrementAndGet();
+    }
+
+    // Pools that track their own size (HikariCP PoolStats) report it through this source
+    public void setTotalConnectionsSource(IntSupplier source) {
+        this.totalConnectionsSource = source;
+    }
+
+    public int getActiveConnections() {
+        return Math.max(0, activeConnections.get());
+    }
+
+    public int getIdleConnections() {
+        return Math.max(0, totalConnectionsSource.getAsInt() - getActiveConnections());
+    }
+
+    public void recordTo(MetricsCollector collector, String prefix) {
+        collector.recordMetric(prefix + "_pool_acquire_avg_ms", acquireNanos.getMeanMillis());
+        collector.recordMetric(prefix + "_pool_acquire_p50_ms", acquireNanos.getPercentileMillis(50));
+        collector.recordMetric(prefix + "_pool_acquire_p99_ms", acquireNanos.getPercentileMillis(99));
+        collector.recordMetric(prefix + "_pool_acquire_max_ms", acquireNanos.getMax() / 1_000_000.0);
+        collector.recordMetric(prefix + "_pool_acquire_timeouts", acquireTimeouts.get());
+        collector.recordMetric(prefix + "_pool_active_peak", peakActiveConnections.get());
+        collector.recordMetric(prefix + "_pool_active", getActiveConnections());
+        collector.recordMetric(prefix + "_pool_idle", getIdleConnections());
+    }
+
+    public LatencyHistogram getAcquireHistogram() {
+        return acquireNanos;
+    }
+
+    public void reset() {
+        acquireNanos.reset();
+        acquireTimeouts.set(0);
+        peakActiveConnections.set(getActiveConnections());
+    }
+}
@@ -0,0 +1,73 @@
+package com.mrscrape.benchmark.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+public class RetryMetrics {
+    private static class OperationCounters {
+        final LongAdder calls = new LongAdder();
+        final LongAdder attempts = new LongAdder();
+        final LongAdder retries = new LongAdder();
+        final LongAdder retryDelayMs = new LongAdder();
+        final LongAdder exhausted = new LongAdder();
+        final LongAdder nonRetryable = new LongAdder();
+        final LongAdder budgetRejected = new LongAdder();
+    }
+
+    private final Map<String, OperationCounters> counters = new ConcurrentHashMap<>();
+
+    private OperationCounters countersFor(String operationName) {
+        return counters.computeIfAbsent(operationName, k -> new OperationCounters());
+    }
+
+    public void recordCall(String operationName) {
+        countersFor(operationName).calls.increment();
+    }
+
+    public void recordAttempt(String operationName) {
+        countersFor(operationName).attempts.increment();
+    }
+
+    public void recordRetry(String operationName, long delayMs) {
+        OperationCounters c = countersFor(operationName);
+        c.retries.increment();
+        c.retryDelayMs.add(delayMs);
+    }
+
+    public void recordExhausted(String operationName) {
+        countersFor(operationName).exhausted.increment();
+    }
+
+    public void recordNonRetryable(String operationName) {
+        countersFor(operationName).nonRetryable.increment();
+    }
+
+    public void recordBudgetRejected(String operationName) {
+        countersFor(operationName).budgetRejected.increment();
+    }
+
+    public long getRetries(String operationName) {
+        OperationCounters c = counters.get(operationName);
+        return c != null ? c.retries.sum() : 0;
+    }
+
+    public void recordTo(MetricsCollector collector) {
+        for (Map.Entry<String, OperationCounters> entry : new TreeMap<>(counters).entrySet()) {
+            String prefix = "retry_" + entry.getKey();
+            OperationCounters c = entry.getValue();
+            collector.recordMetric(prefix + "_calls", c.calls.sum());
+            collector.recordMetric(prefix + "_attempts", c.attempts.sum());
+            collector.recordMetric(prefix + "_retries", c.retries.sum());
+            collector.recordMetric(prefix + "_retry_delay_ms", c.retryDelayMs.sum());
+            collector.recordMetric(prefix + "_exhausted", c.exhausted.sum());
+            collector.recordMetric(prefix + "_non_retryable_failures", c.nonRetryable.sum());
+            collector.recordMetric(prefix + "_budget_rejected", c.budgetRejected.sum());
+        }
+    }
+
+    public void reset() {
+        counters.clear();
+    }
+}
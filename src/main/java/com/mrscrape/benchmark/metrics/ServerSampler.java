@@ -0,0 +1,136 @@
+package com.mrscrape.benchmark.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Snapshots server statistics on a background thread every interval and at each phase start and end, so no window
+ * spans two phases. Each window becomes one time-series row with the server counters' deltas, the gauges' current
+ * values, and the client operations completed in the same window with their mean latency. Counter totals per
+ * phase are also recorded as <phase>_server_<name>.
+ */
+public class ServerSampler implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(ServerSampler.class);
+    private static final String IDLE = "idle";
+
+    public interface Source extends AutoCloseable {
+        Sample sample() throws Exception;
+
+        @Override
+        void close();
+    }
+
+    // Counters are cumulative (the sampler takes deltas); gauges are point-in-time values such as cache bytes
+    public record Sample(Map<String, Double> counters, Map<String, Double> gauges) {
+    }
+
+    private final Source source;
+    private final long intervalMs;
+    private final MetricsCollector collector;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "server-sampler");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final List<Map<String, Object>> rows = new ArrayList<>();
+    private final Map<String, Double> phaseTotals = new LinkedHashMap<>();
+    private final long startNs = System.nanoTime();
+    private Map<String, Double> lastCounters;
+    private long lastSampleNs;
+    private String phase = IDLE;
+    private long lastClientCount;
+    private long lastClientSumNs;
+    private boolean failed;
+
+    public ServerSampler(Source source, long intervalMs, MetricsCollector collector) {
+        this.source = source;
+        this.intervalMs = intervalMs;
+        this.collector = collector;
+    }
+
+    // Takes the baseline on the caller's thread, so an unreachable server fails the run up front
+    public synchronized void start() throws Exception {
+        lastCounters = source.sample().counters();
+        lastSampleNs = System.nanoTime();
+        scheduler.scheduleAtFixedRate(this::sample, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void beginPhase(String phase) {
+        sample();
+        this.phase = phase;
+        phaseTotals.clear();
+        lastClientCount = 0;
+        lastClientSumNs = 0;
+    }
+
+    public synchronized void endPhase() {
+        sample();
+        for (Map.Entry<String, Double> total : phaseTotals.entrySet()) {
+            collector.recordMetric(phase + "_server_" + total.getKey(), total.getValue());
+        }
+        phase = IDLE;
+    }
+
+    public synchronized List<Map<String, Object>> getRows() {
+        return new ArrayList<>(rows);
+    }
+
+    private synchronized void sample() {
+        if (failed) {
+            return;
+        }
+        Sample sample;
+        try {
+            sample = source.sample();
+        } catch (Exception e) {
+            failed = true;
+            logger.warn("Server sampling stopped: {}", e.getMessage());
+            return;
+        }
+        long now = System.nanoTime();
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("elapsed_ms", (now - startNs) / 1_000_000);
+        row.put("window_ms", (now - lastSampleNs) / 1_000_000);
+        row.put("phase", phase);
+
+        // Latencies are recorded under the phase name, so the histogram's growth is this window's client work
+        LatencyHistogram client = collector.getLatencies(phase);
+        long clientCount = client.getCount();
+        long clientSumNs = client.getSum();
+        row.put("client_ops", clientCount - lastClientCount);
+        row.put("client_mean_latency_ms", clientCount > lastClientCount
+                ? (clientSumNs - lastClientSumNs) / 1_000_000.0 / (clientCount - lastClientCount) : 0.0);
+        lastClientCount = clientCount;
+        lastClientSumNs = clientSumNs;
+
+        for (Map.Entry<String, Double> counter : sample.counters().entrySet()) {
+            Double last = lastCounters.get(counter.getKey());
+            double delta = last != null ? counter.getValue() - last : 0;
+            row.put(counter.getKey(), delta);
+            if (!IDLE.equals(phase)) {
+                phaseTotals.merge(counter.getKey(), delta, Double::sum);
+            }
+        }
+        row.putAll(sample.gauges());
+        rows.add(row);
+        lastCounters = sample.counters();
+        lastSampleNs = now;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        synchronized (this) {
+            failed = true;
+            source.close();
+        }
+    }
+}
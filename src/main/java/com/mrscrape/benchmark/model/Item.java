@@ -1,6 +1,8 @@
 package com.mrscrape.benchmark.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.Map;
 import java.util.Objects;
 
 public class Item {
@@ -10,6 +12,9 @@ public class Item {
     @JsonProperty("order_id")
     private String orderId;
 
+    @JsonProperty("line_no")
+    private int lineNo;
+
     @JsonProperty("product_id")
     private String productId;
 
@@ -22,6 +27,14 @@ public class Item {
     @JsonProperty("quantity")
     private long quantity;
 
+    @JsonProperty("description")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String description;
+
+    @JsonProperty("attributes")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Map<String, String> attributes;
+
     public Item() {}
 
     public Item(String itemId, String orderId, String productId, String name, long price, long quantity) {
@@ -49,6 +62,14 @@ public class Item {
         this.orderId = orderId;
     }
 
+    public int getLineNo() {
+        return lineNo;
+    }
+
+    public void setLineNo(int lineNo) {
+        this.lineNo = lineNo;
+    }
+
     public String getProductId() {
         return productId;
     }
@@ -81,6 +102,22 @@ public class Item {
         this.quantity = quantity;
     }
 
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public Map<String, String> getAttributes() {
+        return attributes;
+    }
+
+    public void setAttributes(Map<String, String> attributes) {
+        this.attributes = attributes;
+    }
+
     public long calculateLineTotal() {
         return price * quantity;
     }
@@ -93,9 +93,11 @@ public class Order {
     }
 
     public long calculateTotalAmount() {
-        return items.stream()
-                .mapToLong(Item::calculateLineTotal)
-                .sum();
+        long total = 0;
+        for (int i = 0; i < items.size(); i++) {
+            total += items.get(i).calculateLineTotal();
+        }
+        return total;
     }
 
     public void recalculateTotalAmount() {
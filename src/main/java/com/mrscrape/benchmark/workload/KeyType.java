@@ -0,0 +1,114 @@
+package com.mrscrape.benchmark.workload;
+
+import java.util.UUID;
+
+/**
+ * How order keys are formed from the order number and stored. Keys are derived deterministically from the
+ * number, so every phase, worker and database addresses order n by the same key; the "random" bits of the
+ * UUID and ObjectId forms are a hash of n rather than fresh randomness.
+ */
+public enum KeyType {
+    // Decimal string in a VARCHAR / string _id: ordered lexicographically ("10" < "9")
+    STRING("string", "VARCHAR", "varchar"),
+    // Number in a BIGINT / Int64 _id: every insert lands at the right edge of the index
+    BIGINT("bigint", "BIGINT", "bigint"),
+    // Random UUID (RFC 9562 version 4): inserts spread over the whole index
+    UUIDV4("uuidv4", "UUID", "uuid"),
+    // Time-ordered UUID (version 7): a millisecond timestamp, one order per millisecond, then random bits
+    UUIDV7("uuidv7", "UUID", "uuid"),
+    // MongoDB ObjectId: seconds timestamp, a fixed process id and a counter; PostgreSQL stores its hex string
+    OBJECTID("objectid", "VARCHAR(24)", "varchar");
+
+    private static final long BASE_EPOCH_MILLIS = 1_704_067_200_000L; // 2024-01-01T00:00:00Z
+    private static final long OBJECT_ID_ORDERS_PER_SECOND = 1000;
+    private static final long OBJECT_ID_PROCESS = 0x5EED_C0FFEEL;
+
+    private final String optionValue;
+    private final String postgresType;
+    private final String postgresArrayType;
+
+    KeyType(String optionValue, String postgresType, String postgresArrayType) {
+        this.optionValue = optionValue;
+        this.postgresType = postgresType;
+        this.postgresArrayType = postgresArrayType;
+    }
+
+    public String format(long orderNumber) {
+        return switch (this) {
+            case STRING, BIGINT -> Long.toString(orderNumber);
+            case UUIDV4 -> new UUID((mix(orderNumber) & ~0xF000L) | 0x4000L, variant(mix(~orderNumber))).toString();
+            case UUIDV7 -> new UUID(((BASE_EPOCH_MILLIS + orderNumber) << 16) | 0x7000L | (mix(orderNumber) & 0xFFFL),
+                    variant(mix(~orderNumber))).toString();
+            case OBJECTID -> String.format("%08x%010x%06x",
+                    BASE_EPOCH_MILLIS / 1000 + orderNumber / OBJECT_ID_ORDERS_PER_SECOND, OBJECT_ID_PROCESS,
+                    orderNumber & 0xFFFFFF);
+        };
+    }
+
+    // Inverse of format: the order number a key was formed from
+    public long orderNumber(String key) {
+        return switch (this) {
+            case STRING, BIGINT -> Long.parseLong(key);
+            case UUIDV4 -> {
+                UUID uuid = UUID.fromString(key);
+                // The variant overwrote the top two bits of mix(~n); the one candidate that formats back is n
+                for (long bits = 0; bits < 4; bits++) {
+                    long orderNumber = ~unmix((uuid.getLeastSignificantBits() & 0x3FFFFFFFFFFFFFFFL) | bits << 62);
+                    if (format(orderNumber).equals(key)) {
+                        yield orderNumber;
+                    }
+                }
+                throw new IllegalArgumentException("Not a " + optionValue + " order key: " + key);
+            }
+            case UUIDV7 -> (UUID.fromString(key).getMostSignificantBits() >>> 16) - BASE_EPOCH_MILLIS;
+            case OBJECTID -> {
+                // The seconds give the thousand orders the key is among, the counter the one of them it is
+                long first = (Long.parseLong(key.substring(0, 8), 16) - BASE_EPOCH_MILLIS / 1000)
+                        * OBJECT_ID_ORDERS_PER_SECOND;
+                yield first + ((Long.parseLong(key.substring(18), 16) - first) & 0xFFFFFF);
+            }
+        };
+    }
+
+    // Column type of order_id; items.order_id follows it
+    public String getPostgresType() {
+        return postgresType;
+    }
+
+    // Element type for createArrayOf on order ids
+    public String getPostgresArrayType() {
+        return postgresArrayType;
+    }
+
+    public String getOptionValue() {
+        return optionValue;
+    }
+
+    // RFC 9562 variant bits 10
+    private static long variant(long bits) {
+        return (bits & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // Inverse of mix
+    private static long unmix(long z) {
+        z = (z ^ (z >>> 31) ^ (z >>> 62)) * 0x319642B2D24D8EC3L;
+        z = (z ^ (z >>> 27) ^ (z >>> 54)) * 0x96DE1B173F119089L;
+        return z ^ (z >>> 30) ^ (z >>> 60);
+    }
+
+    public static KeyType fromOption(String value) {
+        for (KeyType keyType : values()) {
+            if (keyType.optionValue.equalsIgnoreCase(value)) {
+                return keyType;
+            }
+        }
+        throw new IllegalArgumentException("Unknown key type: " + value);
+    }
+}
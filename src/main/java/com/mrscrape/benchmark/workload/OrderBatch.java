@@ -0,0 +1,201 @@
+package com.mrscrape.benchmark.workload;
+
+import com.mrscrape.benchmark.model.Item;
+import com.mrscrape.benchmark.model.Order;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Struct-of-arrays block of insert orders. Prices, quantities and item numbers live in primitive arrays and
+ * ids are kept as numbers, formatted by the KeyType into the order key ("7" by default), "customer_<n>",
+ * "<key>_item_3" and "product_3" strings only when an encoder asks for them; customers and statuses follow
+ * from the order number and a status index through the OrderShape. Names, descriptions and attributes are
+ * stored only when the shape has them.
+ *
+ * A batch is filled by a single producer; an order must be published to readers (e.g. through a
+ * BoundedRingBuffer) after it has been appended, and the arrays never grow, so readers never see a copy.
+ */
+public class OrderBatch {
+    private final long[] orderNumbers;
+    private final long[] orderDates;
+    private final byte[] statuses;
+    private final int[] itemStarts;
+    private final int[] itemNumbers;
+    private final long[] prices;
+    private final long[] quantities;
+    private final String[] names;
+    private final String[] descriptions;
+    private final Map<String, String>[] attributes;
+    private final OrderShape shape;
+    private final KeyType keyType;
+    private int size;
+
+    public OrderBatch(int orderCapacity, int itemCapacity, OrderShape shape) {
+        this(orderCapacity, itemCapacity, shape, KeyType.STRING);
+    }
+
+    @SuppressWarnings("unchecked")
+    public OrderBatch(int orderCapacity, int itemCapacity, OrderShape shape, KeyType keyType) {
+        this.shape = shape;
+        this.keyType = keyType;
+        this.orderNumbers = new long[orderCapacity];
+        this.orderDates = new long[orderCapacity];
+        this.statuses = new byte[orderCapacity];
+        this.itemStarts = new int[orderCapacity + 1];
+        this.itemNumbers = new int[itemCapacity];
+        this.prices = new long[itemCapacity];
+        this.quantities = new long[itemCapacity];
+        this.names = shape.getNameLength() > 0 ? new String[itemCapacity] : null;
+        this.descriptions = shape.getDescriptionLength() > 0 ? new String[itemCapacity] : null;
+        this.attributes = shape.getAttributeCount() > 0 ? (Map<String, String>[]) new Map<?, ?>[itemCapacity] : null;
+    }
+
+    /**
+     * Reserves an order with itemCount items and returns its index, or -1 if the batch has no room left.
+     * The status is an index into the shape's statuses. The items are then filled with setItem between
+     * firstItem(index) and endItem(index).
+     */
+    public int append(long orderNumber, long orderDateMillis, int status, int itemCount) {
+        int start = itemStarts[size];
+        if (size == orderNumbers.length || start + itemCount > prices.length) {
+            return -1;
+        }
+        orderNumbers[size] = orderNumber;
+        orderDates[size] = orderDateMillis;
+        statuses[size] = (byte) status;
+        itemStarts[size + 1] = start + itemCount;
+        return size++;
+    }
+
+    // Empties the batch for reuse; only safe once no reader holds an entry of it any more
+    public void clear() {
+        size = 0;
+    }
+
+    // A null name means the default "Product <number>"
+    public void setItem(int item, int number, String name, long price, long quantity, String description,
+            Map<String, String> itemAttributes) {
+        itemNumbers[item] = number;
+        prices[item] = price;
+        quantities[item] = quantity;
+        if (names != null) {
+            names[item] = name;
+        }
+        if (descriptions != null) {
+            descriptions[item] = description;
+        }
+        if (attributes != null) {
+            attributes[item] = itemAttributes;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Entry entry(int order) {
+        return new Entry(this, order);
+    }
+
+    public KeyType getKeyType() {
+        return keyType;
+    }
+
+    public String orderId(int order) {
+        return keyType.format(orderNumbers[order]);
+    }
+
+    public String customerId(int order) {
+        return shape.customerId(orderNumbers[order]);
+    }
+
+    public long orderDateMillis(int order) {
+        return orderDates[order];
+    }
+
+    public int statusIndex(int order) {
+        return statuses[order] & 0xFF;
+    }
+
+    public String status(int order) {
+        return shape.getStatus(statusIndex(order));
+    }
+
+    public int firstItem(int order) {
+        return itemStarts[order];
+    }
+
+    public int endItem(int order) {
+        return itemStarts[order + 1];
+    }
+
+    public int itemCount(int order) {
+        return itemStarts[order + 1] - itemStarts[order];
+    }
+
+    public String itemId(int order, int item) {
+        return OrderGenerator.itemId(orderId(order), itemNumbers[item]);
+    }
+
+    public int lineNo(int item) {
+        return itemNumbers[item];
+    }
+
+    public String productId(int item) {
+        return "product_" + itemNumbers[item];
+    }
+
+    public String name(int item) {
+        String name = names != null ? names[item] : null;
+        return name != null ? name : "Product " + itemNumbers[item];
+    }
+
+    public long price(int item) {
+        return prices[item];
+    }
+
+    public long quantity(int item) {
+        return quantities[item];
+    }
+
+    public String description(int item) {
+        return descriptions != null ? descriptions[item] : null;
+    }
+
+    public Map<String, String> attributes(int item) {
+        return attributes != null ? attributes[item] : null;
+    }
+
+    public long totalAmount(int order) {
+        long total = 0;
+        for (int item = itemStarts[order]; item < itemStarts[order + 1]; item++) {
+            total += prices[item] * quantities[item];
+        }
+        return total;
+    }
+
+    // Materializes the POJO form, for code paths that still work on Order
+    public Order toOrder(int order) {
+        String orderId = orderId(order);
+        Order result = new Order(orderId, customerId(order), Instant.ofEpochMilli(orderDates[order]),
+                status(order));
+        for (int item = firstItem(order); item < endItem(order); item++) {
+            Item converted = new Item(itemId(order, item), orderId, productId(item), name(item), prices[item],
+                    quantities[item]);
+            converted.setLineNo(itemNumbers[item]);
+            converted.setDescription(description(item));
+            converted.setAttributes(attributes(item));
+            result.addItem(converted);
+        }
+        result.setTotalAmount(totalAmount(order));
+        return result;
+    }
+
+    // One order of a batch, as handed from the generator to a worker
+    public record Entry(OrderBatch batch, int index) {
+        public String orderId() {
+            return batch.orderId(index);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.mrscrape.benchmark.workload;
+
+import com.mrscrape.benchmark.metrics.MetricsCollector;
+import com.mrscrape.benchmark.model.Item;
+import com.mrscrape.benchmark.model.Order;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.random.RandomGenerator;
+
+/**
+ * Builds orders and update-add items according to an OrderShape; shared by all DatabaseOperations.
+ * With a seed, every value is derived from (seed, order number, stream), so runs, databases and key types see
+ * the same data regardless of thread scheduling. Insert orders and update-add items are replayed from an attached
+ * WorkloadTape.
+ */
+public class OrderGenerator {
+    private static final char[] TEXT_CHARS = "abcdefghijklmnopqrstuvwxyz     ".toCharArray();
+    private static final Instant SEEDED_EPOCH = Instant.parse("2024-01-01T00:00:00Z");
+    private static final long SEEDED_DATE_SPAN_SECONDS = 365L * 24 * 3600;
+    private static final long ORDER_STREAM = 1;
+    private static final long ADD_STREAM = 2;
+    private static final long MODIFY_STREAM = 3;
+
+    private final OrderShape shape;
+    private final Long seed;
+    private final KeyType keyType;
+    private final LongAdder ordersGenerated = new LongAdder();
+    private final LongAdder itemsGenerated = new LongAdder();
+    private final AtomicInteger maxItemsPerOrder = new AtomicInteger();
+    private volatile WorkloadTape tape;
+
+    public OrderGenerator(OrderShape shape) {
+        this(shape, null);
+    }
+
+    public OrderGenerator(OrderShape shape, Long seed) {
+        this(shape, seed, KeyType.STRING);
+    }
+
+    public OrderGenerator(OrderShape shape, Long seed, KeyType keyType) {
+        this.shape = shape;
+        this.seed = seed;
+        this.keyType = keyType;
+    }
+
+    public OrderShape getShape() {
+        return shape;
+    }
+
+    public Long getSeed() {
+        return seed;
+    }
+
+    public KeyType getKeyType() {
+        return keyType;
+    }
+
+    // Key of the index-th order
+    public String orderId(long index) {
+        return keyType.format(index);
+    }
+
+    public void attachTape(WorkloadTape tape) {
+        this.tape = tape;
+    }
+
+    // Source of update-modify price/quantity deltas for an order
+    public RandomGenerator modifyRandom(String orderId) {
+        return random(keyType.orderNumber(orderId), MODIFY_STREAM);
+    }
+
+    private RandomGenerator random(long orderNumber, long stream) {
+        if (seed == null) {
+            return ThreadLocalRandom.current();
+        }
+        return new SplittableRandom(seed * 0x9E3779B97F4A7C15L + orderNumber * 31L + stream);
+    }
+
+    /**
+     * Appends the index-th insert order to the batch without building Order/Item objects and returns its
+     * position, or -1 if the batch is full. Draws the same values as generateOrder for a given seed and
+     * replays the attached tape, if any.
+     */
+    public int appendTo(OrderBatch batch, int index) {
+        WorkloadTape currentTape = tape;
+        if (currentTape != null) {
+            int position = currentTape.appendTo(batch, index);
+            if (position >= 0) {
+                recordGenerated(batch.itemCount(position));
+            }
+            return position;
+        }
+        RandomGenerator rand = random(index, ORDER_STREAM);
+        long orderDate = seed == null ? System.currentTimeMillis() : seededDate(rand).toEpochMilli();
+        int status = shape.nextStatus(rand);
+        int itemCount = shape.nextItemCount(rand);
+        int position = batch.append(index, orderDate, status, itemCount);
+        if (position < 0) {
+            return -1;
+        }
+        int first = batch.firstItem(position);
+        ItemSink sink = (number, name, price, quantity, description, attributes) ->
+                batch.setItem(first + number, number, name, price, quantity, description, attributes);
+        for (int i = 0; i < itemCount; i++) {
+            drawItem(rand, "Product ", i, 400, sink);
+        }
+        recordGenerated(itemCount);
+        return position;
+    }
+
+    // The customer follows from the order key, which lets a customer_id shard key be targeted from the key alone
+    public String customerId(String orderId) {
+        return shape.customerId(keyType.orderNumber(orderId));
+    }
+
+    public String customerId(long index) {
+        return shape.customerId(index);
+    }
+
+    public Order generateOrder(long index) {
+        String orderId = orderId(index);
+        RandomGenerator rand = random(index, ORDER_STREAM);
+        Instant orderDate = seed == null ? Instant.now() : seededDate(rand);
+        Order order = new Order(orderId, customerId(index), orderDate, shape.getStatus(shape.nextStatus(rand)));
+        
+        int itemCount = shape.nextItemCount(rand);
+        ItemSink sink = (number, name, price, quantity, description, attributes) ->
+                order.addItem(newItem(orderId, number, name != null ? name : "Product " + number, price, quantity,
+                        description, attributes));
+        for (int i = 0; i < itemCount; i++) {
+            drawItem(rand, "Product ", i, 400, sink);
+        }
+        
+        recordGenerated(itemCount);
+        return order;
+    }
+
+    private void recordGenerated(int itemCount) {
+        ordersGenerated.increment();
+        itemsGenerated.add(itemCount);
+        maxItemsPerOrder.accumulateAndGet(itemCount, Math::max);
+    }
+
+    // Items appended by update-add, numbered after the order's current items
+    public List<Item> generateAddedItems(String orderId, int currentSize) {
+        WorkloadTape currentTape = tape;
+        if (currentTape != null) {
+            List<Item> recorded = currentTape.readAddedItems(keyType.orderNumber(orderId), orderId, currentSize);
+            if (recorded != null) {
+                return recorded;
+            }
+        }
+        RandomGenerator rand = random(keyType.orderNumber(orderId), ADD_STREAM);
+        int count = shape.getUpdateAddItems();
+        List<Item> items = new ArrayList<>(count);
+        ItemSink sink = (number, name, price, quantity, description, attributes) ->
+                items.add(newItem(orderId, number, name != null ? name : "New Product " + number, price, quantity,
+                        description, attributes));
+        for (int i = 0; i < count; i++) {
+            drawItem(rand, "New Product ", currentSize + i + 1, 900, sink);
+        }
+        return items;
+    }
+
+    private static Instant seededDate(RandomGenerator rand) {
+        return SEEDED_EPOCH.plusSeconds(rand.nextLong(SEEDED_DATE_SPAN_SECONDS));
+    }
+
+    // Seeded order dates are uniform over one year, so the first fraction f of that year holds about f of the orders
+    public static Instant seededDateAt(double fraction) {
+        return SEEDED_EPOCH.plusMillis((long) (fraction * SEEDED_DATE_SPAN_SECONDS * 1000));
+    }
+
+    // Draws one item's values in a fixed order, so the Order and OrderBatch paths see the same data for a seed.
+    // The name is null unless the shape pads it; unpadded names are formatted by the consumer when needed.
+    private void drawItem(RandomGenerator rand, String namePrefix, int number, int priceRange, ItemSink sink) {
+        long price = (long)(rand.nextDouble() * priceRange) + 100;
+        String name = shape.getNameLength() > 0 ? pad(rand, namePrefix + number, shape.getNameLength()) : null;
+        long quantity = rand.nextInt(10) + 1;
+        String description = shape.getDescriptionLength() > 0 ? text(rand, shape.getDescriptionLength()) : null;
+        Map<String, String> attributes = null;
+        if (shape.getAttributeCount() > 0) {
+            attributes = new LinkedHashMap<>();
+            for (int i = 0; i < shape.getAttributeCount(); i++) {
+                attributes.put("attr_" + i, text(rand, shape.getAttributeLength()));
+            }
+        }
+        sink.accept(number, name, price, quantity, description, attributes);
+    }
+
+    // Scenario 2 stores only (order key, line number); the string id is rebuilt from them on read
+    public static String itemId(String orderId, int lineNo) {
+        return orderId + "_item_" + lineNo;
+    }
+
+    static Item newItem(String orderId, int number, String name, long price, long quantity,
+            String description, Map<String, String> attributes) {
+        Item item = new Item(itemId(orderId, number), orderId, "product_" + number, name, price, quantity);
+        item.setLineNo(number);
+        item.setDescription(description);
+        item.setAttributes(attributes);
+        return item;
+    }
+
+    private interface ItemSink {
+        void accept(int number, String name, long price, long quantity, String description,
+                Map<String, String> attributes);
+    }
+
+    private static String pad(RandomGenerator rand, String base, int length) {
+        if (length <= base.length() + 1) {
+            return base;
+        }
+        return base + ' ' + text(rand, length - base.length() - 1);
+    }
+
+    // Random lower-case words, so payloads compress like text rather than like a repeated filler
+    private static String text(RandomGenerator rand, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = TEXT_CHARS[rand.nextInt(TEXT_CHARS.length)];
+        }
+        return new String(chars);
+    }
+
+    public void recordTo(MetricsCollector collector) {
+        long orders = ordersGenerated.sum();
+        collector.recordMetric("workload_orders_generated", orders);
+        collector.recordMetric("workload_items_generated", itemsGenerated.sum());
+        collector.recordMetric("workload_avg_items_per_order", orders > 0 ? (double) itemsGenerated.sum() / orders : 0);
+        collector.recordMetric("workload_max_items_per_order", maxItemsPerOrder.get());
+    }
+}
@@ -0,0 +1,112 @@
+package com.mrscrape.benchmark.workload;
+
+import com.mrscrape.benchmark.concurrency.BoundedRingBuffer;
+import com.mrscrape.benchmark.metrics.MetricsCollector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Generates insert orders on a dedicated platform thread ahead of the workers, handing them over through
+ * a BoundedRingBuffer. Workers only dequeue, so order construction is kept off the measured virtual threads,
+ * and the producer's own throughput is reported separately from the insert phase. Orders are written into
+ * OrderBatch blocks rather than Order objects, which keeps the look-ahead buffer cheap to hold.
+ */
+public class OrderPipeline implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(OrderPipeline.class);
+    private static final int ORDERS_PER_BATCH = 256;
+    private static final int MAX_BATCH_ITEMS_PER_ORDER = 64;
+
+    private final OrderGenerator generator;
+    private final int firstOrder;
+    private final int orderCount;
+    private final BoundedRingBuffer<OrderBatch.Entry> buffer;
+    private final CountDownLatch prefilled;
+    private volatile long generationNs;
+    private volatile int produced;
+    private Thread producer;
+
+    public OrderPipeline(OrderGenerator generator, int orderCount, int bufferSize) {
+        this(generator, 0, orderCount, bufferSize);
+    }
+
+    // Generates orders firstOrder .. firstOrder + orderCount - 1, e.g. one worker's share of the key space
+    public OrderPipeline(OrderGenerator generator, int firstOrder, int orderCount, int bufferSize) {
+        this.generator = generator;
+        this.firstOrder = firstOrder;
+        this.orderCount = orderCount;
+        this.buffer = new BoundedRingBuffer<>(bufferSize);
+        this.prefilled = new CountDownLatch(1);
+    }
+
+    // Starts the producer and blocks until the buffer is full or every order has been generated
+    public void start() throws InterruptedException {
+        producer = Thread.ofPlatform().name("order-generator").daemon().start(this::produce);
+        prefilled.await();
+    }
+
+    private void produce() {
+        int prefillTarget = Math.min(orderCount, buffer.getCapacity());
+        try {
+            OrderBatch batch = newBatch();
+            for (int i = 0; i < orderCount; i++) {
+                if (i == prefillTarget) {
+                    prefilled.countDown();
+                }
+                long startNs = System.nanoTime();
+                int position = generator.appendTo(batch, firstOrder + i);
+                if (position < 0) {
+                    batch = newBatch();
+                    position = generator.appendTo(batch, firstOrder + i);
+                }
+                generationNs += System.nanoTime() - startNs;
+                produced = i + 1;
+                buffer.put(batch.entry(position));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            buffer.close();
+        } catch (RuntimeException e) {
+            logger.error("Order generation failed after {} orders", produced, e);
+            buffer.close();
+        } finally {
+            prefilled.countDown();
+        }
+    }
+
+    // Sized so that any single order fits into an empty batch
+    private OrderBatch newBatch() {
+        OrderShape shape = generator.getShape();
+        int itemCapacity = Math.max(shape.getMaxItemCount(),
+                ORDERS_PER_BATCH * Math.min(shape.getMaxItemCount(), MAX_BATCH_ITEMS_PER_ORDER));
+        return new OrderBatch(ORDERS_PER_BATCH, itemCapacity, shape, generator.getKeyType());
+    }
+
+    public OrderBatch.Entry take() throws InterruptedException {
+        return buffer.take();
+    }
+
+    @Override
+    public void close() {
+        buffer.close();
+        if (producer != null) {
+            producer.interrupt();
+            try {
+                producer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public void recordTo(MetricsCollector collector, String phase) {
+        double generationMs = generationNs / 1_000_000.0;
+        collector.recordMetric(phase + "_generation_ms", generationMs);
+        collector.recordMetric(phase + "_generation_orders_per_sec",
+                generationMs > 0 ? produced * 1000.0 / generationMs : 0);
+        collector.recordMetric(phase + "_generation_buffer_size", buffer.getCapacity());
+        collector.recordMetric(phase + "_generation_buffer_full_waits", buffer.getFullWaits());
+        collector.recordMetric(phase + "_generation_buffer_empty_waits", buffer.getEmptyWaits());
+    }
+}
@@ -0,0 +1,219 @@
+package com.mrscrape.benchmark.workload;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * Size and cardinality of generated orders: item count distribution, string field sizes,
+ * nested item attributes, the number of items appended by update-add, and how orders spread
+ * over customers and statuses.
+ */
+public class OrderShape {
+    public enum Distribution { FIXED, UNIFORM, EXPONENTIAL }
+
+    public static final int DEFAULT_ITEMS_PER_ORDER = 10;
+    public static final int DEFAULT_UPDATE_ADD_ITEMS = 5;
+    public static final int DEFAULT_ATTRIBUTE_LENGTH = 16;
+    public static final int DEFAULT_ORDERS_PER_CUSTOMER = 10;
+    public static final int DEFAULT_CUSTOMERS = 1000;
+    public static final String DEFAULT_STATUS_MIX = "pending:10,processing:15,shipped:25,delivered:45,cancelled:5";
+
+    private final Distribution distribution;
+    // FIXED: a = count; UNIFORM: a..b; EXPONENTIAL: mean a, capped at b
+    private final int a;
+    private final int b;
+    private final int nameLength;
+    private final int descriptionLength;
+    private final int attributeCount;
+    private final int attributeLength;
+    private final int updateAddItems;
+    private final int customers;
+    private final List<String> statuses;
+    // Cumulative status weights, the last one being the total
+    private final int[] statusWeights;
+
+    public OrderShape(Distribution distribution, int a, int b, int nameLength, int descriptionLength,
+            int attributeCount, int attributeLength, int updateAddItems, int customers, String statusMix) {
+        this.distribution = distribution;
+        this.a = a;
+        this.b = b;
+        this.nameLength = nameLength;
+        this.descriptionLength = descriptionLength;
+        this.attributeCount = attributeCount;
+        this.attributeLength = attributeLength;
+        this.updateAddItems = updateAddItems;
+        this.customers = customers;
+        this.statuses = new ArrayList<>();
+        List<Integer> weights = new ArrayList<>();
+        for (String entry : statusMix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            int weight;
+            try {
+                weight = parts.length == 2 ? Integer.parseInt(parts[1].trim()) : -1;
+            } catch (NumberFormatException e) {
+                weight = -1;
+            }
+            if (parts[0].isBlank() || weight < 1 || statuses.contains(parts[0].trim())) {
+                throw new IllegalArgumentException("Invalid status mix: " + statusMix
+                        + " (expected STATUS:WEIGHT,... with distinct statuses and weights >= 1)");
+            }
+            statuses.add(parts[0].trim());
+            weights.add(weight);
+        }
+        this.statusWeights = new int[weights.size()];
+        for (int i = 0; i < statusWeights.length; i++) {
+            statusWeights[i] = weights.get(i) + (i > 0 ? statusWeights[i - 1] : 0);
+        }
+    }
+
+    public static OrderShape defaultShape() {
+        return new OrderShape(Distribution.FIXED, DEFAULT_ITEMS_PER_ORDER, DEFAULT_ITEMS_PER_ORDER, 0, 0, 0,
+                DEFAULT_ATTRIBUTE_LENGTH, DEFAULT_UPDATE_ADD_ITEMS, DEFAULT_CUSTOMERS, DEFAULT_STATUS_MIX);
+    }
+
+    /**
+     * Parses an item count spec: "N", "fixed:N", "uniform:MIN:MAX" or "exponential:MEAN:MAX", and a status
+     * mix "STATUS:WEIGHT,...".
+     */
+    public static OrderShape of(String itemsPerOrder, int nameLength, int descriptionLength, int attributeCount,
+            int attributeLength, int updateAddItems, int customers, String statusMix) {
+        String[] parts = itemsPerOrder.trim().toLowerCase().split(":");
+        try {
+            switch (parts[0]) {
+                case "fixed" -> {
+                    requireParts(parts, 2, itemsPerOrder);
+                    int count = Integer.parseInt(parts[1]);
+                    return checked(new OrderShape(Distribution.FIXED, count, count, nameLength, descriptionLength,
+                            attributeCount, attributeLength, updateAddItems, customers, statusMix));
+                }
+                case "uniform" -> {
+                    requireParts(parts, 3, itemsPerOrder);
+                    return checked(new OrderShape(Distribution.UNIFORM, Integer.parseInt(parts[1]),
+                            Integer.parseInt(parts[2]), nameLength, descriptionLength, attributeCount,
+                            attributeLength, updateAddItems, customers, statusMix));
+                }
+                case "exponential" -> {
+                    requireParts(parts, 3, itemsPerOrder);
+                    return checked(new OrderShape(Distribution.EXPONENTIAL, Integer.parseInt(parts[1]),
+                            Integer.parseInt(parts[2]), nameLength, descriptionLength, attributeCount,
+                            attributeLength, updateAddItems, customers, statusMix));
+                }
+                default -> {
+                    requireParts(parts, 1, itemsPerOrder);
+                    int count = Integer.parseInt(parts[0]);
+                    return checked(new OrderShape(Distribution.FIXED, count, count, nameLength, descriptionLength,
+                            attributeCount, attributeLength, updateAddItems, customers, statusMix));
+                }
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid items per order: " + itemsPerOrder);
+        }
+    }
+
+    private static void requireParts(String[] parts, int expected, String spec) {
+        if (parts.length != expected) {
+            throw new IllegalArgumentException("Invalid items per order: " + spec
+                    + " (expected N, fixed:N, uniform:MIN:MAX or exponential:MEAN:MAX)");
+        }
+    }
+
+    private static OrderShape checked(OrderShape shape) {
+        if (shape.a < 1 || shape.b < shape.a) {
+            throw new IllegalArgumentException("Items per order must be >= 1 and MIN/MEAN must not exceed MAX");
+        }
+        if (shape.nameLength < 0 || shape.descriptionLength < 0 || shape.attributeCount < 0
+                || shape.attributeLength < 0 || shape.updateAddItems < 1) {
+            throw new IllegalArgumentException("String sizes and attribute counts must be >= 0 and update-add items >= 1");
+        }
+        if (shape.customers < 1) {
+            throw new IllegalArgumentException("Customers must be >= 1");
+        }
+        // Batches and tapes keep the status index in a byte
+        if (shape.statuses.size() > 256) {
+            throw new IllegalArgumentException("At most 256 statuses are supported");
+        }
+        return shape;
+    }
+
+    public int nextItemCount(RandomGenerator random) {
+        return switch (distribution) {
+            case FIXED -> a;
+            case UNIFORM -> a + random.nextInt(b - a + 1);
+            case EXPONENTIAL -> (int) Math.min(b, Math.max(1, Math.round(-a * Math.log(1 - random.nextDouble()))));
+        };
+    }
+
+    // Index into the statuses, drawn by weight
+    public int nextStatus(RandomGenerator random) {
+        int draw = random.nextInt(statusWeights[statusWeights.length - 1]);
+        int status = 0;
+        while (draw >= statusWeights[status]) {
+            status++;
+        }
+        return status;
+    }
+
+    public String getStatus(int index) {
+        return statuses.get(index);
+    }
+
+    public int getStatusCount() {
+        return statuses.size();
+    }
+
+    // Order n belongs to customer n mod customers, so a customer's orders are spread over the whole insert
+    // sequence and the customer (a possible shard key) follows from the order key alone
+    public String customerId(long orderNumber) {
+        return "customer_" + Math.floorMod(orderNumber, customers);
+    }
+
+    public int getCustomers() {
+        return customers;
+    }
+
+    public int getMaxItemCount() {
+        return b;
+    }
+
+    public int getNameLength() {
+        return nameLength;
+    }
+
+    public int getDescriptionLength() {
+        return descriptionLength;
+    }
+
+    public int getAttributeCount() {
+        return attributeCount;
+    }
+
+    public int getAttributeLength() {
+        return attributeLength;
+    }
+
+    public int getUpdateAddItems() {
+        return updateAddItems;
+    }
+
+    private String statusMix() {
+        StringBuilder mix = new StringBuilder();
+        for (int i = 0; i < statuses.size(); i++) {
+            mix.append(i > 0 ? "," : "").append(statuses.get(i)).append(':')
+                    .append(statusWeights[i] - (i > 0 ? statusWeights[i - 1] : 0));
+        }
+        return mix.toString();
+    }
+
+    @Override
+    public String toString() {
+        String items = switch (distribution) {
+            case FIXED -> String.valueOf(a);
+            case UNIFORM -> "uniform:" + a + ":" + b;
+            case EXPONENTIAL -> "exponential:" + a + ":" + b;
+        };
+        return "items=" + items + ", nameLength=" + nameLength + ", descriptionLength=" + descriptionLength
+                + ", attributes=" + attributeCount + "x" + attributeLength + ", updateAddItems=" + updateAddItems
+                + ", customers=" + customers + ", statuses=" + statusMix();
+    }
+}
@@ -0,0 +1,300 @@
+package com.mrscrape.benchmark.workload;
+
+import com.mrscrape.benchmark.model.Item;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pre-generated workload in a memory-mapped binary file: the values drawn for every insert order and for
+ * the update-add items. Ids are not recorded; they are formatted from the order number like on the live
+ * path, so a tape serves every key type. Workers read records straight from the mapping with absolute
+ * gets into their OrderBatch, so the tape can be shared without copying or locking.
+ *
+ * Layout: records (orders, then added items), then a directory (seed, shape, counts, record offsets),
+ * then the directory offset and magic in the last 12 bytes. An order record holds the date, status index
+ * and item count, then its items; an item record holds name, price, quantity, description and attributes,
+ * in the order OrderGenerator draws them. Names are only recorded when the shape pads them.
+ */
+public class WorkloadTape {
+    private static final int MAGIC = 0x4F54_5032; // "OTP2"
+    private static final int MAX_TAPE_BYTES = Integer.MAX_VALUE;
+
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final long seed;
+    private final String shape;
+    private final int[] orderOffsets;
+    private final int[] addedOffsets;
+
+    private WorkloadTape(Path path, MappedByteBuffer buffer) throws IOException {
+        this.path = path;
+        this.buffer = buffer;
+        int limit = buffer.limit();
+        if (limit < 12 || buffer.getInt(limit - 4) != MAGIC) {
+            throw new IOException("Not a workload tape: " + path);
+        }
+        Reader reader = new Reader(buffer, (int) buffer.getLong(limit - 12));
+        this.seed = reader.readLong();
+        this.shape = reader.readString();
+        this.orderOffsets = new int[reader.readInt()];
+        this.addedOffsets = new int[reader.readInt()];
+        for (int i = 0; i < orderOffsets.length; i++) {
+            orderOffsets[i] = reader.readInt();
+        }
+        for (int i = 0; i < addedOffsets.length; i++) {
+            addedOffsets[i] = reader.readInt();
+        }
+    }
+
+    public static WorkloadTape open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > MAX_TAPE_BYTES) {
+                throw new IOException("Workload tape exceeds 2GB: " + path);
+            }
+            return new WorkloadTape(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Generates a tape with the given generator: orderCount insert orders, and the update-add items of
+     * the first updateAddCount of them.
+     */
+    public static WorkloadTape create(Path path, OrderGenerator generator, int orderCount, int updateAddCount)
+            throws IOException {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        boolean names = generator.getShape().getNameLength() > 0;
+        int[] orderOffsets = new int[orderCount];
+        int[] addedOffsets = new int[Math.min(updateAddCount, orderCount)];
+        try (CountingOutputStream counter = new CountingOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16));
+             DataOutputStream out = new DataOutputStream(counter)) {
+            int[] itemCounts = new int[orderCount];
+            OrderBatch batch = new OrderBatch(1, generator.getShape().getMaxItemCount(), generator.getShape(),
+                    generator.getKeyType());
+            for (int i = 0; i < orderCount; i++) {
+                batch.clear();
+                generator.appendTo(batch, i);
+                orderOffsets[i] = checkedOffset(counter.count);
+                itemCounts[i] = batch.itemCount(0);
+                out.writeLong(batch.orderDateMillis(0));
+                out.writeByte(batch.statusIndex(0));
+                out.writeInt(itemCounts[i]);
+                for (int item = batch.firstItem(0); item < batch.endItem(0); item++) {
+                    writeItem(out, names ? batch.name(item) : null, batch.price(item), batch.quantity(item),
+                            batch.description(item), batch.attributes(item));
+                }
+            }
+            for (int i = 0; i < addedOffsets.length; i++) {
+                addedOffsets[i] = checkedOffset(counter.count);
+                List<Item> items = generator.generateAddedItems(generator.orderId(i), itemCounts[i]);
+                out.writeInt(items.size());
+                for (Item item : items) {
+                    writeItem(out, names ? item.getName() : null, item.getPrice(), item.getQuantity(),
+                            item.getDescription(), item.getAttributes());
+                }
+            }
+
+            long directoryOffset = checkedOffset(counter.count);
+            out.writeLong(generator.getSeed() != null ? generator.getSeed() : 0L);
+            writeString(out, generator.getShape().toString());
+            out.writeInt(orderOffsets.length);
+            out.writeInt(addedOffsets.length);
+            for (int offset : orderOffsets) {
+                out.writeInt(offset);
+            }
+            for (int offset : addedOffsets) {
+                out.writeInt(offset);
+            }
+            out.writeLong(directoryOffset);
+            out.writeInt(MAGIC);
+            checkedOffset(counter.count);
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return open(path);
+    }
+
+    private static int checkedOffset(long offset) throws IOException {
+        if (offset > MAX_TAPE_BYTES) {
+            throw new IOException("Workload tape exceeds 2GB; reduce operation counts or order size");
+        }
+        return (int) offset;
+    }
+
+    public boolean matches(Long expectedSeed, OrderShape expectedShape, int orderCount, int updateAddCount) {
+        if (expectedSeed != null && expectedSeed != seed) {
+            return false;
+        }
+        return shape.equals(expectedShape.toString()) && orderOffsets.length == orderCount
+                && addedOffsets.length >= Math.min(updateAddCount, orderCount);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public long getSizeBytes() {
+        return buffer.limit();
+    }
+
+    public int getOrderCount() {
+        return orderOffsets.length;
+    }
+
+    /**
+     * Appends the index-th insert order to the batch and returns its position, or -1 if the batch is full.
+     * Primitives go from the mapping into the batch arrays; only recorded strings are decoded.
+     */
+    public int appendTo(OrderBatch batch, int index) {
+        Reader reader = new Reader(buffer, orderOffsets[index]);
+        long orderDate = reader.readLong();
+        int status = reader.readByte() & 0xFF;
+        int itemCount = reader.readInt();
+        int position = batch.append(index, orderDate, status, itemCount);
+        if (position < 0) {
+            return -1;
+        }
+        int first = batch.firstItem(position);
+        for (int i = 0; i < itemCount; i++) {
+            String name = reader.readString();
+            long price = reader.readLong();
+            long quantity = reader.readLong();
+            String description = reader.readString();
+            batch.setItem(first + i, i, name, price, quantity, description, readAttributes(reader));
+        }
+        return position;
+    }
+
+    // Recorded update-add items of the orderNumber-th order, numbered after currentSize, or null if it has none
+    public List<Item> readAddedItems(long orderNumber, String orderId, int currentSize) {
+        if (orderNumber < 0 || orderNumber >= addedOffsets.length) {
+            return null;
+        }
+        Reader reader = new Reader(buffer, addedOffsets[(int) orderNumber]);
+        int count = reader.readInt();
+        List<Item> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int number = currentSize + i + 1;
+            String name = reader.readString();
+            long price = reader.readLong();
+            long quantity = reader.readLong();
+            String description = reader.readString();
+            items.add(OrderGenerator.newItem(orderId, number, name != null ? name : "New Product " + number, price,
+                    quantity, description, readAttributes(reader)));
+        }
+        return items;
+    }
+
+    private static void writeItem(DataOutputStream out, String name, long price, long quantity, String description,
+            Map<String, String> attributes) throws IOException {
+        writeString(out, name);
+        out.writeLong(price);
+        out.writeLong(quantity);
+        writeString(out, description);
+        out.writeInt(attributes == null ? -1 : attributes.size());
+        if (attributes != null) {
+            for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+                writeString(out, attribute.getKey());
+                writeString(out, attribute.getValue());
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static Map<String, String> readAttributes(Reader reader) {
+        int count = reader.readInt();
+        if (count < 0) {
+            return null;
+        }
+        Map<String, String> attributes = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            attributes.put(reader.readString(), reader.readString());
+        }
+        return attributes;
+    }
+
+    // Cursor over the shared mapping using absolute gets only, so concurrent readers never touch its position
+    private static final class Reader {
+        private final ByteBuffer buffer;
+        private int position;
+
+        Reader(ByteBuffer buffer, int position) {
+            this.buffer = buffer;
+            this.position = position;
+        }
+
+        int readInt() {
+            int value = buffer.getInt(position);
+            position += 4;
+            return value;
+        }
+
+        byte readByte() {
+            return buffer.get(position++);
+        }
+
+        long readLong() {
+            long value = buffer.getLong(position);
+            position += 8;
+            return value;
+        }
+
+        String readString() {
+            int length = readInt();
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            buffer.get(position, bytes);
+            position += length;
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static final class CountingOutputStream extends java.io.FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}